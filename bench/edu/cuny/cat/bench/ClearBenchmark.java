@@ -0,0 +1,127 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import edu.cuny.cat.core.IllegalShoutException;
+import edu.cuny.cat.market.DuplicateShoutException;
+import edu.cuny.cat.market.GenericDoubleAuctioneer;
+import edu.cuny.cat.market.accepting.AlwaysAcceptingPolicy;
+import edu.cuny.cat.market.pricing.PricingPolicy;
+import edu.cuny.cat.market.quoting.DoubleSidedQuotingPolicy;
+
+/**
+ * <p>
+ * measures a full clear of a {@link GenericDoubleAuctioneer} holding the whole
+ * stream, i.e., updating the market quote, fetching the matched shouts from
+ * the engine, pricing each pair and dispatching the transactions. The
+ * auctioneer is emptied and the stream placed again before each invocation,
+ * outside the measurement.
+ * </p>
+ *
+ * <p>
+ * <code>pricing</code> is the short name of a {@link PricingPolicy} class in
+ * <code>edu.cuny.cat.market.pricing</code>, e.g. <code>Uniform</code> for
+ * {@link edu.cuny.cat.market.pricing.UniformPricingPolicy}, or the full name of
+ * one. Shouts are accepted by {@link AlwaysAcceptingPolicy} and the quote is
+ * given by {@link DoubleSidedQuotingPolicy}.
+ * </p>
+ *
+ * <p>
+ * As in a game, the auctioneer expects single-unit shouts; the parts an engine
+ * splits off a shout with a <code>maxQuantity</code> above 1 are not in the
+ * state of {@link edu.cuny.cat.core.Shout#PLACED} and are complained about
+ * when cleared.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class ClearBenchmark extends ShoutEngineState {
+
+	@Param( { "Uniform", "Discriminatory" })
+	public String pricing;
+
+	protected BenchmarkAuctioneer auctioneer;
+
+	/**
+	 * gives access to the end-of-day cleanup of {@link GenericDoubleAuctioneer}.
+	 */
+	protected static class BenchmarkAuctioneer extends GenericDoubleAuctioneer {
+
+		/**
+		 * empties the engine and drops the pending transactions.
+		 */
+		public void restart() {
+			processDayClosed(null);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUpTrial() throws Exception {
+		prepare();
+
+		auctioneer = new BenchmarkAuctioneer();
+
+		shoutEngine.setAuctioneer(auctioneer);
+		auctioneer.setShoutEngine(shoutEngine);
+
+		final DoubleSidedQuotingPolicy quotingPolicy = new DoubleSidedQuotingPolicy();
+		quotingPolicy.setAuctioneer(auctioneer);
+		auctioneer.setQuotingPolicy(quotingPolicy);
+
+		final PricingPolicy pricingPolicy = ClearBenchmark
+				.createPricingPolicy(pricing);
+		pricingPolicy.setAuctioneer(auctioneer);
+		auctioneer.setPricingPolicy(pricingPolicy);
+
+		final AlwaysAcceptingPolicy acceptingPolicy = new AlwaysAcceptingPolicy();
+		acceptingPolicy.setAuctioneer(auctioneer);
+		auctioneer.setAcceptingPolicy(acceptingPolicy);
+	}
+
+	public static PricingPolicy createPricingPolicy(final String name)
+			throws Exception {
+		String className = name;
+		if (className.indexOf('.') < 0) {
+			className = PricingPolicy.class.getPackage().getName() + "." + name
+					+ "PricingPolicy";
+		}
+
+		return (PricingPolicy) Class.forName(className).newInstance();
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpInvocation() throws IllegalShoutException,
+			DuplicateShoutException {
+		auctioneer.restart();
+		for (int i = 0; i < size; i++) {
+			restore(i);
+			auctioneer.newShout(shouts[i]);
+		}
+	}
+
+	@Benchmark
+	public GenericDoubleAuctioneer clear() {
+		auctioneer.clear();
+		return auctioneer;
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.bench;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import edu.cuny.cat.core.Shout;
+import edu.cuny.cat.market.DuplicateShoutException;
+import edu.cuny.cat.market.matching.ShoutEngine;
+
+/**
+ * measures {@link ShoutEngine#getMatchedShouts()} on an engine holding the
+ * whole stream. As the method empties the set of matched shouts, the engine is
+ * filled again before each invocation, outside the measurement.
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class MatchedShoutsBenchmark extends ShoutEngineState {
+
+	@Setup(Level.Trial)
+	public void setUpTrial() throws Exception {
+		prepare();
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpInvocation() throws DuplicateShoutException {
+		fill();
+	}
+
+	@Benchmark
+	public List<Shout> getMatchedShouts() {
+		return shoutEngine.getMatchedShouts();
+	}
+}
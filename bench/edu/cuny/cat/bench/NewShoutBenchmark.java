@@ -0,0 +1,61 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import edu.cuny.cat.market.DuplicateShoutException;
+import edu.cuny.cat.market.matching.ShoutEngine;
+
+/**
+ * measures {@link ShoutEngine#newShout(edu.cuny.cat.core.Shout)}. The shouts in
+ * the stream are placed one after another, and the engine is emptied each time
+ * the whole stream has been placed, so that the engine holds
+ * <code>size</code>/2 shouts on average.
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class NewShoutBenchmark extends ShoutEngineState {
+
+	protected int cursor;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() throws Exception {
+		prepare();
+	}
+
+	@Setup(Level.Iteration)
+	public void setUpIteration() {
+		shoutEngine.reset();
+		cursor = 0;
+	}
+
+	@Benchmark
+	public ShoutEngine newShout() throws DuplicateShoutException {
+		if (cursor == size) {
+			shoutEngine.reset();
+			cursor = 0;
+		}
+
+		restore(cursor);
+		shoutEngine.newShout(shouts[cursor++]);
+		return shoutEngine;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import edu.cuny.cat.core.Shout;
+import edu.cuny.cat.market.DuplicateShoutException;
+import edu.cuny.cat.market.matching.ShoutEngine;
+
+/**
+ * <p>
+ * measures {@link ShoutEngine#removeShout(Shout)} on an engine holding the
+ * whole stream. Each operation retracts a shout and places it again, so that
+ * the engine keeps holding <code>size</code> shouts; the cost of the removal
+ * alone is roughly this less that of {@link NewShoutBenchmark} on twice the
+ * size.
+ * </p>
+ *
+ * <p>
+ * With a <code>maxQuantity</code> above 1, the part a four-heap engine splits
+ * off a shout stays when the shout is retracted, so the engine slowly grows
+ * during an iteration.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class RemoveShoutBenchmark extends ShoutEngineState {
+
+	protected int cursor;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() throws Exception {
+		prepare();
+	}
+
+	@Setup(Level.Iteration)
+	public void setUpIteration() throws DuplicateShoutException {
+		fill();
+		cursor = 0;
+	}
+
+	@Benchmark
+	public ShoutEngine removeShout() throws DuplicateShoutException {
+		final Shout shout = shouts[cursor];
+		shoutEngine.removeShout(shout);
+		restore(cursor);
+		shoutEngine.newShout(shout);
+
+		if (++cursor == size) {
+			cursor = 0;
+		}
+
+		return shoutEngine;
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.cuny.cat.Game;
+import edu.cuny.cat.core.Shout;
+import edu.cuny.cat.event.RoundOpenedEvent;
+import edu.cuny.cat.market.DuplicateShoutException;
+import edu.cuny.cat.market.matching.AdaptiveThetaShoutEngine;
+import edu.cuny.cat.market.matching.ShoutEngine;
+import edu.cuny.prng.GlobalPRNG;
+import edu.cuny.util.Galaxy;
+
+/**
+ * <p>
+ * The state shared by the shout engine benchmarks: a {@link ShoutEngine} and a
+ * synthetic stream of shouts generated by {@link ShoutStreams}.
+ * </p>
+ *
+ * <p>
+ * <code>engine</code> is either the full name of a {@link ShoutEngine} class
+ * or the short name of one in <code>edu.cuny.cat.market.matching</code>, e.g.
+ * <code>FourHeap</code> for {@link edu.cuny.cat.market.matching.FourHeapShoutEngine}.
+ * {@link AdaptiveThetaShoutEngine} is switched to the theta it uses in the late
+ * rounds of a day, as otherwise it behaves the same as
+ * {@link edu.cuny.cat.market.matching.LazyMaxVolumeShoutEngine}.
+ * </p>
+ *
+ * <p>
+ * Engines may split a shout when it is partly matched, so the quantity, state
+ * and child of a shout are restored before the shout is placed again.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public abstract class ShoutEngineState {
+
+	public static final long SEED = 1;
+
+	@Param( { "FourHeap", "IndexedFourHeap", "LazyMaxVolume", "AdaptiveTheta" })
+	public String engine;
+
+	@Param( { ShoutStreams.UNIFORM, ShoutStreams.CLUSTERED, ShoutStreams.CROSSING })
+	public String stream;
+
+	@Param( { "1000" })
+	public int size;
+
+	@Param( { "1" })
+	public int maxQuantity;
+
+	protected ShoutEngine shoutEngine;
+
+	protected Shout shouts[];
+
+	protected int quantities[];
+
+	/**
+	 * creates the engine and the stream of shouts; to be called by a trial-level
+	 * setup method of each benchmark.
+	 */
+	protected void prepare() throws Exception {
+		ShoutEngineState.setupObjectRegistry();
+
+		shoutEngine = ShoutEngineState.createEngine(engine);
+		shoutEngine.initialize();
+
+		shouts = ShoutStreams.create(stream, size, maxQuantity,
+				ShoutEngineState.SEED);
+		quantities = new int[size];
+		for (int i = 0; i < size; i++) {
+			quantities[i] = shouts[i].getQuantity();
+		}
+	}
+
+	/**
+	 * sets up the random number generator the lazy engines draw on, once for
+	 * each JVM.
+	 */
+	protected static synchronized void setupObjectRegistry() {
+		if (Galaxy.getInstance().get(Game.P_CAT) == null) {
+			Game.setupObjectRegistry();
+			Galaxy.getInstance().getDefaultTyped(GlobalPRNG.class)
+					.initializeWithSeed(ShoutEngineState.SEED);
+		}
+	}
+
+	public static ShoutEngine createEngine(final String name) throws Exception {
+		String className = name;
+		if (className.indexOf('.') < 0) {
+			className = ShoutEngine.class.getPackage().getName() + "." + name
+					+ "ShoutEngine";
+		}
+
+		final ShoutEngine shoutEngine = (ShoutEngine) Class.forName(className)
+				.newInstance();
+
+		if (shoutEngine instanceof AdaptiveThetaShoutEngine) {
+			final RoundOpenedEvent event = new RoundOpenedEvent();
+			event.setTime(new int[] { 0, Integer.MAX_VALUE, 0 });
+			shoutEngine.eventOccurred(event);
+		}
+
+		return shoutEngine;
+	}
+
+	/**
+	 * brings the <code>i</code>th shout back to the state it was generated in.
+	 */
+	protected void restore(final int i) {
+		shouts[i].setQuantity(quantities[i]);
+		shouts[i].setState(Shout.PLACED);
+		shouts[i].setChild(null);
+	}
+
+	/**
+	 * empties the engine and places every shout in the stream.
+	 */
+	protected void fill() throws DuplicateShoutException {
+		shoutEngine.reset();
+		for (int i = 0; i < size; i++) {
+			restore(i);
+			shoutEngine.newShout(shouts[i]);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.bench;
+
+import java.util.Random;
+
+import edu.cuny.cat.core.Shout;
+
+/**
+ * <p>
+ * Generates synthetic streams of shouts for the benchmarks.
+ * </p>
+ *
+ * <ul>
+ * <li><code>uniform</code>: asks and bids with prices drawn uniformly from
+ * [0, {@link #MAX_PRICE}), so that about half of the shouts can be matched.</li>
+ * <li><code>clustered</code>: prices concentrated around a few levels close to
+ * the middle of the price range, producing many shouts at the same price.</li>
+ * <li><code>crossing</code>: bids drawn from the upper half and asks from the
+ * lower half of the price range, so that almost every shout is matched.</li>
+ * </ul>
+ *
+ * <p>
+ * Shouts are placed by different traders, i.e., no two shouts share an id, and
+ * carry a quantity drawn uniformly from [1, maxQuantity].
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class ShoutStreams {
+
+	public static final String UNIFORM = "uniform";
+
+	public static final String CLUSTERED = "clustered";
+
+	public static final String CROSSING = "crossing";
+
+	public static final double MAX_PRICE = 200;
+
+	/**
+	 * price levels around which shouts in a clustered stream are placed
+	 */
+	public static final double CLUSTERS[] = { 90, 95, 100, 105, 110 };
+
+	/**
+	 * standard deviation of the prices in a cluster, before rounding to cents
+	 */
+	public static final double CLUSTER_DEVIATION = 1;
+
+	private ShoutStreams() {
+	}
+
+	/**
+	 * @param type
+	 *          one of {@link #UNIFORM}, {@link #CLUSTERED} and {@link #CROSSING}.
+	 * @param size
+	 *          the number of shouts in the stream.
+	 * @param maxQuantity
+	 *          the maximal quantity of a shout.
+	 * @param seed
+	 *          the seed of the random number generator.
+	 * @return the shouts in the order in which they are to be placed.
+	 */
+	public static Shout[] create(final String type, final int size,
+			final int maxQuantity, final long seed) {
+		final Random random = new Random(seed);
+		final Shout shouts[] = new Shout[size];
+
+		for (int i = 0; i < size; i++) {
+			final boolean isBid = random.nextBoolean();
+			final int quantity = 1 + random.nextInt(maxQuantity);
+
+			double price;
+			if (ShoutStreams.UNIFORM.equalsIgnoreCase(type)) {
+				price = random.nextDouble() * ShoutStreams.MAX_PRICE;
+			} else if (ShoutStreams.CLUSTERED.equalsIgnoreCase(type)) {
+				price = ShoutStreams.CLUSTERS[random
+						.nextInt(ShoutStreams.CLUSTERS.length)]
+						+ random.nextGaussian() * ShoutStreams.CLUSTER_DEVIATION;
+			} else if (ShoutStreams.CROSSING.equalsIgnoreCase(type)) {
+				price = random.nextDouble() * ShoutStreams.MAX_PRICE / 2;
+				if (isBid) {
+					price += ShoutStreams.MAX_PRICE / 2;
+				}
+			} else {
+				throw new IllegalArgumentException("Unknown shout stream: " + type);
+			}
+
+			shouts[i] = new Shout("s" + i, quantity, Math.round(price * 100) / 100.0,
+					isBid);
+			shouts[i].setState(Shout.PLACED);
+		}
+
+		return shouts;
+	}
+}
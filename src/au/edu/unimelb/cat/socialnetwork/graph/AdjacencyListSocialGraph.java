@@ -0,0 +1,134 @@
+package au.edu.unimelb.cat.socialnetwork.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A sparse {@link SocialGraph} that keeps, for each vertex, a sorted
+ * <code>int[]</code> of its neighbours. Rows are replaced copy-on-write with
+ * compare-and-set, so readers always see a consistent row without locking and
+ * memory grows with the number of links rather than the square of the number
+ * of traders.
+ *
+ * @author Martin Chapman
+ * @version $Rev: 130 $
+ */
+public class AdjacencyListSocialGraph implements SocialGraph {
+
+	private static final int[] NO_NEIGHBOURS = new int[0];
+
+	private AtomicReferenceArray<int[]> rows;
+
+	public AdjacencyListSocialGraph() {
+		rows = new AtomicReferenceArray<int[]>(0);
+	}
+
+	public void initialize(final int numOfVertices) {
+		rows = new AtomicReferenceArray<int[]>(numOfVertices);
+		for (int i = 0; i < numOfVertices; i++) {
+			rows.set(i, AdjacencyListSocialGraph.NO_NEIGHBOURS);
+		}
+	}
+
+	public int getNumOfVertices() {
+		return rows.length();
+	}
+
+	public boolean isLinked(final int from, final int to) {
+		return Arrays.binarySearch(rows.get(from), to) >= 0;
+	}
+
+	public void setLinked(final int from, final int to, final boolean linked) {
+		checkVertex(to);
+
+		int[] row;
+		int[] newRow;
+		do {
+			row = rows.get(from);
+			final int pos = Arrays.binarySearch(row, to);
+			if (linked == (pos >= 0)) {
+				return;
+			} else if (linked) {
+				newRow = insert(row, -pos - 1, to);
+			} else {
+				newRow = remove(row, pos);
+			}
+		} while (!rows.compareAndSet(from, row, newRow));
+	}
+
+	public void setNeighbours(final int from, final int[] to) {
+		int[] newRow = AdjacencyListSocialGraph.NO_NEIGHBOURS;
+		if (to.length > 0) {
+			final int[] sorted = to.clone();
+			Arrays.sort(sorted);
+			int n = 0;
+			for (int i = 0; i < sorted.length; i++) {
+				checkVertex(sorted[i]);
+				if (n == 0 || sorted[n - 1] != sorted[i]) {
+					sorted[n++] = sorted[i];
+				}
+			}
+			newRow = (n == sorted.length) ? sorted : Arrays.copyOf(sorted, n);
+		}
+		rows.set(from, newRow);
+	}
+
+	public boolean rewire(final int from, final int oldTo, final int newTo) {
+		checkVertex(newTo);
+
+		int[] row;
+		int[] newRow;
+		do {
+			row = rows.get(from);
+			final int oldPos = Arrays.binarySearch(row, oldTo);
+			if (oldPos < 0) {
+				return false;
+			}
+			newRow = remove(row, oldPos);
+			final int newPos = Arrays.binarySearch(newRow, newTo);
+			if (newPos < 0) {
+				newRow = insert(newRow, -newPos - 1, newTo);
+			}
+		} while (!rows.compareAndSet(from, row, newRow));
+
+		return true;
+	}
+
+	public int[] getNeighbours(final int from) {
+		return rows.get(from);
+	}
+
+	public int getDegree(final int from) {
+		return rows.get(from).length;
+	}
+
+	private void checkVertex(final int v) {
+		if ((v < 0) || (v >= rows.length())) {
+			throw new IndexOutOfBoundsException("Invalid vertex " + v
+					+ " in a social graph of " + rows.length() + " vertices !");
+		}
+	}
+
+	private static int[] insert(final int[] row, final int pos, final int v) {
+		final int[] newRow = new int[row.length + 1];
+		System.arraycopy(row, 0, newRow, 0, pos);
+		newRow[pos] = v;
+		System.arraycopy(row, pos, newRow, pos + 1, row.length - pos);
+		return newRow;
+	}
+
+	private static int[] remove(final int[] row, final int pos) {
+		if (row.length == 1) {
+			return AdjacencyListSocialGraph.NO_NEIGHBOURS;
+		}
+		final int[] newRow = new int[row.length - 1];
+		System.arraycopy(row, 0, newRow, 0, pos);
+		System.arraycopy(row, pos + 1, newRow, pos, row.length - pos - 1);
+		return newRow;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,118 @@
+package au.edu.unimelb.cat.socialnetwork.graph;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The original n x n adjacency matrix, where a cell holding 1 denotes a link.
+ * Neighbour lookup scans a whole row, so {@link AdjacencyListSocialGraph} is
+ * preferable for large, sparse networks.
+ *
+ * <p>
+ * As in {@link AdjacencyListSocialGraph}, rows are replaced copy-on-write with
+ * compare-and-set, so that a reader never sees a row half way through
+ * {@link #rewire(int, int, int)} or {@link #setNeighbours(int, int[])}.
+ * </p>
+ *
+ * @author Guan Gui (Revisions by Martin Chapman)
+ * @version $Rev: 130 $
+ */
+public class DenseSocialGraph implements SocialGraph {
+
+	private AtomicReferenceArray<int[]> matrix;
+
+	public DenseSocialGraph() {
+		matrix = new AtomicReferenceArray<int[]>(0);
+	}
+
+	public void initialize(final int numOfVertices) {
+		matrix = new AtomicReferenceArray<int[]>(numOfVertices);
+		for (int i = 0; i < numOfVertices; i++) {
+			matrix.set(i, new int[numOfVertices]);
+		}
+	}
+
+	public int getNumOfVertices() {
+		return matrix.length();
+	}
+
+	public boolean isLinked(final int from, final int to) {
+		return matrix.get(from)[to] == 1;
+	}
+
+	public void setLinked(final int from, final int to, final boolean linked) {
+		final int cell = linked ? 1 : 0;
+
+		int[] row;
+		int[] newRow;
+		do {
+			row = matrix.get(from);
+			if (row[to] == cell) {
+				return;
+			}
+			newRow = row.clone();
+			newRow[to] = cell;
+		} while (!matrix.compareAndSet(from, row, newRow));
+	}
+
+	public void setNeighbours(final int from, final int[] to) {
+		final int[] newRow = new int[matrix.length()];
+		for (final int j : to) {
+			newRow[j] = 1;
+		}
+		matrix.set(from, newRow);
+	}
+
+	public boolean rewire(final int from, final int oldTo, final int newTo) {
+		int[] row;
+		int[] newRow;
+		do {
+			row = matrix.get(from);
+			if (row[oldTo] != 1) {
+				return false;
+			}
+			newRow = row.clone();
+			newRow[oldTo] = 0;
+			newRow[newTo] = 1;
+		} while (!matrix.compareAndSet(from, row, newRow));
+
+		return true;
+	}
+
+	public int[] getNeighbours(final int from) {
+		final int[] row = matrix.get(from);
+		final int[] buffer = new int[row.length];
+		int n = 0;
+		for (int j = 0; j < row.length; j++) {
+			if (row[j] == 1) {
+				buffer[n++] = j;
+			}
+		}
+
+		final int[] neighbours = new int[n];
+		System.arraycopy(buffer, 0, neighbours, 0, n);
+		return neighbours;
+	}
+
+	public int getDegree(final int from) {
+		final int[] row = matrix.get(from);
+		int degree = 0;
+		for (int j = 0; j < row.length; j++) {
+			if (row[j] == 1) {
+				degree++;
+			}
+		}
+		return degree;
+	}
+
+	/**
+	 * @return the underlying matrix, whose rows must not be modified
+	 */
+	public AtomicReferenceArray<int[]> getMatrix() {
+		return matrix;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+}
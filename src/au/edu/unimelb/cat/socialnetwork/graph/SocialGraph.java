@@ -0,0 +1,65 @@
+package au.edu.unimelb.cat.socialnetwork.graph;
+
+/**
+ * Stores the directed social links between traders that are used by the
+ * mimicking methods to look up advisors. Vertices are the row indices used by
+ * {@link edu.cuny.cat.registry.SocialNetworkRegistry#getmSTraderIds()}.
+ *
+ * <p>
+ * Implementations must allow {@link #getNeighbours(int)} to be called from
+ * trader threads while the registry rewires the graph between days.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Rev: 130 $
+ */
+public interface SocialGraph {
+
+	/**
+	 * Removes all links and resizes the graph to the given number of vertices.
+	 *
+	 * @param numOfVertices
+	 *          the number of traders in the network
+	 */
+	public void initialize(int numOfVertices);
+
+	public int getNumOfVertices();
+
+	/**
+	 * @return true if there is a link from <code>from</code> to
+	 *         <code>to</code>.
+	 */
+	public boolean isLinked(int from, int to);
+
+	/**
+	 * Adds or removes the link from <code>from</code> to <code>to</code>.
+	 */
+	public void setLinked(int from, int to, boolean linked);
+
+	/**
+	 * Replaces all outgoing links of <code>from</code>.
+	 *
+	 * @param to
+	 *          indices of the neighbours; duplicates are ignored.
+	 */
+	public void setNeighbours(int from, int[] to);
+
+	/**
+	 * Atomically moves the link <code>from</code> -&gt; <code>oldTo</code> to
+	 * <code>from</code> -&gt; <code>newTo</code>.
+	 *
+	 * @return false if <code>oldTo</code> was not a neighbour of
+	 *         <code>from</code>.
+	 */
+	public boolean rewire(int from, int oldTo, int newTo);
+
+	/**
+	 * @return the neighbours of <code>from</code> in ascending order. The array
+	 *         is a snapshot that is not affected by later rewiring and must not
+	 *         be modified by the caller.
+	 */
+	public int[] getNeighbours(int from);
+
+	public int getDegree(int from);
+
+}
@@ -13,6 +13,7 @@ import cern.jet.random.Uniform;
 import edu.cuny.cat.Game;
 import edu.cuny.prng.GlobalPRNG;
 import edu.cuny.util.Galaxy;
+import au.edu.unimelb.cat.socialnetwork.graph.SocialGraph;
 
 /**
  * 
@@ -45,13 +46,11 @@ public class Utils {
 		return "";
 	}
 
-	private static Uniform matrixDist;
-
 	public static int[][] randomMatrix(int size) {
 
 		int[][] matrix = new int[size][size];
 		int curRow = 0;
-		matrixDist = new Uniform(0, 1, Galaxy.getInstance()
+		Uniform matrixDist = new Uniform(0, 1, Galaxy.getInstance()
 					.getTyped(Game.P_CAT, GlobalPRNG.class).getEngine());
 
 		while (curRow < size) {
@@ -69,8 +68,11 @@ public class Utils {
 
 	}
 
-	public static int[][] readADMFile(String path) throws Exception {
-		// get matrix size
+	/**
+	 * Counts the entries on the first line of an adjacency matrix file, i.e.
+	 * the size of the matrix.
+	 */
+	private static int readADMSize(String path) throws Exception {
 		Scanner sc = new Scanner(new File(path));
 		Scanner scl = new Scanner(sc.nextLine());
 		int size = 0;
@@ -80,19 +82,24 @@ public class Utils {
 				size++;
 			} catch (NumberFormatException nfe) {
 				if (scl.hasNext()) {
-					throw new RuntimeException("Incorect matrix first line!");
+					throw new RuntimeException("Incorrect matrix first line!");
 				}
 			}
 		}
 		scl.close();
-
 		sc.close();
-		sc = new Scanner(new File(path));
+
+		return size;
+	}
+
+	public static int[][] readADMFile(String path) throws Exception {
+		int size = readADMSize(path);
+		Scanner sc = new Scanner(new File(path));
 		int[][] matrix = new int[size][size];
 		int curRow = 0;
 		// get matrix entries
 		while (curRow < size && sc.hasNextLine()) {
-			scl = new Scanner(sc.nextLine());
+			Scanner scl = new Scanner(sc.nextLine());
 
 			for (int curCol = 0; curCol < matrix.length; curCol++) {
 				try {
@@ -150,6 +157,99 @@ public class Utils {
 		return matrix;
 	}
 
+	/**
+	 * Reads an adjacency matrix file row by row, returning for each row the
+	 * column indices of its entries with value 1, so that the full matrix never
+	 * has to be held in memory.
+	 */
+	public static int[][] readADMNeighbours(String path) throws Exception {
+		int size = readADMSize(path);
+		Scanner sc = new Scanner(new File(path));
+		int[][] rows = new int[size][];
+		int[] buffer = new int[size];
+		int curRow = 0;
+		// get neighbours of each row
+		while (curRow < size && sc.hasNextLine()) {
+			Scanner scl = new Scanner(sc.nextLine());
+			int n = 0;
+
+			for (int curCol = 0; curCol < size; curCol++) {
+				try {
+					if (Integer.parseInt(scl.next()) == 1) {
+						buffer[n++] = curCol;
+					}
+				} catch (NumberFormatException nfe) {
+					throw new RuntimeException(String.format(
+							"Corrupted matrix entry (%d, %d)!", curRow + 1,
+							curCol + 1));
+				}
+			}
+
+			scl.close();
+			rows[curRow++] = Arrays.copyOf(buffer, n);
+		}
+		sc.close();
+
+		while (curRow < size) {
+			rows[curRow++] = new int[0];
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Reads an adjacency list file, where line i lists the neighbours of vertex
+	 * i.
+	 */
+	public static int[][] readADLNeighbours(String path) throws Exception {
+		Scanner sc = new Scanner(new File(path));
+		ArrayList<int[]> rows = new ArrayList<int[]>();
+
+		while (sc.hasNextLine()) {
+			Scanner scl = new Scanner(sc.nextLine());
+			int[] row = new int[4];
+			int n = 0;
+
+			while (scl.hasNext()) {
+				if (n == row.length) {
+					row = Arrays.copyOf(row, row.length * 2);
+				}
+				row[n++] = Integer.parseInt(scl.next());
+			}
+
+			scl.close();
+			rows.add(Arrays.copyOf(row, n));
+		}
+		sc.close();
+
+		return rows.toArray(new int[rows.size()][]);
+	}
+
+	/**
+	 * Draws a random network in the same way as {@link #randomMatrix(int)},
+	 * returning only the neighbour indices of each vertex.
+	 */
+	public static int[][] randomNeighbours(int size) {
+
+		int[][] rows = new int[size][];
+		Uniform matrixDist = new Uniform(0, 1, Galaxy.getInstance()
+					.getTyped(Game.P_CAT, GlobalPRNG.class).getEngine());
+
+		int[] buffer = new int[size];
+		for (int curRow = 0; curRow < size; curRow++) {
+			int n = 0;
+			for (int curCol = 0; curCol < size; curCol++) {
+				if (matrixDist.nextInt() == 1) {
+					buffer[n++] = curCol;
+				}
+			}
+			rows[curRow] = Arrays.copyOf(buffer, n);
+		}
+
+		return rows;
+
+	}
+
 	public static void print2DIntArray(int[][] array) {
 		for (int i = 0; i < array.length; i++) {
 			for (int j = 0; j < array[i].length; j++) {
@@ -173,13 +273,10 @@ public class Utils {
 		print2DIntArray(readADMFile("/Users/guiguan/Desktop/5-5.net.adm"));
 	}
 
-	private static Uniform dist;
-
 	public static String[] shuffleIds(String[] ids) {
-		if (dist == null) {
-			dist = new Uniform(0, ids.length - 1, Galaxy.getInstance()
-					.getTyped(Game.P_CAT, GlobalPRNG.class).getEngine());
-		}
+		// draws from the engine of the game running in the current galaxy
+		Uniform dist = new Uniform(0, ids.length - 1, Galaxy.getInstance()
+				.getTyped(Game.P_CAT, GlobalPRNG.class).getEngine());
 
 		for (int i = 0; i < ids.length; i++) {
 			int randomPosition = dist.nextInt();
@@ -191,8 +288,7 @@ public class Utils {
 		return ids;
 	}
 
-	public static void saveMatrixAsADM(
-			AtomicReferenceArray<AtomicIntegerArray> matrix, String path) {
+	public static void saveMatrixAsADM(SocialGraph graph, String path) {
 		PrintWriter pw;
 
 		try {
@@ -202,9 +298,9 @@ public class Utils {
 			return;
 		}
 
-		for (int i = 0; i < matrix.length(); i++) {
-			for (int j = 0; j < matrix.length(); j++) {
-				pw.print(matrix.get(i).get(j) + " ");
+		for (int i = 0; i < graph.getNumOfVertices(); i++) {
+			for (int j = 0; j < graph.getNumOfVertices(); j++) {
+				pw.print((graph.isLinked(i, j) ? 1 : 0) + " ");
 			}
 			pw.println();
 		}
@@ -212,8 +308,7 @@ public class Utils {
 		pw.close();
 	}
 
-	public static void saveMatrixAsADL(
-			AtomicReferenceArray<AtomicIntegerArray> matrix, String path) {
+	public static void saveMatrixAsADL(SocialGraph graph, String path) {
 		PrintWriter pw;
 
 		try {
@@ -223,11 +318,9 @@ public class Utils {
 			return;
 		}
 
-		for (int i = 0; i < matrix.length(); i++) {
-			for (int j = 0; j < matrix.length(); j++) {
-				if (matrix.get(i).get(j) == 1) {
-					pw.print(j + " ");
-				}
+		for (int i = 0; i < graph.getNumOfVertices(); i++) {
+			for (int j : graph.getNeighbours(i)) {
+				pw.print(j + " ");
 			}
 			pw.println();
 		}
@@ -235,8 +328,7 @@ public class Utils {
 		pw.close();
 	}
 
-	public static void saveMatrixAsCSV(
-			AtomicReferenceArray<AtomicIntegerArray> matrix, String path) {
+	public static void saveMatrixAsCSV(SocialGraph graph, String path) {
 		PrintWriter pw;
 
 		try {
@@ -246,10 +338,10 @@ public class Utils {
 			return;
 		}
 
-		for (int i = 0; i < matrix.length(); i++) {
-			for (int j = 0; j < matrix.length(); j++) {
-				pw.print(matrix.get(i).get(j));
-				if (j < matrix.length() - 1)
+		for (int i = 0; i < graph.getNumOfVertices(); i++) {
+			for (int j = 0; j < graph.getNumOfVertices(); j++) {
+				pw.print(graph.isLinked(i, j) ? 1 : 0);
+				if (j < graph.getNumOfVertices() - 1)
 					pw.print(", ");
 			}
 			pw.println();
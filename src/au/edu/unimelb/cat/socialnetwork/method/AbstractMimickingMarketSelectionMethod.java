@@ -2,7 +2,6 @@ package au.edu.unimelb.cat.socialnetwork.method;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.Hashtable;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.swing.SwingUtilities;
@@ -12,6 +11,7 @@ import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
 import edu.cuny.util.Parameterizable;
 
+import au.edu.unimelb.cat.socialnetwork.graph.SocialGraph;
 import au.edu.unimelb.cat.socialnetwork.ui.MarketSelectionAMFrame;
 
 /**
@@ -23,7 +23,7 @@ import au.edu.unimelb.cat.socialnetwork.ui.MarketSelectionAMFrame;
 public abstract class AbstractMimickingMarketSelectionMethod extends
 		AbstractMimickingMethod implements Parameterizable {
 
-	protected AtomicReferenceArray<AtomicIntegerArray> mSAdjacencyMatrix;
+	protected SocialGraph socialGraph;
 	protected AtomicReferenceArray<String> mSTraderIds;
 	protected Hashtable<String, Integer> mSTraderIdIdx;
 	protected Hashtable<String, String> mSHistory;
@@ -38,15 +38,15 @@ public abstract class AbstractMimickingMarketSelectionMethod extends
 
 	public void initMatrix() {
 		// Copying references from snr
-		mSAdjacencyMatrix = snr.getmSAdjacencyMatrix();
+		socialGraph = snr.getSocialGraph();
 		mSTraderIds = snr.getmSTraderIds();
 		mSTraderIdIdx = snr.getmSTraderIdIdx();
 		mSHistory = snr.getmSHistory();
 		tExperience = snr.getTExperience();
 	}
 
-	public String packQueryResult(String sId, boolean e) {
-		return String.format("specialistid=%s, experience=%s", sId, e);
+	public Advice packQueryResult(String sId, boolean e) {
+		return Advice.forMarketSelection(sId, e);
 	}
 
 	@Override
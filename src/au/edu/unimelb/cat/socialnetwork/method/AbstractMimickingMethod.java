@@ -27,10 +27,9 @@ public abstract class AbstractMimickingMethod {
 	 * 
 	 * @param tId
 	 *            trader Id
-	 * @return query result to be returned as in TEXT header of the response
-	 *         message
+	 * @return the advice to be returned in the response message
 	 */
-	public abstract String queryMatrix(String tId);
+	public abstract Advice queryMatrix(String tId);
 
 	public abstract void reward(Trader trader, double reputation); //
 
@@ -2,9 +2,9 @@ package au.edu.unimelb.cat.socialnetwork.method;
 
 import java.util.Hashtable;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import au.edu.unimelb.cat.socialnetwork.graph.SocialGraph;
 import edu.cuny.cat.core.Trader;
 import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
@@ -13,7 +13,7 @@ import edu.cuny.util.Parameterizable;
 public abstract class AbstractMimickingShoutingMethod extends
 		AbstractMimickingMethod implements Parameterizable {
 
-	protected AtomicReferenceArray<AtomicIntegerArray> mSAdjacencyMatrix;
+	protected SocialGraph socialGraph;
 	protected AtomicReferenceArray<String> mSTraderIds;
 	protected Hashtable<String, Integer> mSTraderIdIdx;
 	protected Hashtable<String, ShoutingHistoryEntry> sHistory;
@@ -29,16 +29,15 @@ public abstract class AbstractMimickingShoutingMethod extends
 
 	public void initMethod() {
 		// Copying references from snr
-		mSAdjacencyMatrix = snr.getmSAdjacencyMatrix();
+		socialGraph = snr.getSocialGraph();
 		mSTraderIds = snr.getmSTraderIds();
 		mSTraderIdIdx = snr.getmSTraderIdIdx();
 		sHistory = snr.getsHistory();
 		tradeEntitlements = snr.getTradeEntitlements();
 	}
 
-	public String packQueryResult(ShoutingHistoryEntry she, Boolean e) {
-		return String.format("price=%f, quantity=%d, experience=%s", she.getPrice(),
-				she.getQuantity(), e);
+	public Advice packQueryResult(ShoutingHistoryEntry she, Boolean e) {
+		return Advice.forShouting(she.getPrice(), she.getQuantity(), e);
 	}
 
 	@Override
@@ -0,0 +1,203 @@
+package au.edu.unimelb.cat.socialnetwork.method;
+
+import java.util.Locale;
+
+import edu.cuny.cat.comm.CatpMessage;
+import edu.cuny.cat.comm.CatpMessageErrorException;
+
+/**
+ * The advice that the social network gives a trader, either on which
+ * specialist to go to (market selection, {@link #MSS}) or on what to shout
+ * (shouting, {@link #SS}), together with whether the experience of the trader
+ * it comes from is positive.
+ *
+ * Advice travels in CATP messages of type {@link #TYPE}, each field in a header
+ * of its own, e.g. <code>
+ * OK CRLF
+ * Type: MD CRLF
+ * Strategy: SS CRLF
+ * Price: 100.234234 CRLF
+ * Quantity: 2 CRLF
+ * Experience: true CRLF
+ * CRLF
+ * </code>
+ *
+ * @author Martin Chapman
+ * @version $Rev: 1 $
+ */
+public class Advice {
+
+	/**
+	 * the type of messages carrying advice.
+	 */
+	public static final String TYPE = "MD";
+
+	public static final String MSS = "MSS";
+
+	public static final String SS = "SS";
+
+	public static final String STRATEGY = "STRATEGY";
+
+	public static final String PRICE = "PRICE";
+
+	public static final String QUANTITY = "QUANTITY";
+
+	public static final String EXPERIENCE = "EXPERIENCE";
+
+	private final String strategy;
+
+	private final String specialistId;
+
+	private final double price;
+
+	private final int quantity;
+
+	private final boolean experience;
+
+	private Advice(String strategy, String specialistId, double price,
+			int quantity, boolean experience) {
+		this.strategy = strategy;
+		this.specialistId = specialistId;
+		this.price = price;
+		this.quantity = quantity;
+		this.experience = experience;
+	}
+
+	/**
+	 * @param specialistId
+	 *            the specialist recommended, or an empty string or
+	 *            <code>null</code> if none.
+	 */
+	public static Advice forMarketSelection(String specialistId,
+			boolean experience) {
+		return new Advice(MSS, specialistId, -1, -1, experience);
+	}
+
+	/**
+	 * @param price
+	 *            the price to shout at, or -1 if no shout is recommended.
+	 * @param quantity
+	 *            the quantity to shout, or -1 if no shout is recommended.
+	 */
+	public static Advice forShouting(double price, int quantity,
+			boolean experience) {
+		return new Advice(SS, null, price, quantity, experience);
+	}
+
+	/**
+	 * @return advice of the given strategy that recommends nothing, as read
+	 *         from a response that carries no advice.
+	 */
+	public static Advice none(String strategy) {
+		if (MSS.equalsIgnoreCase(strategy)) {
+			return forMarketSelection("", false);
+		} else {
+			return forShouting(-1, -1, false);
+		}
+	}
+
+	public String getStrategy() {
+		return strategy;
+	}
+
+	public boolean isMarketSelection() {
+		return MSS.equalsIgnoreCase(strategy);
+	}
+
+	public boolean isShouting() {
+		return SS.equalsIgnoreCase(strategy);
+	}
+
+	public String getSpecialistId() {
+		return specialistId;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public boolean getExperience() {
+		return experience;
+	}
+
+	/**
+	 * @return true if a specialist or a shout is actually recommended.
+	 */
+	public boolean isValid() {
+		if (isMarketSelection()) {
+			return specialistId != null && specialistId.length() > 0;
+		} else {
+			return price != -1 && quantity != -1;
+		}
+	}
+
+	/**
+	 * @return the header fields carrying the advice, in the format accepted by
+	 *         {@link CatpMessage#setHeaders(String[])}.
+	 */
+	public String[] toHeaders() {
+		if (isMarketSelection()) {
+			return new String[] { CatpMessage.TYPE, TYPE, STRATEGY, strategy,
+					CatpMessage.SPECIALIST, isValid() ? specialistId : "",
+					EXPERIENCE, String.valueOf(experience) };
+		} else {
+			// rounded as the text format used to, so that games run as before
+			return new String[] { CatpMessage.TYPE, TYPE, STRATEGY, strategy,
+					PRICE, String.format(Locale.US, "%f", price), QUANTITY,
+					String.valueOf(quantity), EXPERIENCE,
+					String.valueOf(experience) };
+		}
+	}
+
+	/**
+	 * @return true if the message carries any advice; a response to a request
+	 *         for advice carries none if there is no advice to give.
+	 */
+	public static boolean isCarriedBy(CatpMessage msg) {
+		return msg.getHeader(STRATEGY) != null;
+	}
+
+	/**
+	 * reads advice from the header fields of a message.
+	 *
+	 * @throws CatpMessageErrorException
+	 *             if any field is missing or malformed.
+	 */
+	public static Advice parse(CatpMessage msg)
+			throws CatpMessageErrorException {
+		final String strategy = msg.getHeader(STRATEGY);
+		final boolean experience = Boolean.parseBoolean(msg
+				.getHeader(EXPERIENCE));
+
+		if (MSS.equalsIgnoreCase(strategy)) {
+			final String specialistId = msg.getHeader(CatpMessage.SPECIALIST);
+			if (specialistId == null) {
+				throw new CatpMessageErrorException("No "
+						+ CatpMessage.SPECIALIST + " in market selection advice !");
+			}
+			return forMarketSelection(specialistId, experience);
+		} else if (SS.equalsIgnoreCase(strategy)) {
+			return forShouting(msg.getDoubleHeader(PRICE), msg
+					.getIntHeader(QUANTITY), experience);
+		} else {
+			throw new CatpMessageErrorException("Unknown advice strategy: "
+					+ strategy);
+		}
+	}
+
+	@Override
+	public String toString() {
+		if (isMarketSelection()) {
+			return "strategy=" + strategy + ", specialistid="
+					+ (isValid() ? specialistId : "")
+					+ ", experience=" + experience;
+		} else {
+			return "strategy=" + strategy + ", price=" + price + ", quantity="
+					+ quantity + ", experience=" + experience;
+		}
+	}
+}
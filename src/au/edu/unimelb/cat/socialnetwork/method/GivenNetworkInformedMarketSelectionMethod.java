@@ -2,13 +2,13 @@ package au.edu.unimelb.cat.socialnetwork.method;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Collections;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.TreeSet;
 import org.apache.log4j.Logger;
 
@@ -22,8 +22,10 @@ import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
 import edu.cuny.util.Parameterizable;
 import au.edu.unimelb.cat.socialnetwork.helper.*;
+import uk.ac.liv.cat.socialnetwork.util.SocialEvent;
 
 //~MDC 15/2/11
+import edu.cuny.ai.learning.ActionChoosingPolicy;
 import edu.cuny.ai.learning.NArmedBanditLearner;
 
 
@@ -52,55 +54,175 @@ public class GivenNetworkInformedMarketSelectionMethod extends
 
 	}
 
+	/**
+	 * the parameter database and base the learner was set up with, so that an
+	 * action choosing policy can be set up for each trader in the same way.
+	 */
+	private ParameterDatabase parameters;
+
+	private Parameter learnerBase;
+
+	/**
+	 * the action choosing policy of each row of the social graph, each drawing
+	 * from a random number stream of its own, so that advice for different
+	 * traders is chosen concurrently without locking. All the policies read
+	 * the returns of the shared learner.
+	 */
+	private ActionChoosingPolicy[] choosingPolicies;
+
+	/**
+	 * a copy of the returns of the learner, replaced after each batch of
+	 * rewards and never modified once published, so that advice is looked up
+	 * without locking while rewards are posted.
+	 */
+	private volatile double[] returns;
+
+	/**
+	 * the rewards posted since the returns were last published, in the order
+	 * they were posted, guarded by the learner.
+	 */
+	private int[] pendingActions = new int[16];
+
+	private double[] pendingRewards = new double[16];
+
+	/**
+	 * the number of pending rewards, written under the lock of the learner only.
+	 */
+	private volatile int numOfPending;
+
 	public void reward(Trader trader, double reputation) {
 
-		learner.getReturnUpdatingPolicy().reward(snr.getIndexFromTrader(trader), reputation);
+		// queued until the next lookup, which feeds them to the learner in one go
+		synchronized (learner) {
+			if (numOfPending == pendingActions.length) {
+				pendingActions = Arrays.copyOf(pendingActions, 2 * numOfPending);
+				pendingRewards = Arrays.copyOf(pendingRewards, 2 * numOfPending);
+			}
+			pendingActions[numOfPending] = snr.getIndexFromTrader(trader);
+			pendingRewards[numOfPending] = reputation;
+			numOfPending++;
+		}
 
 	}
 
-	private Set<Integer> linkedTraders; //
+	/**
+	 * Returns the returns of the learner after all the rewards posted so far,
+	 * feeding any pending ones to the learner as a batch first. No lock is taken
+	 * unless there are pending rewards.
+	 */
+	private double[] getReturns() {
+
+		if (numOfPending > 0) {
+			synchronized (learner) {
+				if (numOfPending > 0) {
+					learner.getReturnUpdatingPolicy().reward(pendingActions,
+							pendingRewards, numOfPending);
+					returns = learner.getReturnUpdatingPolicy().getReturns().clone();
+					numOfPending = 0;
+				}
+			}
+		}
 
-	@Override
-	public synchronized String queryMatrix(String tId) {
-		
-		linkedTraders = new HashSet<Integer>(); //
+		return returns;
+	}
 
-		AtomicIntegerArray row = mSAdjacencyMatrix.get(mSTraderIdIdx.get(tId));
+	/**
+	 * The learner actions (trader indices) that correspond to one snapshot of a
+	 * trader's neighbours. Both arrays are never modified once created.
+	 */
+	private static final class LinkedTraders {
 
-		ArrayList<Integer> value1Entry = new ArrayList<Integer>();
-		
-		for (int i = 0; i < row.length(); i++) 
-		{
+		final int[] neighbours;
 
-			if (row.get(i) == 1) {	
+		final int[] actions;
 
-				value1Entry.add(i);				
+		LinkedTraders(final int[] neighbours, final int[] actions) {
+			this.neighbours = neighbours;
+			this.actions = actions;
+		}
+	}
 
-				final Integer index = snr.getIndexFromTrader(snr.getTrader(mSTraderIds.get(i))); //
-				
-				linkedTraders.add(index); //
+	/**
+	 * learner action of each row of the social graph; -1 if the row does not
+	 * belong to a working trader.
+	 */
+	private int[] learnerIndices;
+
+	/**
+	 * the latest {@link LinkedTraders} of each row, rebuilt only after the row
+	 * is rewired.
+	 */
+	private AtomicReferenceArray<LinkedTraders> linkedTraders;
+
+	/**
+	 * Returns the learner actions linked to the given row without locking. The
+	 * result is shared between calls and must not be modified.
+	 */
+	private int[] getLinkedTraders(final int row) {
+
+		final int[] neighbours = socialGraph.getNeighbours(row);
+
+		LinkedTraders snapshot = linkedTraders.get(row);
+
+		if (snapshot == null
+				|| (snapshot.neighbours != neighbours && !Arrays.equals(
+						snapshot.neighbours, neighbours))) {
+
+			// in the order a HashSet yields them, as the actions used to be held in
+			// one per query and the random draws depend on the order
+			final Set<Integer> actionSet = new HashSet<Integer>();
+			for (int i : neighbours) {
+				if (learnerIndices[i] >= 0) {
+					actionSet.add(learnerIndices[i]);
+				}
+			}
 
+			final int[] actions = new int[actionSet.size()];
+			int n = 0;
+			for (Integer action : actionSet) {
+				actions[n++] = action.intValue();
 			}
 
+			snapshot = new LinkedTraders(neighbours, actions);
+			linkedTraders.set(row, snapshot);
 		}
+
+		return snapshot.actions;
+	}
+
+	@Override
+	public Advice queryMatrix(String tId) {
+		
+		final int row = mSTraderIdIdx.get(tId);
+
+		final int[] actions = getLinkedTraders(row); //
 		
-		if (value1Entry.isEmpty()) {
+		if (actions.length == 0) {
 
 			return packQueryResult("", false);
 
 		} else {
 
-			final Integer recommendationIndex = learner.act(linkedTraders); //
+			final double[] returns = getReturns();
 
-			logger.info(tId + "! is on row " + mSTraderIdIdx.get(tId) + " and is therefore linked to:"); //
-		
-			Iterator iter = linkedTraders.iterator();
-    		
-			while (iter.hasNext()) {
+			final int recommendationIndex = choosingPolicies[row].act(returns,
+					actions, actions.length); //
+
+			final boolean published = snr.getEventFeed().hasListeners();
 
-				int index = (Integer)iter.next();	
+			if (logger.isInfoEnabled() || published) {
+
+				logger.info(tId + "! is on row " + row + " and is therefore linked to:"); //
+
+				for (int index : actions) {
+					final String linkedId = snr.getTraderFromIndex(index).getId();
+					logger.info(tId + "! " + linkedId + " with reputation " + returns[index]);      
+					if (published) {
+						snr.publish(SocialEvent.Kind.LINK, tId, "is linked to " + linkedId
+								+ " with reputation " + returns[index]);
+					}
+				}
 
-				logger.info(tId + "! " + snr.getTraderFromIndex(index).getId() + " with reputation " + learner.getReturnUpdatingPolicy().getReturns()[index]);      
 			}
 		
 			Trader referrer = snr.getTraderFromIndex(recommendationIndex); //
@@ -110,10 +232,19 @@ public class GivenNetworkInformedMarketSelectionMethod extends
 			referee.setReferrerId(referrer.getId()); //
 
 			logger.info(tId + "! " + referrer.getId() + " is selected to give advice to " + referee.getId()); //
+			if (published) {
+				snr.publish(SocialEvent.Kind.REFERRER, tId, referrer.getId()
+						+ " is selected to give advice.");
+			}
 
 			snr.incrementAdvice(referrer.getId()); 
 
 			logger.info(tId + "! " + referrer.getId() + " holds advice on " + mSHistory.get(referrer.getId()) + " and this advice is " + tExperience.get(referrer.getId())); //
+			if (published) {
+				snr.publish(SocialEvent.Kind.ADVICE, tId, "is advised on "
+						+ mSHistory.get(referrer.getId()) + " and this advice is "
+						+ tExperience.get(referrer.getId()));
+			}
 
 			return packQueryResult(mSHistory.get(referrer.getId()),
 					tExperience.get(referrer.getId())); //
@@ -125,28 +256,22 @@ public class GivenNetworkInformedMarketSelectionMethod extends
 
 		int chancesToRewire = -1; //
 
-		for (int i = 0; i < mSAdjacencyMatrix.length(); i++) {
+		for (int i = 0; i < socialGraph.getNumOfVertices(); i++) {
 
 			// randomly pick 1 neighbor to re-wire
-			ArrayList<Integer> value1Entry = new ArrayList<Integer>();
-
-			AtomicIntegerArray row = mSAdjacencyMatrix.get(i);
-
-			for (int j = 0; j < row.length(); j++) {
-
-				if (row.get(j) == 1) {
-					value1Entry.add(j);
-				}
+			int[] neighbours = socialGraph.getNeighbours(i);
 
-			}
-
-			for (int j = 0; j < value1Entry.size(); j++) {
+			for (int j = 0; j < neighbours.length; j++) {
 
 				if (dist.nextDouble() <= chancesToRewire) {
-					mSAdjacencyMatrix.get(i).set(value1Entry.get(j), 0);
-					mSAdjacencyMatrix.get(i).set(
-							dist.nextIntFromTo(0,
-									mSAdjacencyMatrix.length() - 1), 1);
+					final int to = dist.nextIntFromTo(0,
+							socialGraph.getNumOfVertices() - 1);
+					socialGraph.rewire(i, neighbours[j], to);
+					if (snr.getEventFeed().hasListeners()) {
+						snr.publish(SocialEvent.Kind.REWIRE, mSTraderIds.get(i),
+								"is linked to " + mSTraderIds.get(to) + " instead of "
+										+ mSTraderIds.get(neighbours[j]));
+					}
 				}
 
 			}
@@ -166,15 +291,55 @@ public class GivenNetworkInformedMarketSelectionMethod extends
 
 		learner.reset(); //
 
-		for (int i = 0; i < matrix.length; i++) {
-			for (int j = 0; j < matrix.length; j++) {
-				mSAdjacencyMatrix.get(i).set(j, matrix[i][j]);
+		synchronized (learner) {
+			numOfPending = 0;
+			returns = learner.getReturnUpdatingPolicy().getReturns().clone();
+		}
+
+		learnerIndices = new int[mSTraderIds.length()];
+		for (int i = 0; i < learnerIndices.length; i++) {
+			final Integer index = snr.getIndexFromTrader(snr.getTrader(mSTraderIds.get(i)));
+			learnerIndices[i] = (index == null) ? -1 : index.intValue();
+		}
+
+		linkedTraders = new AtomicReferenceArray<LinkedTraders>(mSTraderIds.length());
+
+		// in a scope of each trader, so that the streams of the policies do not
+		// depend on the number of traders or the order they query in
+		final GlobalPRNG prng = Galaxy.getInstance().getTyped(Game.P_CAT,
+				GlobalPRNG.class);
+		final Parameter policyBase = learnerBase
+				.push(ActionChoosingPolicy.P_DEF_BASE);
+		final Parameter policyDefBase = new Parameter(
+				NArmedBanditLearner.P_DEF_BASE).push(ActionChoosingPolicy.P_DEF_BASE);
+		choosingPolicies = new ActionChoosingPolicy[mSTraderIds.length()];
+		for (int i = 0; i < choosingPolicies.length; i++) {
+			final GlobalPRNG.Scope previous = prng.enterScope(policyBase + "."
+					+ mSTraderIds.get(i));
+			try {
+				final ActionChoosingPolicy policy = parameters.getInstanceForParameter(
+						policyBase, policyDefBase, ActionChoosingPolicy.class);
+				policy.setParentLearner(learner);
+				if (policy instanceof Parameterizable) {
+					((Parameterizable) policy).setup(parameters, policyBase);
+				}
+				policy.initialize();
+				choosingPolicies[i] = policy;
+			} finally {
+				prng.exitScope(previous);
 			}
 		}
 
+		for (int i = 0; i < neighbours.length; i++) {
+			socialGraph.setNeighbours(i, neighbours[i]);
+		}
+
 	}
 
-	private int[][] matrix;
+	/**
+	 * neighbour indices of each row of the network read from the input file
+	 */
+	private int[][] neighbours;
 
 	@Override
 	public void setup(ParameterDatabase parameters, Parameter base) {
@@ -182,6 +347,10 @@ public class GivenNetworkInformedMarketSelectionMethod extends
 		dist = new Uniform(0, 1, Galaxy.getInstance().getTyped(Game.P_CAT,
 				GlobalPRNG.class).getEngine());
 
+		this.parameters = parameters;
+		learnerBase = base
+				.push(GivenNetworkInformedMarketSelectionMethod.P_LEARNER);
+
 		learner = parameters
 				.getInstanceForParameterEq(
 						base
@@ -199,17 +368,17 @@ public class GivenNetworkInformedMarketSelectionMethod extends
 			if (Utils.getFileNameSuffix(inputFile).equalsIgnoreCase("adm")) {
 
 				// Adjacency Matrix
-				matrix = Utils.readADMFile(inputFile);
+				neighbours = Utils.readADMNeighbours(inputFile);
 
 			} else if (Utils.getFileNameSuffix(inputFile).equalsIgnoreCase(
 					"adl")) {
 
 				// Adjacency List
-				matrix = Utils.readADLFile(inputFile);
+				neighbours = Utils.readADLNeighbours(inputFile);
 
 			} else if ((inputFile.substring(inputFile.lastIndexOf("/") + 1, inputFile.lastIndexOf("."))).equalsIgnoreCase("random")) {
 
-				matrix = Utils.randomMatrix(Integer.parseInt(inputFile.substring(inputFile.lastIndexOf(".") + 1, inputFile.length())));
+				neighbours = Utils.randomNeighbours(Integer.parseInt(inputFile.substring(inputFile.lastIndexOf(".") + 1, inputFile.length())));
 
 			} else {
 
@@ -227,8 +396,8 @@ public class GivenNetworkInformedMarketSelectionMethod extends
 		
 		/*int numTypes = 2;
 		int initialtradeentitlement = 3;
-		int remNum = matrix.length;
-		int typeSize = matrix.length / numTypes;
+		int remNum = neighbours.length;
+		int typeSize = neighbours.length / numTypes;
 
 		parameters
 				.set(new Parameter("cat.agent.n"), Integer.toString(numTypes));
@@ -338,19 +507,7 @@ public class GivenNetworkInformedMarketSelectionMethod extends
 		// set identity matrix
 		for (int i = 0; i < mSTraderIds.length(); i++) {
 
-			for (int j = 0; j < mSTraderIds.length(); j++) {
-
-				if (i == j) {
-
-					mSAdjacencyMatrix.get(i).set(j, 1);
-
-				} else {
-
-					mSAdjacencyMatrix.get(i).set(j, 0);
-
-				}
-
-			}
+			socialGraph.setNeighbours(i, new int[] { i });
 
 		}
 
@@ -2,7 +2,6 @@ package au.edu.unimelb.cat.socialnetwork.method;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.HashSet;
@@ -24,6 +23,8 @@ import edu.cuny.util.Parameterizable;
 
 import edu.cuny.ai.learning.NArmedBanditLearner; //
 
+import uk.ac.liv.cat.socialnetwork.util.SocialEvent;
+
 /**
  * 
  * @author Guan Gui
@@ -49,7 +50,7 @@ public class NormalInformedShoutingMethod extends
 	} //
 
 	@Override
-	public synchronized String queryMatrix(String tId) {
+	public synchronized Advice queryMatrix(String tId) {
 
 		// randomly select an entry with value 1 inside the trader's market
 		ArrayList<Integer> value1Entry = new ArrayList<Integer>();
@@ -58,19 +59,21 @@ public class NormalInformedShoutingMethod extends
 
 		Trader curT = snr.getTrader(tId); //
 
-		AtomicIntegerArray row = mSAdjacencyMatrix.get(mSTraderIdIdx.get(tId));
+		int[] neighbours = socialGraph.getNeighbours(mSTraderIdIdx.get(tId));
 
-		for (int i = 0; i < row.length(); i++) {
+		for (int i : neighbours) {
 
 			Trader posT = snr.getTrader(mSTraderIds.get(i));
 
-			if (row.get(i) == 1
-					
-					&& posT.getSpecialistId().equals(curT.getSpecialistId())
+			if (posT.getSpecialistId().equals(curT.getSpecialistId())
 
 					&& posT.isSeller() == curT.isSeller()) {
 					
 				logger.info(tId + " is linked to " + posT.getId());
+				if (snr.getEventFeed().hasListeners()) {
+					snr.publish(SocialEvent.Kind.LINK, tId, "is linked to "
+							+ posT.getId());
+				}
 
 				ShoutingHistoryEntry cpSHE = sHistory.get(posT.getId());
 
@@ -126,12 +129,21 @@ public class NormalInformedShoutingMethod extends
 			Trader referee = snr.getTrader(tId); //
 			referee.setReferrerId(referrer.getId()); //	
 			logger.info(tId + " " + referrer.getId() + " is selected to give advice to " + referee.getId()); // 	
+			if (snr.getEventFeed().hasListeners()) {
+				snr.publish(SocialEvent.Kind.REFERRER, tId, referrer.getId()
+						+ " is selected to give shouting advice.");
+			}
 			
 			ShoutingHistoryEntry cSHE = sHistory.get(referrer.getId()); //
 
 			//learner.reward(referrer.getReputation());	 //
 			
 			logger.info(tId + " " + referrer.getId() + " is holding advice on shout value " + cSHE.getPrice() + " and quantity " + cSHE.getQuantity() + " and this advice is " + cSHE.getExperience()); //
+			if (snr.getEventFeed().hasListeners()) {
+				snr.publish(SocialEvent.Kind.ADVICE, tId, "is advised to shout at "
+						+ cSHE.getPrice() + " for " + cSHE.getQuantity()
+						+ " and this advice is " + cSHE.getExperience());
+			}
 
 			return packQueryResult(cSHE, cSHE.getExperience()); //
 		}
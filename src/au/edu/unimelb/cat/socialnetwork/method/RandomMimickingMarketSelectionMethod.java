@@ -1,6 +1,5 @@
 package au.edu.unimelb.cat.socialnetwork.method;
 
-import java.util.concurrent.atomic.AtomicIntegerArray;
 import org.apache.log4j.Logger;
 
 import cern.jet.random.Uniform;
@@ -8,6 +7,7 @@ import edu.cuny.cat.Game;
 import edu.cuny.prng.GlobalPRNG;
 import edu.cuny.util.Galaxy;
 import edu.cuny.cat.core.Trader;
+import uk.ac.liv.cat.socialnetwork.util.SocialEvent;
 
 /**
  * 
@@ -34,13 +34,11 @@ public class RandomMimickingMarketSelectionMethod extends
 	} //
 
 	@Override
-	public String queryMatrix(String tId) {
-		AtomicIntegerArray row = mSAdjacencyMatrix.get(mSTraderIdIdx.get(tId));
-		for (int i = 0; i < row.length(); i++) {
-			if (row.get(i) == 1) {
-				return packQueryResult(mSHistory.get(mSTraderIds.get(i)),
-					tExperience.get(mSTraderIds.get(i)));
-			}
+	public Advice queryMatrix(String tId) {
+		int[] neighbours = socialGraph.getNeighbours(mSTraderIdIdx.get(tId));
+		if (neighbours.length > 0) {
+			return packQueryResult(mSHistory.get(mSTraderIds.get(neighbours[0])),
+					tExperience.get(mSTraderIds.get(neighbours[0])));
 		}
 		// beware that in this method, each row must have an entry with value 1
 		logger.fatal("RandomMimickingMarketSelectionMethod failure!");
@@ -50,11 +48,13 @@ public class RandomMimickingMarketSelectionMethod extends
 	@Override
 	public void updateMatrix() {
 		/* produce random adjacency matrix each day */
-		for (int i = 0; i < mSAdjacencyMatrix.length(); i++) {
-			for (int j = 0; j < mSAdjacencyMatrix.length(); j++) {
-				mSAdjacencyMatrix.get(i).set(j, 0);
+		for (int i = 0; i < socialGraph.getNumOfVertices(); i++) {
+			final int to = dist.nextInt();
+			socialGraph.setNeighbours(i, new int[] { to });
+			if (snr.getEventFeed().hasListeners()) {
+				snr.publish(SocialEvent.Kind.REWIRE, mSTraderIds.get(i),
+						"is linked to " + mSTraderIds.get(to));
 			}
-			mSAdjacencyMatrix.get(i).set(dist.nextInt(), 1);
 		}
 		//Utils.print2DIntArray(mSAdjacencyMatrix.)
 		super.updateMatrix();
@@ -64,7 +64,7 @@ public class RandomMimickingMarketSelectionMethod extends
 	public void initMatrix() {
 		super.initMatrix();
 
-		dist = new Uniform(0, mSAdjacencyMatrix.length() - 1, Galaxy.getInstance().getTyped(Game.P_CAT,
+		dist = new Uniform(0, socialGraph.getNumOfVertices() - 1, Galaxy.getInstance().getTyped(Game.P_CAT,
 				GlobalPRNG.class).getEngine());
 
 		updateMatrix();
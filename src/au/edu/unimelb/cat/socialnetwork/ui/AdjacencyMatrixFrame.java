@@ -446,7 +446,7 @@ public class AdjacencyMatrixFrame extends JFrame {
 
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				Utils.saveMatrixAsADM(snr.getmSAdjacencyMatrix(),
+				Utils.saveMatrixAsADM(snr.getSocialGraph(),
 						"savedMatrix.adm");
 			}
 		});
@@ -470,19 +470,19 @@ public class AdjacencyMatrixFrame extends JFrame {
 				int rVal = c.showSaveDialog(AdjacencyMatrixFrame.this);
 				if (rVal == JFileChooser.APPROVE_OPTION) {
 					if (c.getFileFilter().equals(type1)) {
-						Utils.saveMatrixAsADM(snr.getmSAdjacencyMatrix(), c
+						Utils.saveMatrixAsADM(snr.getSocialGraph(), c
 								.getSelectedFile().getPath()
 								+ ".adm");
 					} else if (c.getFileFilter().equals(type2)) {
-						Utils.saveMatrixAsCSV(snr.getmSAdjacencyMatrix(), c
+						Utils.saveMatrixAsCSV(snr.getSocialGraph(), c
 								.getSelectedFile().getPath()
 								+ ".csv");
 					} else if (c.getFileFilter().equals(type3)) {
-						Utils.saveMatrixAsADL(snr.getmSAdjacencyMatrix(), c
+						Utils.saveMatrixAsADL(snr.getSocialGraph(), c
 								.getSelectedFile().getPath()
 								+ ".adl");
 					} else {
-						Utils.saveMatrixAsADM(snr.getmSAdjacencyMatrix(), c
+						Utils.saveMatrixAsADM(snr.getSocialGraph(), c
 								.getSelectedFile().getPath());
 					}
 				}
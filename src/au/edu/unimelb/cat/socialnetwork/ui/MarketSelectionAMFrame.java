@@ -1,12 +1,13 @@
 package au.edu.unimelb.cat.socialnetwork.ui;
 
-import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.swing.WindowConstants;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 
+import au.edu.unimelb.cat.socialnetwork.graph.SocialGraph;
+
 /**
  * 
  * @author Guan Gui
@@ -17,7 +18,7 @@ public class MarketSelectionAMFrame extends AdjacencyMatrixFrame implements
 		TableModelListener {
 
 	private static final long serialVersionUID = 1L;
-	private AtomicReferenceArray<AtomicIntegerArray> mSAdjacencyMatrix;
+	private SocialGraph socialGraph;
 	private AtomicReferenceArray<String> mSTraderIds;
 	private MSDataTM msDataTM;
 
@@ -30,7 +31,7 @@ public class MarketSelectionAMFrame extends AdjacencyMatrixFrame implements
 
 		@Override
 		public Object getValueAt(int rowIndex, int columnIndex) {
-			return mSAdjacencyMatrix.get(rowIndex).get(columnIndex);
+			return socialGraph.isLinked(rowIndex, columnIndex) ? 1 : 0;
 		}
 
 		@Override
@@ -45,7 +46,7 @@ public class MarketSelectionAMFrame extends AdjacencyMatrixFrame implements
 
 		@Override
 		public void updateMatrix(int r, int c, int value) {
-			mSAdjacencyMatrix.get(r).set(c, value);
+			socialGraph.setLinked(r, c, value == 1);
 		}
 	}
 
@@ -102,7 +103,7 @@ public class MarketSelectionAMFrame extends AdjacencyMatrixFrame implements
 		setDefaultCloseOperation(WindowConstants.HIDE_ON_CLOSE);
 
 		// Copying references from snr
-		mSAdjacencyMatrix = snr.getmSAdjacencyMatrix();
+		socialGraph = snr.getSocialGraph();
 		mSTraderIds = snr.getmSTraderIds();
 
 		colHeader.setModel(new MSColHeaderTM());
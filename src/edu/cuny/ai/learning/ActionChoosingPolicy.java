@@ -15,6 +15,7 @@
 
 package edu.cuny.ai.learning;
 
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -36,6 +37,12 @@ public abstract class ActionChoosingPolicy implements LearningPolicy {
 	 */
 	protected DiscreteLearner parentLearner;
 
+	/**
+	 * the buffer {@link #toIndices(Set)} copies actions into, reused across calls
+	 * and not to be shared by clones.
+	 */
+	protected int actionBuffer[];
+
 	public DiscreteLearner getParentLearner() {
 		return parentLearner;
 	}
@@ -92,6 +99,53 @@ public abstract class ActionChoosingPolicy implements LearningPolicy {
 	 */
 	public abstract int act(double returns[], Set<Integer> actions);
 
+	/**
+	 * Request that the learner perform an action that is available, where the
+	 * available actions are given as a primitive array so that callers can reuse
+	 * it across calls. Subclasses are encouraged to override this method; the
+	 * default implementation falls back on {@link #act(double[], Set)} and
+	 * considers the actions in the order given.
+	 * 
+	 * @param actions
+	 *          contains the indices of actions available in its first
+	 *          <code>numOfActions</code> elements; not modified.
+	 * @param numOfActions
+	 *          the number of actions available
+	 * 
+	 * @return An integer representing the action to be taken; -1 if no action can
+	 *         be chosen.
+	 * 
+	 * @see #act(double[], Set)
+	 */
+	public int act(final double returns[], final int actions[],
+			final int numOfActions) {
+		final Set<Integer> actionSet = new LinkedHashSet<Integer>();
+		for (int i = 0; i < numOfActions; i++) {
+			actionSet.add(actions[i]);
+		}
+		return act(returns, actionSet);
+	}
+
+	/**
+	 * copies the actions into {@link #actionBuffer}, growing it if needed, in
+	 * the order the set yields them.
+	 * 
+	 * @return {@link #actionBuffer}, whose first <code>actions.size()</code>
+	 *         elements are the actions.
+	 */
+	protected int[] toIndices(final Set<Integer> actions) {
+		if ((actionBuffer == null) || (actionBuffer.length < actions.size())) {
+			actionBuffer = new int[actions.size()];
+		}
+
+		int i = 0;
+		for (final Integer action : actions) {
+			actionBuffer[i++] = action.intValue();
+		}
+
+		return actionBuffer;
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName();
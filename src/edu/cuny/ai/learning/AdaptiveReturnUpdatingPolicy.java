@@ -17,6 +17,8 @@ package edu.cuny.ai.learning;
 
 import org.apache.log4j.Logger;
 
+import edu.cuny.prng.GlobalPRNG;
+import edu.cuny.util.Galaxy;
 import edu.cuny.util.ParamClassLoadException;
 import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
@@ -96,13 +98,54 @@ public class AdaptiveReturnUpdatingPolicy extends ReturnUpdatingPolicy
 	}
 
 	private void init1() {
-		learners = new MimicryLearner[parentLearner.getNumberOfActions()];
-		for (int i = 0; i < learners.length; i++) {
-			learners[i] = (MimicryLearner) learnerTemplate.protoClone();
-			learners[i].initialize();
+		learners = createLearners(learnerTemplate, null);
+		for (final MimicryLearner learner : learners) {
+			learner.initialize();
 		}
 	}
 
+	/**
+	 * clones a learner for each action, either from the template or from the
+	 * learner of the action in the given array. As a learner may obtain a random
+	 * number generator of its own, each is created in a scope keyed by its
+	 * action index, within the next stream of the current scope, so that the
+	 * generators obtained after the policy do not depend on the number of
+	 * actions.
+	 * 
+	 * @param template
+	 *          the learner to clone for each action if <code>sources</code> is
+	 *          <code>null</code>
+	 * @param sources
+	 *          the learners to clone, one per action, or <code>null</code>
+	 * @see GlobalPRNG#nextScope()
+	 */
+	protected MimicryLearner[] createLearners(final MimicryLearner template,
+			final MimicryLearner sources[]) {
+		final MimicryLearner copies[] = new MimicryLearner[sources == null ? parentLearner
+				.getNumberOfActions()
+				: sources.length];
+
+		final GlobalPRNG prng = Galaxy.getInstance().getDefaultTyped(
+				GlobalPRNG.class);
+		final GlobalPRNG.Scope actions = prng.nextScope();
+		for (int i = 0; i < copies.length; i++) {
+			final MimicryLearner source = (sources == null) ? template : sources[i];
+			if (actions == null) {
+				copies[i] = (MimicryLearner) source.protoClone();
+			} else {
+				final GlobalPRNG.Scope previous = prng.enterScope(actions.child(String
+						.valueOf(i)));
+				try {
+					copies[i] = (MimicryLearner) source.protoClone();
+				} finally {
+					prng.exitScope(previous);
+				}
+			}
+		}
+
+		return copies;
+	}
+
 	@Override
 	public void reset() {
 		super.reset();
@@ -114,10 +157,7 @@ public class AdaptiveReturnUpdatingPolicy extends ReturnUpdatingPolicy
 		final AdaptiveReturnUpdatingPolicy copy = (AdaptiveReturnUpdatingPolicy) super
 				.protoClone();
 		copy.learnerTemplate = (MimicryLearner) copy.learnerTemplate.protoClone();
-		copy.learners = new MimicryLearner[learners.length];
-		for (int i = 0; i < learners.length; i++) {
-			copy.learners[i] = (MimicryLearner) learners[i].protoClone();
-		}
+		copy.learners = createLearners(null, learners);
 
 		return copy;
 	}
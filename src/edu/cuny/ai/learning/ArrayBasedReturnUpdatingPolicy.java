@@ -0,0 +1,219 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.ai.learning;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.prng.GlobalPRNG;
+import edu.cuny.util.Galaxy;
+
+/**
+ * <p>
+ * An {@link AdaptiveReturnUpdatingPolicy} that keeps the state of the learners
+ * of all the actions in arrays rather than in a {@link MimicryLearner} per
+ * action, which matters when there are many actions, e.g. one per trader in
+ * the social network.
+ * </p>
+ *
+ * <p>
+ * The state of a learner of a given type is laid out as follows:
+ * </p>
+ * <ul>
+ * <li>{@link WidrowHoffLearner}: the output of each action in {@link #returns}
+ * and the learning rate of the template;</li>
+ * <li>{@link AveragingLearner}: the output of each action in {@link #returns}
+ * and the number of rewards of each action in {@link #counts}.</li>
+ * </ul>
+ *
+ * <p>
+ * The returns are updated by the same arithmetic as the learners themselves,
+ * so the policy can take the place of {@link AdaptiveReturnUpdatingPolicy}
+ * without changing the course of a game. With multiple random engines, the
+ * policy takes the same stream of the current scope as
+ * {@link AdaptiveReturnUpdatingPolicy} seeds its learners from, so the engines
+ * obtained afterwards are seeded alike. Learners of other types, including
+ * subclasses of the above, are not laid out in arrays, and the policy falls
+ * back to a learner per action as {@link AdaptiveReturnUpdatingPolicy} does.
+ * </p>
+ *
+ * <p>
+ * The policy takes the same parameters as
+ * {@link AdaptiveReturnUpdatingPolicy}, e.g.
+ * </p>
+ *
+ * <pre>
+ * ...return_updating = edu.cuny.ai.learning.ArrayBasedReturnUpdatingPolicy
+ * ...return_updating.learner = edu.cuny.ai.learning.WidrowHoffLearner
+ * </pre>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class ArrayBasedReturnUpdatingPolicy extends
+		AdaptiveReturnUpdatingPolicy {
+
+	static Logger logger = Logger.getLogger(ArrayBasedReturnUpdatingPolicy.class);
+
+	/**
+	 * the layout of {@link WidrowHoffLearner}s.
+	 */
+	public static final int WIDROW_HOFF = 1;
+
+	/**
+	 * the layout of {@link AveragingLearner}s.
+	 */
+	public static final int AVERAGING = 2;
+
+	/**
+	 * the type of learner laid out in arrays, or 0 if a learner is kept per
+	 * action.
+	 */
+	protected int layout;
+
+	/**
+	 * the learning rate of {@link WidrowHoffLearner}s.
+	 */
+	protected double learningRate;
+
+	/**
+	 * the number of rewards of each action, for {@link AveragingLearner}s.
+	 */
+	protected int counts[];
+
+	/**
+	 * @return the type of learner laid out in arrays, or 0 if the learner of the
+	 *         template is not.
+	 */
+	protected static int getLayout(final MimicryLearner learnerTemplate) {
+		if (learnerTemplate == null) {
+			return 0;
+		} else if (learnerTemplate.getClass() == WidrowHoffLearner.class) {
+			return ArrayBasedReturnUpdatingPolicy.WIDROW_HOFF;
+		} else if (learnerTemplate.getClass() == AveragingLearner.class) {
+			return ArrayBasedReturnUpdatingPolicy.AVERAGING;
+		} else {
+			return 0;
+		}
+	}
+
+	@Override
+	public void initialize() {
+		layout = ArrayBasedReturnUpdatingPolicy.getLayout(learnerTemplate);
+		if (layout == 0) {
+			ArrayBasedReturnUpdatingPolicy.logger.debug(learnerTemplate
+					+ " not laid out in arrays; one learner used per action.");
+			super.initialize();
+		} else {
+			init1();
+		}
+	}
+
+	private void init1() {
+		returns = new double[parentLearner.getNumberOfActions()];
+		learners = null;
+		skipStream();
+
+		if (layout == ArrayBasedReturnUpdatingPolicy.WIDROW_HOFF) {
+			learningRate = ((WidrowHoffLearner) learnerTemplate).getLearningRate();
+			counts = null;
+		} else {
+			counts = new int[returns.length];
+		}
+	}
+
+	/**
+	 * takes the stream of the current scope that
+	 * {@link AdaptiveReturnUpdatingPolicy} seeds the learners of the actions
+	 * from, although the arrays draw no random numbers.
+	 */
+	private void skipStream() {
+		Galaxy.getInstance().getDefaultTyped(GlobalPRNG.class).nextScope();
+	}
+
+	@Override
+	public void reset() {
+		if (layout == 0) {
+			super.reset();
+		} else {
+			init1();
+		}
+	}
+
+	@Override
+	public Object protoClone() {
+		if (layout == 0) {
+			return super.protoClone();
+		}
+
+		try {
+			final ArrayBasedReturnUpdatingPolicy copy = (ArrayBasedReturnUpdatingPolicy) clone();
+			copy.learnerTemplate = (MimicryLearner) learnerTemplate.protoClone();
+			copy.returns = returns.clone();
+			if (counts != null) {
+				copy.counts = counts.clone();
+			}
+			skipStream();
+			return copy;
+		} catch (final CloneNotSupportedException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	@Override
+	public void reward(final int action, final double reward) {
+		if (layout == 0) {
+			super.reward(action, reward);
+		} else if ((action >= returns.length) || (action < 0)) {
+			ArrayBasedReturnUpdatingPolicy.logger.error("Invalid action: " + action
+					+ " in " + getClass().getSimpleName());
+		} else {
+			train(action, reward);
+		}
+	}
+
+	@Override
+	public void reward(final int actions[], final double rewards[], final int n) {
+		if (layout == 0) {
+			super.reward(actions, rewards, n);
+			return;
+		}
+
+		for (int i = 0; i < n; i++) {
+			if ((actions[i] >= returns.length) || (actions[i] < 0)) {
+				ArrayBasedReturnUpdatingPolicy.logger.error("Invalid action: "
+						+ actions[i] + " in " + getClass().getSimpleName());
+			} else {
+				train(actions[i], rewards[i]);
+			}
+		}
+	}
+
+	/**
+	 * trains the learner of the action as {@link MimicryLearner#train(double)}
+	 * does.
+	 */
+	private void train(final int action, final double target) {
+		if (layout == ArrayBasedReturnUpdatingPolicy.WIDROW_HOFF) {
+			returns[action] += learningRate * (target - returns[action]);
+		} else {
+			returns[action] = returns[action] + (target - returns[action])
+					/ (1 + counts[action]);
+			counts[action]++;
+		}
+	}
+}
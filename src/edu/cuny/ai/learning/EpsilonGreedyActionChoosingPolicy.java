@@ -190,6 +190,7 @@ public class EpsilonGreedyActionChoosingPolicy extends ActionChoosingPolicy
 		try {
 			final EpsilonGreedyActionChoosingPolicy copy = (EpsilonGreedyActionChoosingPolicy) clone();
 			copy.distribution = (Uniform) distribution.clone();
+			copy.actionBuffer = null;
 			return copy;
 		} catch (final CloneNotSupportedException e) {
 			e.printStackTrace();
@@ -228,27 +229,26 @@ public class EpsilonGreedyActionChoosingPolicy extends ActionChoosingPolicy
 
 	@Override
 	public int act(final double returns[], final Set<Integer> actions) {
-		Integer indices[] = new Integer[actions.size()];
-		indices = actions.toArray(indices);
+		return act(returns, toIndices(actions), actions.size());
+	}
 
-		if (indices.length == 0) {
+	@Override
+	public int act(final double returns[], final int actions[],
+			final int numOfActions) {
+		if (numOfActions == 0) {
 			return -1;
 		}
 
-		int lastAction = -1;
 		final double rand = distribution.nextDouble();
 		int index;
 		if (rand < epsilon) {
-			index = distribution.nextIntFromTo(0, indices.length - 1);
+			index = distribution.nextIntFromTo(0, numOfActions - 1);
 		} else {
-			final double tempReturns[] = new double[indices.length];
-			for (int i = 0; i < tempReturns.length; i++) {
-				tempReturns[i] = returns[indices[i].intValue()];
-			}
-			index = bestAction(tempReturns);
+			index = MathUtil.maxIndex(returns, actions, numOfActions, distribution,
+					comparator);
 		}
 
-		lastAction = indices[index].intValue();
+		final int lastAction = actions[index];
 
 		updateEpsilon();
 
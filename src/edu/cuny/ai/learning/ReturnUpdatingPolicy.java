@@ -91,6 +91,23 @@ public abstract class ReturnUpdatingPolicy implements LearningPolicy {
 	 */
 	public abstract void reward(int action, double reward);
 
+	/**
+	 * updates the returns of actions after receiving a batch of rewards, in the
+	 * same way as {@link #reward(int, double)} on each of them in turn.
+	 * 
+	 * @param actions
+	 *          the actions taken
+	 * @param rewards
+	 *          the reward received for each action taken
+	 * @param n
+	 *          the number of rewards in the batch
+	 */
+	public void reward(final int actions[], final double rewards[], final int n) {
+		for (int i = 0; i < n; i++) {
+			reward(actions[i], rewards[i]);
+		}
+	}
+
 	/**
 	 * 
 	 * @return the expected returns of actions, which should not be changed
@@ -183,6 +183,7 @@ public class SoftmaxActionChoosingPolicy extends ActionChoosingPolicy implements
 		try {
 			final SoftmaxActionChoosingPolicy copy = (SoftmaxActionChoosingPolicy) clone();
 			copy.distribution = (Uniform) distribution.clone();
+			copy.actionBuffer = null;
 			return copy;
 		} catch (final CloneNotSupportedException e) {
 			e.printStackTrace();
@@ -195,50 +196,123 @@ public class SoftmaxActionChoosingPolicy extends ActionChoosingPolicy implements
 	}
 
 	/**
-	 * 
-	 * @param returns
-	 * 
-	 * @return the probabilities of actions being chosen based on the given
-	 *         returns of these actions.
+	 * the largest absolute value of the returns of the actions, by which the
+	 * returns are normalized, set by {@link #normalize(double[], int[], int)}
+	 * and kept for the next call, in which it is likely to hold again.
 	 */
-	protected double[] calculateProbabilities(final double returns[]) {
+	private double maxQ = 1;
 
-		// logger.info("returns: " + CatpMessage.concatenate(returns));
+	/**
+	 * the largest exponent of the actions, subtracted from each exponent so that
+	 * no power of e overflows, set by {@link #normalize(double[], int[], int)}.
+	 */
+	private double maxExponent;
 
-		final double[] q = new double[returns.length];
+	/**
+	 * the sum of the shifted powers of e of the actions, set by
+	 * {@link #normalize(double[], int[], int)}.
+	 */
+	private double sumOfEQ;
 
-		// get max of returns's
-		double maxQ = Double.NEGATIVE_INFINITY;
-		for (final double return1 : returns) {
-			if (Math.abs(return1) > maxQ) {
-				maxQ = Math.abs(return1);
-			}
-		}
+	/**
+	 * @return the return of the <code>i</code>th action, which is
+	 *         <code>actions[i]</code>, or <code>i</code> if <code>actions</code>
+	 *         is null.
+	 */
+	private static double getReturn(final double returns[], final int actions[],
+			final int i) {
+		return actions == null ? returns[i] : returns[actions[i]];
+	}
 
-		if (maxQ == 0) {
-			maxQ = 1;
-		}
+	/**
+	 * @return the exponent of the given return before it is shifted.
+	 */
+	private double getExponent(final double return1) {
+		return return1 / maxQ / temperature;
+	}
 
-		// normalize returns and calculate e to the power of returns
-		double sumOfEQ = 0;
-		for (int i = 0; i < returns.length; i++) {
-			q[i] = returns[i] / maxQ;
-			q[i] = Math.exp(q[i] / temperature);
-			sumOfEQ += q[i];
+	/**
+	 * @return the probability of the action with the given return being chosen,
+	 *         after {@link #normalize(double[], int[], int)}.
+	 */
+	private double getProbability(final double return1) {
+		return Math.exp(getExponent(return1) - maxExponent) / sumOfEQ;
+	}
+
+	/**
+	 * calculates {@link #maxQ}, {@link #maxExponent} and {@link #sumOfEQ} for the
+	 * given actions without any temporary array.
+	 * 
+	 * <p>
+	 * The log-sum-exp is taken online in a single pass: whenever an exponent
+	 * exceeds the largest so far, the sum is rescaled to the new shift, so each
+	 * power of e is at most 1 and the sum neither overflows however low the
+	 * temperature is, nor is less than 1. The exponents depend on {@link #maxQ},
+	 * which is only known at the end of the pass, so the pass assumes the value
+	 * of the previous call and is repeated only if the value turns out to have
+	 * changed.
+	 * </p>
+	 * 
+	 * @param actions
+	 *          contains the indices of the actions in its first
+	 *          <code>numOfActions</code> elements, or null if all the actions are
+	 *          considered.
+	 */
+	private void normalize(final double returns[], final int actions[],
+			final int numOfActions) {
+		final double scale = accumulate(returns, actions, numOfActions);
+		if (scale != maxQ) {
+			maxQ = scale;
+			accumulate(returns, actions, numOfActions);
 		}
+	}
 
-		// logger.info("temperature: " + temperature + " sumOfEQ: " + sumOfEQ);
+	/**
+	 * calculates {@link #maxExponent} and {@link #sumOfEQ} in one pass with the
+	 * current {@link #maxQ}.
+	 * 
+	 * @return the value of {@link #maxQ} for the given actions.
+	 */
+	private double accumulate(final double returns[], final int actions[],
+			final int numOfActions) {
+		double scale = 0;
+		maxExponent = Double.NEGATIVE_INFINITY;
+		sumOfEQ = 0;
+		for (int i = 0; i < numOfActions; i++) {
+			final double return1 = SoftmaxActionChoosingPolicy.getReturn(returns,
+					actions, i);
+			if (Math.abs(return1) > scale) {
+				scale = Math.abs(return1);
+			}
 
-		// calculate probabilities
-		for (int i = 0; i < q.length; i++) {
-			// use q temporarily
-			q[i] /= sumOfEQ;
+			final double exponent = getExponent(return1);
+			if (exponent > maxExponent) {
+				sumOfEQ = sumOfEQ * Math.exp(maxExponent - exponent) + 1;
+				maxExponent = exponent;
+			} else {
+				sumOfEQ += Math.exp(exponent - maxExponent);
+			}
 		}
 
-		// logger.info("p: " + CatpMessage.concatenate(q));
-		// logger.info("\n");
+		return scale == 0 ? 1 : scale;
+	}
+
+	/**
+	 * 
+	 * @param returns
+	 * 
+	 * @return the probabilities of actions being chosen based on the given
+	 *         returns of these actions.
+	 */
+	protected double[] calculateProbabilities(final double returns[]) {
+		normalize(returns, null, returns.length);
+
+		final double[] p = new double[returns.length];
+		for (int i = 0; i < returns.length; i++) {
+			p[i] = getProbability(returns[i]);
+		}
 
-		return q;
+		return p;
 	}
 
 	@Override
@@ -258,22 +332,36 @@ public class SoftmaxActionChoosingPolicy extends ActionChoosingPolicy implements
 	 * @return the action chosen to take
 	 */
 	protected int internalAct(final double returns[]) {
-		final double[] p = calculateProbabilities(returns);
+		return internalAct(returns, null, returns.length);
+	}
 
-		int lastAction = returns.length - 1;
-		double prob = distribution.nextDouble();
+	/**
+	 * acts among the given actions without updating temperature, computing the
+	 * probability of each action on the fly rather than in an array.
+	 * 
+	 * @param actions
+	 *          contains the indices of the actions in its first
+	 *          <code>numOfActions</code> elements, or null if all the actions are
+	 *          considered.
+	 * @return the action chosen to take
+	 */
+	protected int internalAct(final double returns[], final int actions[],
+			final int numOfActions) {
+		normalize(returns, actions, numOfActions);
 
-		// logger.info("prob: " + prob);
+		int index = numOfActions - 1;
+		double prob = distribution.nextDouble();
 
-		for (int i = 0; i < returns.length; i++) {
-			prob -= p[i];
+		for (int i = 0; i < numOfActions; i++) {
+			prob -= getProbability(SoftmaxActionChoosingPolicy.getReturn(returns,
+					actions, i));
 			if (prob <= 0) {
-				lastAction = i;
+				index = i;
 				break;
 			}
 		}
 
-		return lastAction;
+		return actions == null ? index : actions[index];
 	}
 
 	@Override
@@ -283,17 +371,19 @@ public class SoftmaxActionChoosingPolicy extends ActionChoosingPolicy implements
 			return -1;
 		}
 
-		int lastAction = -1;
-
-		Integer indices[] = new Integer[actions.size()];
-		indices = actions.toArray(indices);
+		return act(returns, toIndices(actions), actions.size());
+	}
 
-		final double q[] = new double[indices.length];
-		for (int i = 0; i < q.length; i++) {
-			q[i] = returns[indices[i].intValue()];
+	@Override
+	public int act(final double returns[], final int actions[],
+			final int numOfActions) {
+		if (numOfActions == 0) {
+			return -1;
 		}
 
-		lastAction = indices[act(q)];
+		final int lastAction = internalAct(returns, actions, numOfActions);
+
+		updateTemperature();
 
 		return lastAction;
 	}
@@ -30,10 +30,12 @@ import org.apache.log4j.Logger;
 import edu.cuny.cat.comm.CatpInfrastructure;
 import edu.cuny.cat.comm.CatpServerUnavailableException;
 import edu.cuny.cat.comm.SocketBasedInfrastructureImpl;
+import edu.cuny.cat.comm.ThreadLauncher;
 import edu.cuny.cat.server.IdentityOffice;
 import edu.cuny.event.EventEngine;
 import edu.cuny.prng.GlobalPRNG;
 import edu.cuny.util.Galaxy;
+import edu.cuny.util.ParamClassLoadException;
 import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
 import edu.cuny.util.Parameterizable;
@@ -58,6 +60,15 @@ import edu.cuny.util.Utils;
  * </tr>
  * 
  * <tr>
+ * <td valign=top><i></i><tt>cat.eventengine</tt><br>
+ * <font size=-1>class, inheriting {@link EventEngine} (
+ * <code>EventEngine</code> by default)</font></td>
+ * <td valign=top>(the engine dispatching events among local components, e.g.
+ * {@link edu.cuny.event.ConcurrentEventEngine} to let markets clear in
+ * parallel)</td>
+ * </tr>
+ * 
+ * <tr>
  * <td valign=top><i></i><tt>cat.agent.n</tt><br>
  * <font size=-1>int >=0</font></td>
  * <td valign=top>(the number of subpopulations of trader clients)</td>
@@ -139,6 +150,8 @@ public final class Game {
 
 	public static final String P_INFRASTRUCTURE = "infrastructure";
 
+	public static final String P_EVENT_ENGINE = "eventengine";
+
 	public static final String P_GUI_APPENDER = "appender";
 
 	public static final String P_SERVER = "server";
@@ -155,11 +168,6 @@ public final class Game {
 
 	public static final String P_NUM = "n";
 
-	// used to generate temporary names for clients
-	protected static IdentityOffice identityOffice;
-
-	protected static ClientSynchronizer clientSynchronizer;
-
 	static Logger logger = Logger.getLogger(Game.class);
 
 	public static String getDefaultParameterFile() {
@@ -345,6 +353,22 @@ public final class Game {
 				GlobalPRNG.class);
 		prng.setup(parameters, base);
 
+		// event engine, replacing the default one before anything checks in
+
+		try {
+			final EventEngine eventEngine = parameters.getInstanceForParameter(base
+					.push(Game.P_EVENT_ENGINE), null, EventEngine.class);
+			if (eventEngine instanceof Parameterizable) {
+				((Parameterizable) eventEngine).setup(parameters, base
+						.push(Game.P_EVENT_ENGINE));
+			}
+			eventEngine.start();
+			Galaxy.getInstance().getTyped(Game.P_CAT, EventEngine.class).stop();
+			Galaxy.getInstance().put(Game.P_CAT, EventEngine.class, eventEngine);
+		} catch (final ParamClassLoadException e) {
+			// keep the engine created in setupObjectRegistry()
+		}
+
 		// catp infrastructure
 
 		final CatpInfrastructure infrast = parameters.getInstanceForParameter(base
@@ -355,6 +379,9 @@ public final class Game {
 		}
 		Galaxy.getInstance().put(Game.P_CAT, CatpInfrastructure.class, infrast);
 
+		ThreadLauncher.getInstance().setup(parameters,
+				base.push(Game.P_INFRASTRUCTURE));
+
 		/*
 		 * when communication is synchronous, use a single random number engine
 		 * since there is only one thread.
@@ -365,8 +392,11 @@ public final class Game {
 
 		//
 
-		Game.identityOffice = new IdentityOffice();
-		Game.clientSynchronizer = new ClientSynchronizer();
+		// used to generate temporary names for clients
+		Galaxy.getInstance().put(Game.P_CAT, IdentityOffice.class,
+				new IdentityOffice());
+		Galaxy.getInstance().put(Game.P_CAT, ClientSynchronizer.class,
+				new ClientSynchronizer());
 
 	}
 
@@ -424,6 +454,10 @@ public final class Game {
 
 		final Collection<TraderClient> traderColl = new ArrayList<TraderClient>();
 
+		// each trader draws from streams of its own when multiple engines are used
+		final GlobalPRNG prng = Galaxy.getInstance().getTyped(Game.P_CAT,
+				GlobalPRNG.class);
+
 		for (int t = 0; t < numTypes; t++) {
 
 			final Parameter typeParamT = typeParam.push("" + t);
@@ -439,8 +473,13 @@ public final class Game {
 
 			final TraderClient traders[] = new TraderClient[numAgents];
 			for (int i = 0; i < numAgents; i++) {
-				traders[i] = traderClass.newInstance();
-				traders[i].setup(parameters, typeParamT);
+				prng.enterScope(typeParamT + "." + i);
+				try {
+					traders[i] = traderClass.newInstance();
+					traders[i].setup(parameters, typeParamT);
+				} finally {
+					prng.exitScope();
+				}
 				if (i == 0) {
 					if (traders[i].getId() != null) {
 						Game.logger.info(Utils.indent(Utils.indent("* " + GameClient.P_ID
@@ -455,7 +494,7 @@ public final class Game {
 				}
 
 				if (numAgents > 1) {
-					traders[i].setId(Game.identityOffice.createIdentity(traders[i]
+					traders[i].setId(Game.getIdentityOffice().createIdentity(traders[i]
 							.getId()));
 				}
 
@@ -482,12 +521,12 @@ public final class Game {
 		for (final TraderClient trader : traders) {
 			if ((Galaxy.getInstance().getTyped(Game.P_CAT, CatpInfrastructure.class))
 					.isSynchronous()) {
-				Game.clientSynchronizer.countMe();
+				Game.getClientSynchronizer().countMe();
 				trader.run();
-				Game.clientSynchronizer.waitForClients();
+				Game.getClientSynchronizer().waitForClients();
 			} else {
 				/* start a separate thread only when communication is asynchronous */
-				new Thread(trader).start();
+				ThreadLauncher.getInstance().start(trader);
 			}
 		}
 	}
@@ -550,6 +589,11 @@ public final class Game {
 
 		final Collection<MarketClient> marketColl = new ArrayList<MarketClient>();
 
+		// each specialist draws from streams of its own when multiple engines are
+		// used
+		final GlobalPRNG prng = Galaxy.getInstance().getTyped(Game.P_CAT,
+				GlobalPRNG.class);
+
 		for (int t = 0; t < numTypes; t++) {
 
 			final Parameter typeParamT = base.push("" + t);
@@ -565,8 +609,13 @@ public final class Game {
 
 			final MarketClient markets[] = new MarketClient[numMarkets];
 			for (int i = 0; i < numMarkets; i++) {
-				markets[i] = marketClass.newInstance();
-				markets[i].setup(parameters, typeParamT);
+				prng.enterScope(typeParamT + "." + i);
+				try {
+					markets[i] = marketClass.newInstance();
+					markets[i].setup(parameters, typeParamT);
+				} finally {
+					prng.exitScope();
+				}
 				if (i == 0) {
 					if (markets[i].getId() != null) {
 						Game.logger.info(Utils.indent(Utils.indent("* " + GameClient.P_ID
@@ -581,7 +630,7 @@ public final class Game {
 				}
 
 				if (numMarkets > 1) {
-					markets[i].setId(Game.identityOffice.createIdentity(markets[i]
+					markets[i].setId(Game.getIdentityOffice().createIdentity(markets[i]
 							.getId()));
 				}
 
@@ -695,20 +744,28 @@ public final class Game {
 		for (final MarketClient market : markets) {
 			if (Galaxy.getInstance().getTyped(Game.P_CAT, CatpInfrastructure.class)
 					.isSynchronous()) {
-				Game.clientSynchronizer.countMe();
+				Game.getClientSynchronizer().countMe();
 				market.run();
-				Game.clientSynchronizer.waitForClients();
+				Game.getClientSynchronizer().waitForClients();
 			} else {
 				/* start a separate thread only when communication is asynchronous */
-				new Thread(market).start();
+				ThreadLauncher.getInstance().start(market);
 			}
 		}
 	}
 
 	public static void cleanUpAfterInitialization() {
-		Game.identityOffice = null;
-		Game.clientSynchronizer.dispose();
-		Game.clientSynchronizer = null;
+		Galaxy.getInstance().remove(Game.P_CAT, IdentityOffice.class);
+		((ClientSynchronizer) Galaxy.getInstance().remove(Game.P_CAT,
+				ClientSynchronizer.class)).dispose();
+	}
+
+	protected static IdentityOffice getIdentityOffice() {
+		return Galaxy.getInstance().getTyped(Game.P_CAT, IdentityOffice.class);
+	}
+
+	protected static ClientSynchronizer getClientSynchronizer() {
+		return Galaxy.getInstance().getTyped(Game.P_CAT, ClientSynchronizer.class);
 	}
 
 	public static void makeSureUnsynchronousInfrastructure()
@@ -36,6 +36,7 @@ import edu.cuny.cat.comm.CatpProactiveSession;
 import edu.cuny.cat.comm.CatpReactiveSession;
 import edu.cuny.cat.comm.CatpRequest;
 import edu.cuny.cat.comm.CatpResponse;
+import edu.cuny.cat.comm.CatpSessionRouter;
 import edu.cuny.cat.comm.ClientConnector;
 import edu.cuny.cat.comm.Connection;
 import edu.cuny.cat.comm.ConnectionException;
@@ -181,6 +182,11 @@ public abstract class GameClient implements Parameterizable, Runnable,
 	 */
 	protected CatpReactiveSession reactiveSessions[];
 
+	/**
+	 * locates the session among {@link #reactiveSessions} to process a request.
+	 */
+	protected CatpSessionRouter reactiveSessionRouter;
+
 	/**
 	 * the type of this client.
 	 */
@@ -211,6 +217,14 @@ public abstract class GameClient implements Parameterizable, Runnable,
 
 	protected GlobalPRNG prng;
 
+	/**
+	 * the scope of random number generators in which the client is created, and
+	 * resumed each time it processes a message, so that the generators its
+	 * components create lazily, e.g. when a game starts, are seeded
+	 * independently of other clients.
+	 */
+	protected GlobalPRNG.Scope prngScope;
+
 	/*****************************************************************************
 	 * 
 	 * constructors and setup
@@ -220,6 +234,7 @@ public abstract class GameClient implements Parameterizable, Runnable,
 	public GameClient() {
 		eventEngine = Galaxy.getInstance().getTyped(Game.P_CAT, EventEngine.class);
 		prng = Galaxy.getInstance().getTyped(Game.P_CAT, GlobalPRNG.class);
+		prngScope = prng.getScope();
 		infrast = Galaxy.getInstance().getTyped(Game.P_CAT,
 				CatpInfrastructure.class);
 
@@ -376,7 +391,7 @@ public abstract class GameClient implements Parameterizable, Runnable,
 	}
 
 	protected void close() {
-		reactiveSessions = new CatpReactiveSession[] {};
+		setExpectedReactiveSessions(new CatpReactiveSession[] {});
 		proactiveSessions.clear();
 
 		try {
@@ -433,52 +448,55 @@ public abstract class GameClient implements Parameterizable, Runnable,
 	protected void setExpectedReactiveSessions(
 			final CatpReactiveSession sessions[]) {
 		reactiveSessions = sessions;
+		reactiveSessionRouter = new CatpSessionRouter(sessions);
 	}
 
 	protected void dectedAndRunReactiveSessions(final CatpRequest request,
-			final CatpReactiveSession sessions[]) {
+			final CatpSessionRouter router) {
+
+		final CatpReactiveSession expected = router.route(request);
+		if (expected == null) {
+			return;
+		}
 
 		CatpResponse response = null;
-		CatpReactiveSession session = null;
-		for (final CatpReactiveSession session2 : sessions) {
-			try {
-				session = (CatpReactiveSession) session2.clone();
-				session.processRequest(request);
+		final CatpReactiveSession session = (CatpReactiveSession) expected.clone();
+		try {
+			session.processRequest(request);
+		} catch (final CatpMessageException e) {
+			if (!session.isProcessed()) {
+				GameClient.logger.error("Bug: " + session.getClass().getSimpleName()
+						+ " declined request it was routed:\n" + request, e);
 				return;
-			} catch (final CatpMessageException e) {
-				if (session.isProcessed()) {
-					final String s = "Failed in processing request from server in "
-							+ session.getClass().getSimpleName() + ".";
-					try {
-						if (e instanceof CatpMessageInvalidException) {
-							response = CatpResponse
-									.createResponse(CatpMessage.INVALID, new String[] {
-											CatpMessage.TEXT, s + " Error:" + e.toString() });
-							response.setTag(request.getTag());
-							connection.sendMessage(response);
-						} else if (e instanceof CatpMessageErrorException) {
-							response = CatpResponse
-									.createResponse(CatpMessage.ERROR, new String[] {
-											CatpMessage.TEXT, s + " Error:" + e.toString() });
-							response.setTag(request.getTag());
-							connection.sendMessage(response);
-						}
-						GameClient.logger.error(s + " Request:\n" + request, e);
-					} catch (final CatException e1) {
-						e1.printStackTrace();
-						GameClient.logger.error(s
-								+ "\n Failed to send error response as well.", e1);
-					}
-					close();
-					return;
+			}
+
+			final String s = "Failed in processing request from server in "
+					+ session.getClass().getSimpleName() + ".";
+			try {
+				if (e instanceof CatpMessageInvalidException) {
+					response = CatpResponse.createResponse(CatpMessage.INVALID,
+							new String[] { CatpMessage.TEXT, s + " Error:" + e.toString() });
+					response.setTag(request.getTag());
+					connection.sendMessage(response);
+				} else if (e instanceof CatpMessageErrorException) {
+					response = CatpResponse.createResponse(CatpMessage.ERROR,
+							new String[] { CatpMessage.TEXT, s + " Error:" + e.toString() });
+					response.setTag(request.getTag());
+					connection.sendMessage(response);
 				}
-			} catch (final CatException e) {
-				e.printStackTrace();
-				GameClient.logger.fatal(e);
-			} catch (final Exception e) {
-				e.printStackTrace();
-				GameClient.logger.fatal(e);
+				GameClient.logger.error(s + " Request:\n" + request, e);
+			} catch (final CatException e1) {
+				e1.printStackTrace();
+				GameClient.logger.error(s + "\n Failed to send error response as well.",
+						e1);
 			}
+			close();
+		} catch (final CatException e) {
+			e.printStackTrace();
+			GameClient.logger.fatal(e);
+		} catch (final Exception e) {
+			e.printStackTrace();
+			GameClient.logger.fatal(e);
 		}
 	}
 
@@ -763,12 +781,14 @@ public abstract class GameClient implements Parameterizable, Runnable,
 			final RoundOpenedEvent event = new RoundOpenedEvent();
 			event.setTime(time);
 			addEventDispatchingTask(event);
+			processEventDispatchingTasks();
 
+			// responds only after the shouts of the round, if any, are sent, so that
+			// they reach the server before the round can close, even when the clock
+			// does not wait for the round to elapse
 			final CatpResponse response = CatpResponse.createResponse(CatpMessage.OK);
 			response.setTag(request.getTag());
 			sendMessage(response);
-
-			processEventDispatchingTasks();
 		}
 	}
 
@@ -1304,6 +1324,16 @@ public abstract class GameClient implements Parameterizable, Runnable,
 			super(connection, null);
 		}
 
+		/**
+		 * passes OPTIONS GAMESTARTING, a fresh start, on to the following
+		 * {@link GameStartingSession}.
+		 */
+		@Override
+		public boolean accepts(final CatpRequest request) {
+			return !(CatpMessage.OPTIONS.equalsIgnoreCase(request.getType()) && CatpMessage.GAMESTARTING
+					.equalsIgnoreCase(request.getHeader(CatpMessage.TYPE)));
+		}
+
 		public void processRequest(final CatpRequest request) throws CatException {
 
 			setProcessed(true);
@@ -1490,6 +1520,15 @@ public abstract class GameClient implements Parameterizable, Runnable,
 	 ****************************************************************************/
 
 	public synchronized void messageArrived(final CatpMessage msg) {
+		final GlobalPRNG.Scope previous = prng.enterScope(prngScope);
+		try {
+			processMessage(msg);
+		} finally {
+			prng.exitScope(previous);
+		}
+	}
+
+	protected void processMessage(final CatpMessage msg) {
 		CatpResponse response = null;
 		CatpRequest request = null;
 
@@ -1536,7 +1575,7 @@ public abstract class GameClient implements Parameterizable, Runnable,
 				}
 			} else {
 				request = (CatpRequest) msg;
-				dectedAndRunReactiveSessions(request, reactiveSessions);
+				dectedAndRunReactiveSessions(request, reactiveSessionRouter);
 			}
 		}
 	}
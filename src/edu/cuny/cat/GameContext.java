@@ -0,0 +1,184 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.prng.GlobalPRNG;
+import edu.cuny.util.Galaxy;
+import edu.cuny.util.Parameter;
+import edu.cuny.util.ParameterDatabase;
+
+/**
+ * <p>
+ * A game that runs in a {@link Galaxy} of its own, so that several games can
+ * run in parallel in one JVM, e.g. by submitting their contexts to an
+ * {@link java.util.concurrent.ExecutorService}.
+ * </p>
+ *
+ * <p>
+ * The event engine, PRNG, CATP infrastructure, registry, report variable board
+ * and the other services a game looks up are kept in the galaxy of the
+ * context, which is bound to the thread running the game and inherited by the
+ * threads it starts. The game is seeded with the seed of the context rather
+ * than <code>cat.seed</code>, so that each game is reproducible whatever else
+ * runs alongside it.
+ * </p>
+ *
+ * <p>
+ * Log4j is configured once for the JVM, so it is left to the caller. A game
+ * run in a context does not exit the JVM when it is over; {@link #call()}
+ * returns instead.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class GameContext implements Callable<GameContext> {
+
+	static Logger logger = Logger.getLogger(GameContext.class);
+
+	protected final Galaxy galaxy;
+
+	protected final ParameterDatabase parameters;
+
+	protected final long seed;
+
+	protected final CountDownLatch over;
+
+	protected GameServer server;
+
+	/**
+	 * @param parameters
+	 *          the parameters of the game, which are copied rather than modified
+	 *          and may thus be shared with other contexts.
+	 * @param seed
+	 *          the seed of the PRNG of the game.
+	 */
+	public GameContext(final ParameterDatabase parameters, final long seed) {
+		galaxy = Galaxy.newInstance();
+		galaxy.putSingleton(GameContext.class, this);
+
+		// not to modify, or look up concurrently, the parameters of others
+		this.parameters = new ParameterDatabase();
+		this.parameters.addParent(parameters.copy());
+		this.parameters.set(new Parameter(Game.P_CAT).push(GlobalPRNG.P_SEED),
+				String.valueOf(seed));
+
+		this.seed = seed;
+		over = new CountDownLatch(1);
+	}
+
+	/**
+	 * @return the context of the game running in the current {@link Galaxy}, or
+	 *         null if the game is not run in a context.
+	 */
+	public static GameContext getCurrent() {
+		return Galaxy.getInstance().getSingleton(GameContext.class);
+	}
+
+	public Galaxy getGalaxy() {
+		return galaxy;
+	}
+
+	public ParameterDatabase getParameters() {
+		return parameters;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the server of the game, or null if the game has yet to be created.
+	 */
+	public GameServer getServer() {
+		return server;
+	}
+
+	/**
+	 * runs the game in the calling thread and returns when it is over.
+	 */
+	public GameContext call() throws Exception {
+		final boolean bound = Galaxy.isBound();
+		if (bound) {
+			throw new IllegalStateException(
+					"A game context cannot be run in the galaxy of another game !");
+		}
+
+		Galaxy.setCurrent(galaxy);
+		try {
+			Game.setupObjectRegistry();
+			try {
+				Game.setupPreferences(parameters);
+
+				final Collection<? extends TraderClient> traders = Game
+						.createTraders();
+				final Collection<? extends MarketClient> markets = Game
+						.createMarkets();
+				final Collection<? extends MarketClient> optionalMarkets = Game
+						.createOptionalMarkets();
+				server = Game.createServer();
+
+				Game.startTraders(traders);
+				Game.startMarkets(markets);
+				Game.startMarkets(optionalMarkets);
+				Game.cleanUpAfterInitialization();
+
+				Game.startServer(server);
+
+				over.await();
+
+				// on an asynchronous infrastructure, the game may be over before its
+				// clock has finished running in its own thread
+				final Thread clockThread = server.getController().getClock()
+						.getThread();
+				if ((clockThread != null) && (clockThread != Thread.currentThread())) {
+					clockThread.join();
+				}
+			} finally {
+				Game.cleanupObjectRegistry();
+			}
+		} finally {
+			Galaxy.setCurrent(null);
+		}
+
+		GameContext.logger.info("game with seed " + seed + " is over.");
+		return this;
+	}
+
+	/**
+	 * called by {@link edu.cuny.cat.server.GameController} when the game is
+	 * over.
+	 */
+	public void gameOver() {
+		over.countDown();
+	}
+
+	public boolean isOver() {
+		return over.getCount() == 0;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " seed:" + seed;
+	}
+}
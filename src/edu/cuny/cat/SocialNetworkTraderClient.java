@@ -2,11 +2,10 @@ package edu.cuny.cat;
 
 import java.util.Observable;
 import java.util.Observer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 
+import au.edu.unimelb.cat.socialnetwork.method.Advice;
 import au.edu.unimelb.cat.socialnetwork.method.ShoutingHistoryEntry;
 
 import edu.cuny.cat.comm.CatException;
@@ -70,10 +69,24 @@ public class SocialNetworkTraderClient extends TraderClient implements Observer
 
 			if ((response.getStatusCode().equalsIgnoreCase(CatpMessage.OK))) { //
 
-				GetInformedDecisionSession newSession = 
-									new GetInformedDecisionSession("MSS");
+				// market selection advice comes along if the server batches it
+				if (Advice.TYPE.equalsIgnoreCase(response
+						.getHeader(CatpMessage.TYPE))) {
 
-				startProactiveSession(newSession);
+					if (Advice.isCarriedBy(response)) {
+						adviceArrived(Advice.parse(response));
+					} else {
+						adviceArrived(Advice.none(Advice.MSS));
+					}
+
+				} else {
+
+					GetInformedDecisionSession newSession = 
+										new GetInformedDecisionSession(Advice.MSS);
+
+					startProactiveSession(newSession);
+
+				}
 			
 			} 
 			else {
@@ -93,12 +106,15 @@ public class SocialNetworkTraderClient extends TraderClient implements Observer
 
 	class GetInformedDecisionSession extends CatpProactiveSession {
 
+		private final String strategy;
+
 		public GetInformedDecisionSession(String strategy) {
 			super(connection);
 
+			this.strategy = strategy;
+
 			setRequest(CatpRequest.createRequest(CatpMessage.GET, new String[] {
-					CatpMessage.TYPE, "MD", CatpMessage.TEXT,
-					String.format("strategy=%s", strategy) }));
+					CatpMessage.TYPE, Advice.TYPE, Advice.STRATEGY, strategy }));
 			getRequest().setTag(tag);
 		}
 
@@ -107,71 +123,10 @@ public class SocialNetworkTraderClient extends TraderClient implements Observer
 			super.processResponse(response);
 
 			if (response.getStatusCode().equalsIgnoreCase(CatpMessage.OK)) {
-				String strategy = null;
-
-				Pattern p = Pattern.compile("(\\w*)=([^, ]*)");
-				Matcher m = p.matcher(response.getHeader(CatpMessage.TEXT));
-
-				if (m.find()) {
-					if (m.group(1).equals("strategy")) {
-						strategy = m.group(2);
-					}
-				}
-
-				if (strategy != null) {
-				
-					if (strategy.equalsIgnoreCase("MSS")) {
-						String specialistId = null;
-						boolean experience = false;
-
-						if (m.find()) {
-							if (m.group(1).equals("specialistid")) {
-								specialistId = m.group(2);
-							}
-						}
-						if (m.find()) {
-							if (m.group(1).equals("experience")) {
-								experience = Boolean.parseBoolean(m.group(2));
-							}
-						}
-
-						if (specialistId != null) {
-							if (specialistId.equals("")) {
-								dispatchEvent(new InformedMSDecisionArrivedEvent());
-							} else {
-								dispatchEvent(new InformedMSDecisionArrivedEvent(
-										specialistId, experience));
-							}
-						} else {
-							final String msg = "Unexpected response received to get "
-									+ request.getHeader(CatpMessage.TYPE)
-									+ " message:\n"
-									+ "!!! >>> no specialistid received <<< !!!";
-
-							throw new CatpMessageErrorException(msg);
-						}
-					} else if (strategy.equalsIgnoreCase("SS")) {
-						ShoutingHistoryEntry she = new ShoutingHistoryEntry();
-						boolean experience = false;
-
-						while (m.find()) {
-							if (m.group(1).equals("price")) {
-								she.setPrice(Double.parseDouble(m.group(2)));
-							} else if (m.group(1).equals("quantity")) {
-								she.setQuantity(Integer.parseInt(m.group(2)));
-							} else if (m.group(1).equals("experience")) {
-								experience = Boolean.parseBoolean(m.group(2));
-							}
-						}
-
-						if (she.getPrice() != -1 && she.getQuantity() != -1) {
-							dispatchEvent(new InformedShoutingDecisionArrivedEvent(
-									she, experience));
-						} else {
-							dispatchEvent(new InformedShoutingDecisionArrivedEvent());
-						}
-
-					}
+				if (Advice.isCarriedBy(response)) {
+					adviceArrived(Advice.parse(response));
+				} else {
+					adviceArrived(Advice.none(strategy));
 				}
 			} else {
 				final String msg = "Unexpected response received to get "
@@ -183,6 +138,30 @@ public class SocialNetworkTraderClient extends TraderClient implements Observer
 		}
 	}
 
+	/**
+	 * passes the advice received on to the strategies of the trader.
+	 */
+	protected void adviceArrived(Advice advice) {
+		if (advice.isMarketSelection()) {
+			if (advice.isValid()) {
+				dispatchEvent(new InformedMSDecisionArrivedEvent(advice
+						.getSpecialistId(), advice.getExperience()));
+			} else {
+				dispatchEvent(new InformedMSDecisionArrivedEvent());
+			}
+		} else if (advice.isShouting()) {
+			if (advice.isValid()) {
+				ShoutingHistoryEntry she = new ShoutingHistoryEntry();
+				she.setPrice(advice.getPrice());
+				she.setQuantity(advice.getQuantity());
+				dispatchEvent(new InformedShoutingDecisionArrivedEvent(she,
+						advice.getExperience()));
+			} else {
+				dispatchEvent(new InformedShoutingDecisionArrivedEvent());
+			}
+		}
+	}
+
 	@Override
 	public void update(Observable source, Object arg) {
 		if (arg instanceof SocialNetworkMarketSelectionStrategy) {
@@ -190,7 +169,7 @@ public class SocialNetworkTraderClient extends TraderClient implements Observer
 			startProactiveSession(newSession);
 		} else if (arg instanceof SocialNetworkShoutingStrategy) {
 			GetInformedDecisionSession newSession = new GetInformedDecisionSession(
-					"SS");
+					Advice.SS);
 			startProactiveSession(newSession);
 		} else {
 			super.update(source, arg);
@@ -436,14 +436,15 @@ public class TraderClient extends GameClient implements Observer {
 			final DayOpeningEvent event = new DayOpeningEvent();
 			event.setTime(time);
 			addEventDispatchingTask(event);
+			processEventDispatchingTasks();
 
+			// responds only after the registration, if any, is sent, so that it
+			// reaches the server before the day opens, as with shouts in rounds
 			final CatpResponse response = CatpResponse.createResponse(CatpMessage.OK,
 					new String[] { CatpMessage.VALUE,
 							String.valueOf(agent.getInitialTradeEntitlement()) });
 			response.setTag(request.getTag());
 			sendMessage(response);
-
-			processEventDispatchingTasks();
 		}
 	}
 
@@ -0,0 +1,94 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+
+/**
+ * <p>
+ * A pool of direct {@link ByteBuffer}s of the same size, so that buffers
+ * written to channels are allocated once and reused, rather than allocated and
+ * copied into a temporary direct buffer by the channel for each write.
+ * </p>
+ *
+ * <p>
+ * At most a given number of idle buffers are kept. Buffers acquired beyond that
+ * are allocated as needed and dropped when released.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class ByteBufferPool {
+
+	protected final int bufferSize;
+
+	protected final int capacity;
+
+	/**
+	 * idle buffers, the most recently released first.
+	 */
+	protected final LinkedList<ByteBuffer> buffers;
+
+	/**
+	 * @param bufferSize
+	 *          the size of each buffer in bytes.
+	 * @param capacity
+	 *          the maximal number of idle buffers kept.
+	 */
+	public ByteBufferPool(final int bufferSize, final int capacity) {
+		this.bufferSize = bufferSize;
+		this.capacity = capacity;
+		buffers = new LinkedList<ByteBuffer>();
+	}
+
+	/**
+	 * @return a cleared direct buffer of {@link #getBufferSize()} bytes.
+	 */
+	public synchronized ByteBuffer acquire() {
+		final ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		} else {
+			buffer.clear();
+			return buffer;
+		}
+	}
+
+	/**
+	 * returns a buffer to the pool. Buffers not acquired from a pool of the same
+	 * size are ignored.
+	 */
+	public synchronized void release(final ByteBuffer buffer) {
+		if (buffer.isDirect() && (buffer.capacity() == bufferSize)
+				&& (buffers.size() < capacity)) {
+			buffers.addFirst(buffer);
+		}
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * @return the number of idle buffers in the pool.
+	 */
+	public synchronized int size() {
+		return buffers.size();
+	}
+}
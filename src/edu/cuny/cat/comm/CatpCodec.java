@@ -0,0 +1,188 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Encodes {@link CatpMessage}s into bytes and decodes them from lines of text
+ * for socket-based connections.
+ * </p>
+ *
+ * <p>
+ * A message is written straight into a buffer, byte by byte, in the same
+ * layout as {@link CatpMessage#toString()}, without building the text first.
+ * This is done only when the message is pure ASCII and fits in a pooled buffer;
+ * otherwise the bytes of {@link CatpMessage#toString()} in the default charset
+ * are used as before, so what goes on the wire does not change.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class CatpCodec {
+
+	/**
+	 * what {@link CatpMessage#toString()} shows for a header without a value.
+	 */
+	private static final String NULL = String.valueOf((Object) null);
+
+	/**
+	 * @return the number of bytes the message takes when encoded, or -1 if the
+	 *         message contains any non-ASCII character.
+	 */
+	public static int getEncodedLength(final CatpMessage msg) {
+		final int crlf = Message.CRLF.length();
+		final int separator = CatpMessage.HEADER_SEPARATOR.length() + 1;
+
+		int length = CatpCodec.getAsciiLength(String.valueOf(msg.getStartLine()));
+		if (length < 0) {
+			return -1;
+		}
+		length += crlf;
+
+		for (final String name : msg.getHeaderNames()) {
+			final int nameLength = CatpCodec.getAsciiLength(name);
+			final int headerLength = CatpCodec.getAsciiLength(CatpCodec.valueOf(msg
+					.getHeader(name)));
+			if ((nameLength < 0) || (headerLength < 0)) {
+				return -1;
+			}
+			length += nameLength + separator + headerLength + crlf;
+		}
+
+		return length + crlf;
+	}
+
+	private static int getAsciiLength(final String s) {
+		final int length = s.length();
+		for (int i = 0; i < length; i++) {
+			if (s.charAt(i) >= 0x80) {
+				return -1;
+			}
+		}
+		return length;
+	}
+
+	private static String valueOf(final String header) {
+		return (header == null) ? CatpCodec.NULL : header;
+	}
+
+	/**
+	 * writes an ASCII message into the buffer, which must have at least
+	 * {@link #getEncodedLength(CatpMessage)} bytes remaining.
+	 */
+	public static void encode(final CatpMessage msg, final ByteBuffer buffer) {
+		CatpCodec.put(buffer, String.valueOf(msg.getStartLine()));
+		CatpCodec.put(buffer, Message.CRLF);
+		for (final String name : msg.getHeaderNames()) {
+			CatpCodec.put(buffer, name);
+			CatpCodec.put(buffer, CatpMessage.HEADER_SEPARATOR);
+			buffer.put((byte) ' ');
+			CatpCodec.put(buffer, CatpCodec.valueOf(msg.getHeader(name)));
+			CatpCodec.put(buffer, Message.CRLF);
+		}
+		CatpCodec.put(buffer, Message.CRLF);
+	}
+
+	private static void put(final ByteBuffer buffer, final String s) {
+		final int length = s.length();
+		for (int i = 0; i < length; i++) {
+			buffer.put((byte) s.charAt(i));
+		}
+	}
+
+	/**
+	 * encodes a message into a buffer ready to be written to a channel.
+	 *
+	 * @param pool
+	 *          where the buffer is acquired if the message fits in one.
+	 * @return a buffer from the pool, or a heap buffer wrapping the bytes of
+	 *         {@link CatpMessage#toString()} otherwise.
+	 */
+	public static ByteBuffer encode(final CatpMessage msg,
+			final ByteBufferPool pool) {
+		final int length = CatpCodec.getEncodedLength(msg);
+		if ((length < 0) || (length > pool.getBufferSize())) {
+			return ByteBuffer.wrap(msg.toString().getBytes());
+		} else {
+			final ByteBuffer buffer = pool.acquire();
+			CatpCodec.encode(msg, buffer);
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+	/**
+	 * creates an empty message of the proper kind for a starting line.
+	 *
+	 * @param startLine
+	 *          the trimmed starting line.
+	 * @throws CatpMessageErrorException
+	 *           if the line starts neither a request nor a response.
+	 */
+	public static CatpMessage createMessage(final String startLine)
+			throws CatpMessageErrorException {
+		CatpMessage msg = null;
+		if (startLine.equalsIgnoreCase(CatpMessage.ASK)
+				|| startLine.equalsIgnoreCase(CatpMessage.BID)
+				|| startLine.equalsIgnoreCase(CatpMessage.TRANSACTION)
+				|| startLine.equalsIgnoreCase(CatpMessage.GET)
+				|| startLine.equalsIgnoreCase(CatpMessage.POST)
+				|| startLine.equalsIgnoreCase(CatpMessage.SUBSCRIBE)
+				|| startLine.equalsIgnoreCase(CatpMessage.OPTIONS)
+				|| startLine.equalsIgnoreCase(CatpMessage.CHECKIN)
+				|| startLine.equalsIgnoreCase(CatpMessage.REGISTER)) {
+			// request
+			msg = new CatpRequest();
+		} else if (startLine.equalsIgnoreCase(CatpMessage.OK)
+				|| startLine.equalsIgnoreCase(CatpMessage.ERROR)
+				|| startLine.equalsIgnoreCase(CatpMessage.INVALID)) {
+			// response
+			msg = new CatpResponse();
+		} else {
+			throw new CatpMessageErrorException(
+					"Invalid CatpMessage starting with \"" + startLine + "\"");
+		}
+
+		msg.setStartLine(startLine);
+		return msg;
+	}
+
+	/**
+	 * parses a header line, in the format of <i>name</i><code>:</code>
+	 * <i>value</i>, and adds the header to the message.
+	 *
+	 * @param line
+	 *          the trimmed, non-empty header line.
+	 * @throws CatpMessageErrorException
+	 *           if the line does not contain exactly one separator.
+	 */
+	public static void decodeHeader(final CatpMessage msg, final String line)
+			throws CatpMessageErrorException {
+		final int index = line.indexOf(CatpMessage.HEADER_SEPARATOR);
+		if ((index < 0)
+				|| (line.indexOf(CatpMessage.HEADER_SEPARATOR, index + 1) >= 0)) {
+			throw new CatpMessageErrorException("Invalid format in message header \""
+					+ line + "\"");
+		}
+
+		msg.addHeader(line.substring(0, index).trim(), line.substring(
+				index + CatpMessage.HEADER_SEPARATOR.length()).trim());
+	}
+}
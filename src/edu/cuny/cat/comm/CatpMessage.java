@@ -438,14 +438,16 @@ public abstract class CatpMessage extends Message {
 	 */
 	@Override
 	public String toString() {
-		String s = startLine + Message.CRLF;
+		final StringBuilder s = new StringBuilder();
+		s.append(startLine).append(Message.CRLF);
 		for (final String name : getHeaderNames()) {
 			final String header = getHeader(name);
-			s += name + CatpMessage.HEADER_SEPARATOR + " " + header + Message.CRLF;
+			s.append(name).append(CatpMessage.HEADER_SEPARATOR).append(' ').append(
+					header).append(Message.CRLF);
 		}
 
-		s += Message.CRLF;
+		s.append(Message.CRLF);
 
-		return s;
+		return s.toString();
 	}
 }
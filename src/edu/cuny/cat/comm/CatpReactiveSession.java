@@ -23,10 +23,12 @@ package edu.cuny.cat.comm;
  * 
  * <p>
  * For a reactive party, several different sessions may be expected at a moment.
- * Detection on which sessions a coming request belongs to is done by trying
- * {@link #processRequest(CatpRequest)}, which should set {@link #processed} to
- * true if a session is certain it is the right one to process the request, or
- * false otherwise. {@link CatException} may be thrown thrown by the right
+ * Detection on which sessions a coming request belongs to is done by a
+ * {@link CatpSessionRouter}, based on the request type and the type header a
+ * session expects, or {@link #accepts(CatpRequest)} for sessions expecting any
+ * request. {@link #processRequest(CatpRequest)} should set {@link #processed}
+ * to true if a session is certain it is the right one to process the request,
+ * or false otherwise. {@link CatException} may be thrown thrown by the right
  * session if anything wrong with the request.
  * </p>
  * 
@@ -97,6 +99,34 @@ public abstract class CatpReactiveSession extends Session<CatpMessage>
 		}
 	}
 
+	/**
+	 * checks, without processing the request, whether this session would take
+	 * the request as its own, i.e., whether {@link #processRequest(CatpRequest)}
+	 * would set {@link #processed} to true.
+	 * 
+	 * @return true if the type of the request and its {@link CatpMessage#TYPE}
+	 *         header, if expected, match those of this session, or if the session
+	 *         expects any request.
+	 */
+	public boolean accepts(final CatpRequest request) {
+		if (reqType == null) {
+			return true;
+		} else if ((request == null) || !reqType.equalsIgnoreCase(request.getType())) {
+			return false;
+		} else {
+			return (typeHeader == null)
+					|| typeHeader.equalsIgnoreCase(request.getHeader(CatpMessage.TYPE));
+		}
+	}
+
+	public String getReqType() {
+		return reqType;
+	}
+
+	public String getTypeHeader() {
+		return typeHeader;
+	}
+
 	public boolean isProcessed() {
 		return processed;
 	}
@@ -0,0 +1,150 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Locates, among the reactive sessions expected at a moment, the one that is to
+ * process a coming request, without trying each of them in turn.
+ * </p>
+ *
+ * <p>
+ * Sessions are indexed on their request type and, if any, the value of the
+ * {@link CatpMessage#TYPE} header they expect, both case-insensitive. Sessions
+ * without a request type, like those dealing with unexpected requests, accept
+ * any request and are asked through
+ * {@link CatpReactiveSession#accepts(CatpRequest)}. The session chosen is the
+ * same as the first session in the given order that would have accepted the
+ * request.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class CatpSessionRouter {
+
+	protected CatpReactiveSession sessions[];
+
+	/**
+	 * positions of the first session for each request type and type header.
+	 */
+	protected Map<String, Integer> typedSessions;
+
+	/**
+	 * positions of the first session for each request type expecting no type
+	 * header.
+	 */
+	protected Map<String, Integer> untypedSessions;
+
+	/**
+	 * positions of the sessions without a request type, in ascending order.
+	 */
+	protected int catchAllSessions[];
+
+	public CatpSessionRouter(final CatpReactiveSession sessions[]) {
+		this.sessions = sessions;
+
+		typedSessions = new HashMap<String, Integer>();
+		untypedSessions = new HashMap<String, Integer>();
+
+		int numOfCatchAlls = 0;
+		for (final CatpReactiveSession session : sessions) {
+			if (session.getReqType() == null) {
+				numOfCatchAlls++;
+			}
+		}
+		catchAllSessions = new int[numOfCatchAlls];
+
+		numOfCatchAlls = 0;
+		for (int i = 0; i < sessions.length; i++) {
+			final String reqType = sessions[i].getReqType();
+			final String typeHeader = sessions[i].getTypeHeader();
+
+			if (reqType == null) {
+				catchAllSessions[numOfCatchAlls++] = i;
+			} else if (typeHeader == null) {
+				final String key = CatpSessionRouter.key(reqType);
+				if (!untypedSessions.containsKey(key)) {
+					untypedSessions.put(key, i);
+				}
+			} else {
+				final String key = CatpSessionRouter.key(reqType, typeHeader);
+				if (!typedSessions.containsKey(key)) {
+					typedSessions.put(key, i);
+				}
+			}
+		}
+	}
+
+	private static String key(final String reqType) {
+		return reqType.toUpperCase();
+	}
+
+	private static String key(final String reqType, final String typeHeader) {
+		return reqType.toUpperCase() + " " + typeHeader.toUpperCase();
+	}
+
+	/**
+	 * @return the session to process the request, or null if none of the
+	 *         sessions accepts it. An empty request goes to the first session,
+	 *         which is to complain about it.
+	 */
+	public CatpReactiveSession route(final CatpRequest request) {
+		if (request == null) {
+			return (sessions.length > 0) ? sessions[0] : null;
+		}
+
+		int candidate = sessions.length;
+
+		final String reqType = request.getType();
+		if (reqType != null) {
+			Integer index = untypedSessions.get(CatpSessionRouter.key(reqType));
+			if (index != null) {
+				candidate = index;
+			}
+
+			final String typeHeader = request.getHeader(CatpMessage.TYPE);
+			if (typeHeader != null) {
+				index = typedSessions.get(CatpSessionRouter.key(reqType, typeHeader));
+				if ((index != null) && (index < candidate)) {
+					candidate = index;
+				}
+			}
+		}
+
+		for (final int index : catchAllSessions) {
+			if (index > candidate) {
+				break;
+			} else if (sessions[index].accepts(request)) {
+				return sessions[index];
+			}
+		}
+
+		if (candidate < sessions.length) {
+			return sessions[candidate];
+		} else {
+			return null;
+		}
+	}
+
+	public CatpReactiveSession[] getSessions() {
+		return sessions;
+	}
+}
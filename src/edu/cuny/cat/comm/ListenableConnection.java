@@ -134,7 +134,8 @@ public class ListenableConnection<M extends Message> implements Runnable,
 			throw new ConnectionException("Connection already opened !");
 		} else {
 			connection.open();
-			thread = new Thread(ListenableConnection.threadGroup, this, "",
+			thread = ThreadLauncher.getInstance().newThread(
+					ListenableConnection.threadGroup, this, "",
 					ListenableConnection.THREAD_STACK_SIZE);
 			thread.start();
 			// logger.info("threads: " + threadGroup.activeCount());
@@ -181,14 +182,16 @@ public class ListenableConnection<M extends Message> implements Runnable,
 	/**
 	 * wraps a {@link ProactiveConnection} with {@link ListenableConnection} if
 	 * necessary to make it support registering-and-listening message passing,
-	 * i.e. an instance of {@link ReactiveConnection}.
+	 * i.e. an instance of {@link ReactiveConnection}. A connection that is both
+	 * proactive and reactive, like {@link SelectorBasedCatpConnection}, is used
+	 * as it is.
 	 */
 	public static <T extends Message> ReactiveConnection<T> makeReactiveConnection(
 			final Connection<T> conn) {
-		if (conn instanceof ProactiveConnection) {
-			return new ListenableConnection<T>((ProactiveConnection<T>) conn);
-		} else if (conn instanceof ReactiveConnection) {
+		if (conn instanceof ReactiveConnection) {
 			return (ReactiveConnection<T>) conn;
+		} else if (conn instanceof ProactiveConnection) {
+			return new ListenableConnection<T>((ProactiveConnection<T>) conn);
 		} else {
 			ListenableConnection.logger.fatal("Unsupported catp connection type: "
 					+ conn.getClass().getSimpleName() + " !");
@@ -15,6 +15,8 @@
 
 package edu.cuny.cat.comm;
 
+import java.util.concurrent.CountDownLatch;
+
 import org.apache.log4j.Logger;
 
 /**
@@ -34,8 +36,14 @@ public class QueueBasedCatpClientConnector implements
 
 	QueueBasedInfrastructureImpl infrast;
 
+	/**
+	 * released when the connection request is accepted.
+	 */
+	final CountDownLatch accepted;
+
 	public QueueBasedCatpClientConnector() {
 		infrast = QueueBasedInfrastructureImpl.getInstance();
+		accepted = new CountDownLatch(1);
 	}
 
 	/**
@@ -15,9 +15,10 @@
 
 package edu.cuny.cat.comm;
 
-import org.apache.commons.collections15.Buffer;
-import org.apache.commons.collections15.BufferUtils;
-import org.apache.commons.collections15.buffer.UnboundedFifoBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
 import org.apache.log4j.Logger;
 
 /**
@@ -49,7 +50,12 @@ public class QueueBasedCatpConnection implements
 	/**
 	 * the queue buffering incoming messages
 	 */
-	protected Buffer<CatpMessage> messages;
+	protected volatile BlockingQueue<CatpMessage> messages;
+
+	/**
+	 * released when the connection is opened, so that messages can be relayed.
+	 */
+	protected final CountDownLatch opened;
 
 	/**
 	 * an identifier for this connection
@@ -59,6 +65,7 @@ public class QueueBasedCatpConnection implements
 	public QueueBasedCatpConnection(final Object connector, final String id) {
 		this.connector = connector;
 		this.id = id;
+		opened = new CountDownLatch(1);
 	}
 
 	public Object getConnector() {
@@ -86,54 +93,52 @@ public class QueueBasedCatpConnection implements
 		peer.relayMessage(msg);
 	}
 
-	public synchronized void relayMessage(final CatpMessage msg)
-			throws CatException {
-		if (messages == null) {
-			try {
-				wait();
-			} catch (final InterruptedException e) {
-				e.printStackTrace();
-				throw new ConnectionException(getClass().getSimpleName()
-						+ " is closed or not open yet for relaying !");
-			}
+	public void relayMessage(final CatpMessage msg) throws CatException {
+		try {
+			opened.await();
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			throw new ConnectionException(getClass().getSimpleName()
+					+ " is closed or not open yet for relaying !");
 		}
 
-		synchronized (messages) {
+		final BlockingQueue<CatpMessage> messages = this.messages;
+		if (messages != null) {
 			messages.add(msg);
-			messages.notify();
 		}
 	}
 
+	/**
+	 * waits for a message without holding a monitor, so that a virtual thread
+	 * waiting here does not pin its carrier thread.
+	 * 
+	 * @see ThreadLauncher
+	 */
 	public CatpMessage getMessage() throws CatException {
-		if (isClosed()) {
+		final BlockingQueue<CatpMessage> messages = this.messages;
+		if (messages == null) {
 			throw new ConnectionException(getClass().getSimpleName()
 					+ " is closed or not open yet for reading !");
 		}
 
-		synchronized (messages) {
-			if (messages.isEmpty()) {
-				try {
-					messages.wait();
-				} catch (final InterruptedException e) {
-					// thread waiting for messages interrupted, which is normal.
-					return null;
-				}
-			}
-			return messages.remove();
+		try {
+			return messages.take();
+		} catch (final InterruptedException e) {
+			// thread waiting for messages interrupted, which is normal.
+			return null;
 		}
 	}
 
-	public synchronized void open() throws ConnectionException {
-		messages = BufferUtils
-				.synchronizedBuffer(new UnboundedFifoBuffer<CatpMessage>());
-		notifyAll();
+	public void open() throws ConnectionException {
+		messages = new LinkedBlockingQueue<CatpMessage>();
+		opened.countDown();
 	}
 
 	public void close() throws ConnectionException {
 		messages = null;
 	}
 
-	public synchronized boolean isClosed() {
+	public boolean isClosed() {
 		return messages == null;
 	}
 
@@ -115,16 +115,14 @@ public class QueueBasedInfrastructureImpl implements CatpInfrastructure {
 			notifyAll();
 		}
 
-		synchronized (client) {
-			try {
-				if (!connections.containsKey(client)) {
-					client.wait();
-				}
-				return connections.get(client);
-			} catch (final InterruptedException e) {
-				e.printStackTrace();
-				return null;
-			}
+		try {
+			// not waiting on the monitor of client, which would pin the carrier of a
+			// virtual thread
+			client.accepted.await();
+			return connections.get(client);
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			return null;
 		}
 	}
 
@@ -151,20 +149,18 @@ public class QueueBasedInfrastructureImpl implements CatpInfrastructure {
 			client = waitingClients.remove();
 		}
 
-		synchronized (client) {
-			final long id_num = idAllocator.nextId();
-			final QueueBasedCatpConnection connForServer = new QueueBasedCatpConnection(
-					server, "queueserver" + id_num);
-			final QueueBasedCatpConnection connForClient = new QueueBasedCatpConnection(
-					client, "queueclient" + id_num);
-			connForServer.setPeer(connForClient);
-			connForClient.setPeer(connForServer);
-			connections.put(client, connForClient);
+		final long id_num = idAllocator.nextId();
+		final QueueBasedCatpConnection connForServer = new QueueBasedCatpConnection(
+				server, "queueserver" + id_num);
+		final QueueBasedCatpConnection connForClient = new QueueBasedCatpConnection(
+				client, "queueclient" + id_num);
+		connForServer.setPeer(connForClient);
+		connForClient.setPeer(connForServer);
+		connections.put(client, connForClient);
 
-			client.notifyAll();
+		client.accepted.countDown();
 
-			return connForServer;
-		}
+		return connForServer;
 	}
 
 	/**
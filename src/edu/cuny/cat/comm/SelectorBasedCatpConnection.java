@@ -0,0 +1,442 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.LinkedList;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * The implementation of {@link Connection} when
+ * {@link SelectorBasedInfrastructureImpl} is used.
+ * </p>
+ *
+ * <p>
+ * Unlike {@link SocketBasedCatpConnection}, which is read from by a thread of
+ * its own once wrapped by {@link ListenableConnection}, the connection is a
+ * {@link ReactiveConnection} itself. Its channel is put into non-blocking mode
+ * when opened and read from by a shared {@link SelectorLoop}, which delivers
+ * each message to the listener as soon as it has arrived in full.
+ * </p>
+ *
+ * <p>
+ * Messages are still sent by the calling thread, but only as far as the
+ * channel takes them without blocking. When the socket buffer is full, the rest
+ * is queued and written by the loop once the channel is writable again, so
+ * that neither the sending thread nor the loop, which may be the sender itself
+ * when a listener responds, waits on a slow peer.
+ * </p>
+ *
+ * <p>
+ * A message longer than {@link #MAX_MESSAGE_SIZE} bytes is not buffered any
+ * further, and ends the connection instead. Likewise, a peer that stops reading
+ * has its connection ended once more than {@link #getMaxPendingSize()} bytes
+ * are left for the loop to write to it.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SelectorBasedCatpConnection extends SocketBasedCatpConnection
+		implements ReactiveConnection<CatpMessage> {
+
+	static Logger logger = Logger.getLogger(SelectorBasedCatpConnection.class);
+
+	protected SelectorLoop loop;
+
+	/**
+	 * the most bytes {@link #readBuffer} grows to for a message to arrive in
+	 * full.
+	 */
+	public static final int MAX_MESSAGE_SIZE = 16 * SocketBasedConnection.BUFFER_SIZE;
+
+	/**
+	 * the most bytes, by default, left in {@link #pending} for a peer before its
+	 * connection is ended.
+	 */
+	public static final int MAX_PENDING_SIZE = 4 * SelectorBasedCatpConnection.MAX_MESSAGE_SIZE;
+
+	protected ConnectionListener<CatpMessage> listener;
+
+	/**
+	 * bytes the channel has yet to take, written by the loop when the channel
+	 * becomes writable, and guarded by {@link #writeLock}.
+	 */
+	protected final LinkedList<ByteBuffer> pending;
+
+	/**
+	 * the number of bytes remaining in {@link #pending}, guarded by
+	 * {@link #writeLock}.
+	 */
+	protected int numOfPendingBytes;
+
+	protected int maxPendingSize = SelectorBasedCatpConnection.MAX_PENDING_SIZE;
+
+	/**
+	 * whether the connection is to be ended by the loop since too many bytes were
+	 * pending, guarded by {@link #writeLock}.
+	 */
+	protected boolean overflowed;
+
+	protected boolean opened;
+
+	public SelectorBasedCatpConnection(final SocketChannel socketChannel,
+			final SelectorLoop loop) {
+		super(socketChannel);
+		this.loop = loop;
+		pending = new LinkedList<ByteBuffer>();
+	}
+
+	/**
+	 * @throws CatException
+	 *           always, since messages are delivered to the listener.
+	 */
+	@Override
+	public CatpMessage getMessage() throws CatException {
+		throw new CatException("This method should not be used !");
+	}
+
+	public void setListener(final ConnectionListener<CatpMessage> listener) {
+		this.listener = listener;
+	}
+
+	public ConnectionListener<CatpMessage> getListener() {
+		return listener;
+	}
+
+	@Override
+	public void open() throws ConnectionException {
+		if (listener == null) {
+			throw new ConnectionException("No listener setup !");
+		}
+
+		if (opened) {
+			throw new ConnectionException("Connection already opened !");
+		}
+
+		try {
+			socketChannel.configureBlocking(false);
+		} catch (final IOException e) {
+			e.printStackTrace();
+			SelectorBasedCatpConnection.logger.error(e);
+			throw new ConnectionException(e.toString());
+		}
+
+		opened = true;
+		loop.register(this);
+	}
+
+	/**
+	 * TODO: as with {@link ListenableConnection}, not safe to simply set
+	 * listener null.
+	 */
+	@Override
+	public void close() throws ConnectionException {
+		listener = null;
+
+		try {
+			super.close();
+		} finally {
+			synchronized (writeLock) {
+				pending.clear();
+				numOfPendingBytes = 0;
+			}
+		}
+	}
+
+	/**
+	 * @return the most bytes left for the loop to write to the peer before the
+	 *         connection is ended.
+	 */
+	public int getMaxPendingSize() {
+		return maxPendingSize;
+	}
+
+	public void setMaxPendingSize(final int maxPendingSize) {
+		this.maxPendingSize = maxPendingSize;
+	}
+
+	public SocketChannel getSocketChannel() {
+		return socketChannel;
+	}
+
+	/**
+	 * called by {@link SelectorLoop} when the channel is readable, to read what
+	 * has arrived and deliver the messages completed.
+	 */
+	protected void handleReadable(final SelectionKey key) {
+		try {
+			final int nBytes = fill();
+
+			CatpMessage msg = null;
+			while ((msg = poll()) != null) {
+				deliver(msg);
+			}
+
+			if (nBytes < 0) {
+				// end of stream
+				handleEnd(key);
+			}
+		} catch (final CatException e) {
+			e.printStackTrace();
+			handleEnd(key);
+		} catch (final IOException e) {
+			if (!isClosed()) {
+				e.printStackTrace();
+			}
+			handleEnd(key);
+		}
+	}
+
+	/**
+	 * called by {@link SelectorLoop} when the channel is writable, to write what
+	 * the sending threads have left in {@link #pending}. The loop stops watching
+	 * the channel for writability once nothing is left.
+	 */
+	protected void handleWritable(final SelectionKey key) {
+		try {
+			synchronized (writeLock) {
+				while (!pending.isEmpty()) {
+					final ByteBuffer buffer = pending.peek();
+					numOfPendingBytes -= socketChannel.write(buffer);
+					if (buffer.hasRemaining()) {
+						// the socket buffer is full again
+						return;
+					}
+					pending.poll();
+				}
+
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			}
+		} catch (final IOException e) {
+			if (!isClosed()) {
+				e.printStackTrace();
+			}
+			handleEnd(key);
+		}
+	}
+
+	/**
+	 * stops reading from the channel, tells the listener with a null message, as
+	 * {@link ListenableConnection} does, and closes the channel.
+	 */
+	protected void handleEnd(final SelectionKey key) {
+		key.cancel();
+		deliver(null);
+
+		try {
+			socketChannel.close();
+		} catch (final IOException e) {
+			SelectorBasedCatpConnection.logger.error(e);
+		}
+	}
+
+	/**
+	 * called by {@link SelectorLoop} when the channel is found closed before
+	 * being registered.
+	 */
+	protected void handleClosed() {
+		deliver(null);
+	}
+
+	protected void deliver(final CatpMessage msg) {
+		final ConnectionListener<CatpMessage> listener = this.listener;
+		if (listener != null) {
+			listener.messageArrived(msg);
+		} else if (msg != null) {
+			SelectorBasedCatpConnection.logger.error("Message received in " + this
+					+ " without a single listener !");
+		}
+	}
+
+	/**
+	 * reads what is available from the channel into {@link #readBuffer}, which is
+	 * enlarged, up to {@link #MAX_MESSAGE_SIZE} bytes, if full of an incomplete
+	 * message.
+	 *
+	 * @return the number of bytes read, or -1 if the end of stream is met.
+	 * @throws CatpMessageErrorException
+	 *           if the incomplete message is already as long as allowed.
+	 */
+	protected int fill() throws IOException, CatpMessageErrorException {
+		// make ready for writing
+		readBuffer.compact();
+
+		if (!readBuffer.hasRemaining()) {
+			if (readBuffer.capacity() >= SelectorBasedCatpConnection.MAX_MESSAGE_SIZE) {
+				throw new CatpMessageErrorException("Message longer than "
+						+ SelectorBasedCatpConnection.MAX_MESSAGE_SIZE + " bytes in "
+						+ this + " !");
+			}
+
+			final ByteBuffer buffer = ByteBuffer.allocate(Math.min(readBuffer
+					.capacity() * 2, SelectorBasedCatpConnection.MAX_MESSAGE_SIZE));
+			readBuffer.flip();
+			buffer.put(readBuffer);
+			readBuffer = buffer;
+		}
+
+		final int nBytes = socketChannel.read(readBuffer);
+
+		// make ready for reading
+		readBuffer.flip();
+
+		return nBytes;
+	}
+
+	/**
+	 * parses a message out of {@link #readBuffer} if it has arrived in full.
+	 *
+	 * @return the message, or null if it has not completely arrived yet, in
+	 *         which case nothing is consumed.
+	 */
+	protected CatpMessage poll() throws CatpMessageErrorException {
+		final int position = readBuffer.position();
+		final boolean skipLF = this.skipLF;
+
+		String line = null;
+		do {
+			line = nextLine();
+			if (line == null) {
+				readBuffer.position(position);
+				this.skipLF = skipLF;
+				return null;
+			}
+		} while (line.trim().length() == 0);
+
+		final CatpMessage msg = CatpCodec.createMessage(line.trim());
+		while ((line = nextLine()) != null) {
+			line = line.trim();
+			if (line.length() == 0) {
+				// empty line, ending the message, return
+				return msg;
+			} else {
+				CatpCodec.decodeHeader(msg, line);
+			}
+		}
+
+		readBuffer.position(position);
+		this.skipLF = skipLF;
+		return null;
+	}
+
+	/**
+	 * @return the next line in {@link #readBuffer}, or null if no line
+	 *         terminator is there yet.
+	 */
+	protected String nextLine() {
+		final byte bytes[] = readBuffer.array();
+		final int offset = readBuffer.arrayOffset();
+		final int end = offset + readBuffer.limit();
+		int start = offset + readBuffer.position();
+
+		if (skipLF && (start < end)) {
+			/* Skip a leftover '\n', if necessary */
+			if (bytes[start] == '\n') {
+				start++;
+			}
+			skipLF = false;
+		}
+
+		for (int i = start; i < end; i++) {
+			if ((bytes[i] == '\r') || (bytes[i] == '\n')) {
+				skipLF = (bytes[i] == '\r');
+				readBuffer.position(i + 1 - offset);
+				return new String(bytes, start, i - start,
+						SocketBasedConnection.CHARSET);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * writes as many of the bytes remaining in the buffers as the channel takes
+	 * without blocking, after those left by earlier messages, if any, and leaves
+	 * the rest for the loop to write. The rest is copied since the buffers are
+	 * returned to {@link SocketBasedConnection#bufferPool} afterwards.
+	 */
+	@Override
+	protected void write(final ByteBuffer buffers[]) throws IOException {
+		if (socketChannel.isBlocking()) {
+			// not opened yet
+			super.write(buffers);
+			return;
+		}
+
+		if (overflowed) {
+			throw new IOException("Connection to be ended in " + this + " !");
+		}
+
+		int offset = 0;
+		if (pending.isEmpty()) {
+			while (offset < buffers.length) {
+				final long nBytes = socketChannel.write(buffers, offset,
+						buffers.length - offset);
+				while ((offset < buffers.length) && !buffers[offset].hasRemaining()) {
+					offset++;
+				}
+				if (nBytes == 0) {
+					break;
+				}
+			}
+
+			if (offset == buffers.length) {
+				return;
+			}
+		}
+
+		int size = 0;
+		for (int i = offset; i < buffers.length; i++) {
+			size += buffers[i].remaining();
+		}
+
+		if (numOfPendingBytes + size > maxPendingSize) {
+			SelectorBasedCatpConnection.logger.error("More than " + maxPendingSize
+					+ " bytes pending for the peer in " + this
+					+ " ! The connection is ended.");
+			overflowed = true;
+			pending.clear();
+			numOfPendingBytes = 0;
+			loop.requestEnd(this);
+			throw new IOException("Too many bytes pending in " + this + " !");
+		}
+
+		final ByteBuffer rest = ByteBuffer.allocate(size);
+		for (int i = offset; i < buffers.length; i++) {
+			rest.put(buffers[i]);
+		}
+		rest.flip();
+
+		final boolean idle = pending.isEmpty();
+		pending.add(rest);
+		numOfPendingBytes += size;
+		if (idle) {
+			loop.requestWrite(this);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import java.nio.channels.SocketChannel;
+
+/**
+ * <p>
+ * The implementation of {@link ServerConnector} when
+ * {@link SelectorBasedInfrastructureImpl} is used.
+ * </p>
+ * 
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SelectorBasedCatpServerConnector extends
+		SocketBasedCatpServerConnector {
+
+	/**
+	 * @return an instance of {@link SelectorBasedCatpConnection} to be read from
+	 *         by one of the loops of the infrastructure.
+	 */
+	@Override
+	protected Connection<CatpMessage> createConnection(
+			final SocketChannel socketChannel) {
+		return new SelectorBasedCatpConnection(socketChannel,
+				SelectorBasedInfrastructureImpl.getInstance().nextLoop());
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.util.Galaxy;
+import edu.cuny.util.Parameter;
+import edu.cuny.util.ParameterDatabase;
+
+/**
+ * <p>
+ * The class implements a socket-based infrastructure for catp that does not
+ * need a thread for each connection.
+ * </p>
+ *
+ * <p>
+ * With {@link SocketBasedInfrastructureImpl}, each connection is read from by a
+ * thread of its own, blocking until a message arrives, which limits the number
+ * of clients a game server can take. Here connections are non-blocking and are
+ * read from by a small number of {@link SelectorLoop}s, each in one thread and
+ * taking connections in turn, so that a game server can take thousands of
+ * clients. The protocol on the wire is the same, so clients using either
+ * infrastructure can play against a server using the other.
+ * </p>
+ *
+ * <p>
+ * <b>Parameters</b>
+ * </p>
+ * <table>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.server</tt><br>
+ * <font size=-1>string (default: localhost)</tt></font></td>
+ * <td valign=top>(the domain name or IP address of the cat game server)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.port</tt><br>
+ * <font size=-1>int (default: 9090)</font></td>
+ * <td valign=top>(the port number the cat game server will be listening to)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.loops</tt><br>
+ * <font size=-1>int >=1 (default: 1)</font></td>
+ * <td valign=top>(the number of threads reading from connections)</td>
+ * </tr>
+ *
+ * </table>
+ *
+ * <p>
+ * <b>Default Base</b>
+ * </p>
+ * <table>
+ * <tr>
+ * <td valign=top><tt>selector_based_infrastructure</tt></td>
+ * </tr>
+ * </table>
+ *
+ * @see SocketBasedInfrastructureImpl
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SelectorBasedInfrastructureImpl extends
+		SocketBasedInfrastructureImpl {
+
+	static Logger logger = Logger
+			.getLogger(SelectorBasedInfrastructureImpl.class);
+
+	public static final String P_DEF_BASE = "selector_based_infrastructure";
+
+	public static final String P_LOOPS = "loops";
+
+	protected int numOfLoops = 1;
+
+	protected SelectorLoop loops[];
+
+	/**
+	 * the index of the loop to take the next connection.
+	 */
+	protected int cursor;
+
+	public static SelectorBasedInfrastructureImpl getInstance() {
+		final CatpInfrastructure infrast = Galaxy.getInstance().getDefaultTyped(
+				CatpInfrastructure.class);
+		if (infrast instanceof SelectorBasedInfrastructureImpl) {
+			return (SelectorBasedInfrastructureImpl) infrast;
+		} else {
+			SelectorBasedInfrastructureImpl.logger
+					.fatal("Unavailable SelectorBasedInfrastructureImpl !");
+			return null;
+		}
+	}
+
+	@Override
+	public void setup(final ParameterDatabase parameters, final Parameter base) {
+		final Parameter defBase = new Parameter(
+				SelectorBasedInfrastructureImpl.P_DEF_BASE);
+
+		numOfLoops = parameters.getIntWithDefault(base
+				.push(SelectorBasedInfrastructureImpl.P_LOOPS), defBase
+				.push(SelectorBasedInfrastructureImpl.P_LOOPS), numOfLoops);
+		if (numOfLoops < 1) {
+			SelectorBasedInfrastructureImpl.logger
+					.fatal("Invalid number of selector loops: " + numOfLoops);
+			numOfLoops = 1;
+		}
+
+		super.setup(parameters, base);
+	}
+
+	/**
+	 * @return the loop to read from a new connection, starting the loops if not
+	 *         yet.
+	 */
+	public synchronized SelectorLoop nextLoop() {
+		if (loops == null) {
+			loops = new SelectorLoop[numOfLoops];
+			for (int i = 0; i < loops.length; i++) {
+				try {
+					loops[i] = new SelectorLoop(getClass().getSimpleName() + "-" + i);
+				} catch (final IOException e) {
+					e.printStackTrace();
+					SelectorBasedInfrastructureImpl.logger
+							.fatal("Failed to open selector for reading from connections !");
+				}
+			}
+		}
+
+		final SelectorLoop loop = loops[cursor];
+		cursor = (cursor + 1) % loops.length;
+		return loop;
+	}
+
+	/**
+	 * @return an instance of {@link SelectorBasedCatpClientConnector}.
+	 */
+	@Override
+	public ClientConnector<CatpMessage> createClientConnector() {
+		return new SelectorBasedCatpClientConnector();
+	}
+
+	/**
+	 * @return an instance of {@link SelectorBasedCatpServerConnector}.
+	 */
+	@Override
+	public ServerConnector<CatpMessage> createServerConnector() {
+		return new SelectorBasedCatpServerConnector();
+	}
+
+	/**
+	 * stops the loops. Connections still open are no longer read from.
+	 */
+	@Override
+	public synchronized void cleanUp() {
+		if (loops != null) {
+			for (final SelectorLoop loop : loops) {
+				if (loop != null) {
+					loop.shutdown();
+				}
+			}
+			loops = null;
+			cursor = 0;
+		}
+	}
+
+	public int getNumOfLoops() {
+		return numOfLoops;
+	}
+
+	public void setNumOfLoops(final int numOfLoops) {
+		this.numOfLoops = numOfLoops;
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * An event loop, run in a single thread, that waits on a {@link Selector} for
+ * any of the {@link SelectorBasedCatpConnection}s registered with it to become
+ * readable, and lets the connection read and deliver the messages that have
+ * arrived in full.
+ * </p>
+ *
+ * <p>
+ * The loop also writes, for a connection whose socket buffer is full, what the
+ * sending threads have left behind, once the channel becomes writable again.
+ * Interest in writability is only changed by the loop thread, as requested via
+ * {@link #requestWrite(SelectorBasedCatpConnection)}.
+ * </p>
+ *
+ * @see SelectorBasedInfrastructureImpl
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SelectorLoop implements Runnable {
+
+	static Logger logger = Logger.getLogger(SelectorLoop.class);
+
+	protected Selector selector;
+
+	protected Thread thread;
+
+	/**
+	 * connections waiting to be registered by the loop thread.
+	 */
+	protected final LinkedList<SelectorBasedCatpConnection> registrations;
+
+	/**
+	 * connections with bytes waiting to be written by the loop thread.
+	 */
+	protected final LinkedList<SelectorBasedCatpConnection> writeRequests;
+
+	/**
+	 * connections to be ended by the loop thread.
+	 */
+	protected final LinkedList<SelectorBasedCatpConnection> endRequests;
+
+	protected volatile boolean running;
+
+	public SelectorLoop(final String name) throws IOException {
+		selector = Selector.open();
+		registrations = new LinkedList<SelectorBasedCatpConnection>();
+		writeRequests = new LinkedList<SelectorBasedCatpConnection>();
+		endRequests = new LinkedList<SelectorBasedCatpConnection>();
+
+		running = true;
+		thread = new Thread(this, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * registers a connection, in non-blocking mode, to be read from by this loop.
+	 */
+	public void register(final SelectorBasedCatpConnection connection) {
+		synchronized (registrations) {
+			registrations.add(connection);
+		}
+		selector.wakeup();
+	}
+
+	/**
+	 * asks the loop to write what is left in the connection once its channel
+	 * becomes writable.
+	 */
+	public void requestWrite(final SelectorBasedCatpConnection connection) {
+		synchronized (writeRequests) {
+			writeRequests.add(connection);
+		}
+		selector.wakeup();
+	}
+
+	/**
+	 * asks the loop to end the connection as if its peer had closed it.
+	 */
+	public void requestEnd(final SelectorBasedCatpConnection connection) {
+		synchronized (endRequests) {
+			endRequests.add(connection);
+		}
+		selector.wakeup();
+	}
+
+	protected void processRegistrations() {
+		synchronized (registrations) {
+			while (!registrations.isEmpty()) {
+				final SelectorBasedCatpConnection connection = registrations.poll();
+				try {
+					connection.getSocketChannel().register(selector,
+							SelectionKey.OP_READ, connection);
+				} catch (final ClosedChannelException e) {
+					// closed before being registered
+					connection.handleClosed();
+				}
+			}
+		}
+	}
+
+	protected void processWriteRequests() {
+		synchronized (writeRequests) {
+			while (!writeRequests.isEmpty()) {
+				final SelectorBasedCatpConnection connection = writeRequests.poll();
+				final SelectionKey key = connection.getSocketChannel().keyFor(selector);
+				if ((key != null) && key.isValid()) {
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+				}
+			}
+		}
+	}
+
+	protected void processEndRequests() {
+		synchronized (endRequests) {
+			while (!endRequests.isEmpty()) {
+				final SelectorBasedCatpConnection connection = endRequests.poll();
+				final SelectionKey key = connection.getSocketChannel().keyFor(selector);
+				if ((key != null) && key.isValid()) {
+					connection.handleEnd(key);
+				}
+			}
+		}
+	}
+
+	public void run() {
+		while (running) {
+			try {
+				selector.select();
+			} catch (final IOException e) {
+				e.printStackTrace();
+				SelectorLoop.logger.error("Failed in selecting connections to read !");
+				break;
+			}
+
+			processRegistrations();
+			processWriteRequests();
+			processEndRequests();
+
+			final Iterator<SelectionKey> iterator = selector.selectedKeys()
+					.iterator();
+			while (iterator.hasNext()) {
+				final SelectionKey key = iterator.next();
+				iterator.remove();
+
+				if (key.isValid() && key.isWritable()) {
+					((SelectorBasedCatpConnection) key.attachment()).handleWritable(key);
+				}
+
+				if (key.isValid() && key.isReadable()) {
+					((SelectorBasedCatpConnection) key.attachment()).handleReadable(key);
+				}
+			}
+		}
+
+		try {
+			selector.close();
+		} catch (final IOException e) {
+			SelectorLoop.logger.error(e);
+		}
+	}
+
+	/**
+	 * stops the loop. The connections registered are not closed.
+	 */
+	public void shutdown() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * @return the number of connections registered with this loop.
+	 */
+	public int getNumOfConnections() {
+		return selector.keys().size();
+	}
+
+	@Override
+	public String toString() {
+		return thread.getName();
+	}
+}
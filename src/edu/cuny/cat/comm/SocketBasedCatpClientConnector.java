@@ -54,7 +54,7 @@ public class SocketBasedCatpClientConnector implements
 				final InetSocketAddress address = new InetSocketAddress(infrast
 						.getServer(), infrast.getPort());
 				final SocketChannel socketChannel = SocketChannel.open(address);
-				return new SocketBasedCatpConnection(socketChannel);
+				return createConnection(socketChannel);
 			} catch (final UnknownHostException e) {
 				e.printStackTrace();
 				throw new CatpServerUnavailableException("Invalid server address !");
@@ -75,4 +75,13 @@ public class SocketBasedCatpClientConnector implements
 					"Unavailable SocketBasedInfrastructureImpl !");
 		}
 	}
+
+	/**
+	 * @return an instance of {@link SocketBasedCatpConnection} over the
+	 *         connected channel.
+	 */
+	protected Connection<CatpMessage> createConnection(
+			final SocketChannel socketChannel) {
+		return new SocketBasedCatpConnection(socketChannel);
+	}
 }
@@ -16,6 +16,7 @@
 package edu.cuny.cat.comm;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.SocketChannel;
@@ -25,7 +26,8 @@ import org.apache.log4j.Logger;
 /**
  * <p>
  * The implementation of {@link Connection} when
- * {@link SocketBasedInfrastructureImpl} is used.
+ * {@link SocketBasedInfrastructureImpl} is used. Messages are encoded and
+ * parsed by {@link CatpCodec}.
  * </p>
  * 
  * @author Jinzhong Niu
@@ -41,6 +43,14 @@ public class SocketBasedCatpConnection extends
 		super(socketChannel);
 	}
 
+	/**
+	 * encodes the message with {@link CatpCodec} into a pooled direct buffer.
+	 */
+	@Override
+	protected ByteBuffer encode(final CatpMessage msg) {
+		return CatpCodec.encode(msg, SocketBasedConnection.bufferPool);
+	}
+
 	/*
 	 * returns a {@link CatpMessage}.
 	 * 
@@ -77,29 +87,7 @@ public class SocketBasedCatpConnection extends
 			return null;
 		}
 
-		line = line.trim();
-		if (line.equalsIgnoreCase(CatpMessage.ASK)
-				|| line.equalsIgnoreCase(CatpMessage.BID)
-				|| line.equalsIgnoreCase(CatpMessage.TRANSACTION)
-				|| line.equalsIgnoreCase(CatpMessage.GET)
-				|| line.equalsIgnoreCase(CatpMessage.POST)
-				|| line.equalsIgnoreCase(CatpMessage.SUBSCRIBE)
-				|| line.equalsIgnoreCase(CatpMessage.OPTIONS)
-				|| line.equalsIgnoreCase(CatpMessage.CHECKIN)
-				|| line.equalsIgnoreCase(CatpMessage.REGISTER)) {
-			// request
-			msg = new CatpRequest();
-		} else if (line.equalsIgnoreCase(CatpMessage.OK)
-				|| line.equalsIgnoreCase(CatpMessage.ERROR)
-				|| line.equalsIgnoreCase(CatpMessage.INVALID)) {
-			// response
-			msg = new CatpResponse();
-		} else {
-			throw new CatpMessageErrorException(
-					"Invalid CatpMessage starting with \"" + line + "\"");
-		}
-
-		msg.setStartLine(line);
+		msg = CatpCodec.createMessage(line.trim());
 		try {
 			while ((line = readLine()) != null) {
 				line = line.trim();
@@ -107,14 +95,7 @@ public class SocketBasedCatpConnection extends
 					// empty line, ending the message, return
 					return msg;
 				} else {
-					// get even trailing empty string
-					final String strings[] = line.split(":", -1);
-					if (strings.length == 2) {
-						msg.addHeader(strings[0].trim(), strings[1].trim());
-					} else {
-						throw new CatpMessageErrorException(
-								"Invalid format in message header \"" + line + "\"");
-					}
+					CatpCodec.decodeHeader(msg, line);
 				}
 			}
 		} catch (final IOException e) {
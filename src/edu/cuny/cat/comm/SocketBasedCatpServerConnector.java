@@ -84,6 +84,15 @@ public class SocketBasedCatpServerConnector implements
 					"IOException occurred with the listening server socket channel !");
 		}
 
+		return createConnection(socketChannel);
+	}
+
+	/**
+	 * @return an instance of {@link SocketBasedCatpConnection} over the accepted
+	 *         channel.
+	 */
+	protected Connection<CatpMessage> createConnection(
+			final SocketChannel socketChannel) {
 		return new SocketBasedCatpConnection(socketChannel);
 	}
 
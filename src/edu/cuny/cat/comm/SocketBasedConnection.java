@@ -18,6 +18,10 @@ package edu.cuny.cat.comm;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
@@ -29,6 +33,15 @@ import org.apache.log4j.Logger;
  * .
  * </p>
  * 
+ * <p>
+ * Outgoing messages are queued and written by whichever sending thread gets the
+ * channel first, so that a burst of messages sent to the same party from
+ * several threads goes out in one gathering write. A thread that sends a burst
+ * on its own, e.g. the dispatcher of the server, may open a write batch by
+ * {@link #beginBatch()}, in which messages are only queued, and have
+ * {@link #endBatch()} write those of each connection in one gathering write.
+ * </p>
+ * 
  * @param <M>
  *          the type of messages that can be transmitted through the connection.
  * 
@@ -50,10 +63,57 @@ public abstract class SocketBasedConnection<M extends Message> implements
 
 	protected boolean skipLF = false;
 
+	protected static final Charset CHARSET = Charset.forName("ISO-8859-1");
+
+	protected static final int WRITE_BUFFER_SIZE = 4096;
+
+	protected static final int WRITE_BUFFER_POOL_SIZE = 256;
+
+	/**
+	 * direct buffers shared by all connections to encode outgoing messages in.
+	 */
+	protected static final ByteBufferPool bufferPool = new ByteBufferPool(
+			SocketBasedConnection.WRITE_BUFFER_SIZE,
+			SocketBasedConnection.WRITE_BUFFER_POOL_SIZE);
+
+	/**
+	 * encoded messages waiting to be written.
+	 */
+	protected final LinkedList<ByteBuffer> outbox;
+
+	/**
+	 * the sequence number of the latest message queued in {@link #outbox}.
+	 */
+	protected long numOfQueued;
+
+	/**
+	 * the sequence number of the latest message written.
+	 */
+	protected long numOfSent;
+
+	/**
+	 * the sequence number of the latest message failed to be written.
+	 */
+	protected long numOfFailed;
+
+	/**
+	 * held by the thread writing to the channel.
+	 */
+	protected final Object writeLock;
+
+	/**
+	 * the connections the current thread has queued messages in since it began
+	 * a write batch, or null if it is not in one.
+	 */
+	private static final ThreadLocal<Set<SocketBasedConnection<?>>> batch = new ThreadLocal<Set<SocketBasedConnection<?>>>();
+
 	public SocketBasedConnection(final SocketChannel socketChannel) {
 		this.socketChannel = socketChannel;
 
 		initBuffer();
+
+		outbox = new LinkedList<ByteBuffer>();
+		writeLock = new Object();
 	}
 
 	protected void initBuffer() {
@@ -61,14 +121,73 @@ public abstract class SocketBasedConnection<M extends Message> implements
 		readBuffer.flip();
 	}
 
+	/**
+	 * @return a buffer, ready to be written to the channel, containing the
+	 *         plain-text representation of the message. Buffers from
+	 *         {@link #bufferPool} are returned to it after being written.
+	 */
+	protected ByteBuffer encode(final M msg) {
+		return ByteBuffer.wrap(msg.toString().getBytes());
+	}
+
+	/**
+	 * begins a write batch for the current thread, if not in one yet, so that
+	 * the messages it sends are queued rather than written until
+	 * {@link #endBatch()}.
+	 */
+	public static void beginBatch() {
+		if (SocketBasedConnection.batch.get() == null) {
+			SocketBasedConnection.batch
+					.set(new LinkedHashSet<SocketBasedConnection<?>>());
+		}
+	}
+
+	/**
+	 * ends the write batch of the current thread, if any, writing the messages
+	 * queued in each connection, in the order the connections were first sent
+	 * to, with one gathering write per connection. A connection that fails to be
+	 * written to is logged, since its senders have already returned.
+	 */
+	public static void endBatch() {
+		final Set<SocketBasedConnection<?>> connections = SocketBasedConnection.batch
+				.get();
+		if (connections == null) {
+			return;
+		}
+
+		SocketBasedConnection.batch.remove();
+		for (final SocketBasedConnection<?> connection : connections) {
+			connection.flushQueued();
+		}
+	}
+
+	/**
+	 * sends a message and returns after it is written to the channel. Messages
+	 * queued by other threads meanwhile are written together with it. In a
+	 * write batch of the current thread, the message is only queued, and is
+	 * written when the batch ends, unless another thread writes it earlier.
+	 */
 	public void sendMessage(final M msg) throws CatException {
 		if (isClosed()) {
 			throw new ConnectionException(
 					"Connection is not ready to send message:\n" + msg);
 		}
 
+		final long seq;
+		synchronized (outbox) {
+			outbox.add(encode(msg));
+			seq = ++numOfQueued;
+		}
+
+		final Set<SocketBasedConnection<?>> connections = SocketBasedConnection.batch
+				.get();
+		if (connections != null) {
+			connections.add(this);
+			return;
+		}
+
 		try {
-			socketChannel.write(ByteBuffer.wrap(msg.toString().getBytes()));
+			flush(seq);
 		} catch (final IOException e) {
 			if (socketChannel.isOpen()) {
 				e.printStackTrace();
@@ -81,20 +200,94 @@ public abstract class SocketBasedConnection<M extends Message> implements
 		}
 	}
 
+	/**
+	 * writes all the messages queued so far, if any, logging a failure.
+	 */
+	protected void flushQueued() {
+		final long seq;
+		synchronized (outbox) {
+			seq = numOfQueued;
+		}
+
+		try {
+			flush(seq);
+		} catch (final IOException e) {
+			if (socketChannel.isOpen()) {
+				SocketBasedConnection.logger.error("Failed to write " + seq
+						+ " messages queued in " + this + " !", e);
+			}
+		}
+	}
+
+	/**
+	 * writes all the queued messages, including the one with the given sequence
+	 * number unless it has already been written by another thread, in a single
+	 * gathering write.
+	 */
+	protected void flush(final long seq) throws IOException {
+		synchronized (writeLock) {
+			final ByteBuffer buffers[];
+			final long last;
+			synchronized (outbox) {
+				if (numOfSent >= seq) {
+					return;
+				} else if (numOfFailed >= seq) {
+					throw new IOException("Failed to write message along with others !");
+				}
+
+				buffers = outbox.toArray(new ByteBuffer[outbox.size()]);
+				outbox.clear();
+				last = numOfQueued;
+			}
+
+			boolean written = false;
+			try {
+				write(buffers);
+				written = true;
+			} finally {
+				for (final ByteBuffer buffer : buffers) {
+					SocketBasedConnection.bufferPool.release(buffer);
+				}
+
+				synchronized (outbox) {
+					if (written) {
+						numOfSent = last;
+					} else {
+						numOfFailed = last;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * writes all the bytes remaining in the buffers to the channel, blocking
+	 * until done.
+	 */
+	protected void write(final ByteBuffer buffers[]) throws IOException {
+		int offset = 0;
+		while (offset < buffers.length) {
+			socketChannel.write(buffers, offset, buffers.length - offset);
+			while ((offset < buffers.length) && !buffers[offset].hasRemaining()) {
+				offset++;
+			}
+		}
+	}
+
 	/**
 	 * read a plain-text line from the socket channel. The implementation is based
-	 * on the code of {@link java.io.BufferedReader#readLine()}.
+	 * on the code of {@link java.io.BufferedReader#readLine()}, but scans the
+	 * bytes in the buffer in place and decodes them in ISO-8859-1.
 	 * 
 	 * @return a non-null string if successful or null if EOF was met.
 	 * 
 	 * @throws IOException
 	 */
 	protected String readLine() throws IOException {
-		final StringBuilder s = new StringBuilder();
+		StringBuilder s = null;
 
 		for (;;) {
 
-			// TODO: charset?
 			if (!readBuffer.hasRemaining()) {
 
 				// make ready for writing
@@ -107,7 +300,7 @@ public abstract class SocketBasedConnection<M extends Message> implements
 				readBuffer.flip();
 
 				if (nBytes == -1) { /* EOF */
-					if (s.length() == 0) {
+					if ((s == null) || (s.length() == 0)) {
 						return null;
 					} else {
 						return s.toString();
@@ -115,16 +308,15 @@ public abstract class SocketBasedConnection<M extends Message> implements
 				}
 			}
 
+			final byte bytes[] = readBuffer.array();
+			final int end = readBuffer.arrayOffset() + readBuffer.limit();
+			int start = readBuffer.arrayOffset() + readBuffer.position();
+			int i = start;
 			boolean eol = false;
-			char c = 0;
-
-			// TODO: charset?
-			charLoop: while (readBuffer.hasRemaining()) {
 
-				// TODO: charset?
-				c = (char) readBuffer.get();
+			charLoop: while (i < end) {
 
-				switch (c) {
+				switch (bytes[i++]) {
 
 				case '\r':
 
@@ -134,9 +326,11 @@ public abstract class SocketBasedConnection<M extends Message> implements
 
 				case '\n':
 
-					if (skipLF && (c == '\n')) {
+					if (skipLF) {
 						/* Skip a leftover '\n', if necessary */
 						skipLF = false;
+						s = SocketBasedConnection.append(s, bytes, start, i - 1 - start);
+						start = i;
 						continue charLoop;
 					} else {
 						eol = true;
@@ -145,17 +339,36 @@ public abstract class SocketBasedConnection<M extends Message> implements
 
 				default:
 
-					s.append(c);
-
 				}
 			}
 
+			readBuffer.position(i - readBuffer.arrayOffset());
+
 			if (eol) {
-				return s.toString();
+				if (s == null) {
+					return new String(bytes, start, i - 1 - start,
+							SocketBasedConnection.CHARSET);
+				} else {
+					return SocketBasedConnection.append(s, bytes, start, i - 1 - start)
+							.toString();
+				}
+			} else {
+				s = SocketBasedConnection.append(s, bytes, start, i - start);
 			}
 		}
 	}
 
+	private static StringBuilder append(StringBuilder s, final byte bytes[],
+			final int offset, final int length) {
+		if (s == null) {
+			s = new StringBuilder();
+		}
+		if (length > 0) {
+			s.append(new String(bytes, offset, length, SocketBasedConnection.CHARSET));
+		}
+		return s;
+	}
+
 	public void open() throws ConnectionException {
 		try {
 			socketChannel.configureBlocking(true);
@@ -172,6 +385,8 @@ public abstract class SocketBasedConnection<M extends Message> implements
 			if (isClosed()) {
 				return;
 			} else {
+				// the messages left by a write batch go out before the channel closes
+				flushQueued();
 				socketChannel.close();
 			}
 		} catch (final IOException e) {
@@ -74,6 +74,7 @@ import edu.cuny.util.Parameterizable;
  * </table>
  * 
  * 
+ * @see SelectorBasedInfrastructureImpl
  * @see QueueBasedInfrastructureImpl
  * @see CallBasedInfrastructureImpl
  * 
@@ -0,0 +1,202 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import java.lang.reflect.Method;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.util.Galaxy;
+import edu.cuny.util.Parameter;
+import edu.cuny.util.ParameterDatabase;
+import edu.cuny.util.Parameterizable;
+
+/**
+ * <p>
+ * Creates the threads that run in-process game clients and read from
+ * connections when an asynchronous infrastructure is used.
+ * </p>
+ *
+ * <p>
+ * By default, each thread is a platform thread, so a game with thousands of
+ * clients in one process takes several thousands of OS threads. With
+ * <code>threads</code> set to <code>virtual</code>, virtual threads are used
+ * instead, which are scheduled on a small pool of carrier threads and take
+ * little memory while blocked waiting for messages. Virtual threads need Java 21
+ * or later; on an earlier JVM, platform threads are used and a warning is
+ * logged.
+ * </p>
+ *
+ * <p>
+ * <b>Parameters</b>
+ * </p>
+ * <table>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.threads</tt><br>
+ * <font size=-1><code>platform</code> or <code>virtual</code> (default:
+ * <code>platform</code>)</font></td>
+ * <td valign=top>(the kind of threads to run clients and connections)</td>
+ * </tr>
+ *
+ * </table>
+ *
+ * <p>
+ * The parameter goes with those of the infrastructure, i.e.,
+ * <code>cat.infrastructure.threads</code>.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class ThreadLauncher implements Parameterizable {
+
+	static Logger logger = Logger.getLogger(ThreadLauncher.class);
+
+	public static final String P_THREADS = "threads";
+
+	public static final String PLATFORM = "platform";
+
+	public static final String VIRTUAL = "virtual";
+
+	/**
+	 * <code>Thread.ofVirtual()</code>, or null if unavailable.
+	 */
+	private static Method ofVirtual;
+
+	/**
+	 * <code>Thread.Builder.unstarted(Runnable)</code>, or null if unavailable.
+	 */
+	private static Method unstarted;
+
+	static {
+		try {
+			ThreadLauncher.ofVirtual = Thread.class.getMethod("ofVirtual");
+			ThreadLauncher.unstarted = Class.forName("java.lang.Thread$Builder")
+					.getMethod("unstarted", Runnable.class);
+		} catch (final Exception e) {
+			ThreadLauncher.ofVirtual = null;
+			ThreadLauncher.unstarted = null;
+		}
+	}
+
+	protected boolean virtual;
+
+	/**
+	 * @return the launcher of the current {@link Galaxy}.
+	 */
+	public static ThreadLauncher getInstance() {
+		final Galaxy galaxy = Galaxy.getInstance();
+		ThreadLauncher launcher = galaxy.getSingleton(ThreadLauncher.class);
+		if (launcher == null) {
+			synchronized (galaxy) {
+				launcher = galaxy.getSingleton(ThreadLauncher.class);
+				if (launcher == null) {
+					launcher = new ThreadLauncher();
+					galaxy.putSingleton(ThreadLauncher.class, launcher);
+				}
+			}
+		}
+		return launcher;
+	}
+
+	public void setup(final ParameterDatabase parameters, final Parameter base) {
+		final String threads = parameters.getStringWithDefault(base
+				.push(ThreadLauncher.P_THREADS), null, ThreadLauncher.PLATFORM);
+		if (ThreadLauncher.VIRTUAL.equalsIgnoreCase(threads)) {
+			setVirtual(true);
+		} else {
+			if (!ThreadLauncher.PLATFORM.equalsIgnoreCase(threads)) {
+				ThreadLauncher.logger.error("Unknown kind of threads: " + threads
+						+ " ! " + ThreadLauncher.PLATFORM + " threads are used.");
+			}
+			setVirtual(false);
+		}
+	}
+
+	/**
+	 * @return true if the JVM supports virtual threads.
+	 */
+	public static boolean isVirtualSupported() {
+		return ThreadLauncher.ofVirtual != null;
+	}
+
+	/**
+	 * chooses virtual threads or platform threads. Platform threads are used if
+	 * virtual threads are unsupported.
+	 */
+	public void setVirtual(final boolean virtual) {
+		if (virtual && !ThreadLauncher.isVirtualSupported()) {
+			ThreadLauncher.logger.warn("Virtual threads unavailable in Java "
+					+ System.getProperty("java.version") + " ! "
+					+ ThreadLauncher.PLATFORM + " threads are used.");
+			this.virtual = false;
+		} else {
+			this.virtual = virtual;
+		}
+	}
+
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * @return a new unstarted thread to run the task.
+	 */
+	public Thread newThread(final Runnable task) {
+		if (virtual) {
+			return ThreadLauncher.newVirtualThread(task);
+		} else {
+			return new Thread(task);
+		}
+	}
+
+	/**
+	 * @return a new unstarted thread to run the task. The thread group, name and
+	 *         stack size apply to platform threads only.
+	 */
+	public Thread newThread(final ThreadGroup group, final Runnable task,
+			final String name, final long stackSize) {
+		if (virtual) {
+			return ThreadLauncher.newVirtualThread(task);
+		} else {
+			return new Thread(group, task, name, stackSize);
+		}
+	}
+
+	/**
+	 * creates and starts a thread to run the task.
+	 *
+	 * @return the thread started.
+	 */
+	public Thread start(final Runnable task) {
+		final Thread thread = newThread(task);
+		thread.start();
+		return thread;
+	}
+
+	private static Thread newVirtualThread(final Runnable task) {
+		try {
+			return (Thread) ThreadLauncher.unstarted.invoke(ThreadLauncher.ofVirtual
+					.invoke(null), task);
+		} catch (final Exception e) {
+			// should not happen once ofVirtual() is found
+			ThreadLauncher.logger.error("Failed to create virtual thread !", e);
+			return new Thread(task);
+		}
+	}
+}
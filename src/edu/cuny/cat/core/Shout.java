@@ -34,6 +34,8 @@ import java.text.DecimalFormat;
 
 import org.apache.log4j.Logger;
 
+import edu.cuny.util.SynchronizedDecimalFormat;
+
 /**
  * <p>
  * A class representing a shout in an auction. A shout may be either a bid
@@ -125,7 +127,7 @@ public class Shout implements Comparable<Shout>, Cloneable, Serializable {
 	 */
 	protected Shout parent = null;
 
-	static DecimalFormat currencyFormatter = new DecimalFormat(
+	static DecimalFormat currencyFormatter = new SynchronizedDecimalFormat(
 			"+#########0.00;-#########.00");
 
 	public Shout() {
@@ -84,9 +84,11 @@ import edu.cuny.util.Utils;
  * </p>
  * <table>
  * <tr>
- * <td valign=top><i>base</i><tt>.shoutengine</tt><br>
+ * <td valign=top><i>base</i><tt>.matching</tt><br>
  * <font size=-1>class, inheriting {@link ShoutEngine}</font></td>
- * <td valign=top>(the engine matching shouts)</td>
+ * <td valign=top>(the engine matching shouts, {@link FourHeapShoutEngine} by
+ * default; {@link edu.cuny.cat.market.matching.IndexedFourHeapShoutEngine}
+ * matches the same way on primitive heaps)</td>
  * </tr>
  * 
  * <tr>
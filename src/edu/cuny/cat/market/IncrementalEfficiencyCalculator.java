@@ -0,0 +1,193 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.market;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import edu.cuny.cat.core.Trader;
+import edu.cuny.cat.core.Transaction;
+import edu.cuny.util.CumulativeDistribution;
+
+/**
+ * <p>
+ * Calculates the same efficiency, convergence coefficient, and profit
+ * dispersion as {@link EfficiencyCalculator}, but accumulates the actual
+ * profits and transaction prices as each transaction is made instead of going
+ * through all the transactions at the end.
+ * </p>
+ *
+ * <p>
+ * The profit dispersion still takes one pass over the traders in the market,
+ * since the theoretical profit of each trader moves with the equilibrium
+ * price.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class IncrementalEfficiencyCalculator {
+
+	/**
+	 * The actual profits of the buyers.
+	 */
+	protected double pBA = 0;
+
+	/**
+	 * The actual profits of the sellers.
+	 */
+	protected double pSA = 0;
+
+	protected double pCE;
+
+	/**
+	 * Market efficiency.
+	 */
+	protected double eA;
+
+	/**
+	 * Market convergence coefficient
+	 */
+	protected double convergenceCoeff;
+
+	protected double profitDispersion;
+
+	/**
+	 * the prices of transactions made so far.
+	 */
+	protected CumulativeDistribution transactionPrices;
+
+	/**
+	 * the actual profits of traders in the transactions made so far.
+	 */
+	protected Map<String, double[]> actualProfits;
+
+	protected CumulativeDistribution profitDistribution;
+
+	public IncrementalEfficiencyCalculator() {
+		transactionPrices = new CumulativeDistribution();
+		actualProfits = new HashMap<String, double[]>();
+		profitDistribution = new CumulativeDistribution();
+	}
+
+	public void reset() {
+		pBA = pSA = 0;
+		transactionPrices.reset();
+		actualProfits.clear();
+	}
+
+	public void newTransaction(final Transaction transaction) {
+		pSA = pSA
+				+ (transaction.getPrice() - transaction.getAsk().getTrader()
+						.getPrivateValue()) * transaction.getQuantity();
+		pBA = pBA
+				+ (transaction.getBid().getTrader().getPrivateValue() - transaction
+						.getPrice()) * transaction.getQuantity();
+
+		transactionPrices.newData(transaction.getPrice());
+
+		updateActualProfit(transaction.getAsk().getTrader(), transaction);
+		updateActualProfit(transaction.getBid().getTrader(), transaction);
+	}
+
+	private void updateActualProfit(final Trader trader,
+			final Transaction transaction) {
+		double profit[] = actualProfits.get(trader.getId());
+		if (profit == null) {
+			profit = new double[1];
+			actualProfits.put(trader.getId(), profit);
+		}
+
+		profit[0] += Math.abs(trader.getPrivateValue() - transaction.getPrice())
+				* transaction.getQuantity();
+	}
+
+	/**
+	 * calculates the metrics against the equilibrium of the market.
+	 *
+	 * @param equilCal
+	 *          the equilibrium of the market
+	 * @param traders
+	 *          the traders in the market
+	 */
+	public void calculate(final IncrementalEquilibriumCalculator equilCal,
+			final Collection<Trader> traders) {
+		final double equilibriumPrice = equilCal.getMidEquilibriumPrice();
+
+		pCE = equilCal.getTheoreticalProfit();
+
+		// TODO: possibly divided by 0 (=pCE).
+		eA = (pBA + pSA) / pCE * 100;
+
+		// TODO: possibly divided by 0, (no transaction is made, or
+		// equilibriumPrice doesn't exist.
+		convergenceCoeff = transactionPrices.getStdDev(equilibriumPrice) * 100
+				/ equilibriumPrice;
+
+		calculateProfitDispersion(equilibriumPrice, traders);
+	}
+
+	protected void calculateProfitDispersion(final double equilibriumPrice,
+			final Collection<Trader> traders) {
+		profitDistribution.reset();
+		final Iterator<Trader> itor = traders.iterator();
+		double theoProfit, actualProfit;
+		while (itor.hasNext()) {
+			final Trader trader = itor.next();
+			if ((trader.isSeller() && (trader.getPrivateValue() <= equilibriumPrice))
+					|| (!trader.isSeller() && (trader.getPrivateValue() >= equilibriumPrice))) {
+				theoProfit = Math.abs(trader.getPrivateValue() - equilibriumPrice)
+						* trader.getEntitlement();
+			} else {
+				theoProfit = 0;
+			}
+
+			final double profit[] = actualProfits.get(trader.getId());
+			if (profit != null) {
+				actualProfit = profit[0];
+			} else {
+				actualProfit = 0;
+			}
+
+			profitDistribution.newData(Math.abs(theoProfit - actualProfit));
+		}
+
+		profitDispersion = profitDistribution.getStdDev(0);
+	}
+
+	public double getActualProfit() {
+		return pBA + pSA;
+	}
+
+	public double getTheoreticalProfit() {
+		return pCE;
+	}
+
+	public double getEA() {
+		return eA;
+	}
+
+	public double getConvergenceCoeff() {
+		return convergenceCoeff;
+	}
+
+	public double getProfitDispersion() {
+		return profitDispersion;
+	}
+}
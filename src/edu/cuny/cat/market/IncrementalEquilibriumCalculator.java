@@ -0,0 +1,388 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.market;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.cuny.cat.core.AuctionError;
+import edu.cuny.cat.core.Shout;
+import edu.cuny.util.CumulativeDistribution;
+
+/**
+ * <p>
+ * Calculates the same equilibrium quantity, price range and shout price
+ * distributions as {@link EquilibriumCalculator}, but keeps them up to date
+ * as shouts are added and removed instead of rebuilding a
+ * {@link edu.cuny.cat.market.matching.FourHeapShoutEngine} from all the
+ * shouts each time.
+ * </p>
+ *
+ * <p>
+ * Shouts are kept as units of goods in four multisets of prices, following
+ * the 4-Heap algorithm: matched bids, unmatched bids, matched asks and
+ * unmatched asks. A shout of quantity q therefore costs O(q log n) to add or
+ * remove, and everything else is read in constant time, including the
+ * theoretical profit at the equilibrium, which is the total price of the
+ * matched bids less that of the matched asks.
+ * </p>
+ *
+ * <p>
+ * Sums are updated as shouts come and go rather than added up afresh, so they
+ * may differ from those of {@link EquilibriumCalculator} by rounding errors.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class IncrementalEquilibriumCalculator {
+
+	/**
+	 * Matched bids
+	 */
+	protected PriceSet bIn;
+
+	/**
+	 * Unmatched bids
+	 */
+	protected PriceSet bOut;
+
+	/**
+	 * Matched asks
+	 */
+	protected PriceSet sIn;
+
+	/**
+	 * Unmatched asks
+	 */
+	protected PriceSet sOut;
+
+	protected PriceDistribution askPriceDistribution;
+
+	protected PriceDistribution bidPriceDistribution;
+
+	public IncrementalEquilibriumCalculator() {
+		bIn = new PriceSet();
+		bOut = new PriceSet();
+		sIn = new PriceSet();
+		sOut = new PriceSet();
+
+		askPriceDistribution = new PriceDistribution();
+		bidPriceDistribution = new PriceDistribution();
+	}
+
+	public void reset() {
+		bIn.clear();
+		bOut.clear();
+		sIn.clear();
+		sOut.clear();
+
+		askPriceDistribution.reset();
+		bidPriceDistribution.reset();
+	}
+
+	/**
+	 * adds the units of goods in the shout.
+	 */
+	public void newShout(final Shout shout) {
+		final double price = shout.getPrice();
+		if (shout.isBid()) {
+			for (int i = 0; i < shout.getQuantity(); i++) {
+				newBid(price);
+			}
+			bidPriceDistribution.newData(price, shout.getQuantity());
+			bidPriceDistribution.setRange(lowest(bIn, bOut), highest(bIn, bOut));
+		} else {
+			for (int i = 0; i < shout.getQuantity(); i++) {
+				newAsk(price);
+			}
+			askPriceDistribution.newData(price, shout.getQuantity());
+			askPriceDistribution.setRange(lowest(sIn, sOut), highest(sIn, sOut));
+		}
+	}
+
+	/**
+	 * removes the units of goods in a shout added before.
+	 *
+	 * @throws AuctionError
+	 *           if the shout was not added.
+	 */
+	public void removeShout(final Shout shout) {
+		final double price = shout.getPrice();
+		if (shout.isBid()) {
+			for (int i = 0; i < shout.getQuantity(); i++) {
+				removeBid(price);
+			}
+			bidPriceDistribution.removeData(price, shout.getQuantity());
+			bidPriceDistribution.setRange(lowest(bIn, bOut), highest(bIn, bOut));
+		} else {
+			for (int i = 0; i < shout.getQuantity(); i++) {
+				removeAsk(price);
+			}
+			askPriceDistribution.removeData(price, shout.getQuantity());
+			askPriceDistribution.setRange(lowest(sIn, sOut), highest(sIn, sOut));
+		}
+	}
+
+	protected void newBid(final double price) {
+		if (!sOut.isEmpty() && (price >= sOut.lowest())
+				&& (bIn.isEmpty() || (bIn.lowest() >= sOut.lowest()))) {
+			// found match
+			sIn.add(sOut.removeLowest());
+			bIn.add(price);
+		} else if (!bIn.isEmpty() && (price > bIn.lowest())) {
+			bOut.add(bIn.removeLowest());
+			bIn.add(price);
+		} else {
+			bOut.add(price);
+		}
+	}
+
+	protected void newAsk(final double price) {
+		if (!bOut.isEmpty() && (price <= bOut.highest())
+				&& (sIn.isEmpty() || (sIn.highest() <= bOut.highest()))) {
+			// found match
+			bIn.add(bOut.removeHighest());
+			sIn.add(price);
+		} else if (!sIn.isEmpty() && (price <= sIn.highest())) {
+			sOut.add(sIn.removeHighest());
+			sIn.add(price);
+		} else {
+			sOut.add(price);
+		}
+	}
+
+	protected void removeBid(final double price) {
+		if (!bOut.remove(price)) {
+			if (bIn.remove(price)) {
+				// the highest matched ask loses its counterpart
+				newAsk(sIn.removeHighest());
+			} else {
+				throw new AuctionError("Bid at " + price + " not found !");
+			}
+		}
+	}
+
+	protected void removeAsk(final double price) {
+		if (!sOut.remove(price)) {
+			if (sIn.remove(price)) {
+				// the lowest matched bid loses its counterpart
+				newBid(bIn.removeLowest());
+			} else {
+				throw new AuctionError("Ask at " + price + " not found !");
+			}
+		}
+	}
+
+	private static double lowest(final PriceSet in, final PriceSet out) {
+		return Math.min(in.isEmpty() ? Double.POSITIVE_INFINITY : in.lowest(), out
+				.isEmpty() ? Double.POSITIVE_INFINITY : out.lowest());
+	}
+
+	private static double highest(final PriceSet in, final PriceSet out) {
+		return Math.max(in.isEmpty() ? Double.NEGATIVE_INFINITY : in.highest(),
+				out.isEmpty() ? Double.NEGATIVE_INFINITY : out.highest());
+	}
+
+	/**
+	 *
+	 * @return true if an equilibrium exist, or false otherwise.
+	 */
+	public boolean isEquilibriaFound() {
+		return !sIn.isEmpty() && !bIn.isEmpty();
+	}
+
+	/**
+	 * @return the lower bound of the price range at the equilibrium, or 0 if no
+	 *         equilibrium exists.
+	 */
+	public double getMinEquilibriumPrice() {
+		if (isEquilibriaFound()) {
+			return Math.max(sIn.highest(), bOut.isEmpty() ? Double.NEGATIVE_INFINITY
+					: bOut.highest());
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * @return the upper bound of the price range at the equilibrium, or 0 if no
+	 *         equilibrium exists.
+	 */
+	public double getMaxEquilibriumPrice() {
+		if (isEquilibriaFound()) {
+			return Math.min(sOut.isEmpty() ? Double.POSITIVE_INFINITY : sOut
+					.lowest(), bIn.lowest());
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * @return the mid-point of the equilibrium price range.
+	 */
+	public double getMidEquilibriumPrice() {
+		return (getMinEquilibriumPrice() + getMaxEquilibriumPrice()) / 2;
+	}
+
+	/**
+	 *
+	 * @return the quantity at the equilibrium.
+	 */
+	public int getEquilibriumQuantity() {
+		return sIn.size();
+	}
+
+	/**
+	 * @return the total profit of the traders if the matched bids and asks were
+	 *         exchanged at the same price, whatever the price.
+	 */
+	public double getTheoreticalProfit() {
+		return bIn.getTotal() - sIn.getTotal();
+	}
+
+	public CumulativeDistribution getAskPriceDistribution() {
+		return askPriceDistribution;
+	}
+
+	public CumulativeDistribution getBidPriceDistribution() {
+		return bidPriceDistribution;
+	}
+
+	/**
+	 * a multiset of prices, each unit of goods counted once.
+	 */
+	protected static class PriceSet {
+
+		protected TreeMap<Double, Integer> counts;
+
+		protected int size;
+
+		protected double total;
+
+		public PriceSet() {
+			counts = new TreeMap<Double, Integer>();
+		}
+
+		public void clear() {
+			counts.clear();
+			size = 0;
+			total = 0;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public double getTotal() {
+			return total;
+		}
+
+		public double lowest() {
+			return counts.firstKey().doubleValue();
+		}
+
+		public double highest() {
+			return counts.lastKey().doubleValue();
+		}
+
+		public void add(final double price) {
+			final Double key = new Double(price);
+			final Integer count = counts.get(key);
+			counts.put(key, new Integer(count == null ? 1 : count.intValue() + 1));
+			size++;
+			total += price;
+		}
+
+		/**
+		 * @return false if the price is not in the set.
+		 */
+		public boolean remove(final double price) {
+			final Double key = new Double(price);
+			final Integer count = counts.get(key);
+			if (count == null) {
+				return false;
+			} else if (count.intValue() == 1) {
+				counts.remove(key);
+			} else {
+				counts.put(key, new Integer(count.intValue() - 1));
+			}
+
+			size--;
+			if (size == 0) {
+				// drop any rounding errors left
+				total = 0;
+			} else {
+				total -= price;
+			}
+			return true;
+		}
+
+		public double removeLowest() {
+			final double price = lowest();
+			remove(price);
+			return price;
+		}
+
+		public double removeHighest() {
+			final double price = highest();
+			remove(price);
+			return price;
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder buf = new StringBuilder();
+			for (final Map.Entry<Double, Integer> entry : counts.entrySet()) {
+				buf.append(entry.getKey() + "x" + entry.getValue() + " ");
+			}
+			return buf.toString();
+		}
+	}
+
+	/**
+	 * a {@link CumulativeDistribution} that data can also be removed from, with
+	 * the range of the data set by the owner.
+	 */
+	protected static class PriceDistribution extends CumulativeDistribution {
+
+		private static final long serialVersionUID = 1L;
+
+		public void removeData(final double i, final int n) {
+			this.n -= n;
+			if (this.n == 0) {
+				// drop any rounding errors left
+				total = 0;
+				totalSq = 0;
+			} else {
+				for (int k = 0; k < n; k++) {
+					total -= i;
+					totalSq -= i * i;
+				}
+			}
+		}
+
+		public void setRange(final double min, final double max) {
+			this.min = min;
+			this.max = max;
+		}
+	}
+}
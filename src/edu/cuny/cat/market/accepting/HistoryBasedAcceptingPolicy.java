@@ -21,6 +21,7 @@ import edu.cuny.cat.core.IllegalShoutException;
 import edu.cuny.cat.core.Shout;
 import edu.cuny.cat.event.AuctionEvent;
 import edu.cuny.cat.stat.HistoricalReport;
+import edu.cuny.cat.stat.HistoryCounts;
 import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
 import edu.cuny.util.Utils;
@@ -82,8 +83,15 @@ public class HistoryBasedAcceptingPolicy extends
 
 	protected HistoricalReport report;
 
+	/**
+	 * the counts of shouts in {@link #report} at the price of the shout being
+	 * checked.
+	 */
+	protected HistoryCounts counts;
+
 	public HistoryBasedAcceptingPolicy() {
 		report = new HistoricalReport();
+		counts = new HistoryCounts();
 	}
 
 	@Override
@@ -134,28 +142,13 @@ public class HistoryBasedAcceptingPolicy extends
 	}
 
 	protected double calculateProbability(final Shout shout) {
+		report.count(shout.getPrice(), counts);
 
+		// TODO: to deal with the case when the denominator is 0
 		if (shout.isBid()) {
-			// TODO: to deal with the case when the denominator is 0
-			return ((double) (report.getIncreasingQueryAccelerator()
-					.getNumOfAcceptedBidsBelow(shout.getPrice()) + report
-					.getIncreasingQueryAccelerator().getNumOfAsksBelow(shout.getPrice())))
-					/ ((double) (report.getIncreasingQueryAccelerator()
-							.getNumOfAcceptedBidsBelow(shout.getPrice())
-							+ report.getIncreasingQueryAccelerator().getNumOfAsksBelow(
-									shout.getPrice()) + report.getIncreasingQueryAccelerator()
-							.getNumOfRejectedBidsAbove(shout.getPrice())));
-
+			return counts.getBidProbability();
 		} else {
-			// TODO: to deal with the case when the denominator is 0
-			return ((double) (report.getIncreasingQueryAccelerator()
-					.getNumOfAcceptedAsksAbove(shout.getPrice()) + report
-					.getIncreasingQueryAccelerator().getNumOfBidsAbove(shout.getPrice())))
-					/ ((double) (report.getIncreasingQueryAccelerator()
-							.getNumOfAcceptedAsksAbove(shout.getPrice())
-							+ report.getIncreasingQueryAccelerator().getNumOfBidsAbove(
-									shout.getPrice()) + report.getIncreasingQueryAccelerator()
-							.getNumOfRejectedAsksBelow(shout.getPrice())));
+			return counts.getAskProbability();
 		}
 	}
 
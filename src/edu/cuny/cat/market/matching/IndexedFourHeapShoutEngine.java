@@ -0,0 +1,706 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.market.matching;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.core.AuctionError;
+import edu.cuny.cat.core.Shout;
+import edu.cuny.cat.market.DuplicateShoutException;
+
+/**
+ * <p>
+ * The 4-Heap algorithm of {@link FourHeapShoutEngine} on heaps of slot
+ * indices. Each shout in the engine occupies a slot, and the price, quantity,
+ * arrival order, heap and position in the heap of the shout are kept in
+ * primitive arrays indexed by the slot. Heap comparisons therefore read
+ * <code>double</code>s directly instead of going through a {@link
+ * java.util.Comparator} on {@link Shout}s, and since the position of each
+ * shout is known, removing a shout takes O(log n) rather than a linear search
+ * of the heap. The slot of a shout is looked up in an open-addressed table of
+ * <code>int</code>s by the identity hash code of the shout, so no object is
+ * allocated to track slots.
+ * </p>
+ *
+ * <p>
+ * Shouts at the same price are ranked by arrival, the earlier first.
+ * </p>
+ *
+ * <p>
+ * The list returned by {@link #getMatchedShouts()} is reused by the engine and
+ * is only valid until the next call.
+ * </p>
+ *
+ * <p>
+ * To use it in a market, set the <tt>matching</tt> parameter of
+ * {@link edu.cuny.cat.market.GenericDoubleAuctioneer} to this class.
+ * </p>
+ *
+ * @see FourHeapShoutEngine
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class IndexedFourHeapShoutEngine extends ShoutEngine implements
+		Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	static Logger logger = Logger.getLogger(IndexedFourHeapShoutEngine.class);
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private static final int NO_HEAP = -1;
+
+	protected Shout shouts[];
+
+	protected double prices[];
+
+	protected int quantities[];
+
+	/**
+	 * the order in which shouts arrive, used to rank shouts at the same price.
+	 */
+	protected long sequences[];
+
+	protected int heapIds[];
+
+	protected int positions[];
+
+	protected int freeSlots[];
+
+	protected int numOfFreeSlots;
+
+	protected long sequence;
+
+	/**
+	 * the slot of each shout in the engine plus one, or 0 for an empty entry,
+	 * placed by the identity hash code of the shout with linear probing. Its
+	 * length is a power of two and at least twice that of {@link #shouts}, so
+	 * it is never more than half full.
+	 */
+	protected int slotTable[];
+
+	/**
+	 * Matched bids in ascending order
+	 */
+	protected SlotHeap bIn;
+
+	/**
+	 * Unmatched bids in descending order
+	 */
+	protected SlotHeap bOut;
+
+	/**
+	 * Matched asks in descending order
+	 */
+	protected SlotHeap sIn;
+
+	/**
+	 * Unmatched asks in ascending order
+	 */
+	protected SlotHeap sOut;
+
+	protected ArrayList<Shout> matchedShouts;
+
+	public IndexedFourHeapShoutEngine() {
+		final int capacity = IndexedFourHeapShoutEngine.INITIAL_CAPACITY;
+		shouts = new Shout[capacity];
+		prices = new double[capacity];
+		quantities = new int[capacity];
+		sequences = new long[capacity];
+		heapIds = new int[capacity];
+		positions = new int[capacity];
+		freeSlots = new int[capacity];
+		for (int i = 0; i < capacity; i++) {
+			freeSlots[i] = capacity - 1 - i;
+		}
+		numOfFreeSlots = capacity;
+		Arrays.fill(heapIds, IndexedFourHeapShoutEngine.NO_HEAP);
+
+		slotTable = new int[2 * capacity];
+
+		bIn = new SlotHeap(0, true);
+		bOut = new SlotHeap(1, false);
+		sIn = new SlotHeap(2, false);
+		sOut = new SlotHeap(3, true);
+
+		matchedShouts = new ArrayList<Shout>();
+	}
+
+	@Override
+	public synchronized void reset() {
+		super.reset();
+
+		bIn.clear();
+		bOut.clear();
+		sIn.clear();
+		sOut.clear();
+
+		Arrays.fill(slotTable, 0);
+		Arrays.fill(shouts, null);
+		Arrays.fill(heapIds, IndexedFourHeapShoutEngine.NO_HEAP);
+		for (int i = 0; i < shouts.length; i++) {
+			freeSlots[i] = shouts.length - 1 - i;
+		}
+		numOfFreeSlots = shouts.length;
+		sequence = 0;
+
+		matchedShouts.clear();
+	}
+
+	/**
+	 * takes a free slot for the shout, growing the arrays if none is left.
+	 */
+	protected int allocate(final Shout shout) throws DuplicateShoutException {
+		if (findSlot(shout) >= 0) {
+			throw new DuplicateShoutException("Duplicate shout: " + shout.toString());
+		}
+
+		if (numOfFreeSlots == 0) {
+			final int capacity = shouts.length;
+			final int newCapacity = 2 * capacity;
+			shouts = Arrays.copyOf(shouts, newCapacity);
+			prices = Arrays.copyOf(prices, newCapacity);
+			quantities = Arrays.copyOf(quantities, newCapacity);
+			sequences = Arrays.copyOf(sequences, newCapacity);
+			heapIds = Arrays.copyOf(heapIds, newCapacity);
+			positions = Arrays.copyOf(positions, newCapacity);
+			freeSlots = Arrays.copyOf(freeSlots, newCapacity);
+			for (int i = 0; i < capacity; i++) {
+				freeSlots[i] = newCapacity - 1 - i;
+			}
+			Arrays.fill(heapIds, capacity, newCapacity,
+					IndexedFourHeapShoutEngine.NO_HEAP);
+			numOfFreeSlots = capacity;
+
+			slotTable = new int[2 * newCapacity];
+			for (int i = 0; i < capacity; i++) {
+				if (shouts[i] != null) {
+					indexSlot(i);
+				}
+			}
+		}
+
+		final int slot = freeSlots[--numOfFreeSlots];
+		shouts[slot] = shout;
+		prices[slot] = shout.getPrice();
+		quantities[slot] = shout.getQuantity();
+		sequences[slot] = sequence++;
+		indexSlot(slot);
+		return slot;
+	}
+
+	protected void release(final int slot) {
+		unindexSlot(slot);
+		shouts[slot] = null;
+		heapIds[slot] = IndexedFourHeapShoutEngine.NO_HEAP;
+		freeSlots[numOfFreeSlots++] = slot;
+	}
+
+	protected void insertShout(final SlotHeap heap, final Shout shout)
+			throws DuplicateShoutException {
+		heap.add(allocate(shout));
+	}
+
+	@Override
+	public synchronized void removeShout(final Shout shout) {
+		final int s = findSlot(shout);
+		if (s < 0) {
+			return;
+		}
+
+		final int quantity = quantities[s];
+		final int heapId = heapIds[s];
+		heap(heapId).remove(s);
+		release(s);
+
+		if (heapId == sIn.id) {
+			reinsert(bIn, quantity);
+		} else if (heapId == bIn.id) {
+			reinsert(sIn, quantity);
+		}
+	}
+
+	/**
+	 * @return the first entry of {@link #slotTable} to probe for the shout.
+	 */
+	private int home(final Shout shout) {
+		final int h = System.identityHashCode(shout);
+		return (h ^ (h >>> 16)) & (slotTable.length - 1);
+	}
+
+	/**
+	 * @return the slot of the shout, or -1 if the shout is not in the engine.
+	 */
+	protected int findSlot(final Shout shout) {
+		final int mask = slotTable.length - 1;
+		for (int i = home(shout);; i = (i + 1) & mask) {
+			final int entry = slotTable[i];
+			if (entry == 0) {
+				return -1;
+			} else if (shouts[entry - 1] == shout) {
+				return entry - 1;
+			}
+		}
+	}
+
+	private void indexSlot(final int slot) {
+		final int mask = slotTable.length - 1;
+		int i = home(shouts[slot]);
+		while (slotTable[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		slotTable[i] = slot + 1;
+	}
+
+	/**
+	 * removes the slot from {@link #slotTable}, shifting back the entries after
+	 * it that would otherwise no longer be found, while the shout is still in
+	 * the slot.
+	 */
+	private void unindexSlot(final int slot) {
+		final int mask = slotTable.length - 1;
+		int gap = home(shouts[slot]);
+		while (slotTable[gap] != slot + 1) {
+			gap = (gap + 1) & mask;
+		}
+
+		for (int i = (gap + 1) & mask; slotTable[i] != 0; i = (i + 1) & mask) {
+			final int entry = slotTable[i];
+			final int home = home(shouts[entry - 1]);
+			// movable unless its home lies after the gap, up to itself
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				slotTable[gap] = entry;
+				gap = i;
+			}
+		}
+		slotTable[gap] = 0;
+	}
+
+	private SlotHeap heap(final int heapId) {
+		if (heapId == bIn.id) {
+			return bIn;
+		} else if (heapId == bOut.id) {
+			return bOut;
+		} else if (heapId == sIn.id) {
+			return sIn;
+		} else {
+			return sOut;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	/**
+	 * Log the current status of the auction.
+	 */
+	@Override
+	public void printState() {
+		IndexedFourHeapShoutEngine.logger.info("Auction status:\n");
+		prettyPrint("Matched bids", bIn);
+		prettyPrint("Matched asks", sIn);
+		prettyPrint("Runner-up bids", bOut);
+		prettyPrint("Runner-up asks", sOut);
+	}
+
+	protected void prettyPrint(final String title, final SlotHeap heap) {
+		IndexedFourHeapShoutEngine.logger.info(title);
+		IndexedFourHeapShoutEngine.logger.info("--------------");
+		for (int i = 0; i < heap.size; i++) {
+			IndexedFourHeapShoutEngine.logger.info(shouts[heap.slots[i]]
+					.toPrettyString());
+		}
+		IndexedFourHeapShoutEngine.logger.info("");
+	}
+
+	private Shout top(final SlotHeap heap) {
+		if (heap.size == 0) {
+			return null;
+		}
+		return shouts[heap.slots[0]];
+	}
+
+	@Override
+	public Shout getHighestUnmatchedBid() {
+		return top(bOut);
+	}
+
+	@Override
+	public Shout getLowestMatchedBid() {
+		return top(bIn);
+	}
+
+	@Override
+	public Shout getLowestUnmatchedAsk() {
+		return top(sOut);
+	}
+
+	@Override
+	public Shout getHighestMatchedAsk() {
+		return top(sIn);
+	}
+
+	/**
+	 * Unify the shout at the top of the heap with the supplied shout, so that
+	 * quantity(shout) = quantity(top(heap)). This is achieved by splitting the
+	 * supplied shout or the shout at the top of the heap.
+	 *
+	 * @return A reference to the, possibly modified, shout.
+	 */
+	protected Shout unifyShout(Shout shout, final SlotHeap heap)
+			throws DuplicateShoutException {
+		final int slot = heap.slots[0];
+		final Shout top = shouts[slot];
+
+		if (shout.getQuantity() > quantities[slot]) {
+			shout = shout.splat(shout.getQuantity() - quantities[slot]);
+		} else if (quantities[slot] > shout.getQuantity()) {
+			final Shout remainder = top.split(quantities[slot] - shout.getQuantity());
+			quantities[slot] = top.getQuantity();
+			insertShout(heap, remainder);
+		}
+
+		return shout;
+	}
+
+	protected int displaceShout(Shout shout, final SlotHeap from,
+			final SlotHeap to) throws DuplicateShoutException {
+		shout = unifyShout(shout, from);
+		to.add(from.poll());
+		insertShout(from, shout);
+		return shout.getQuantity();
+	}
+
+	protected int promoteShout(Shout shout, final SlotHeap from,
+			final SlotHeap to, final SlotHeap matched)
+			throws DuplicateShoutException {
+		shout = unifyShout(shout, from);
+		insertShout(matched, shout);
+		to.add(from.poll());
+		return shout.getQuantity();
+	}
+
+	@Override
+	public synchronized void newShout(final Shout shout)
+			throws DuplicateShoutException {
+		// before any shout is moved between the heaps on its behalf
+		if (findSlot(shout) >= 0) {
+			throw new DuplicateShoutException("Duplicate shout: " + shout.toString());
+		}
+
+		if (shout.isBid()) {
+			newBid(shout);
+		} else {
+			newAsk(shout);
+		}
+	}
+
+	protected void newBid(final Shout bid) throws DuplicateShoutException {
+
+		final double bidVal = bid.getPrice();
+
+		int uninsertedUnits = bid.getQuantity();
+
+		while (uninsertedUnits > 0) {
+
+			final Shout sOutTop = getLowestUnmatchedAsk();
+			final Shout bInTop = getLowestMatchedBid();
+
+			if ((sOutTop != null) && (bidVal >= sOutTop.getPrice())
+					&& ((bInTop == null) || (bInTop.getPrice() >= sOutTop.getPrice()))) {
+
+				// found match
+				uninsertedUnits -= promoteShout(bid, sOut, sIn, bIn);
+
+			} else if ((bInTop != null) && (bidVal > bInTop.getPrice())) {
+
+				uninsertedUnits -= displaceShout(bid, bIn, bOut);
+
+			} else {
+				insertShout(bOut, bid);
+				uninsertedUnits -= bid.getQuantity();
+			}
+		}
+	}
+
+	protected void newAsk(final Shout ask) throws DuplicateShoutException {
+
+		final double askVal = ask.getPrice();
+
+		int uninsertedUnits = ask.getQuantity();
+
+		while (uninsertedUnits > 0) {
+
+			final Shout sInTop = getHighestMatchedAsk();
+			final Shout bOutTop = getHighestUnmatchedBid();
+
+			if ((bOutTop != null) && (askVal <= bOutTop.getPrice())
+					&& ((sInTop == null) || (sInTop.getPrice() <= bOutTop.getPrice()))) {
+
+				uninsertedUnits -= promoteShout(ask, bOut, bIn, sIn);
+
+			} else if ((sInTop != null) && (askVal <= sInTop.getPrice())) {
+
+				uninsertedUnits -= displaceShout(ask, sIn, sOut);
+
+			} else {
+
+				insertShout(sOut, ask);
+				uninsertedUnits -= ask.getQuantity();
+
+			}
+		}
+	}
+
+	/**
+	 * Remove, possibly several, shouts from heap such that quantity(heap) is
+	 * reduced by the supplied quantity and reinsert the shouts using the standard
+	 * insertion logic.
+	 */
+	protected void reinsert(final SlotHeap heap, int quantity) {
+		try {
+			while (quantity > 0) {
+				final int slot = heap.poll();
+				final Shout top = shouts[slot];
+				release(slot);
+
+				if (top.getQuantity() > quantity) {
+					insertShout(heap, top.split(top.getQuantity() - quantity));
+				}
+
+				quantity -= top.getQuantity();
+
+				if (top.isBid()) {
+					newBid(top);
+				} else {
+					newAsk(top);
+				}
+			}
+		} catch (final DuplicateShoutException e) {
+			throw new AuctionError("Invalid auction status");
+		}
+	}
+
+	@Override
+	public synchronized Iterator<Shout> askIterator() {
+		return sortedShouts(sIn, sOut, true).iterator();
+	}
+
+	@Override
+	public synchronized Iterator<Shout> bidIterator() {
+		return sortedShouts(bIn, bOut, false).iterator();
+	}
+
+	/**
+	 * @return a snapshot of the shouts in the two heaps in the given order.
+	 */
+	private List<Shout> sortedShouts(final SlotHeap heap1, final SlotHeap heap2,
+			final boolean ascending) {
+		final SlotHeap merged = new SlotHeap(IndexedFourHeapShoutEngine.NO_HEAP,
+				ascending, heap1.size + heap2.size);
+		System.arraycopy(heap1.slots, 0, merged.slots, 0, heap1.size);
+		System.arraycopy(heap2.slots, 0, merged.slots, heap1.size, heap2.size);
+		merged.size = heap1.size + heap2.size;
+		merged.sort();
+
+		final List<Shout> list = new ArrayList<Shout>(merged.size);
+		for (int i = 0; i < merged.size; i++) {
+			list.add(shouts[merged.slots[i]]);
+		}
+		return list;
+	}
+
+	/**
+	 * <p>
+	 * Return a list of matched bids and asks. The list is of the form
+	 * </p>
+	 * <br>
+	 * ( b0, a0, b1, a1 .. bn, an )<br>
+	 *
+	 * <p>
+	 * where bi is the ith bid and a0 is the ith ask. The list is reused and only
+	 * valid until the next call.
+	 * </p>
+	 */
+	@Override
+	public synchronized List<Shout> getMatchedShouts() {
+		matchedShouts.clear();
+		matchedShouts.ensureCapacity(sIn.size + bIn.size);
+
+		try {
+			while (sIn.size > 0) {
+				final int sSlot = sIn.poll();
+				final int bSlot = bIn.poll();
+				final Shout sInTop = shouts[sSlot];
+				final Shout bInTop = shouts[bSlot];
+				release(sSlot);
+				release(bSlot);
+
+				final int nS = sInTop.getQuantity();
+				final int nB = bInTop.getQuantity();
+				if (nS < nB) {
+					// split the bid
+					insertShout(bIn, bInTop.split(nB - nS));
+				} else if (nB < nS) {
+					// split the ask
+					insertShout(sIn, sInTop.split(nS - nB));
+				}
+				matchedShouts.add(bInTop);
+				matchedShouts.add(sInTop);
+			}
+		} catch (final DuplicateShoutException e) {
+			throw new AuctionError("Invalid auction status");
+		}
+
+		return matchedShouts;
+	}
+
+	/**
+	 * a binary heap of slots ordered by the prices in the slots, and by arrival
+	 * among equal prices.
+	 */
+	protected class SlotHeap implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		final int id;
+
+		final boolean ascending;
+
+		int slots[];
+
+		int size;
+
+		SlotHeap(final int id, final boolean ascending) {
+			this(id, ascending, IndexedFourHeapShoutEngine.INITIAL_CAPACITY);
+		}
+
+		SlotHeap(final int id, final boolean ascending, final int capacity) {
+			this.id = id;
+			this.ascending = ascending;
+			slots = new int[Math.max(capacity, 1)];
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		/**
+		 * @return true if the shout in slot a goes before the one in slot b.
+		 */
+		private boolean before(final int a, final int b) {
+			if (prices[a] != prices[b]) {
+				return ascending ? prices[a] < prices[b] : prices[a] > prices[b];
+			}
+			return sequences[a] < sequences[b];
+		}
+
+		void add(final int slot) {
+			if (size == slots.length) {
+				slots = Arrays.copyOf(slots, 2 * size);
+			}
+			heapIds[slot] = id;
+			siftUp(size++, slot);
+		}
+
+		int poll() {
+			final int top = slots[0];
+			removeAt(0);
+			return top;
+		}
+
+		void remove(final int slot) {
+			removeAt(positions[slot]);
+		}
+
+		private void removeAt(final int i) {
+			final int last = slots[--size];
+			if (i < size) {
+				siftDown(i, last);
+				if (slots[i] == last) {
+					siftUp(i, last);
+				}
+			}
+		}
+
+		private void siftUp(int i, final int slot) {
+			while (i > 0) {
+				final int parent = (i - 1) >>> 1;
+				if (!before(slot, slots[parent])) {
+					break;
+				}
+				place(i, slots[parent]);
+				i = parent;
+			}
+			place(i, slot);
+		}
+
+		private void siftDown(int i, final int slot) {
+			final int half = size >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				final int right = child + 1;
+				if ((right < size) && before(slots[right], slots[child])) {
+					child = right;
+				}
+				if (!before(slots[child], slot)) {
+					break;
+				}
+				place(i, slots[child]);
+				i = child;
+			}
+			place(i, slot);
+		}
+
+		private void place(final int i, final int slot) {
+			slots[i] = slot;
+			if (id != IndexedFourHeapShoutEngine.NO_HEAP) {
+				positions[slot] = i;
+			}
+		}
+
+		/**
+		 * sorts the slots in place by repeatedly taking the top of the heap; only
+		 * used on snapshot heaps.
+		 */
+		void sort() {
+			final int n = size;
+			for (int i = (n >>> 1) - 1; i >= 0; i--) {
+				siftDown(i, slots[i]);
+			}
+			final int sorted[] = new int[n];
+			for (int i = 0; i < n; i++) {
+				sorted[i] = poll();
+			}
+			slots = sorted;
+			size = n;
+		}
+	}
+}
@@ -38,8 +38,12 @@ import edu.cuny.util.SortedTreeList;
  * </p>
  * 
  * <p>
- * Due to performance consideration, this engine does not maintain a matched set
- * of shouts for the moment.
+ * The matched and unmatched shouts are kept up to date as shouts are placed
+ * and removed. Since the matched bids are always the highest bids and the
+ * matched asks the lowest asks, a change of the matching quantity only moves
+ * the shouts at the boundary between the matched and the unmatched, and splits
+ * at most one of them on each side, rather than distributing every shout
+ * anew.
  * </p>
  * 
  * @author Jinzhong Niu
@@ -86,6 +90,16 @@ public class LazyMaxVolumeShoutEngine extends ShoutEngine {
 	protected SortedTreeList<Shout> sOut = new SortedTreeList<Shout>(
 			"unmatched asks", ShoutEngine.AscendingOrder);
 
+	/**
+	 * the total quantity of the matched bids in {@link #bIn}
+	 */
+	protected int matchedBidQuantity;
+
+	/**
+	 * the total quantity of the matched asks in {@link #sIn}
+	 */
+	protected int matchedAskQuantity;
+
 	/**
 	 * used to randomize the order of matching pairs of shouts
 	 */
@@ -106,14 +120,35 @@ public class LazyMaxVolumeShoutEngine extends ShoutEngine {
 		bIn.clear();
 		sOut.clear();
 		bOut.clear();
+
+		matchedBidQuantity = 0;
+		matchedAskQuantity = 0;
 	}
 
 	@Override
 	public synchronized void removeShout(final Shout shout) {
 		if (shout.isAsk()) {
-			asks.remove(shout);
+			final int index = LazyMaxVolumeShoutEngine.indexOf(asks, shout);
+			if (index >= 0) {
+				asks.remove(index);
+				if (index < sIn.size()) {
+					sIn.remove(LazyMaxVolumeShoutEngine.indexOf(sIn, shout));
+					matchedAskQuantity -= shout.getQuantity();
+				} else {
+					sOut.remove(LazyMaxVolumeShoutEngine.indexOf(sOut, shout));
+				}
+			}
 		} else {
-			bids.remove(shout);
+			final int index = LazyMaxVolumeShoutEngine.indexOf(bids, shout);
+			if (index >= 0) {
+				bids.remove(index);
+				if (index >= bOut.size()) {
+					bIn.remove(LazyMaxVolumeShoutEngine.indexOf(bIn, shout));
+					matchedBidQuantity -= shout.getQuantity();
+				} else {
+					bOut.remove(LazyMaxVolumeShoutEngine.indexOf(bOut, shout));
+				}
+			}
 		}
 
 		// logger.info("\n++ removed shout (" + shout.getId() + "/" +
@@ -122,12 +157,43 @@ public class LazyMaxVolumeShoutEngine extends ShoutEngine {
 		updateMatchedShouts();
 	}
 
+	/**
+	 * <p>
+	 * A new shout is first put on the side of the boundary where it falls in
+	 * {@link #bids} or {@link #asks}, and then the boundary is moved as the
+	 * matching quantity requires.
+	 * </p>
+	 * 
+	 * <p>
+	 * Shouts at the same price are kept in {@link #bIn} and {@link #bOut} in the
+	 * reverse order of {@link #bids}, and in {@link #sIn} and {@link #sOut} in
+	 * the order of {@link #asks}, as they used to be when all the shouts were
+	 * distributed anew from the highest bid and the lowest ask down, so that
+	 * shouts at the same price are still matched in the same order.
+	 * </p>
+	 */
 	@Override
 	public void newShout(final Shout shout) throws DuplicateShoutException {
 		if (shout.isBid()) {
-			bids.add(shout);
+			final int index = bids.indexOfIfAdded(shout);
+			bids.add(index, shout);
+			if (index >= bOut.size()) {
+				bIn.add(LazyMaxVolumeShoutEngine.lowerBound(bIn, shout.getPrice()),
+						shout);
+				matchedBidQuantity += shout.getQuantity();
+			} else {
+				bOut.add(LazyMaxVolumeShoutEngine.lowerBound(bOut, shout.getPrice()),
+						shout);
+			}
 		} else {
-			asks.add(shout);
+			final int index = asks.indexOfIfAdded(shout);
+			asks.add(index, shout);
+			if (index < sIn.size()) {
+				sIn.add(shout);
+				matchedAskQuantity += shout.getQuantity();
+			} else {
+				sOut.add(shout);
+			}
 		}
 
 		// logger.info("\n** new shout (" + shout.getId() + "/" + shout.getPrice()
@@ -136,100 +202,136 @@ public class LazyMaxVolumeShoutEngine extends ShoutEngine {
 	}
 
 	protected void updateMatchedShouts() {
-		sIn.clear();
-		sOut.clear();
-		bIn.clear();
-		bOut.clear();
-
 		final int matchingQuantity = getMatchingQuantity();
 
-		// prettyPrint("bids", bids);
-		// prettyPrint("asks", asks);
-		//
-		// logger.info("\nDistributing bids of " + matchingQuantity
-		// + "\n---------------");
-		distributeShoutsFromTail(matchingQuantity, bids, bIn, bOut);
-		// logger.info("\nDistributing asks of " + matchingQuantity
-		// + "\n---------------");
-		distributeShoutsFromHead(matchingQuantity, asks, sIn, sOut);
-
-		// logger.info("=====================================\n");
+		updateMatchedBids(matchingQuantity);
+		updateMatchedAsks(matchingQuantity);
 	}
 
-	protected void distributeShoutsFromTail(final int quantity,
-			final SortedTreeList<Shout> list, final SortedTreeList<Shout> in,
-			final SortedTreeList<Shout> out) {
-		distributeShouts(quantity, list, in, out, true);
-	}
+	/**
+	 * moves the bids across the boundary between {@link #bIn} and {@link #bOut}
+	 * until the highest bids of the given quantity are matched, splitting the
+	 * lowest matched bid if it goes beyond the quantity.
+	 */
+	protected void updateMatchedBids(final int quantity) {
+		Shout shout = null;
 
-	protected void distributeShoutsFromHead(final int quantity,
-			final SortedTreeList<Shout> list, final SortedTreeList<Shout> in,
-			final SortedTreeList<Shout> out) {
-		distributeShouts(quantity, list, in, out, false);
-	}
+		// the lowest matched bid is bids[bOut.size()]
+		while (!bIn.isEmpty()) {
+			shout = bids.get(bOut.size());
+			if (matchedBidQuantity - shout.getQuantity() < quantity) {
+				break;
+			}
 
-	protected void distributeShouts(int quantity,
-			final SortedTreeList<Shout> list, final SortedTreeList<Shout> in,
-			final SortedTreeList<Shout> out, final boolean fromTail) {
-		int i;
-		if (fromTail) {
-			i = list.size();
-		} else {
-			i = -1;
+			bIn.remove(LazyMaxVolumeShoutEngine.upperBound(bIn, shout.getPrice()) - 1);
+			bOut.add(LazyMaxVolumeShoutEngine.lowerBound(bOut, shout.getPrice()),
+					shout);
+			matchedBidQuantity -= shout.getQuantity();
+		}
+
+		while ((matchedBidQuantity < quantity) && !bOut.isEmpty()) {
+			shout = bids.get(bOut.size() - 1);
+			bOut.remove(LazyMaxVolumeShoutEngine.lowerBound(bOut, shout.getPrice()));
+			bIn.add(shout);
+			matchedBidQuantity += shout.getQuantity();
 		}
 
-		// logger.info(Utils.indent(" fill in"));
+		if (matchedBidQuantity > quantity) {
+			shout = bids.get(bOut.size());
+			final Shout remainder = shout.split(matchedBidQuantity - quantity);
+			bids.add(bOut.size(), remainder);
+			bOut.add(LazyMaxVolumeShoutEngine.lowerBound(bOut, remainder.getPrice()),
+					remainder);
+			matchedBidQuantity = quantity;
+		}
+	}
 
+	/**
+	 * moves the asks across the boundary between {@link #sIn} and {@link #sOut}
+	 * until the lowest asks of the given quantity are matched, splitting the
+	 * highest matched ask if it goes beyond the quantity.
+	 */
+	protected void updateMatchedAsks(final int quantity) {
 		Shout shout = null;
-		while (quantity > 0) {
-			if (fromTail) {
-				i--;
-			} else {
-				i++;
+
+		// the highest matched ask is asks[sIn.size() - 1]
+		while (!sIn.isEmpty()) {
+			shout = sIn.get(sIn.size() - 1);
+			if (matchedAskQuantity - shout.getQuantity() < quantity) {
+				break;
 			}
 
-			shout = list.get(i);
-			// logger.info(Utils.indent(i + ": " + shout));
-			// logger.info(Utils.indent("quantity to fill: " + quantity));
+			sIn.remove(sIn.size() - 1);
+			sOut.add(0, shout);
+			matchedAskQuantity -= shout.getQuantity();
+		}
 
-			if (shout.getQuantity() <= quantity) {
-				in.add(shout);
-				quantity -= shout.getQuantity();
-			} else {
-				final Shout remainder = shout.split(shout.getQuantity() - quantity);
-				if (fromTail) {
-					list.add(i, remainder);
-					i++;
-				} else {
-					list.add(i + 1, remainder);
-				}
-				in.add(shout);
-				quantity = 0; // will break out
-			}
+		while ((matchedAskQuantity < quantity) && !sOut.isEmpty()) {
+			shout = sOut.remove(0);
+			sIn.add(sIn.size(), shout);
+			matchedAskQuantity += shout.getQuantity();
 		}
 
-		// logger.info(Utils.indent(" fill out"));
+		if (matchedAskQuantity > quantity) {
+			shout = sIn.get(sIn.size() - 1);
+			final Shout remainder = shout.split(matchedAskQuantity - quantity);
+			asks.add(sIn.size(), remainder);
+			sOut.add(0, remainder);
+			matchedAskQuantity = quantity;
+		}
+	}
 
-		while (true) {
-			if (fromTail) {
-				if (i == 0) {
-					break;
-				} else {
-					i--;
-				}
+	/**
+	 * @return the index of the first shout in the sorted list whose price is not
+	 *         lower than the given price.
+	 */
+	protected static int lowerBound(final List<Shout> list, final double price) {
+		int b = 0;
+		int e = list.size();
+		while (b < e) {
+			final int m = (b + e) >>> 1;
+			if (list.get(m).getPrice() < price) {
+				b = m + 1;
 			} else {
-				if (i >= list.size() - 1) {
-					break;
-				} else {
-					i++;
-				}
+				e = m;
 			}
+		}
+		return b;
+	}
 
-			shout = list.get(i);
-			// logger.info(Utils.indent(i + ": " + shout));
+	/**
+	 * @return the index of the first shout in the sorted list whose price is
+	 *         higher than the given price.
+	 */
+	protected static int upperBound(final List<Shout> list, final double price) {
+		int b = 0;
+		int e = list.size();
+		while (b < e) {
+			final int m = (b + e) >>> 1;
+			if (list.get(m).getPrice() <= price) {
+				b = m + 1;
+			} else {
+				e = m;
+			}
+		}
+		return b;
+	}
 
-			out.add(shout);
+	/**
+	 * @return the index of the shout in the sorted list, or -1 if it is not in
+	 *         the list.
+	 */
+	protected static int indexOf(final List<Shout> list, final Shout shout) {
+		for (int i = LazyMaxVolumeShoutEngine.lowerBound(list, shout.getPrice()); i < list
+				.size(); i++) {
+			final Shout other = list.get(i);
+			if (other == shout) {
+				return i;
+			} else if (other.getPrice() > shout.getPrice()) {
+				break;
+			}
 		}
+		return -1;
 	}
 
 	protected int getMatchingQuantity() {
@@ -307,6 +409,14 @@ public class LazyMaxVolumeShoutEngine extends ShoutEngine {
 		// prettyPrint("asks", asks);
 		// prettyPrint("bid", bids);
 
+		// the matched asks are the lowest asks and the matched bids the highest
+		for (int i = sIn.size(); i > 0; i--) {
+			asks.remove(0);
+		}
+		for (int i = bIn.size(); i > 0; i--) {
+			bids.remove(bids.size() - 1);
+		}
+
 		Shout sInTop = null;
 		Shout bInTop = null;
 
@@ -318,11 +428,6 @@ public class LazyMaxVolumeShoutEngine extends ShoutEngine {
 			if (sInTop == null) {
 				if (sItor.hasNext()) {
 					sInTop = sItor.next();
-					if (!asks.remove(sInTop)) {
-						LazyMaxVolumeShoutEngine.logger
-								.fatal("Failed to remove the matched ask !");
-						LazyMaxVolumeShoutEngine.logger.fatal(sInTop);
-					}
 					// logger.info(sInTop);
 				} else {
 					break;
@@ -332,11 +437,6 @@ public class LazyMaxVolumeShoutEngine extends ShoutEngine {
 			if (bInTop == null) {
 				if (bItor.hasNext()) {
 					bInTop = bItor.next();
-					if (!bids.remove(bInTop)) {
-						LazyMaxVolumeShoutEngine.logger
-								.fatal("Failed to remove the matched bid !");
-						LazyMaxVolumeShoutEngine.logger.fatal(bInTop);
-					}
 					// logger.info(bInTop);
 				} else {
 					LazyMaxVolumeShoutEngine.logger.fatal("Unempty bInTop expected !");
@@ -376,6 +476,8 @@ public class LazyMaxVolumeShoutEngine extends ShoutEngine {
 
 		sIn.clear();
 		bIn.clear();
+		matchedAskQuantity = 0;
+		matchedBidQuantity = 0;
 
 		// randomize the matching pairs
 		Shout bid, ask;
@@ -58,6 +58,7 @@ import edu.cuny.cat.event.TransactionExecutedEvent;
 import edu.cuny.cat.server.ClientState;
 import edu.cuny.cat.server.GameClock;
 import edu.cuny.cat.server.GameController;
+import edu.cuny.util.SynchronizedDecimalFormat;
 
 /**
  * Implements {@link Registry} by logging game information simply into internal
@@ -98,7 +99,7 @@ public class SimpleRegistry implements Registry {
 
 	protected GameClock clock;
 
-	final static DecimalFormat Formatter = new DecimalFormat(
+	final static DecimalFormat Formatter = new SynchronizedDecimalFormat(
 			"+#########0.00;-#########.00");
 
 	public SimpleRegistry() {
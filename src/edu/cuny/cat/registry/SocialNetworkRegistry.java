@@ -1,7 +1,5 @@
 package edu.cuny.cat.registry;
 
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -13,7 +11,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.io.IOException; //
 
@@ -22,6 +20,8 @@ import org.apache.log4j.Logger;
 import com.google.common.collect.BiMap; //
 import com.google.common.collect.HashBiMap; //
 import com.google.common.collect.Maps; //
+import au.edu.unimelb.cat.socialnetwork.graph.AdjacencyListSocialGraph;
+import au.edu.unimelb.cat.socialnetwork.graph.SocialGraph;
 import au.edu.unimelb.cat.socialnetwork.helper.Utils;
 import au.edu.unimelb.cat.socialnetwork.method.AbstractMimickingMarketSelectionMethod;
 import au.edu.unimelb.cat.socialnetwork.method.AbstractMimickingShoutingMethod;
@@ -30,7 +30,12 @@ import au.edu.unimelb.cat.socialnetwork.ui.MainFrame;
 import au.edu.unimelb.cat.socialnetwork.ui.MarketSelectionAMFrame;
 import au.edu.unimelb.cat.socialnetwork.ui.SpecialistVisualization;
 import au.edu.unimelb.cat.socialnetwork.ui.SpecialistsFrame;
+import uk.ac.liv.cat.socialnetwork.output.DayRecord;
+import uk.ac.liv.cat.socialnetwork.output.ExperimentSink;
+import uk.ac.liv.cat.socialnetwork.output.TextExperimentSink;
 import uk.ac.liv.cat.socialnetwork.ui.SocialTraderFrame; //
+import uk.ac.liv.cat.socialnetwork.util.SocialEvent;
+import uk.ac.liv.cat.socialnetwork.util.SocialEventFeed;
 import edu.cuny.cat.core.Shout;
 import edu.cuny.cat.core.Specialist;
 import edu.cuny.cat.core.Trader;
@@ -62,6 +67,7 @@ import edu.cuny.cat.event.TransactionExecutedEvent;
 import edu.cuny.cat.event.TransactionRejectedEvent;
 import edu.cuny.cat.server.GameClock;
 import edu.cuny.cat.Game;
+import edu.cuny.util.ParamClassLoadException;
 import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
 import edu.cuny.util.Parameterizable;
@@ -89,12 +95,22 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 	private static Logger logger = Logger
 			.getLogger(SocialNetworkRegistry.class);
 
-	private static SocialNetworkRegistry instance;
+	/**
+	 * parameter for the {@link SocialGraph} implementation that stores the
+	 * market selection network; {@link AdjacencyListSocialGraph} by default.
+	 */
+	public static final String P_GRAPH = "graph";
+
+	/**
+	 * parameter for the {@link ExperimentSink} that records the experiment
+	 * output; {@link TextExperimentSink} by default.
+	 */
+	public static final String P_SINK = "sink";
 
 	public SocialNetworkRegistry() {
 		super();
 
-		instance = this;
+		Galaxy.getInstance().putSingleton(SocialNetworkRegistry.class, this);
 	}
 
 	// ~MDC A uniform distribution for generating random number.
@@ -126,6 +142,13 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 					.push("mimickingmarketselectionmethod"));
 		}
 
+		try {
+			socialGraph = parameters.getInstanceForParameter(base
+					.push(SocialNetworkRegistry.P_GRAPH), null, SocialGraph.class);
+		} catch (final ParamClassLoadException e) {
+			socialGraph = new AdjacencyListSocialGraph();
+		}
+
 		mimickingShoutingMethod = parameters.getInstanceForParameter(base
 				.push("mimickingshoutingmethod"), null,
 				AbstractMimickingShoutingMethod.class);
@@ -142,7 +165,14 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 
 		// ~MDC If a folder path is specified:
 		if (outputFolder != null) {
-			
+
+			try {
+				sink = parameters.getInstanceForParameter(base
+						.push(SocialNetworkRegistry.P_SINK), null, ExperimentSink.class);
+			} catch (final ParamClassLoadException e) {
+				sink = new TextExperimentSink();
+			}
+
 			try {
 
 				// ~MDC 
@@ -150,15 +180,16 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 
 				/* ~MDC Create a log file at the given location, automatically named by the type of network
 					and traders used and uniquely distinguised by a random number. */
-				outputPW = new PrintWriter(outputFolder + (network = (network.substring(network.lastIndexOf("/"), network.length()))) +
+				sink.open(outputFolder + (network = (network.substring(network.lastIndexOf("/"), network.length()))) +
 			    "-" + (profile = parameters.getString(new Parameter("cat.agent.0.strategy.profile"), null)) +
-			    "-" + dist.nextDouble() + ".csv"); //
+			    "-" + dist.nextDouble() + sink.getExtension()); //
 
-			} catch (FileNotFoundException e) {
+			} catch (IOException e) {
 
-				e.printStackTrace();
+				// carry on without output rather than write to an unopened sink
+				SocialNetworkRegistry.logger.error("Failed to open experiment output !", e);
 
-				System.exit(1);
+				sink = null;
 
 			}
 
@@ -241,9 +272,9 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 	private AbstractMimickingShoutingMethod mimickingShoutingMethod;
 
 	/**
-	 * Market Selection Adjacency Matrix Data Section
+	 * Market Selection Social Network Data Section
 	 */
-	private AtomicReferenceArray<AtomicIntegerArray> mSAdjacencyMatrix;
+	private SocialGraph socialGraph;
 	private AtomicReferenceArray<String> mSTraderIds;
 	private Hashtable<String, Integer> mSTraderIdIdx;
 	private Hashtable<String, String> mSHistory;
@@ -275,8 +306,8 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 	// ~MDC 
 	private Hashtable<String, Integer> numTraderMatches;
 
-	// ~MDC 
-	private Hashtable<String, Integer> advisors;	
+	// ~MDC Number of times each trader has been chosen to give advice.
+	private Hashtable<String, AtomicInteger> advisors;	
 	
 	/**
 	 * Specialist Visualization Data Section
@@ -295,11 +326,18 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 
 	// ~MDC
 	private SocialTraderFrame stFrame;
+
+	/**
+	 * social events, for the frames to follow without reading the log
+	 */
+	private final SocialEventFeed eventFeed = new SocialEventFeed();
 	
 	// ~MDC	
-	private static Graph<String, Integer> sGraph = new SparseMultigraph<String, Integer>(); //
+	private final Graph<String, Integer> sGraph = new SparseMultigraph<String, Integer>(); //
 
-	private PrintWriter outputPW;
+	private ExperimentSink sink;
+
+	private final DayRecord dayRecord = new DayRecord();
 
 	private int curIteration = 0;
 
@@ -307,8 +345,11 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 	// GETTERS AND SETTERS
 	// -------------------------------
 
+	/**
+	 * @return the registry of the game in the current {@link Galaxy}.
+	 */
 	public static SocialNetworkRegistry getInstance() {
-		return instance;
+		return Galaxy.getInstance().getSingleton(SocialNetworkRegistry.class);
 	}
 
 	public AbstractMimickingMarketSelectionMethod getMarketSelectionStrategy() {
@@ -343,7 +384,7 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 	    given trader. */
 	public void incrementAdvice(String trader) { //
 
-		advisors.put(trader, advisors.get(trader) + 1); //
+		advisors.get(trader).incrementAndGet(); //
 
 	}
 
@@ -351,8 +392,12 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 		return tradeEntitlements;
 	}
 
-	public AtomicReferenceArray<AtomicIntegerArray> getmSAdjacencyMatrix() {
-		return mSAdjacencyMatrix;
+	/**
+	 * @return the market selection network, indexed as in
+	 *         {@link #getmSTraderIds()}
+	 */
+	public SocialGraph getSocialGraph() {
+		return socialGraph;
 	}
 
 	public AtomicReferenceArray<String> getmSTraderIds() {
@@ -395,6 +440,22 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 		this.stFrame = stFrame;
 	}
 
+	public SocialEventFeed getEventFeed() {
+		return eventFeed;
+	}
+
+	/**
+	 * publishes a social event about a trader, if anyone follows the feed.
+	 * Callers building the text from several parts check
+	 * {@link SocialEventFeed#hasListeners()} first, so that nothing is built
+	 * when nobody follows the feed.
+	 */
+	public void publish(SocialEvent.Kind kind, String traderId, String text) {
+		if (eventFeed.hasListeners()) {
+			eventFeed.publish(kind, traderId, text);
+		}
+	}
+
 	public Hashtable<String, SpecialistVisualization> getsVs() {
 		return sVs;
 	}
@@ -421,7 +482,7 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 	// OPENING EVENTS
 	// -------------------------------
 
-	private static int count = 0;
+	private int count = 0;
 
 	@Override
 	protected void processRegistration(final RegistrationEvent event) {
@@ -439,6 +500,10 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 			if (specialist != null) {
 				SocialNetworkRegistry.logger.info(event.getTraderId()
 						+ "! enters " + specialist.getId() + "\n");
+				if (eventFeed.hasListeners()) {
+					eventFeed.publish(SocialEvent.Kind.ENTRY, event.getTraderId(),
+							"enters " + specialist.getId());
+				}
 				count++;
 			
 				sVs.get(trader.getSpecialistId()).AddTrader(trader.getId());
@@ -467,9 +532,6 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 								// ~MDC Update the graphical representation of the traders.
 								stFrame.updateGraph(sGraph); //
 
-								// ~MDC Update the activity log as necessary.
-								stFrame.updateLog();	 //
-
 								// ~MDC Add a list of all the traders now registered.
 								stFrame.addTraders(getWorkingTraderIds()); //
 
@@ -507,15 +569,7 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 			traderIndices.put(getWorkingTraders()[i], new Integer(i));  //
 		} //
 		
-		mSAdjacencyMatrix = new AtomicReferenceArray<AtomicIntegerArray>(
-				getNumOfTraders());
-				
-		for (int i = 0; i < mSAdjacencyMatrix.length(); i++) {
-			mSAdjacencyMatrix.set(i, new AtomicIntegerArray(getNumOfTraders()));
-			for (int j = 0; j < mSAdjacencyMatrix.length(); j++) {
-				mSAdjacencyMatrix.get(i).set(j, 0);
-			}
-		}
+		socialGraph.initialize(getNumOfTraders());
 
 		mSTraderIds = new AtomicReferenceArray<String>(Utils
 				.shuffleIds(getTraderIds()));
@@ -541,7 +595,7 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 		tProfit = new Hashtable<String, Double>(getNumOfTraders()); //
 
 		// ~MDC
-		advisors = new Hashtable<String, Integer>(getNumOfTraders()); //
+		advisors = new Hashtable<String, AtomicInteger>(getNumOfTraders()); //
 
 		for (String id : getTraderIds()) {
 			mSHistory.put(id, "");
@@ -551,7 +605,7 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 			numTraderMatches.put(id, 0); //
 
 			// ~MDC
-			advisors.put(id, 0); //
+			advisors.put(id, new AtomicInteger()); //
 
 			// ~MDC
 			tExperience.put(id, false); //
@@ -606,12 +660,13 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 				e.printStackTrace();
 			}
 
-		outputPW.println("## Total Number of traders");
-		outputPW.println(getNumOfTraders());
-		outputPW.println(" ");
-		outputPW.println("## Total Number of markets");
-		outputPW.println(getNumOfSpecialists());
-		outputPW.flush();
+		if (sink != null) {
+			try {
+				sink.simulationStarted(getNumOfTraders(), getNumOfSpecialists());
+			} catch (IOException e) {
+				SocialNetworkRegistry.logger.error("Failed to write experiment output !", e);
+			}
+		}
 	
 	}
 
@@ -619,9 +674,13 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 	protected void processGameStarting(GameStartingEvent event) {
 		super.processGameStarting(event);
 
-		outputPW.println("#Game");
-		outputPW.println(curIteration++);
-		outputPW.flush(); //
+		if (sink != null) {
+			try {
+				sink.gameStarting(curIteration++);
+			} catch (IOException e) {
+				SocialNetworkRegistry.logger.error("Failed to write experiment output !", e);
+			}
+		}
 	}
 
 	@Override
@@ -629,7 +688,7 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 		super.processDayOpening(event);
 	}
 
-	static int profitPostedCount = 0;
+	int profitPostedCount = 0;
 
 	/**
 	 * ~MDC
@@ -660,6 +719,11 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 			// ~MDC
 			logger.info("Attributing " + event.getTraderProfit() + " to " + ree.getReferrerId()); //
 
+			if (eventFeed.hasListeners()) {
+				eventFeed.publish(SocialEvent.Kind.PROFIT, ree.getId(), "earns "
+						+ event.getTraderProfit() + " with the advice of " + rer.getId());
+			}
+
 			// ~MDC
 			addVisualLink(rer.getId(), ree.getId()); //
 
@@ -726,6 +790,10 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 		
 		// ~MDC
 		logger.info(event.getShout().getTrader().getId() + "! has their shout rejected."); //
+		if (eventFeed.hasListeners()) {
+			eventFeed.publish(SocialEvent.Kind.SHOUT, event.getShout().getTrader()
+					.getId(), "has their shout rejected.");
+		}
 	
 	}
 
@@ -749,20 +817,10 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 			logger.info(tId + " New Shouting History Entry: " + s.getId() + " " + s.getPrice() + " "  + s.getQuantity()); //
 		}
 
-		// ~MDC
-		if (stFrame != null && stFrame.isVisible())
-			
-			// ~MDC 
-			SwingUtilities.invokeLater(new Runnable() {
-
-				@Override
-				public void run() {
-
-					stFrame.updateLog(); //
-
-				}
-
-		});
+		if (eventFeed.hasListeners()) {
+			eventFeed.publish(SocialEvent.Kind.SHOUT, tId, "has their shout placed at "
+					+ s.getPrice() + " for " + s.getQuantity() + ".");
+		}
 
 	}
 	
@@ -771,6 +829,12 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 		// ~MDC
 		logger.info(event.getTransaction().getAsk().getTrader().getId() + "! has their shout placed, but not matched."); //
 		logger.info(event.getTransaction().getBid().getTrader().getId() + "! has their shout placed, but not matched."); //
+		if (eventFeed.hasListeners()) {
+			eventFeed.publish(SocialEvent.Kind.MATCH, event.getTransaction().getAsk()
+					.getTrader().getId(), "has their shout placed, but not matched.");
+			eventFeed.publish(SocialEvent.Kind.MATCH, event.getTransaction().getBid()
+					.getTrader().getId(), "has their shout placed, but not matched.");
+		}
 
 	}
 	
@@ -799,6 +863,10 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 
 		logger.info(sellerId + "! successful match!"); //
 		logger.info(buyerId + "! successful match!"); //
+		if (eventFeed.hasListeners()) {
+			eventFeed.publish(SocialEvent.Kind.MATCH, sellerId, "successful match!");
+			eventFeed.publish(SocialEvent.Kind.MATCH, buyerId, "successful match!");
+		}
 
 		// ~MDC		
 		numTraderMatches.put(sellerId, numTraderMatches.get(sellerId) + 1);// 	
@@ -859,57 +927,33 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 
 		super.processDayClosed(event);
 
-		outputPW.println(" "); //
+		dayRecord.clear(event.getDay());
 
 		// ~MDC 
 		if (event.getDay() != 0) {
 
-			outputPW.println("## Individual Trader Profits"); //
+			dayRecord.setTraderProfitsRecorded(true);
 
 			for (Entry<String, Double> e : tProfit.entrySet()) { //
-				outputPW.println(e.getKey()); //
-				outputPW.println(e.getValue()); //
+				dayRecord.addTraderProfit(e.getKey(), e.getValue()); //
 			}
 
-			outputPW.println(" ");
-
 		}
 
-		outputPW.println("########################################"); //
-		outputPW.println("#Day");	
-		outputPW.println(event.getDay());
-
 		for (SpecialistVisualization sv : sVs.values()) {
 
-			outputPW.println(" ");
-			outputPW.println("########################################");
-			outputPW.println("#Market");
-			outputPW.println(sv.getSpecialistId());
-			outputPW.println(" ");
-
-			outputPW.println("## Market profit");
-			outputPW.println(mProfit.get(sv.getSpecialistId()));
+			dayRecord.addMarket(sv.getSpecialistId(), mProfit.get(sv
+					.getSpecialistId()), numMatches.get(sv.getSpecialistId()));
 			// clear count for market profit on each day
 			mProfit.put(sv.getSpecialistId(), 0.0);
-			outputPW.println(" ");
-			
-			outputPW.println("## Number of matches");
-			outputPW.println(numMatches.get(sv.getSpecialistId()));
 			// clear count for next day
 			numMatches.put(sv.getSpecialistId(), 0);
-			outputPW.println(" ");
 
-			outputPW.println("#Populations");
 			for (Entry<String, HashMap<String, ArrayList<String>>> en : sv
 					.getTraders().entrySet()) {
-				outputPW.printf("%s buyer, %d", en.getKey(), en.getValue().get(
-						"buyer").size());
-				outputPW.println();
-				outputPW.printf("%s seller, %d", en.getKey(), en.getValue()
-						.get("seller").size());
-				outputPW.println();
+				dayRecord.addPopulation(en.getKey(), en.getValue().get("buyer")
+						.size(), en.getValue().get("seller").size());
 			}
-			outputPW.println(" ");
 
 			sv.ClearTraders();
 		}
@@ -928,37 +972,24 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 			}
 		}
 
-		outputPW.println("########################################");
-		outputPW.println("#Traders");
-		outputPW.println(" ");
-
-		outputPW.println("## Number of buyers that changed market");
-		outputPW.println(numBCM);
-		outputPW.println(" ");
-
-		outputPW.println("## Number of sellers that changed market");
-		outputPW.println(numSCM);
-		outputPW.println(" ");
-
-		outputPW.println("## Individual Trader Matches"); //
+		dayRecord.setNumOfBuyersChangedMarket(numBCM);
+		dayRecord.setNumOfSellersChangedMarket(numSCM);
 
 		for (Entry<String, Integer> e : numTraderMatches.entrySet()) { //
-
-			outputPW.println(e.getKey()); //
-			outputPW.println(e.getValue()); //
-
+			dayRecord.addTraderMatches(e.getKey(), e.getValue()); //
 		}
 
-		outputPW.println("## Amount of Advice given:");
-		
-		for (Entry<String, Integer> e : advisors.entrySet()) { //
-
-				outputPW.println(e.getKey()); //
-				outputPW.println(e.getValue()); //
-
+		for (Entry<String, AtomicInteger> e : advisors.entrySet()) { //
+			dayRecord.addAdvice(e.getKey(), e.getValue().get()); //
 		}
 
-		outputPW.flush();
+		if (sink != null) {
+			try {
+				sink.dayClosed(dayRecord);
+			} catch (IOException e) {
+				SocialNetworkRegistry.logger.error("Failed to write experiment output !", e);
+			}
+		}
 
 		// ~MDC
 		if (stFrame != null && stFrame.isVisible()) 
@@ -995,8 +1026,12 @@ public class SocialNetworkRegistry extends SimpleRegistry implements
 	protected void processSimulationOver(SimulationOverEvent event) {
 		super.processSimulationOver(event);
 
-		if (outputPW != null) {
-			outputPW.close();
+		if (sink != null) {
+			try {
+				sink.close();
+			} catch (IOException e) {
+				SocialNetworkRegistry.logger.error("Failed to write experiment output !", e);
+			}
 		}
 	}
 
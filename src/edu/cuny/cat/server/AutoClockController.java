@@ -112,6 +112,16 @@ public class AutoClockController extends ClockController implements
 		timer.schedule(new AutoExitTimerTask(), exitDelay);
 	}
 
+	/**
+	 * quits the game and releases the timer thread, which otherwise keeps the
+	 * JVM alive when the game is not the only thing running in it.
+	 */
+	@Override
+	protected void quitGame() {
+		super.quitGame();
+		timer.cancel();
+	}
+
 	public String getString() {
 		String s = getClass().getSimpleName();
 		s += "( " + AutoClockController.P_STARTDELAY + ":" + startDelay;
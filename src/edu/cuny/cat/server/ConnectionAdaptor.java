@@ -25,14 +25,14 @@ import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.collections15.Buffer;
 import org.apache.commons.collections15.BufferUtils;
 import org.apache.commons.collections15.buffer.UnboundedFifoBuffer;
 import org.apache.log4j.Logger;
 
+import au.edu.unimelb.cat.socialnetwork.method.Advice;
+
 import edu.cuny.cat.comm.CatException;
 import edu.cuny.cat.comm.CatpMessage;
 import edu.cuny.cat.comm.CatpMessageErrorException;
@@ -42,6 +42,7 @@ import edu.cuny.cat.comm.CatpProactiveSession;
 import edu.cuny.cat.comm.CatpReactiveSession;
 import edu.cuny.cat.comm.CatpRequest;
 import edu.cuny.cat.comm.CatpResponse;
+import edu.cuny.cat.comm.CatpSessionRouter;
 import edu.cuny.cat.comm.Connection;
 import edu.cuny.cat.comm.ConnectionException;
 import edu.cuny.cat.comm.ConnectionListener;
@@ -138,6 +139,8 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 
 	protected CatpReactiveSession reactiveSessions[];
 
+	protected CatpSessionRouter reactiveSessionRouter;
+
 	/*
 	 * stores pending sessions for shouts, registration and subscription requests
 	 * key is shout id, or REGISTER/SUBSCRIBE + specialist.id.
@@ -152,8 +155,6 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 
 	protected int state;
 
-	public static String tag = "";
-
 	public ConnectionAdaptor(final ConnectionManager manager,
 			final Connection<CatpMessage> conn) {
 
@@ -244,7 +245,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 								clock.getRoundLen() }) });
 		request.setTrigger(event);
 
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new GameStartingSession(request);
 		startProactiveSession(session);
@@ -260,7 +261,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 						// CatpMessage.concatenate(registry.getWorkingTraderIds()) });
 						CatpMessage.concatenate(registry.getTraderIds()) });
 		request.setTrigger(event);
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new PostTraderSession(request);
 		startProactiveSession(session);
@@ -277,7 +278,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 						CatpMessage.concatenate(registry.getSpecialistIds()) });
 
 		request.setTrigger(event);
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final PostSpecialistSession session = new PostSpecialistSession(request);
 		startProactiveSession(session);
@@ -293,7 +294,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 				new String[] { CatpMessage.TYPE, CatpMessage.GAMESTARTED });
 		request.setTrigger(event);
 
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new GameStartedSession(request);
 		startProactiveSession(session);
@@ -309,7 +310,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 				new String[] { CatpMessage.TYPE, CatpMessage.GAMEOVER });
 		request.setTrigger(event);
 
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new GameOverSession(request);
 		startProactiveSession(session);
@@ -343,7 +344,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 						CatpMessage.TIME, CatpMessage.concatenate(event.getTime()) });
 		request.setTrigger(event);
 
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new DayOpeningSession(request);
 		startProactiveSession(session);
@@ -396,7 +397,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 			request.addHeader(CatpMessage.VALUE, String.valueOf(privateValue));
 		}
 
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new DayOpenedSession(request);
 		startProactiveSession(session);
@@ -429,7 +430,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 						CatpMessage.concatenate(profits) });
 		request.setTrigger(paEvent);
 
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		TimableCatpProactiveSession session = new PostSession(request);
 		startProactiveSession(session);
@@ -441,7 +442,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 				CatpMessage.concatenate(event.getTime()) });
 		request.setTrigger(event);
 
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		session = new DayClosedSession(request);
 		startProactiveSession(session);
@@ -482,7 +483,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 				new String[] { CatpMessage.ID, event.getTraderId() });
 		request.setTrigger(event);
 
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new RegisterToSpecialistSession(
 				request);
@@ -495,7 +496,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 						event.getSubscriberId() });
 		request.setTrigger(event);
 
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new SubscribeToSpecialistSession(
 				request);
@@ -510,7 +511,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 						CatpMessage.concatenate(event.getSpecialist().getFees()) });
 		event.setTime(clock.getTime());
 		request.setTrigger(event);
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new PostFeeSession(request);
 		startProactiveSession(session);
@@ -547,7 +548,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 							CatpMessage.concatenate(event.getTime()), CatpMessage.TYPE,
 							CatpMessage.SHOUT });
 
-			response.setTag(ConnectionAdaptor.tag);
+			response.setTag(manager.getTag());
 			dispatchOutgoingMessage(response, session);
 		} else {
 			ConnectionAdaptor.logger
@@ -604,7 +605,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 					CatpMessage.concatenate(event.getTime()) });
 			request.setTrigger(event);
 
-			request.setTag(ConnectionAdaptor.tag);
+			request.setTag(manager.getTag());
 
 			final TimableCatpProactiveSession session = new ShoutForwardSession(
 					request, event.getShout().getId());
@@ -638,7 +639,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 					CatpMessage.INVALID, new String[] { CatpMessage.TYPE,
 							CatpMessage.SPECIALIST, CatpMessage.TIME,
 							CatpMessage.concatenate(event.getTime()) });
-			response.setTag(ConnectionAdaptor.tag);
+			response.setTag(manager.getTag());
 			dispatchOutgoingMessage(response, session);
 		} else {
 			ConnectionAdaptor.logger
@@ -671,7 +672,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 								event.getTransaction().getAsk().getPrice(),
 								event.getTransaction().getBid().getPrice() }),
 						CatpMessage.TIME, CatpMessage.concatenate(event.getTime()) });
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new TransactionToTraderSession(
 				request);
@@ -702,7 +703,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 								event.getTransaction().getAsk().getPrice(),
 								event.getTransaction().getBid().getPrice() }),
 						CatpMessage.TIME, CatpMessage.concatenate(event.getTime()) });
-		request.setTag(ConnectionAdaptor.tag);
+		request.setTag(manager.getTag());
 
 		final TimableCatpProactiveSession session = new PostSession(request);
 		startProactiveSession(session);
@@ -828,71 +829,71 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 
 	private void setExpectedReactiveSessions(final CatpReactiveSession sessions[]) {
 		reactiveSessions = sessions;
+		reactiveSessionRouter = new CatpSessionRouter(sessions);
 	}
 
 	private void dectedAndRunReactiveSessions(final CatpRequest request,
-			final CatpReactiveSession sessions[]) {
+			final CatpSessionRouter router) {
+
+		final CatpReactiveSession expected = router.route(request);
+		if (expected == null) {
+			setState(ClientState.FATAL, ClientState.getCodeDesc(ClientState.FATAL)
+					+ " in locating proper reactive session !");
+			return;
+		}
 
 		CatpResponse response = null;
-		CatpReactiveSession session = null;
+		final CatpReactiveSession session = (CatpReactiveSession) expected.clone();
 
-		for (final CatpReactiveSession session2 : sessions) {
-			try {
-				session = (CatpReactiveSession) session2.clone();
-				session.processRequest(request);
-				if (!session.isProcessed()) {
-					ConnectionAdaptor.logger.fatal("Bug: " + session + " in "
-							+ getClass().getSimpleName()
-							+ " processed request but didn't mark _processed_:\n" + request
-							+ "\n");
+		try {
+			session.processRequest(request);
+			if (!session.isProcessed()) {
+				ConnectionAdaptor.logger.fatal("Bug: " + session + " in "
+						+ getClass().getSimpleName()
+						+ " processed request but didn't mark _processed_:\n" + request
+						+ "\n");
+			}
+		} catch (final CatpMessageException e) {
+			if (session.isProcessed()) {
+				final String s = "Failed in processing request from " + getClientId()
+						+ " in " + session + ".";
+				String responseType = null;
+				if (e instanceof CatpMessageInvalidException) {
+					responseType = CatpMessage.INVALID;
+				} else if (e instanceof CatpMessageErrorException) {
+					responseType = CatpMessage.ERROR;
 				}
-				return;
-			} catch (final CatpMessageException e) {
-				if (session.isProcessed()) {
-					final String s = "Failed in processing request from " + getClientId()
-							+ " in " + session + ".";
-					String responseType = null;
-					if (e instanceof CatpMessageInvalidException) {
-						responseType = CatpMessage.INVALID;
-					} else if (e instanceof CatpMessageErrorException) {
-						responseType = CatpMessage.ERROR;
-					}
 
-					if (responseType != null) {
-						response = CatpResponse.createResponse(responseType, new String[] {
-								CatpMessage.TEXT, s + " Error:" + e.toString() });
-
-						// use tag only when Tag is present in request.
-						if (request.getTag() != null) {
-							response.setTag(request.getTag());
-						}
+				if (responseType != null) {
+					response = CatpResponse.createResponse(responseType, new String[] {
+							CatpMessage.TEXT, s + " Error:" + e.toString() });
 
-						// only send response if connection is still alive
-						// TODO: to check if the checking is sufficient.
-						if (!connection.isClosed()) {
-							dispatchOutgoingMessage(response, session);
-						}
+					// use tag only when Tag is present in request.
+					if (request.getTag() != null) {
+						response.setTag(request.getTag());
 					}
 
-					ConnectionAdaptor.logger.error(s + " Request:\n" + request, e);
-
-					return;
-				} else {
-					// do nothing
-
-					// continue to try to process the request with the next
-					// possible reactive session.
+					// only send response if connection is still alive
+					// TODO: to check if the checking is sufficient.
+					if (!connection.isClosed()) {
+						dispatchOutgoingMessage(response, session);
+					}
 				}
-			} catch (final CatException e) {
-				ConnectionAdaptor.logger.fatal(e);
-			} catch (final RuntimeException e) {
-				e.printStackTrace();
-				ConnectionAdaptor.logger.fatal(e);
+
+				ConnectionAdaptor.logger.error(s + " Request:\n" + request, e);
+			} else {
+				ConnectionAdaptor.logger.fatal("Bug: " + session + " in "
+						+ getClass().getSimpleName() + " declined request it was routed:\n"
+						+ request + "\n", e);
+				setState(ClientState.FATAL, ClientState.getCodeDesc(ClientState.FATAL)
+						+ " in locating proper reactive session !");
 			}
+		} catch (final CatException e) {
+			ConnectionAdaptor.logger.fatal(e);
+		} catch (final RuntimeException e) {
+			e.printStackTrace();
+			ConnectionAdaptor.logger.fatal(e);
 		}
-
-		setState(ClientState.FATAL, ClientState.getCodeDesc(ClientState.FATAL)
-				+ " in locating proper reactive session !");
 	}
 
 	public void messageArrived(final CatpMessage msg) {
@@ -913,13 +914,13 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 			}
 		} else {
 			if (state != ClientState.FATAL) {
-				if ((ConnectionAdaptor.tag != null)
-						&& (ConnectionAdaptor.tag.length() != 0)
-						&& !ConnectionAdaptor.tag.equals(msg.getTag()) && (client != null)) {
+				final String tag = manager.getTag();
+				if ((tag != null) && (tag.length() != 0) && !tag.equals(msg.getTag())
+						&& (client != null)) {
 					// simply disregard the message, but don't check when the connection
 					// is just opened
 					ConnectionAdaptor.logger.info("Message with wrong tag received from "
-							+ client.getId() + " (right tag = " + ConnectionAdaptor.tag
+							+ client.getId() + " (right tag = " + tag
 							+ ") :\n" + msg);
 
 					// debug("messageReceived >1" + getClientId());
@@ -965,7 +966,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 			} else {
 				request = (CatpRequest) msg;
 
-				dectedAndRunReactiveSessions(request, reactiveSessions);
+				dectedAndRunReactiveSessions(request, reactiveSessionRouter);
 			}
 		}
 
@@ -1185,7 +1186,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 			super(connection, CatpRequest.createRequest(CatpMessage.OPTIONS,
 					new String[] { CatpMessage.TYPE, type, CatpMessage.TIME,
 							CatpMessage.concatenate(triggeringEvent.getTime()) }));
-			request.setTag(ConnectionAdaptor.tag);
+			request.setTag(manager.getTag());
 			request.setTrigger(triggeringEvent);
 
 			this.type = type;
@@ -2201,7 +2202,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 					new String[] { CatpMessage.TYPE, CatpMessage.TRADER, CatpMessage.ID,
 							CatpMessage.concatenate(registry.getWorkingTraderIds()) });
 
-			request.setTag(ConnectionAdaptor.tag);
+			request.setTag(manager.getTag());
 			dispatchOutgoingMessage(response, this);
 		}
 
@@ -2223,7 +2224,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 							CatpMessage.ID,
 							CatpMessage.concatenate(registry.getWorkingSpecialistIds()) });
 
-			request.setTag(ConnectionAdaptor.tag);
+			request.setTag(manager.getTag());
 			dispatchOutgoingMessage(response, this);
 		}
 
@@ -2252,7 +2253,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 							CatpMessage.concatenate(specialistIds), CatpMessage.VALUE,
 							CatpMessage.concatenate(profits) });
 
-			request.setTag(ConnectionAdaptor.tag);
+			request.setTag(manager.getTag());
 			dispatchOutgoingMessage(response, this);
 		}
 
@@ -2262,35 +2263,42 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 	}
 
 	/**
-	 * Newly added session class
+	 * gives a social network trader advice on shouting, or on market selection.
 	 * 
 	 * @author guiguan
 	 */
 	class GetInformedDecisionSession extends CatpReactiveSession {
 		public GetInformedDecisionSession() {
-			super(connection, CatpMessage.GET, "MD");
+			super(connection, CatpMessage.GET, Advice.TYPE);
 		}
 
 		/**
 		 * Get Market Selection Strategy Information <code>
 		 * GET CRLF
 		 * Type: MD CRLF
-		 * Text: strategy=MSS CRLF
+		 * Strategy: MSS CRLF
 		 * CRLF
 		 * 
 		 * OK CRLF
-		 * Text: strategy=MSS, specialistid=specialist1, percentage=0.8 CRLF
+		 * Type: MD CRLF
+		 * Strategy: MSS CRLF
+		 * Specialist: specialist1 CRLF
+		 * Experience: true CRLF
 		 * CRLF
 		 * </code>
 		 * 
 		 * Get Shouting Strategy Information <code>
 		 * GET CRLF
 		 * Type: MD CRLF
-		 * Text: strategy=SS CRLF
+		 * Strategy: SS CRLF
 		 * CRLF
 		 * 
 		 * OK CRLF
-		 * Text: strategy=SS, price=100.234234, quantity=2, percentage=0.8 CRLF
+		 * Type: MD CRLF
+		 * Strategy: SS CRLF
+		 * Price: 100.234234 CRLF
+		 * Quantity: 2 CRLF
+		 * Experience: true CRLF
 		 * CRLF
 		 * </code>
 		 */
@@ -2298,42 +2306,16 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 				throws CatException {
 			super.processRequest(request);
 
-			String strategy = null;
+			final String strategy = request.getHeader(Advice.STRATEGY);
+			final SocialNetworkRegistry snr = (SocialNetworkRegistry) registry;
 			CatpResponse response = null;
 
-			Pattern p = Pattern.compile("(\\w*)=(\\w*)");
-			Matcher m = p.matcher(request.getHeader(CatpMessage.TEXT));
-
-			while (m.find()) {
-				if (m.group(1).equals("strategy")) {
-					strategy = m.group(2);
-				}
-			}
-
-			if (strategy != null) {
-				if (strategy.equalsIgnoreCase("MSS")) {
-					SocialNetworkRegistry snr = (SocialNetworkRegistry) registry;
-
-					response = CatpResponse.createResponse(CatpMessage.OK,
-							new String[] {
-									CatpMessage.TYPE,
-									"MD",
-									CatpMessage.TEXT,
-									String.format("strategy=MSS, %s", snr
-											.getMarketSelectionStrategy()
-											.queryMatrix(getClientId())) });
-				} else if (strategy.equalsIgnoreCase("SS")) {
-					SocialNetworkRegistry snr = (SocialNetworkRegistry) registry;
-
-					response = CatpResponse.createResponse(CatpMessage.OK,
-							new String[] {
-									CatpMessage.TYPE,
-									"MD",
-									CatpMessage.TEXT,
-									String.format("strategy=SS, %s", snr
-											.getInformedShoutingMethod() //
-											.queryMatrix(getClientId())) });
-				}
+			if (Advice.MSS.equalsIgnoreCase(strategy)) {
+				response = createAdviceResponse(snr.getMarketSelectionStrategy()
+						.queryMatrix(getClientId()));
+			} else if (Advice.SS.equalsIgnoreCase(strategy)) {
+				response = createAdviceResponse(snr.getInformedShoutingMethod() //
+						.queryMatrix(getClientId()));
 			} else {
 				response = CatpResponse.createResponse(CatpMessage.ERROR,
 						new String[] { CatpMessage.TEXT,
@@ -2349,9 +2331,28 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 		}
 	}
 	
+	/**
+	 * @return a response carrying the advice, or one carrying no advice headers
+	 *         if no advice is available.
+	 */
+	protected CatpResponse createAdviceResponse(final Advice advice) {
+		if (advice != null) {
+			return CatpResponse.createResponse(CatpMessage.OK, advice.toHeaders());
+		} else {
+			return CatpResponse.createResponse(CatpMessage.OK, new String[] {
+					CatpMessage.TYPE, Advice.TYPE });
+		}
+	}
+
 	private int count = 0;
 	/**
-	 * Get Trader Profit. 
+	 * Post Trader Profit, to which the trader's market selection advice for the
+	 * day is returned if advice is batched, computed along with that of the other
+	 * traders once their profits of the day are posted, or OK otherwise, after
+	 * which the trader asks for the advice with a
+	 * {@link GetInformedDecisionSession}.
+	 * 
+	 * @see ConnectionManager#awaitAdvice(PostProfitSession)
 	 * 
 	 * @author Martin Chapman
 	 */
@@ -2372,22 +2373,31 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 
 			controller.processEventInsideServer(event);
 
-			if (event != null) {
-
-				SocialNetworkRegistry snr = (SocialNetworkRegistry) registry;
-
+			if (manager.isAdviceBatched()
+					&& (registry instanceof SocialNetworkRegistry)) {
+				manager.awaitAdvice(this);
+			} else {
 				response = CatpResponse.createResponse(CatpMessage.OK);
-				
-			} 
-			else {
-			
-				response = CatpResponse.createResponse(CatpMessage.ERROR,
-						new String[] { CatpMessage.TEXT,
-								"Strategy must be specified!" });
+
+				request.setTag(request.getTag());
+				sendMessage(response);
 			}
+		}
 
-			request.setTag(request.getTag());
-			sendMessage(response);
+		public String getClientId() {
+			return ConnectionAdaptor.this.getClientId();
+		}
+
+		/**
+		 * answers the profit post with market selection advice.
+		 */
+		public void answer(final Advice advice) {
+			try {
+				sendMessage(createAdviceResponse(advice));
+			} catch (final CatException e) {
+				ConnectionAdaptor.logger.error(
+						"Failed to send market selection advice to " + getClientId(), e);
+			}
 		}
 
 		public String toString() {
@@ -2416,7 +2426,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 								CatpMessage.TEXT, "Specialist doesn't exist or is inactive." });
 			}
 
-			request.setTag(ConnectionAdaptor.tag);
+			request.setTag(manager.getTag());
 			dispatchOutgoingMessage(response, this);
 		}
 
@@ -2840,7 +2850,7 @@ public final class ConnectionAdaptor implements AuctionEventListener,
 						CatpMessage.INVALID, new String[] { CatpMessage.TYPE,
 								CatpMessage.SPECIALIST, CatpMessage.TIME,
 								CatpMessage.concatenate(clock.getTime()) });
-				response.setTag(ConnectionAdaptor.tag);
+				response.setTag(manager.getTag());
 				dispatchOutgoingMessage(response, session);
 			}
 
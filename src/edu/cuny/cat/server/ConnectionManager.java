@@ -15,11 +15,13 @@
 
 package edu.cuny.cat.server;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Observer;
 import java.util.Set;
 import java.util.SortedMap;
@@ -27,6 +29,7 @@ import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
 
+import au.edu.unimelb.cat.socialnetwork.method.Advice;
 import edu.cuny.cat.comm.CatException;
 import edu.cuny.cat.comm.CatpInfrastructure;
 import edu.cuny.cat.comm.CatpMessage;
@@ -42,6 +45,9 @@ import edu.cuny.cat.event.ClientStateUpdatedEvent;
 import edu.cuny.cat.event.DayOpeningEvent;
 import edu.cuny.cat.event.GameOverEvent;
 import edu.cuny.cat.event.GameStartingEvent;
+import edu.cuny.cat.event.RoundOpenedEvent;
+import edu.cuny.cat.registry.SocialNetworkRegistry;
+import edu.cuny.cat.task.BlockingDispatcher;
 import edu.cuny.cat.task.Dispatcher;
 import edu.cuny.cat.task.DispatchingTask;
 import edu.cuny.cat.task.EventDispatchingTask;
@@ -49,17 +55,41 @@ import edu.cuny.cat.task.EventDispatchingTaskOnServerSide;
 import edu.cuny.cat.task.IncomingMessageDispatchingTask;
 import edu.cuny.cat.task.MessageDispatchingTask;
 import edu.cuny.cat.task.OutgoingMessageDispatchingTask;
-import edu.cuny.cat.task.PriorityAsynchronousDispatcher;
 import edu.cuny.cat.task.PrioritySynchronousDispatcher;
 import edu.cuny.prng.GlobalPRNG;
 import edu.cuny.random.Uniform;
 import edu.cuny.util.Galaxy;
+import edu.cuny.util.Parameter;
+import edu.cuny.util.ParameterDatabase;
 import edu.cuny.util.Utils;
 
 /**
  * A class, as a thread, accepts connection requests, creates
  * {@link ConnectionAdaptor}s, and manage them, including event passing, etc..
  * 
+ * <p>
+ * <b>Parameters</b>
+ * </p>
+ * <table>
+ * 
+ * <tr>
+ * <td valign=top><i>base</i><tt>.dispatchbatch</tt><br>
+ * <font size=-1>int &gt;= 1 (<code>1</code> by default)</font></td>
+ * <td valign=top>(the maximum number of tasks the asynchronous dispatcher takes
+ * from its queue at a time)</td>
+ * </tr>
+ * 
+ * <tr>
+ * <td valign=top><i>base</i><tt>.batchadvice</tt><br>
+ * <font size=-1>boolean (<code>true</code> by default)</font></td>
+ * <td valign=top>(whether social network traders get their market selection
+ * advice in the responses to their daily profit posts, computed in one batch
+ * once all of them have posted, or ask for it separately after each post, which
+ * reproduces the results of earlier versions)</td>
+ * </tr>
+ * 
+ * </table>
+ * 
  * @author Jinzhong Niu
  * @version $Revision: 1.64 $
  */
@@ -68,6 +98,10 @@ public final class ConnectionManager extends Thread implements
 
 	static Logger logger = Logger.getLogger(ConnectionManager.class);
 
+	public static final String P_DISPATCH_BATCH = "dispatchbatch";
+
+	public static final String P_BATCH_ADVICE = "batchadvice";
+
 	protected CatpInfrastructure infrast;
 
 	protected GameController controller;
@@ -93,11 +127,44 @@ public final class ConnectionManager extends Thread implements
 	 */
 	protected Dispatcher dispatcher;
 
+	/**
+	 * the maximum number of tasks the asynchronous dispatcher runs in a batch
+	 */
+	protected int dispatchBatchSize = 1;
+
+	/**
+	 * whether market selection advice is given in batches
+	 */
+	protected boolean batchAdvice = true;
+
+	/**
+	 * the profit posts of the day waiting for market selection advice, in the
+	 * order they arrived, guarded by the lock on itself.
+	 */
+	protected final List<ConnectionAdaptor.PostProfitSession> adviceWaiters;
+
+	/**
+	 * the traders that posted their profit on the previous day, whose posts the
+	 * advice of the day waits for.
+	 */
+	protected Set<String> expectedPosters;
+
+	/**
+	 * the traders that have posted their profit in the current day.
+	 */
+	protected Set<String> posters;
+
 	/**
 	 * used to randomize event dispatching order
 	 */
 	protected Uniform uniform;
 
+	/**
+	 * the tag of messages in the current day, which messages from clients have to
+	 * carry to be processed.
+	 */
+	protected volatile String tag = "";
+
 	public ConnectionManager() {
 		controller = GameController.getInstance();
 
@@ -109,21 +176,113 @@ public final class ConnectionManager extends Thread implements
 		babyAdaptors = Collections
 				.synchronizedSet(new HashSet<ConnectionAdaptor>());
 
+		adviceWaiters = new ArrayList<ConnectionAdaptor.PostProfitSession>();
+		expectedPosters = new HashSet<String>();
+		posters = new HashSet<String>();
+
 		identityOffice = new IdentityOffice();
 
 		uniform = new Uniform(0, 1, Galaxy.getInstance().getDefaultTyped(
 				GlobalPRNG.class).getEngine());
 	}
 
+	public void setup(final ParameterDatabase parameters, final Parameter base) {
+		dispatchBatchSize = parameters.getIntWithDefault(base
+				.push(ConnectionManager.P_DISPATCH_BATCH), null, dispatchBatchSize);
+		if (dispatchBatchSize < 1) {
+			ConnectionManager.logger.error("Invalid "
+					+ ConnectionManager.P_DISPATCH_BATCH + ": " + dispatchBatchSize
+					+ " ! 1 is used instead.");
+			dispatchBatchSize = 1;
+		}
+
+		batchAdvice = parameters.getBoolean(base
+				.push(ConnectionManager.P_BATCH_ADVICE), null, batchAdvice);
+	}
+
+	public boolean isAdviceBatched() {
+		return batchAdvice;
+	}
+
+	/**
+	 * holds the response to a trader's profit post until the profits of all the
+	 * traders that posted on the previous day are in, or those of them still
+	 * connected, and then answers all the posts waiting with market selection
+	 * advice computed in one batch, after every profit has been credited to the
+	 * advisor it was earned with. On the first day no post is expected, so each
+	 * is answered right away.
+	 * 
+	 * @param session
+	 *          the session that processed the profit post.
+	 */
+	public void awaitAdvice(final ConnectionAdaptor.PostProfitSession session) {
+		synchronized (adviceWaiters) {
+			adviceWaiters.add(session);
+			posters.add(session.getClientId());
+		}
+
+		releaseAdvice(false);
+	}
+
+	/**
+	 * computes the market selection advice for the traders waiting and sends it
+	 * to them.
+	 * 
+	 * @param force
+	 *          true to give advice even if some posts expected have yet to come.
+	 */
+	protected void releaseAdvice(final boolean force) {
+		final ConnectionAdaptor.PostProfitSession sessions[];
+		final Advice advice[];
+		synchronized (adviceWaiters) {
+			if (adviceWaiters.isEmpty()) {
+				return;
+			}
+
+			if (!force) {
+				for (final String clientId : expectedPosters) {
+					if (!posters.contains(clientId) && adaptors.containsKey(clientId)) {
+						return;
+					}
+				}
+			}
+
+			sessions = adviceWaiters
+					.toArray(new ConnectionAdaptor.PostProfitSession[adviceWaiters
+							.size()]);
+			adviceWaiters.clear();
+
+			final SocialNetworkRegistry registry = (SocialNetworkRegistry) controller
+					.getRegistry();
+			advice = new Advice[sessions.length];
+			for (int i = 0; i < sessions.length; i++) {
+				advice[i] = registry.getMarketSelectionStrategy().queryMatrix(
+						sessions[i].getClientId());
+			}
+		}
+
+		// sent without the lock, as a client may react to the advice right away
+		for (int i = 0; i < sessions.length; i++) {
+			sessions[i].answer(advice[i]);
+		}
+	}
+
 	public IdentityOffice getIdentityOffice() {
 		return identityOffice;
 	}
 
+	public String getTag() {
+		return tag;
+	}
+
 	/**
 	 * terminiates the connections and the event dispatcher.
 	 */
 	public void terminate() {
 		stopAcceptingConnection();
+		if (dispatcher instanceof BlockingDispatcher) {
+			ConnectionManager.logger.debug(dispatcher);
+		}
 		dispatcher.terminate();
 
 		// TODO: remove all adaptors
@@ -148,8 +307,8 @@ public final class ConnectionManager extends Thread implements
 			dispatcher = new PrioritySynchronousDispatcher(
 					new EventBeforeMessageComparator());
 		} else {
-			dispatcher = new PriorityAsynchronousDispatcher(
-					new EventBeforeMessageComparator());
+			dispatcher = new BlockingDispatcher(new EventBeforeMessageComparator(),
+					dispatchBatchSize);
 		}
 
 		ConnectionManager.logger.debug("server listening ...");
@@ -212,7 +371,7 @@ public final class ConnectionManager extends Thread implements
 		if (adaptor.isTrader()) {
 			/* TODO: different types of adaptor for traders and specialists */
 			adaptor.setValuer(controller.getValuerFactory().createValuer(
-					adaptor.isSeller()));
+					adaptor.getClientId(), adaptor.isSeller()));
 
 			// show info only after specialists begin to check in to avoid too much
 			// log
@@ -249,7 +408,7 @@ public final class ConnectionManager extends Thread implements
 		if ((event instanceof GameStartingEvent)
 				|| (event instanceof DayOpeningEvent)
 				|| (event instanceof GameOverEvent)) {
-			ConnectionAdaptor.tag = String.valueOf(event.getDay());
+			tag = String.valueOf(event.getDay());
 
 			/* if synchronous infrastructure is used, no need to wait for new clients */
 			if (event instanceof GameStartingEvent) {
@@ -257,6 +416,27 @@ public final class ConnectionManager extends Thread implements
 					stopAcceptingConnection();
 				}
 			}
+
+			if (event instanceof DayOpeningEvent) {
+				synchronized (adviceWaiters) {
+					expectedPosters = posters;
+					posters = new HashSet<String>();
+				}
+			}
+		} else if ((event instanceof RoundOpenedEvent) && (event.getRound() == 0)) {
+			/*
+			 * the posts that never came are not waited for any longer, so that the
+			 * traders waiting can still choose a market
+			 */
+			synchronized (adviceWaiters) {
+				if (!adviceWaiters.isEmpty()) {
+					final Set<String> missing = new HashSet<String>(expectedPosters);
+					missing.removeAll(posters);
+					ConnectionManager.logger.warn("Profits of " + missing
+							+ " not posted when the day opened !");
+				}
+			}
+			releaseAdvice(true);
 		}
 
 		ConnectionAdaptor adaptor = null;
@@ -282,6 +462,9 @@ public final class ConnectionManager extends Thread implements
 
 				removeAdaptor(client.getId());
 
+				// the advice of the day may have been waiting for the client
+				releaseAdvice(false);
+
 				/*
 				 * this may be normal when the simulation terminates, or problematic
 				 * during a game
@@ -38,6 +38,7 @@ import edu.cuny.cat.event.RoundOpenedEvent;
 import edu.cuny.cat.event.SimulationOverEvent;
 import edu.cuny.cat.event.SimulationStartedEvent;
 import edu.cuny.cat.registry.Registry;
+import edu.cuny.prng.GlobalPRNG;
 import edu.cuny.util.Galaxy;
 import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
@@ -72,6 +73,13 @@ import edu.cuny.util.SyncTask;
  * </p>
  * 
  * <p>
+ * In the virtual mode, turned on by {@link VirtualClockController}, the clock
+ * never sleeps. Each period that would otherwise be slept through advances a
+ * virtual time instead, and ticks are measured against the virtual time, so a
+ * phase ends as soon as every client has responded to the event opening it.
+ * </p>
+ * 
+ * <p>
  * <b>Parameters</b>
  * </p>
  * <table>
@@ -223,6 +231,16 @@ public class GameClock implements Parameterizable, Runnable {
 
 	private long syncAdjustment;
 
+	/**
+	 * whether the clock runs on virtual time
+	 */
+	protected boolean virtual;
+
+	/**
+	 * the virtual time in milliseconds, advanced only by {@link #sleep(int)}
+	 */
+	protected long virtualTime;
+
 	protected CatpInfrastructure infrast;
 
 	static Logger logger = Logger.getLogger(GameClock.class);
@@ -301,19 +319,29 @@ public class GameClock implements Parameterizable, Runnable {
 
 		registry = GameController.getInstance().getRegistry();
 
-		AuctionEvent event = new SimulationStartedEvent();
-		fireEvent(event);
+		// random number generators created by the server while it processes the
+		// events of the clock are seeded in the scope of the clock rather than by
+		// the order in which threads obtain them
+		final GlobalPRNG prng = Galaxy.getInstance().getTyped(Game.P_CAT,
+				GlobalPRNG.class);
+		final GlobalPRNG.Scope previous = prng.enterScope("clock");
+		try {
+			AuctionEvent event = new SimulationStartedEvent();
+			fireEvent(event);
+
+			for (int i = 0; i < iterations; i++) {
+				GameClock.logger.info("\n\n");
+				GameClock.logger.info("Game " + i + "  (" + iterations + ")\n");
+				game();
+				sleep(gameBreak);
+			}
 
-		for (int i = 0; i < iterations; i++) {
-			GameClock.logger.info("\n\n");
-			GameClock.logger.info("Game " + i + "  (" + iterations + ")\n");
-			game();
-			sleep(gameBreak);
+			event = new SimulationOverEvent();
+			fireEvent(event);
+		} finally {
+			prng.exitScope(previous);
 		}
 
-		event = new SimulationOverEvent();
-		fireEvent(event);
-
 		dispose();
 	}
 
@@ -375,7 +403,9 @@ public class GameClock implements Parameterizable, Runnable {
 		fireEvent(event);
 		// logger.info("Game over.\n");
 
-		new PlaySound("ohyeah.wav").start();
+		if (!virtual) {
+			new PlaySound("ohyeah.wav").start();
+		}
 
 		syncTask.sync();
 	}
@@ -464,16 +494,16 @@ public class GameClock implements Parameterizable, Runnable {
 	}
 
 	private synchronized void adjustTicksStart() {
-		adjustmentStart = System.currentTimeMillis();
+		adjustmentStart = currentTimeMillis();
 	}
 
 	private synchronized void adjustTicksEnd() {
-		syncAdjustment += System.currentTimeMillis() - adjustmentStart;
+		syncAdjustment += currentTimeMillis() - adjustmentStart;
 		adjustmentStart = -1;
 	}
 
 	private void round() {
-		round_start = System.currentTimeMillis();
+		round_start = currentTimeMillis();
 		resetTicksAdjustment();
 
 		syncTask.setTag(CatpMessage.ROUNDOPENED);
@@ -518,6 +548,13 @@ public class GameClock implements Parameterizable, Runnable {
 	}
 
 	private void sleep(final int milliseconds) {
+		if (virtual) {
+			synchronized (this) {
+				virtualTime += milliseconds;
+			}
+			return;
+		}
+
 		try {
 			if (!infrast.isSynchronous()) {
 				Thread.sleep(milliseconds);
@@ -527,6 +564,34 @@ public class GameClock implements Parameterizable, Runnable {
 		}
 	}
 
+	/**
+	 * @return the virtual time in the virtual mode, or the current time in
+	 *         milliseconds otherwise.
+	 */
+	private synchronized long currentTimeMillis() {
+		if (virtual) {
+			return virtualTime;
+		} else {
+			return System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * turns the virtual mode on or off, which should be done before the clock
+	 * starts.
+	 * 
+	 * @param virtual
+	 *          true if the clock is to run on virtual time.
+	 */
+	public synchronized void setVirtual(final boolean virtual) {
+		this.virtual = virtual;
+		virtualTime = 0;
+	}
+
+	public synchronized boolean isVirtual() {
+		return virtual;
+	}
+
 	public int[] getTime() {
 		return new int[] { getDay(), getRound(), getTick() };
 	}
@@ -549,7 +614,7 @@ public class GameClock implements Parameterizable, Runnable {
 			tick = 0;
 		} else {
 			if (adjustmentStart < 0) {
-				tick = (int) (System.currentTimeMillis() - round_start - syncAdjustment);
+				tick = (int) (currentTimeMillis() - round_start - syncAdjustment);
 			} else {
 				tick = (int) (adjustmentStart - round_start - syncAdjustment);
 			}
@@ -20,6 +20,7 @@ import java.util.Observable;
 import org.apache.log4j.Logger;
 
 import edu.cuny.cat.Game;
+import edu.cuny.cat.GameContext;
 import edu.cuny.cat.comm.CatpInfrastructure;
 import edu.cuny.cat.event.AuctionEvent;
 import edu.cuny.cat.event.AuctionEventListener;
@@ -84,7 +85,13 @@ import edu.cuny.util.Utils;
  * cat.server.clockcontroller = edu.cuny.cat.server.SynchronousClockController
  * </pre>
  * 
- * for synchronous communication mode.
+ * for synchronous communication mode. To run a game in either mode without
+ * waiting for the periods configured for the game clock to elapse, use
+ * 
+ * <pre>
+ * cat.server.clockcontroller = edu.cuny.cat.server.VirtualClockController
+ * </pre>
+ * 
  * </ul>
  * </p>
  * 
@@ -153,8 +160,6 @@ public final class GameController extends Observable implements
 
 	protected Registry registry;
 
-	protected static GameController instance;
-
 	protected GameClock clock;
 
 	protected ClockController clockController;
@@ -182,11 +187,12 @@ public final class GameController extends Observable implements
 	protected boolean dailyGC = false;
 
 	public GameController() {
-		if (GameController.instance != null) {
+		final Galaxy galaxy = Galaxy.getInstance();
+		if (galaxy.getSingleton(GameController.class) != null) {
 			GameController.logger.error(getClass().getSimpleName()
 					+ " can only be instantiated once !");
 		}
-		GameController.instance = this;
+		galaxy.putSingleton(GameController.class, this);
 
 		clock = new GameClock();
 		clock.addAuctionEventListener(this);
@@ -208,8 +214,11 @@ public final class GameController extends Observable implements
 		securityManager = new SecurityManager();
 	}
 
+	/**
+	 * @return the controller of the game in the current {@link Galaxy}.
+	 */
 	public static GameController getInstance() {
-		return GameController.instance;
+		return Galaxy.getInstance().getSingleton(GameController.class);
 	}
 
 	public void setup(final ParameterDatabase parameters, final Parameter base) {
@@ -232,6 +241,8 @@ public final class GameController extends Observable implements
 		shoutValidator.setup(parameters, base.push(ShoutValidator.P_DEF_BASE));
 		chargeValidator.setup(parameters, base.push(ChargeValidator.P_DEF_BASE));
 
+		connManager.setup(parameters, base);
+
 		valuerFactory.setup(parameters, base.push(ValuerFactory.P_DEF_BASE));
 		GameController.logger.info(Utils.indent(valuerFactory.toString()));
 
@@ -320,12 +331,23 @@ public final class GameController extends Observable implements
 	}
 
 	public void dispose() {
-		GameController.instance = null;
+		Galaxy.getInstance().removeSingleton(GameController.class);
+
+		final GameContext context = GameContext.getCurrent();
+		if (context != null) {
+			context.gameOver();
+		}
 	}
 
 	public void exit() {
 		dispose();
 
+		if (GameContext.getCurrent() != null) {
+			// other games may still be running in the JVM, and the context of this
+			// game cleans up after it.
+			return;
+		}
+
 		Game.cleanupObjectRegistry();
 
 		GameController.logger.info("server quitted.");
@@ -17,8 +17,11 @@ package edu.cuny.cat.server;
 
 import org.apache.log4j.Logger;
 
+import edu.cuny.cat.Game;
 import edu.cuny.cat.valuation.ValuationPolicy;
 import edu.cuny.cat.valuation.ValuerGenerator;
+import edu.cuny.prng.GlobalPRNG;
+import edu.cuny.util.Galaxy;
 import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
 import edu.cuny.util.Parameterizable;
@@ -95,14 +98,28 @@ public final class ValuerFactory implements Parameterizable {
 		}
 	}
 
-	public ValuationPolicy createValuer(final boolean isSeller) {
-		ValuationPolicy valuer = null;
-		if (isSeller) {
-			valuer = sellerValuerGenerator.createValuer();
-		} else {
-			valuer = buyerValuerGenerator.createValuer();
+	/**
+	 * creates the valuer of a trader. The random number generators it uses are
+	 * seeded by the id of the trader rather than by the order in which traders
+	 * check in.
+	 */
+	public ValuationPolicy createValuer(final String traderId,
+			final boolean isSeller) {
+		final GlobalPRNG prng = Galaxy.getInstance().getTyped(Game.P_CAT,
+				GlobalPRNG.class);
+		final GlobalPRNG.Scope previous = prng.enterScope(ValuerFactory.P_DEF_BASE
+				+ "." + traderId);
+		try {
+			ValuationPolicy valuer = null;
+			if (isSeller) {
+				valuer = sellerValuerGenerator.createValuer();
+			} else {
+				valuer = buyerValuerGenerator.createValuer();
+			}
+			return valuer;
+		} finally {
+			prng.exitScope(previous);
 		}
-		return valuer;
 	}
 
 	@Override
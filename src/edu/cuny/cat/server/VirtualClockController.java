@@ -0,0 +1,113 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.server;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.comm.CatpInfrastructure;
+import edu.cuny.util.Galaxy;
+import edu.cuny.util.Parameter;
+import edu.cuny.util.ParameterDatabase;
+
+/**
+ * <p>
+ * A clock controller that runs the game clock on virtual time, so that the
+ * clock moves from one phase of a game to the next as soon as all clients have
+ * responded, rather than after the periods of game initialization, day
+ * initialization, rounds, breaks, etc. have elapsed. Events are fired in the
+ * same order as with the other clock controllers.
+ * </p>
+ *
+ * <p>
+ * With a synchronous infrastructure, the clock runs in the calling thread, as
+ * with {@link SynchronousClockController}. With an asynchronous one, the clock
+ * runs in its own thread and, as with {@link AutoClockController}, a start
+ * delay can be specified for remote clients to connect. Both delays are in
+ * real time and default to 0.
+ * </p>
+ *
+ * <p>
+ * <b>Parameters</b>
+ * </p>
+ *
+ * <table>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.startdelay</tt><br>
+ * <font size=-1>int >=0 (0 by default)</font></td>
+ * <td valign=top>(the number of milliseconds to wait before starting the game
+ * clock)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.exitdelay</tt><br>
+ * <font size=-1>int >=0 (0 by default)</font></td>
+ * <td valign=top>(the number of milliseconds to wait before quiting the game
+ * after the clock stops)</td>
+ * </tr>
+ *
+ * </table>
+ *
+ * @see GameClock#setVirtual(boolean)
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class VirtualClockController extends AutoClockController {
+
+	static Logger logger = Logger.getLogger(VirtualClockController.class);
+
+	@Override
+	public void setup(final ParameterDatabase parameters, final Parameter base) {
+		startDelay = parameters.getIntWithDefault(base
+				.push(AutoClockController.P_STARTDELAY), null, 0);
+		exitDelay = parameters.getIntWithDefault(base
+				.push(AutoClockController.P_EXITDELAY), null, 0);
+	}
+
+	@Override
+	public void start() {
+		if (startDelay > 0) {
+			super.start();
+		} else {
+			startClock();
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (exitDelay > 0) {
+			super.stop();
+		} else {
+			quitGame();
+		}
+	}
+
+	@Override
+	protected void startClock() {
+		final GameClock clock = GameController.getInstance().getClock();
+		clock.setVirtual(true);
+
+		if (Galaxy.getInstance().getDefaultTyped(CatpInfrastructure.class)
+				.isSynchronous()) {
+			// runs the game in a synchronous way, without starting a thread
+			clock.run();
+		} else {
+			clock.start();
+		}
+	}
+}
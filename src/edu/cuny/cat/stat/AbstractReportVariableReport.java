@@ -179,6 +179,14 @@ public abstract class AbstractReportVariableReport implements GameReport,
 		}
 	}
 
+	/**
+	 * @return the names of the report variables of interest, with the wildcards
+	 *         replaced once the simulation starts.
+	 */
+	public String[] getVarNames() {
+		return varNames;
+	}
+
 	public abstract void produceUserOutput();
 
 	public abstract Map<ReportVariable, ?> getVariables();
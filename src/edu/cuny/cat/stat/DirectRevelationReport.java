@@ -15,7 +15,6 @@
 
 package edu.cuny.cat.stat;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -27,16 +26,21 @@ import edu.cuny.cat.core.Trader;
 import edu.cuny.cat.event.AuctionEvent;
 import edu.cuny.cat.event.DayOpenedEvent;
 import edu.cuny.cat.event.GameStartingEvent;
-import edu.cuny.cat.market.DuplicateShoutException;
-import edu.cuny.cat.market.matching.FourHeapShoutEngine;
+import edu.cuny.cat.market.IncrementalEquilibriumCalculator;
 import edu.cuny.cat.server.GameController;
 import edu.cuny.util.Resetable;
 
 /**
  * <p>
- * A report that uses {@link edu.cuny.cat.market.matching.FourHeapShoutEngine}
- * to process shouts at specialists to make theoretical analysis later on (in
- * subclasses).
+ * A report that keeps the truthful shouts of traders at specialists in
+ * {@link edu.cuny.cat.market.IncrementalEquilibriumCalculator}s to make
+ * theoretical analysis later on (in subclasses).
+ * </p>
+ * 
+ * <p>
+ * The truthful shouts are kept from day to day, and only those of traders
+ * that moved to another specialist, or whose private value or entitlement
+ * changed, are replaced when {@link #calculate()} is called.
  * </p>
  * 
  * @author Kai Cai
@@ -48,24 +52,25 @@ public abstract class DirectRevelationReport implements GameReport, Resetable {
 	/**
 	 * The auction state after forced direct revelation.
 	 */
-	protected FourHeapShoutEngine globalShoutEngine;
+	protected IncrementalEquilibriumCalculator globalEquilibrium;
 
-	protected Map<String, FourHeapShoutEngine> shoutEngines;
+	protected Map<String, IncrementalEquilibriumCalculator> equilibria;
 
 	Trader[] traders;
 
 	/**
-	 * The truthful shouts of all traders in the auction.
+	 * The truthful shouts of traders in the auction, indexed by the ids of
+	 * traders.
 	 */
-	protected ArrayList<Shout> shouts;
+	protected Map<String, Revelation> shouts;
 
 	static Logger logger = Logger.getLogger(DirectRevelationReport.class);
 
 	public DirectRevelationReport() {
-		shouts = new ArrayList<Shout>();
-		shoutEngines = Collections
-				.synchronizedMap(new HashMap<String, FourHeapShoutEngine>());
-		globalShoutEngine = new FourHeapShoutEngine();
+		shouts = new HashMap<String, Revelation>();
+		equilibria = Collections
+				.synchronizedMap(new HashMap<String, IncrementalEquilibriumCalculator>());
+		globalEquilibrium = new IncrementalEquilibriumCalculator();
 	}
 
 	public void reset() {
@@ -74,26 +79,27 @@ public abstract class DirectRevelationReport implements GameReport, Resetable {
 		final String specialistIds[] = GameController.getInstance().getRegistry()
 				.getSpecialistIds();
 		for (final String specialistId : specialistIds) {
-			final FourHeapShoutEngine shoutEngine = shoutEngines.get(specialistId);
-			if (shoutEngine != null) {
-				shoutEngine.reset();
+			final IncrementalEquilibriumCalculator equilCal = equilibria
+					.get(specialistId);
+			if (equilCal != null) {
+				equilCal.reset();
 			}
 		}
 
-		globalShoutEngine.reset();
+		globalEquilibrium.reset();
 	}
 
 	public void calculate() {
-		reset();
 		simulateDirectRevelation();
 	}
 
 	public void eventOccurred(final AuctionEvent event) {
 		if (event instanceof GameStartingEvent) {
+			reset();
 			final String specialistIds[] = GameController.getInstance().getRegistry()
 					.getSpecialistIds();
 			for (final String specialistId : specialistIds) {
-				shoutEngines.put(specialistId, new FourHeapShoutEngine());
+				equilibria.put(specialistId, new IncrementalEquilibriumCalculator());
 			}
 		} else if (event instanceof DayOpenedEvent) {
 			traders = GameController.getInstance().getRegistry().getTraders();
@@ -109,22 +115,34 @@ public abstract class DirectRevelationReport implements GameReport, Resetable {
 			final double value = traders[i].getPrivateValue();
 			final boolean isBid = !traders[i].isSeller();
 			final String specialistId = traders[i].getSpecialistId();
-			final Shout shout = new Shout(quantity, value, isBid);
-			shout.setTrader(traders[i]);
-			shouts.add(shout);
-			final FourHeapShoutEngine shoutEngine = shoutEngines.get(specialistId);
-
-			// TODO: when traders have different entitlement, strange things may
-			// happen !
-
-			try {
-				if (shoutEngine != null) {
-					shoutEngine.newShout(shout);
-					globalShoutEngine.newShout(shout);
+
+			Revelation revelation = shouts.get(traders[i].getId());
+			if (revelation != null) {
+				if (revelation.isAt(specialistId)
+						&& (revelation.shout.getQuantity() == quantity)
+						&& (revelation.shout.getPrice() == value)
+						&& (revelation.shout.isBid() == isBid)) {
+					continue;
 				}
-			} catch (final DuplicateShoutException e) {
-				DirectRevelationReport.logger.error(e.getMessage());
-				throw new Error(e);
+
+				// TODO: when traders have different entitlement, strange things may
+				// happen !
+
+				equilibria.get(revelation.specialistId).removeShout(revelation.shout);
+				globalEquilibrium.removeShout(revelation.shout);
+				shouts.remove(traders[i].getId());
+			}
+
+			final IncrementalEquilibriumCalculator equilCal = (specialistId == null) ? null
+					: equilibria.get(specialistId);
+			if (equilCal != null) {
+				final Shout shout = new Shout(quantity, value, isBid);
+				shout.setTrader(traders[i]);
+				revelation = new Revelation(specialistId, shout);
+				shouts.put(traders[i].getId(), revelation);
+
+				equilCal.newShout(shout);
+				globalEquilibrium.newShout(shout);
 			}
 		}
 	}
@@ -133,4 +151,23 @@ public abstract class DirectRevelationReport implements GameReport, Resetable {
 	public String toString() {
 		return getClass().getSimpleName();
 	}
+
+	/**
+	 * the truthful shout of a trader and the specialist it is placed at.
+	 */
+	protected static class Revelation {
+
+		protected final String specialistId;
+
+		protected final Shout shout;
+
+		public Revelation(final String specialistId, final Shout shout) {
+			this.specialistId = specialistId;
+			this.shout = shout;
+		}
+
+		public boolean isAt(final String specialistId) {
+			return this.specialistId.equals(specialistId);
+		}
+	}
 }
@@ -0,0 +1,375 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.stat;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.core.Shout;
+
+/**
+ * <p>
+ * The belief function of a GD trader, i.e., the probability of a shout at each
+ * distinct price in the shout history being accepted, evaluated in a single
+ * merged pass over the sorted prices of asks, bids, accepted asks and accepted
+ * bids rather than by a separate counting query at each price.
+ * </p>
+ *
+ * <p>
+ * For a buyer, the probability at price p is
+ *
+ * <pre>
+ *   TBL(p) + AL(p)
+ *   ---------------------------
+ *   TBL(p) + AL(p) + RBG(p)
+ * </pre>
+ *
+ * where TBL is the number of taken bids below p, AL the number of asks below
+ * p, and RBG the number of rejected bids above p. For a seller, it is
+ *
+ * <pre>
+ *   TAG(p) + BG(p)
+ *   ---------------------------
+ *   TAG(p) + BG(p) + RAL(p)
+ * </pre>
+ *
+ * where TAG is the number of taken asks above p, BG the number of bids above
+ * p, and RAL the number of rejected asks below p. Both below and above include
+ * p itself.
+ * </p>
+ *
+ * <p>
+ * An instance is meant to be reused; the arrays only grow.
+ * {@link #validate(HistoricalReport)} recomputes each point by linear scans of
+ * the history and is meant for debugging and tests only.
+ * </p>
+ *
+ * @see edu.cuny.cat.trader.strategy.GDStrategy
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class GDBeliefCurve {
+
+	static Logger logger = Logger.getLogger(GDBeliefCurve.class);
+
+	private static final int INITIAL_CAPACITY = 32;
+
+	protected boolean isBuyer;
+
+	protected double asks[];
+
+	protected int numOfAsks;
+
+	protected double bids[];
+
+	protected int numOfBids;
+
+	protected double acceptedAsks[];
+
+	protected int numOfAcceptedAsks;
+
+	protected double acceptedBids[];
+
+	protected int numOfAcceptedBids;
+
+	protected double prices[];
+
+	protected double probabilities[];
+
+	protected int size;
+
+	public GDBeliefCurve() {
+		asks = new double[GDBeliefCurve.INITIAL_CAPACITY];
+		bids = new double[GDBeliefCurve.INITIAL_CAPACITY];
+		acceptedAsks = new double[GDBeliefCurve.INITIAL_CAPACITY];
+		acceptedBids = new double[GDBeliefCurve.INITIAL_CAPACITY];
+		prices = new double[2 * GDBeliefCurve.INITIAL_CAPACITY];
+		probabilities = new double[2 * GDBeliefCurve.INITIAL_CAPACITY];
+	}
+
+	public void clear() {
+		numOfAsks = 0;
+		numOfBids = 0;
+		numOfAcceptedAsks = 0;
+		numOfAcceptedBids = 0;
+		size = 0;
+	}
+
+	/**
+	 * evaluates the belief function on the shouts in the memory of the given
+	 * report.
+	 */
+	public void compute(final HistoricalReport report, final boolean isBuyer) {
+		clear();
+
+		Iterator<Shout> i = report.asks.iterator();
+		while (i.hasNext()) {
+			final Shout shout = i.next();
+			asks = GDBeliefCurve.append(asks, numOfAsks++, shout.getPrice());
+			if (report.isMatched(shout)) {
+				acceptedAsks = GDBeliefCurve.append(acceptedAsks, numOfAcceptedAsks++,
+						shout.getPrice());
+			}
+		}
+
+		i = report.bids.iterator();
+		while (i.hasNext()) {
+			final Shout shout = i.next();
+			bids = GDBeliefCurve.append(bids, numOfBids++, shout.getPrice());
+			if (report.isMatched(shout)) {
+				acceptedBids = GDBeliefCurve.append(acceptedBids, numOfAcceptedBids++,
+						shout.getPrice());
+			}
+		}
+
+		Arrays.sort(asks, 0, numOfAsks);
+		Arrays.sort(bids, 0, numOfBids);
+		Arrays.sort(acceptedAsks, 0, numOfAcceptedAsks);
+		Arrays.sort(acceptedBids, 0, numOfAcceptedBids);
+
+		compute(isBuyer);
+	}
+
+	/**
+	 * evaluates the belief function on the shouts in the given shared index.
+	 */
+	public void compute(final MarketHistoryIndex index, final boolean isBuyer) {
+		clear();
+
+		index.lock.readLock().lock();
+		try {
+			asks = index.askPrices.copyTo(asks);
+			numOfAsks = index.askPrices.size();
+			bids = index.bidPrices.copyTo(bids);
+			numOfBids = index.bidPrices.size();
+			acceptedAsks = index.acceptedAskPrices.copyTo(acceptedAsks);
+			numOfAcceptedAsks = index.acceptedAskPrices.size();
+			acceptedBids = index.acceptedBidPrices.copyTo(acceptedBids);
+			numOfAcceptedBids = index.acceptedBidPrices.size();
+		} finally {
+			index.lock.readLock().unlock();
+		}
+
+		compute(isBuyer);
+	}
+
+	/**
+	 * walks through the distinct positive prices of asks and bids in ascending
+	 * order, keeping for each sorted list the number of prices lower than and
+	 * the number no higher than the current price.
+	 */
+	protected void compute(final boolean isBuyer) {
+		this.isBuyer = isBuyer;
+
+		if (prices.length < numOfAsks + numOfBids) {
+			prices = new double[2 * (numOfAsks + numOfBids)];
+			probabilities = new double[prices.length];
+		}
+
+		int asksNoHigher = 0;
+		int bidsLower = 0;
+		int bidsNoHigher = 0;
+		int acceptedAsksLower = 0;
+		int acceptedAsksNoHigher = 0;
+		int acceptedBidsLower = 0;
+		int acceptedBidsNoHigher = 0;
+
+		double lastPrice = 0;
+		while (true) {
+			// the lowest price not visited yet
+			double price = Double.POSITIVE_INFINITY;
+			if ((asksNoHigher < numOfAsks) && (asks[asksNoHigher] < price)) {
+				price = asks[asksNoHigher];
+			}
+			if ((bidsNoHigher < numOfBids) && (bids[bidsNoHigher] < price)) {
+				price = bids[bidsNoHigher];
+			}
+			if (price == Double.POSITIVE_INFINITY) {
+				break;
+			}
+
+			asksNoHigher = GDBeliefCurve.advance(asks, numOfAsks, asksNoHigher, price);
+			bidsLower = bidsNoHigher;
+			bidsNoHigher = GDBeliefCurve.advance(bids, numOfBids, bidsNoHigher, price);
+			acceptedAsksLower = GDBeliefCurve.skip(acceptedAsks, numOfAcceptedAsks,
+					acceptedAsksNoHigher, price);
+			acceptedAsksNoHigher = GDBeliefCurve.advance(acceptedAsks,
+					numOfAcceptedAsks, acceptedAsksLower, price);
+			acceptedBidsLower = GDBeliefCurve.skip(acceptedBids, numOfAcceptedBids,
+					acceptedBidsNoHigher, price);
+			acceptedBidsNoHigher = GDBeliefCurve.advance(acceptedBids,
+					numOfAcceptedBids, acceptedBidsLower, price);
+
+			if (price <= lastPrice) {
+				continue;
+			}
+			lastPrice = price;
+
+			if (isBuyer) {
+				final int TBL = acceptedBidsNoHigher;
+				final int AL = asksNoHigher;
+				final int RBG = (numOfBids - bidsLower)
+						- (numOfAcceptedBids - acceptedBidsLower);
+				probabilities[size] = (double) (TBL + AL) / (TBL + AL + RBG);
+			} else {
+				final int TAG = numOfAcceptedAsks - acceptedAsksLower;
+				final int BG = numOfBids - bidsLower;
+				final int RAL = asksNoHigher - acceptedAsksNoHigher;
+				probabilities[size] = (double) (TAG + BG) / (TAG + BG + RAL);
+			}
+			prices[size] = price;
+			size++;
+		}
+	}
+
+	/**
+	 * @return the index of the first element higher than the price, starting
+	 *         from the given index.
+	 */
+	private static int advance(final double sorted[], final int length, int i,
+			final double price) {
+		while ((i < length) && (sorted[i] <= price)) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * @return the index of the first element no lower than the price, starting
+	 *         from the given index.
+	 */
+	private static int skip(final double sorted[], final int length, int i,
+			final double price) {
+		while ((i < length) && (sorted[i] < price)) {
+			i++;
+		}
+		return i;
+	}
+
+	private static double[] append(double array[], final int index,
+			final double value) {
+		if (index == array.length) {
+			array = Arrays.copyOf(array, 2 * index);
+		}
+		array[index] = value;
+		return array;
+	}
+
+	/**
+	 * @return the number of distinct prices the belief function is evaluated at.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the <code>i</code>th distinct price in ascending order.
+	 */
+	public double getPrice(final int i) {
+		return prices[i];
+	}
+
+	/**
+	 * @return the probability of a shout at the <code>i</code>th price being
+	 *         accepted.
+	 */
+	public double getProbability(final int i) {
+		return probabilities[i];
+	}
+
+	/**
+	 * checks the curve against the counts obtained by scanning the shouts in the
+	 * report the curve was computed on.
+	 *
+	 * @return true if every point of the curve matches.
+	 */
+	public boolean validate(final HistoricalReport report) {
+		boolean valid = true;
+
+		for (int i = 0; i < size; i++) {
+			final double price = prices[i];
+			double prob;
+			if (isBuyer) {
+				final int TBL = report.getNumberOfBids(-1 * price, true);
+				final int AL = report.getNumberOfAsks(-1 * price, false);
+				final int RBG = report.getNumberOfBids(price, false)
+						- report.getNumberOfBids(price, true);
+				prob = (double) (TBL + AL) / (TBL + AL + RBG);
+			} else {
+				final int TAG = report.getNumberOfAsks(price, true);
+				final int BG = report.getNumberOfBids(price, false);
+				final int RAL = report.getNumberOfAsks(-1 * price, false)
+						- report.getNumberOfAsks(-1 * price, true);
+				prob = (double) (TAG + BG) / (TAG + BG + RAL);
+			}
+
+			if (Double.compare(prob, probabilities[i]) != 0) {
+				GDBeliefCurve.logger.error("Wrong belief at " + price + ": "
+						+ probabilities[i] + " instead of " + prob + " !");
+				valid = false;
+			}
+		}
+
+		return valid;
+	}
+
+	/**
+	 * checks the curve against the counting queries of the index the curve was
+	 * computed on.
+	 *
+	 * @return true if every point of the curve matches.
+	 */
+	public boolean validate(final MarketHistoryIndex index) {
+		boolean valid = true;
+
+		for (int i = 0; i < size; i++) {
+			final double price = prices[i];
+			double prob;
+			if (isBuyer) {
+				final int TBL = index.getNumOfAcceptedBidsBelow(price);
+				final int AL = index.getNumOfAsksBelow(price);
+				final int RBG = index.getNumOfRejectedBidsAbove(price);
+				prob = (double) (TBL + AL) / (TBL + AL + RBG);
+			} else {
+				final int TAG = index.getNumOfAcceptedAsksAbove(price);
+				final int BG = index.getNumOfBidsAbove(price);
+				final int RAL = index.getNumOfRejectedAsksBelow(price);
+				prob = (double) (TAG + BG) / (TAG + BG + RAL);
+			}
+
+			if (Double.compare(prob, probabilities[i]) != 0) {
+				GDBeliefCurve.logger.error("Wrong belief at " + price + ": "
+						+ probabilities[i] + " instead of " + prob + " !");
+				valid = false;
+			}
+		}
+
+		return valid;
+	}
+
+	@Override
+	public String toString() {
+		String s = getClass().getSimpleName() + (isBuyer ? " (buyer)" : " (seller)");
+		for (int i = 0; i < size; i++) {
+			s += " " + prices[i] + ":" + probabilities[i];
+		}
+		return s;
+	}
+}
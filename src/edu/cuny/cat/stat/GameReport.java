@@ -33,6 +33,7 @@ import java.text.DecimalFormat;
 import java.util.Map;
 
 import edu.cuny.cat.event.AuctionEventListener;
+import edu.cuny.util.SynchronizedDecimalFormat;
 
 /**
  * An interface defined for game logging.
@@ -102,7 +103,7 @@ public interface GameReport extends AuctionEventListener {
 
 	public static String TRANSACTIONRATE = "transactionrate";
 
-	public static DecimalFormat Formatter = new DecimalFormat(
+	public static DecimalFormat Formatter = new SynchronizedDecimalFormat(
 			"+#########0.000;-#########.000");
 
 	/**
@@ -59,6 +59,7 @@ import edu.cuny.cat.event.TransactionPostedEvent;
 import edu.cuny.cat.server.GameController;
 import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
+import edu.cuny.util.PriceHistogram;
 import edu.cuny.util.Resetable;
 import edu.cuny.util.SortedTreeList;
 import edu.cuny.util.Utils;
@@ -78,6 +79,16 @@ import edu.cuny.util.Utils;
  * </p>
  * 
  * <p>
+ * The prices of the shouts may also be kept in a {@link PriceHistogram}, so
+ * that {@link #count(double, HistoryCounts)} answers all the six queries at an
+ * arbitrary price in <code>O(log P)</code> time, where <code>P</code> is the
+ * number of price buckets, without any sorted view to rebuild. The histogram
+ * is only built from the memory when first counted in, and updated as shouts
+ * arrive, get matched and leave the memory from then on, so a report that is
+ * never counted in keeps none.
+ * </p>
+ * 
+ * <p>
  * <b>Parameters </b>
  * 
  * <table>
@@ -87,6 +98,15 @@ import edu.cuny.util.Utils;
  * <td valign=top>(the length of most recent history to be recorded)</td>
  * <tr>
  * 
+ * <tr>
+ * <td valign=top><i>base </i> <tt>.bucketwidth</tt><br>
+ * <font size=-1>double > 0 (1 by default) </font></td>
+ * <td valign=top>(the width of the price buckets of the histogram used to
+ * count shouts; counts are exact whatever the width, which only trades the
+ * depth of the histogram against the number of shouts compared one by one in
+ * a bucket)</td>
+ * <tr>
+ * 
  * </table>
  * 
  * <p>
@@ -121,6 +141,21 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 
 	public static final String P_DEBUG = "debug";
 
+	public static final String P_BUCKETWIDTH = "bucketwidth";
+
+	/**
+	 * the categories of prices in {@link #histogram}.
+	 */
+	public static final int ASKS = 0;
+
+	public static final int BIDS = 1;
+
+	public static final int ACCEPTED_ASKS = 2;
+
+	public static final int ACCEPTED_BIDS = 3;
+
+	public final static double DEFAULT_BUCKETWIDTH = 1;
+
 	/**
 	 * the default size of the memory to contain shouts in terms of the number of
 	 * transactions covered.
@@ -200,6 +235,25 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 	 */
 	protected IncreasingQueryAccelerator accelerator;
 
+	/**
+	 * the prices of asks, bids, matched asks and matched bids in the memory, or
+	 * null until {@link #count(double, HistoryCounts)} is first called.
+	 */
+	protected PriceHistogram histogram;
+
+	/**
+	 * the width of the price buckets of {@link #histogram}.
+	 */
+	protected double bucketWidth = HistoricalReport.DEFAULT_BUCKETWIDTH;
+
+	/**
+	 * the buffers {@link PriceHistogram#count(double, int[], int[])} fills,
+	 * reused by {@link #count(double, HistoryCounts)}.
+	 */
+	private final int atMost[] = new int[4];
+
+	private final int atLeast[] = new int[4];
+
 	/**
 	 * used to make this report observable so that {@link #accelerator} can reset.
 	 */
@@ -255,6 +309,10 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 						.push(HistoricalReport.P_ROUNDRESET), roundReset);
 		isDebugging = parameters.getBoolean(base.push(HistoricalReport.P_DEBUG),
 				defBase.push(HistoricalReport.P_DEBUG), isDebugging);
+		bucketWidth = parameters.getDoubleWithDefault(base
+				.push(HistoricalReport.P_BUCKETWIDTH), defBase
+				.push(HistoricalReport.P_BUCKETWIDTH), bucketWidth);
+		histogram = null;
 	}
 
 	public void initialize() {
@@ -284,6 +342,9 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 
 		matchedShouts.clear();
 		sortedShouts.clear();
+		if (histogram != null) {
+			histogram.clear();
+		}
 
 		shoutMap.clear();
 
@@ -306,6 +367,10 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 		return memorySize;
 	}
 
+	public boolean isRoundReset() {
+		return roundReset;
+	}
+
 	public boolean isDebugging() {
 		return isDebugging;
 	}
@@ -359,7 +424,15 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 						+ sortedShouts.getCount(shout) + " " + shout);
 			}
 
-			matchedShouts.remove(shout);
+			final boolean matched = matchedShouts.remove(shout);
+			if (histogram != null) {
+				histogram.remove(shout.isAsk() ? HistoricalReport.ASKS
+						: HistoricalReport.BIDS, shout.getPrice());
+				if (matched) {
+					histogram.remove(shout.isAsk() ? HistoricalReport.ACCEPTED_ASKS
+							: HistoricalReport.ACCEPTED_BIDS, shout.getPrice());
+				}
+			}
 
 			// if the shout is the last one with the id, remove its record in shoutMap
 			if (shout == getMappedShout(shout.getId())) {
@@ -380,7 +453,10 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 			if (lastPlaced.getPrice() == matched.getPrice()) {
 				// matching record
 				lastPlaced.setState(Shout.MATCHED);
-				matchedShouts.add(lastPlaced);
+				if (matchedShouts.add(lastPlaced) && (histogram != null)) {
+					histogram.add(lastPlaced.isAsk() ? HistoricalReport.ACCEPTED_ASKS
+							: HistoricalReport.ACCEPTED_BIDS, lastPlaced.getPrice());
+				}
 			} else {
 				// price doesn't match, the latest update is missing somehow, so make it
 				// up
@@ -642,6 +718,9 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 
 		if (shout.isAsk()) {
 			asks.add(shout);
+			if (histogram != null) {
+				histogram.add(HistoricalReport.ASKS, shout.getPrice());
+			}
 			memoryAsks[currentMemoryCell]++;
 			if (shout.getPrice() < lowestAskPrice) {
 				lowestAskPrice = shout.getPrice();
@@ -653,6 +732,9 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 			}
 		} else {
 			bids.add(shout);
+			if (histogram != null) {
+				histogram.add(HistoricalReport.BIDS, shout.getPrice());
+			}
 			memoryBids[currentMemoryCell]++;
 			if (shout.getPrice() > highestBidPrice) {
 				highestBidPrice = shout.getPrice();
@@ -685,6 +767,10 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 			//
 			//
 			matchedShouts.clear();
+			if (histogram != null) {
+				histogram.clear(HistoricalReport.ACCEPTED_ASKS);
+				histogram.clear(HistoricalReport.ACCEPTED_BIDS);
+			}
 		}
 
 		initializePriceRanges();
@@ -876,6 +962,62 @@ public class HistoricalReport implements GameReport, Serializable, Resetable {
 		return numShouts;
 	}
 
+	/**
+	 * counts the shouts in the memory on either side of the price that the GD
+	 * belief function needs, with a single probe of {@link #histogram}, which
+	 * is built from the memory on the first call.
+	 * 
+	 * @param counts
+	 *          where the counts are put
+	 * @return <code>counts</code>
+	 */
+	public HistoryCounts count(final double price, final HistoryCounts counts) {
+		if (histogram == null) {
+			histogram = buildHistogram();
+		}
+		histogram.count(price, atMost, atLeast);
+
+		counts.price = price;
+		counts.numOfAsksBelow = atMost[HistoricalReport.ASKS];
+		counts.numOfBidsAbove = atLeast[HistoricalReport.BIDS];
+		counts.numOfAcceptedAsksAbove = atLeast[HistoricalReport.ACCEPTED_ASKS];
+		counts.numOfAcceptedBidsBelow = atMost[HistoricalReport.ACCEPTED_BIDS];
+		counts.numOfRejectedAsksBelow = atMost[HistoricalReport.ASKS]
+				- atMost[HistoricalReport.ACCEPTED_ASKS];
+		counts.numOfRejectedBidsAbove = atLeast[HistoricalReport.BIDS]
+				- atLeast[HistoricalReport.ACCEPTED_BIDS];
+
+		return counts;
+	}
+
+	/**
+	 * @return a histogram of the prices of the shouts in the memory.
+	 */
+	protected PriceHistogram buildHistogram() {
+		final PriceHistogram histogram = new PriceHistogram(4, bucketWidth);
+		for (final Shout ask : asks) {
+			histogram.add(HistoricalReport.ASKS, ask.getPrice());
+		}
+		for (final Shout bid : bids) {
+			histogram.add(HistoricalReport.BIDS, bid.getPrice());
+		}
+		synchronized (matchedShouts) {
+			for (final Shout shout : matchedShouts) {
+				histogram.add(shout.isAsk() ? HistoricalReport.ACCEPTED_ASKS
+						: HistoricalReport.ACCEPTED_BIDS, shout.getPrice());
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * @return the histogram of the prices of the shouts in the memory, or null
+	 *         if the report has not been counted in yet.
+	 */
+	public PriceHistogram getPriceHistogram() {
+		return histogram;
+	}
+
 	public void produceUserOutput() {
 	}
 
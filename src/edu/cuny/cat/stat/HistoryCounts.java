@@ -0,0 +1,125 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.stat;
+
+/**
+ * <p>
+ * The numbers of shouts in a {@link HistoricalReport} on either side of a
+ * price that the GD belief function needs, all counted by
+ * {@link HistoricalReport#count(double, HistoryCounts)} at once. An instance
+ * is meant to be reused from one query to the next.
+ * </p>
+ *
+ * @see edu.cuny.cat.trader.strategy.GDStrategy
+ * @see edu.cuny.cat.market.accepting.HistoryBasedAcceptingPolicy
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class HistoryCounts {
+
+	/**
+	 * the price counted about.
+	 */
+	protected double price;
+
+	protected int numOfAsksBelow;
+
+	protected int numOfBidsAbove;
+
+	protected int numOfAcceptedAsksAbove;
+
+	protected int numOfAcceptedBidsBelow;
+
+	protected int numOfRejectedAsksBelow;
+
+	protected int numOfRejectedBidsAbove;
+
+	public double getPrice() {
+		return price;
+	}
+
+	/**
+	 * @return the number of asks no higher than the price.
+	 */
+	public int getNumOfAsksBelow() {
+		return numOfAsksBelow;
+	}
+
+	/**
+	 * @return the number of bids no lower than the price.
+	 */
+	public int getNumOfBidsAbove() {
+		return numOfBidsAbove;
+	}
+
+	/**
+	 * @return the number of matched asks no lower than the price.
+	 */
+	public int getNumOfAcceptedAsksAbove() {
+		return numOfAcceptedAsksAbove;
+	}
+
+	/**
+	 * @return the number of matched bids no higher than the price.
+	 */
+	public int getNumOfAcceptedBidsBelow() {
+		return numOfAcceptedBidsBelow;
+	}
+
+	/**
+	 * @return the number of unmatched asks no higher than the price.
+	 */
+	public int getNumOfRejectedAsksBelow() {
+		return numOfRejectedAsksBelow;
+	}
+
+	/**
+	 * @return the number of unmatched bids no lower than the price.
+	 */
+	public int getNumOfRejectedBidsAbove() {
+		return numOfRejectedBidsAbove;
+	}
+
+	/**
+	 * @return the probability of a bid at the price being matched, i.e.,
+	 *         <code>(TBL + AL) / (TBL + AL + RBG)</code>, which is NaN if there
+	 *         is no shout on either side.
+	 */
+	public double getBidProbability() {
+		return (double) (numOfAcceptedBidsBelow + numOfAsksBelow)
+				/ (numOfAcceptedBidsBelow + numOfAsksBelow + numOfRejectedBidsAbove);
+	}
+
+	/**
+	 * @return the probability of an ask at the price being matched, i.e.,
+	 *         <code>(TAG + BG) / (TAG + BG + RAL)</code>, which is NaN if there
+	 *         is no shout on either side.
+	 */
+	public double getAskProbability() {
+		return (double) (numOfAcceptedAsksAbove + numOfBidsAbove)
+				/ (numOfAcceptedAsksAbove + numOfBidsAbove + numOfRejectedAsksBelow);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " price:" + price + " AL:"
+				+ numOfAsksBelow + " BG:" + numOfBidsAbove + " TAG:"
+				+ numOfAcceptedAsksAbove + " TBL:" + numOfAcceptedBidsBelow + " RAL:"
+				+ numOfRejectedAsksBelow + " RBG:" + numOfRejectedBidsAbove;
+	}
+}
@@ -0,0 +1,504 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.stat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * The shout history of a single specialist, kept the same way as
+ * {@link HistoricalReport} does, i.e., the shouts that lead to the last N
+ * transactions, but meant to be shared by all the GD traders in the market
+ * through {@link SharedMarketHistory} rather than duplicated in each of them.
+ * </p>
+ *
+ * <p>
+ * Besides the shouts in the order they arrive, the prices of all asks, all
+ * bids, accepted asks and accepted bids are kept in sorted arrays, so that each
+ * of the counting queries GD needs is answered with a binary search, without
+ * the per-reader iterator state of
+ * {@link HistoricalReport.IncreasingQueryAccelerator}. Updates take a write
+ * lock and queries a read lock.
+ * </p>
+ *
+ * @see SharedMarketHistory
+ * @see edu.cuny.cat.trader.strategy.GDStrategy
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class MarketHistoryIndex {
+
+	static Logger logger = Logger.getLogger(MarketHistoryIndex.class);
+
+	protected final String specialistId;
+
+	protected final int memorySize;
+
+	protected final boolean roundReset;
+
+	/**
+	 * asks in the order they arrive.
+	 */
+	protected final LinkedList<Entry> asks;
+
+	/**
+	 * bids in the order they arrive.
+	 */
+	protected final LinkedList<Entry> bids;
+
+	/**
+	 * a mapping from shout IDs to the latest version of those shouts in the
+	 * memory.
+	 */
+	protected final Map<String, Entry> shoutMap;
+
+	protected final int memoryAsks[];
+
+	protected final int memoryBids[];
+
+	protected int currentMemoryCell;
+
+	protected final PriceList askPrices;
+
+	protected final PriceList bidPrices;
+
+	protected final PriceList acceptedAskPrices;
+
+	protected final PriceList acceptedBidPrices;
+
+	protected final ReadWriteLock lock;
+
+	public MarketHistoryIndex(final String specialistId, final int memorySize,
+			final boolean roundReset) {
+		this.specialistId = specialistId;
+		this.memorySize = memorySize;
+		this.roundReset = roundReset;
+
+		asks = new LinkedList<Entry>();
+		bids = new LinkedList<Entry>();
+		shoutMap = new HashMap<String, Entry>();
+		memoryAsks = new int[memorySize];
+		memoryBids = new int[memorySize];
+
+		askPrices = new PriceList();
+		bidPrices = new PriceList();
+		acceptedAskPrices = new PriceList();
+		acceptedBidPrices = new PriceList();
+
+		lock = new ReentrantReadWriteLock();
+	}
+
+	public String getSpecialistId() {
+		return specialistId;
+	}
+
+	public int getMemorySize() {
+		return memorySize;
+	}
+
+	public void reset() {
+		lock.writeLock().lock();
+		try {
+			asks.clear();
+			bids.clear();
+			shoutMap.clear();
+			Arrays.fill(memoryAsks, 0);
+			Arrays.fill(memoryBids, 0);
+			currentMemoryCell = 0;
+
+			askPrices.clear();
+			bidPrices.clear();
+			acceptedAskPrices.clear();
+			acceptedBidPrices.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * records a posted shout.
+	 *
+	 * @param time
+	 *          when the shout was posted, used to tell a shout posted again at the
+	 *          same price from the copy of a post already recorded.
+	 * @return false if the post has been recorded already.
+	 */
+	public boolean addShout(final String id, final double price,
+			final boolean isAsk, final int time[]) {
+		lock.writeLock().lock();
+		try {
+			final Entry latest = shoutMap.get(id);
+			if ((latest != null) && (latest.price == price)
+					&& Arrays.equals(latest.time, time)) {
+				return false;
+			}
+
+			addShout(new Entry(id, price, isAsk, time));
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void addShout(final Entry entry) {
+		shoutMap.put(entry.id, entry);
+
+		if (entry.isAsk) {
+			asks.add(entry);
+			askPrices.add(entry.price);
+			memoryAsks[currentMemoryCell]++;
+		} else {
+			bids.add(entry);
+			bidPrices.add(entry.price);
+			memoryBids[currentMemoryCell]++;
+		}
+	}
+
+	/**
+	 * records a transaction, marking the two shouts matched and dropping the
+	 * shouts that lead to the transaction N transactions ago.
+	 */
+	public void addTransaction(final String askId, final double askPrice,
+			final String bidId, final double bidPrice) {
+		lock.writeLock().lock();
+		try {
+			markMatched(askId, askPrice, true);
+			markMatched(bidId, bidPrice, false);
+
+			currentMemoryCell = (currentMemoryCell + 1) % memorySize;
+			removeFirst(memoryAsks[currentMemoryCell], asks);
+			removeFirst(memoryBids[currentMemoryCell], bids);
+			memoryAsks[currentMemoryCell] = 0;
+			memoryBids[currentMemoryCell] = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void markMatched(final String id, final double price,
+			final boolean isAsk) {
+		Entry entry = shoutMap.get(id);
+		if (entry == null) {
+			// too old to be in the memory
+			return;
+		}
+
+		if (entry.price != price) {
+			// the latest update is missing somehow, so make it up
+			entry = new Entry(id, price, isAsk, entry.time);
+			addShout(entry);
+		}
+
+		if (!entry.isMatched) {
+			entry.isMatched = true;
+			if (entry.isAsk) {
+				acceptedAskPrices.add(entry.price);
+			} else {
+				acceptedBidPrices.add(entry.price);
+			}
+		}
+	}
+
+	private void removeFirst(final int n, final LinkedList<Entry> shouts) {
+		for (int i = 0; (i < n) && !shouts.isEmpty(); i++) {
+			final Entry entry = shouts.removeFirst();
+			if (entry.isAsk) {
+				askPrices.remove(entry.price);
+				if (entry.isMatched) {
+					acceptedAskPrices.remove(entry.price);
+				}
+			} else {
+				bidPrices.remove(entry.price);
+				if (entry.isMatched) {
+					acceptedBidPrices.remove(entry.price);
+				}
+			}
+
+			if (shoutMap.get(entry.id) == entry) {
+				shoutMap.remove(entry.id);
+			}
+		}
+	}
+
+	/**
+	 * forgets which shouts have been matched if the history is configured to do
+	 * so each round.
+	 */
+	public void roundClosed() {
+		if (!roundReset) {
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			unmatch(asks);
+			unmatch(bids);
+			acceptedAskPrices.clear();
+			acceptedBidPrices.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void unmatch(final LinkedList<Entry> shouts) {
+		final Iterator<Entry> i = shouts.iterator();
+		while (i.hasNext()) {
+			i.next().isMatched = false;
+		}
+	}
+
+	/**
+	 * @return the distinct prices of all the shouts in the memory in ascending
+	 *         order.
+	 */
+	public double[] getPrices() {
+		lock.readLock().lock();
+		try {
+			return PriceList.mergeDistinct(askPrices, bidPrices);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getNumOfShouts() {
+		lock.readLock().lock();
+		try {
+			return askPrices.size() + bidPrices.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getNumOfAsksBelow(final double price) {
+		lock.readLock().lock();
+		try {
+			return askPrices.countAtMost(price);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getNumOfBidsAbove(final double price) {
+		lock.readLock().lock();
+		try {
+			return bidPrices.countAtLeast(price);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getNumOfAcceptedAsksAbove(final double price) {
+		lock.readLock().lock();
+		try {
+			return acceptedAskPrices.countAtLeast(price);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getNumOfAcceptedBidsBelow(final double price) {
+		lock.readLock().lock();
+		try {
+			return acceptedBidPrices.countAtMost(price);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getNumOfRejectedAsksBelow(final double price) {
+		lock.readLock().lock();
+		try {
+			return askPrices.countAtMost(price)
+					- acceptedAskPrices.countAtMost(price);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getNumOfRejectedBidsAbove(final double price) {
+		lock.readLock().lock();
+		try {
+			return bidPrices.countAtLeast(price)
+					- acceptedBidPrices.countAtLeast(price);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " " + specialistId + " memorySize:"
+				+ memorySize + (roundReset ? " roundReset:true" : "");
+	}
+
+	/**
+	 * a shout in the memory.
+	 */
+	protected static class Entry {
+
+		final String id;
+
+		final double price;
+
+		final boolean isAsk;
+
+		final int time[];
+
+		boolean isMatched;
+
+		Entry(final String id, final double price, final boolean isAsk,
+				final int time[]) {
+			this.id = id;
+			this.price = price;
+			this.isAsk = isAsk;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * a sorted multiset of prices backed by an array, supporting rank queries by
+	 * binary search.
+	 */
+	protected static class PriceList {
+
+		private double prices[];
+
+		private int size;
+
+		PriceList() {
+			prices = new double[16];
+			size = 0;
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		int size() {
+			return size;
+		}
+
+		/**
+		 * copies the prices in ascending order to the given array, or a larger one
+		 * if it is too small.
+		 */
+		double[] copyTo(double dest[]) {
+			if (dest.length < size) {
+				dest = new double[2 * size];
+			}
+			System.arraycopy(prices, 0, dest, 0, size);
+			return dest;
+		}
+
+		void add(final double price) {
+			if (size == prices.length) {
+				prices = Arrays.copyOf(prices, 2 * size);
+			}
+			final int pos = upperBound(price);
+			System.arraycopy(prices, pos, prices, pos + 1, size - pos);
+			prices[pos] = price;
+			size++;
+		}
+
+		void remove(final double price) {
+			final int pos = lowerBound(price);
+			if ((pos < size) && (prices[pos] == price)) {
+				System.arraycopy(prices, pos + 1, prices, pos, size - pos - 1);
+				size--;
+			} else {
+				MarketHistoryIndex.logger.error("Failed to remove price " + price
+						+ " from the history !");
+			}
+		}
+
+		/**
+		 * @return the number of prices no higher than the given one.
+		 */
+		int countAtMost(final double price) {
+			return upperBound(price);
+		}
+
+		/**
+		 * @return the number of prices no lower than the given one.
+		 */
+		int countAtLeast(final double price) {
+			return size - lowerBound(price);
+		}
+
+		/**
+		 * @return the index of the first price no lower than the given one.
+		 */
+		private int lowerBound(final double price) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (prices[mid] < price) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * @return the index of the first price higher than the given one.
+		 */
+		private int upperBound(final double price) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (prices[mid] <= price) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		static double[] mergeDistinct(final PriceList a, final PriceList b) {
+			final double merged[] = new double[a.size + b.size];
+			int n = 0;
+			int i = 0;
+			int j = 0;
+			while ((i < a.size) || (j < b.size)) {
+				double next;
+				if ((j >= b.size) || ((i < a.size) && (a.prices[i] <= b.prices[j]))) {
+					next = a.prices[i++];
+				} else {
+					next = b.prices[j++];
+				}
+				if ((n == 0) || (merged[n - 1] != next)) {
+					merged[n++] = next;
+				}
+			}
+			return Arrays.copyOf(merged, n);
+		}
+	}
+}
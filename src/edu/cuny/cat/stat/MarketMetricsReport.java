@@ -15,12 +15,10 @@
 
 package edu.cuny.cat.stat;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 
 import org.apache.log4j.Logger;
 
@@ -31,9 +29,8 @@ import edu.cuny.cat.event.AuctionEvent;
 import edu.cuny.cat.event.DayClosedEvent;
 import edu.cuny.cat.event.DayOpeningEvent;
 import edu.cuny.cat.event.TransactionExecutedEvent;
-import edu.cuny.cat.market.EfficiencyCalculator;
-import edu.cuny.cat.market.EquilibriumCalculator;
-import edu.cuny.cat.market.matching.FourHeapShoutEngine;
+import edu.cuny.cat.market.IncrementalEfficiencyCalculator;
+import edu.cuny.cat.market.IncrementalEquilibriumCalculator;
 import edu.cuny.cat.registry.Registry;
 import edu.cuny.cat.server.GameController;
 
@@ -148,16 +145,22 @@ public class MarketMetricsReport extends DirectRevelationReport {
 	static Logger logger = Logger.getLogger(MarketMetricsReport.class);
 
 	/**
-	 * all transactions made today grouped based on specialists
+	 * the efficiency of each specialist today, updated as transactions are made
 	 */
-	protected Map<String, Set<Transaction>> dailyTransactions;
+	protected Map<String, IncrementalEfficiencyCalculator> efficiencies;
+
+	protected IncrementalEfficiencyCalculator globalEfficiency;
+
+	protected ArrayList<Trader> globalTraders;
 
 	protected Registry registry;
 
 	public MarketMetricsReport() {
 		registry = GameController.getInstance().getRegistry();
-		dailyTransactions = Collections
-				.synchronizedMap(new HashMap<String, Set<Transaction>>());
+		efficiencies = Collections
+				.synchronizedMap(new HashMap<String, IncrementalEfficiencyCalculator>());
+		globalEfficiency = new IncrementalEfficiencyCalculator();
+		globalTraders = new ArrayList<Trader>();
 	}
 
 	public Map<ReportVariable, ?> getVariables() {
@@ -173,21 +176,33 @@ public class MarketMetricsReport extends DirectRevelationReport {
 		} else if (event instanceof DayClosedEvent) {
 			calculate();
 		} else if (event instanceof DayOpeningEvent) {
-			dailyTransactions.clear();
+			synchronized (efficiencies) {
+				for (final IncrementalEfficiencyCalculator effCal : efficiencies
+						.values()) {
+					effCal.reset();
+				}
+			}
+			globalEfficiency.reset();
 		}
 	}
 
 	public void updateCurrentDayTransactions(final TransactionExecutedEvent event) {
 		final Transaction transaction = event.getTransaction();
-		Set<Transaction> transactionSet = dailyTransactions.get(transaction
-				.getSpecialist().getId());
-		if (transactionSet == null) {
-			transactionSet = Collections.synchronizedSet(new HashSet<Transaction>());
-			dailyTransactions
-					.put(transaction.getSpecialist().getId(), transactionSet);
-		}
+		getEfficiency(transaction.getSpecialist().getId()).newTransaction(
+				transaction);
+		globalEfficiency.newTransaction(transaction);
+	}
 
-		transactionSet.add(transaction);
+	protected IncrementalEfficiencyCalculator getEfficiency(
+			final String specialistId) {
+		synchronized (efficiencies) {
+			IncrementalEfficiencyCalculator effCal = efficiencies.get(specialistId);
+			if (effCal == null) {
+				effCal = new IncrementalEfficiencyCalculator();
+				efficiencies.put(specialistId, effCal);
+			}
+			return effCal;
+		}
 	}
 
 	public void produceUserOutput() {
@@ -209,16 +224,15 @@ public class MarketMetricsReport extends DirectRevelationReport {
 
 		for (final Specialist specialist2 : specialists) {
 
-			final FourHeapShoutEngine shoutEngine = shoutEngines.get(specialist2
-					.getId());
-			final EquilibriumCalculator equilCal = new EquilibriumCalculator(
-					shoutEngine);
+			final IncrementalEquilibriumCalculator equilCal = equilibria
+					.get(specialist2.getId());
+			if (equilCal == null) {
+				continue;
+			}
 
-			final Set<Transaction> transactionSet = dailyTransactions.get(specialist2
+			final IncrementalEfficiencyCalculator effCal = getEfficiency(specialist2
 					.getId());
-
-			final EfficiencyCalculator effCal = new EfficiencyCalculator(equilCal,
-					transactionSet, specialist2.getTraderMap().values());
+			effCal.calculate(equilCal, specialist2.getTraderMap().values());
 
 			reportVariables(specialist2.getId(), equilCal, effCal);
 		}
@@ -228,90 +242,113 @@ public class MarketMetricsReport extends DirectRevelationReport {
 	 * calculates the global market including all the specialists
 	 */
 	protected void calculateGlobally() {
-
-		final EquilibriumCalculator equilCal = new EquilibriumCalculator(
-				globalShoutEngine);
-
-		final Set<Transaction> globalTransactions = Collections
-				.synchronizedSet(new HashSet<Transaction>());
-
-		final Iterator<Set<Transaction>> iter = dailyTransactions.values()
-				.iterator();
-		while (iter.hasNext()) {
-			globalTransactions.addAll(iter.next());
-		}
-
-		final HashSet<Trader> traders = new HashSet<Trader>();
+		globalTraders.clear();
 		final Specialist specialists[] = registry.getSpecialists();
 
 		for (final Specialist specialist2 : specialists) {
-			traders.addAll(specialist2.getTraderMap().values());
+			globalTraders.addAll(specialist2.getTraderMap().values());
 		}
 
-		final EfficiencyCalculator effCal = new EfficiencyCalculator(equilCal,
-				globalTransactions, traders);
+		globalEfficiency.calculate(globalEquilibrium, globalTraders);
+
+		reportVariables(GameReport.GLOBAL, globalEquilibrium, globalEfficiency);
+	}
+
+	/**
+	 * the names of the variables reported for each specialist and the global
+	 * market, following the name of the specialist or {@link GameReport#GLOBAL}.
+	 */
+	protected static final String METRICS[] = {
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.QUANTITY,
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.PRICE,
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.PROFIT,
+
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.ASK
+					+ ReportVariable.SEPARATOR + GameReport.QUANTITY,
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.ASK
+					+ ReportVariable.SEPARATOR + GameReport.PRICE
+					+ ReportVariable.SEPARATOR + GameReport.MEAN,
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.ASK
+					+ ReportVariable.SEPARATOR + GameReport.PRICE
+					+ ReportVariable.SEPARATOR + GameReport.STDEV,
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.ASK
+					+ ReportVariable.SEPARATOR + GameReport.PRICE
+					+ ReportVariable.SEPARATOR + GameReport.MAX,
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.ASK
+					+ ReportVariable.SEPARATOR + GameReport.PRICE
+					+ ReportVariable.SEPARATOR + GameReport.MIN,
+
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.BID
+					+ ReportVariable.SEPARATOR + GameReport.QUANTITY,
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.BID
+					+ ReportVariable.SEPARATOR + GameReport.PRICE
+					+ ReportVariable.SEPARATOR + GameReport.MEAN,
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.BID
+					+ ReportVariable.SEPARATOR + GameReport.PRICE
+					+ ReportVariable.SEPARATOR + GameReport.STDEV,
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.BID
+					+ ReportVariable.SEPARATOR + GameReport.PRICE
+					+ ReportVariable.SEPARATOR + GameReport.MAX,
+			GameReport.EQUILIBRIUM + ReportVariable.SEPARATOR + GameReport.BID
+					+ ReportVariable.SEPARATOR + GameReport.PRICE
+					+ ReportVariable.SEPARATOR + GameReport.MIN,
+
+			GameReport.EFFICIENCY, GameReport.CONVERGENCE_COEFFICIENT,
+			GameReport.PROFIT_DISPERSION };
 
-		reportVariables(GameReport.GLOBAL, equilCal, effCal);
+	/**
+	 * the handles on {@link ReportVariableBoard} of {@link #METRICS} for each
+	 * specialist and the global market.
+	 */
+	protected final Map<String, int[]> metricHandles = new HashMap<String, int[]>();
+
+	protected int[] getMetricHandles(final String name) {
+		int handles[] = metricHandles.get(name);
+		if (handles == null) {
+			final ReportVariableBoard board = ReportVariableBoard.getInstance();
+			handles = new int[MarketMetricsReport.METRICS.length];
+			for (int i = 0; i < handles.length; i++) {
+				handles[i] = board.getHandle(name + ReportVariable.SEPARATOR
+						+ MarketMetricsReport.METRICS[i]);
+			}
+			metricHandles.put(name, handles);
+		}
+		return handles;
 	}
 
 	private void reportVariables(final String name,
-			final EquilibriumCalculator equilCal, final EfficiencyCalculator effCal) {
+			final IncrementalEquilibriumCalculator equilCal,
+			final IncrementalEfficiencyCalculator effCal) {
 		final ReportVariableBoard board = ReportVariableBoard.getInstance();
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.QUANTITY, equilCal
-				.getEquilibriumQuantity());
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.PRICE, equilCal
-				.getMidEquilibriumPrice());
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.PROFIT, effCal
-				.getTheoreticalProfit());
-
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.ASK + ReportVariable.SEPARATOR
-				+ GameReport.QUANTITY, equilCal.getAskPriceDistribution().getN());
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.ASK + ReportVariable.SEPARATOR
-				+ GameReport.PRICE + ReportVariable.SEPARATOR + GameReport.MEAN,
-				equilCal.getAskPriceDistribution().getMean());
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.ASK + ReportVariable.SEPARATOR
-				+ GameReport.PRICE + ReportVariable.SEPARATOR + GameReport.STDEV,
-				equilCal.getAskPriceDistribution().getStdDev());
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.ASK + ReportVariable.SEPARATOR
-				+ GameReport.PRICE + ReportVariable.SEPARATOR + GameReport.MAX,
-				equilCal.getAskPriceDistribution().getMax());
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.ASK + ReportVariable.SEPARATOR
-				+ GameReport.PRICE + ReportVariable.SEPARATOR + GameReport.MIN,
-				equilCal.getAskPriceDistribution().getMin());
-
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.BID + ReportVariable.SEPARATOR
-				+ GameReport.QUANTITY, equilCal.getBidPriceDistribution().getN());
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.BID + ReportVariable.SEPARATOR
-				+ GameReport.PRICE + ReportVariable.SEPARATOR + GameReport.MEAN,
-				equilCal.getBidPriceDistribution().getMean());
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.BID + ReportVariable.SEPARATOR
-				+ GameReport.PRICE + ReportVariable.SEPARATOR + GameReport.STDEV,
-				equilCal.getBidPriceDistribution().getStdDev());
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.BID + ReportVariable.SEPARATOR
-				+ GameReport.PRICE + ReportVariable.SEPARATOR + GameReport.MAX,
-				equilCal.getBidPriceDistribution().getMax());
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EQUILIBRIUM
-				+ ReportVariable.SEPARATOR + GameReport.BID + ReportVariable.SEPARATOR
-				+ GameReport.PRICE + ReportVariable.SEPARATOR + GameReport.MIN,
-				equilCal.getBidPriceDistribution().getMin());
-
-		board.reportValue(name + ReportVariable.SEPARATOR + GameReport.EFFICIENCY,
-				effCal.getEA());
-		board.reportValue(name + ReportVariable.SEPARATOR
-				+ GameReport.CONVERGENCE_COEFFICIENT, effCal.getConvergenceCoeff());
-		board.reportValue(name + ReportVariable.SEPARATOR
-				+ GameReport.PROFIT_DISPERSION, effCal.getProfitDispersion());
+		final int handles[] = getMetricHandles(name);
+		int i = 0;
+
+		board.reportValue(handles[i++], equilCal.getEquilibriumQuantity());
+		board.reportValue(handles[i++], equilCal.getMidEquilibriumPrice());
+		board.reportValue(handles[i++], effCal.getTheoreticalProfit());
+
+		board.reportValue(handles[i++], equilCal.getAskPriceDistribution().getN());
+		board.reportValue(handles[i++], equilCal.getAskPriceDistribution()
+				.getMean());
+		board.reportValue(handles[i++], equilCal.getAskPriceDistribution()
+				.getStdDev());
+		board.reportValue(handles[i++], equilCal.getAskPriceDistribution()
+				.getMax());
+		board.reportValue(handles[i++], equilCal.getAskPriceDistribution()
+				.getMin());
+
+		board.reportValue(handles[i++], equilCal.getBidPriceDistribution().getN());
+		board.reportValue(handles[i++], equilCal.getBidPriceDistribution()
+				.getMean());
+		board.reportValue(handles[i++], equilCal.getBidPriceDistribution()
+				.getStdDev());
+		board.reportValue(handles[i++], equilCal.getBidPriceDistribution()
+				.getMax());
+		board.reportValue(handles[i++], equilCal.getBidPriceDistribution()
+				.getMin());
+
+		board.reportValue(handles[i++], effCal.getEA());
+		board.reportValue(handles[i++], effCal.getConvergenceCoeff());
+		board.reportValue(handles[i++], effCal.getProfitDispersion());
 	}
 }
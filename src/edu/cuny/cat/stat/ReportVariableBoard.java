@@ -29,10 +29,13 @@
 
 package edu.cuny.cat.stat;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
@@ -49,7 +52,17 @@ import edu.cuny.util.Galaxy;
  * </p>
  * 
  * <p>
- * TODO: to refactor later to register this in object registry.
+ * Numeric values are kept in slots, each identified by an integer handle that
+ * is interned from the variable name by {@link #getHandle(String)}. Reports
+ * that update the same variables repeatedly may resolve the handles once and
+ * use {@link #reportValue(int, double)} and {@link #getDoubleValue(int)},
+ * avoiding building names and boxing values. Handles stay valid across
+ * {@link #reset()}. Values of other types, like {@link Boolean} or
+ * {@link String}, are kept by name.
+ * </p>
+ * 
+ * <p>
+ * There is one board in each {@link Galaxy}.
  * </p>
  * 
  * @author Jinzhong Niu
@@ -60,53 +73,145 @@ public class ReportVariableBoard implements EventListener {
 
 	static Logger logger = Logger.getLogger(ReportVariableBoard.class);
 
-	private static ReportVariableBoard instance;
-
+	/**
+	 * values that are not doubles
+	 */
 	protected final Map<String, Object> board;
 
+	protected final Map<String, Integer> handles;
+
+	protected String names[];
+
+	protected double values[];
+
+	/**
+	 * whether a value has been reported in each slot since the last reset
+	 */
+	protected boolean assigned[];
+
+	protected int numOfHandles;
+
 	private ReportVariableBoard() {
 		board = Collections.synchronizedMap(new HashMap<String, Object>());
 
+		handles = new HashMap<String, Integer>();
+		names = new String[64];
+		values = new double[names.length];
+		assigned = new boolean[names.length];
+
 		/* TODO: need to check out sometime later ? */
 		Galaxy.getInstance().getDefaultTyped(EventEngine.class).checkIn(
 				ReportVariable.class, this);
 	}
 
-	public synchronized static ReportVariableBoard getInstance() {
-		if (ReportVariableBoard.instance == null) {
-			ReportVariableBoard.instance = new ReportVariableBoard();
+	public static ReportVariableBoard getInstance() {
+		final Galaxy galaxy = Galaxy.getInstance();
+		ReportVariableBoard board = galaxy.getSingleton(ReportVariableBoard.class);
+		if (board == null) {
+			synchronized (galaxy) {
+				board = galaxy.getSingleton(ReportVariableBoard.class);
+				if (board == null) {
+					board = new ReportVariableBoard();
+					galaxy.putSingleton(ReportVariableBoard.class, board);
+				}
+			}
 		}
-		return ReportVariableBoard.instance;
+		return board;
 	}
 
-	public void reset() {
+	public synchronized void reset() {
 		if (board != null) {
 			board.clear();
 		}
+		Arrays.fill(assigned, 0, numOfHandles, false);
+	}
+
+	/**
+	 * @return the handle of the slot of the variable, allocated when the
+	 *         variable is first seen.
+	 */
+	public synchronized int getHandle(final String varName) {
+		final Integer handle = handles.get(varName);
+		if (handle != null) {
+			return handle.intValue();
+		}
+
+		if (numOfHandles == names.length) {
+			names = Arrays.copyOf(names, names.length * 2);
+			values = Arrays.copyOf(values, names.length);
+			assigned = Arrays.copyOf(assigned, names.length);
+		}
+
+		names[numOfHandles] = varName;
+		handles.put(varName, numOfHandles);
+		return numOfHandles++;
 	}
 
-	public Collection<String> getVarNames() {
-		return board.keySet();
+	/**
+	 * @return the name of the variable whose slot has the handle.
+	 */
+	public synchronized String getVarName(final int handle) {
+		return names[handle];
+	}
+
+	public synchronized Collection<String> getVarNames() {
+		final Set<String> varNames = new HashSet<String>(board.keySet());
+		for (int i = 0; i < numOfHandles; i++) {
+			if (assigned[i]) {
+				varNames.add(names[i]);
+			}
+		}
+		return varNames;
 	}
 
 	public Double getValueAsDouble(final String varName) {
-		return (Double) board.get(varName);
+		return (Double) getValue(varName);
 	}
 
 	public Double getValueAsDouble(final ReportVariable var) {
 		return getValueAsDouble(var.getName());
 	}
 
-	public Object getValue(final String varName) {
-		return board.get(varName);
+	/**
+	 * @return the value in the slot, or {@link Double#NaN} if none has been
+	 *         reported since the last reset.
+	 */
+	public synchronized double getDoubleValue(final int handle) {
+		return assigned[handle] ? values[handle] : Double.NaN;
+	}
+
+	public synchronized boolean isAssigned(final int handle) {
+		return assigned[handle];
+	}
+
+	public synchronized Object getValue(final String varName) {
+		final Integer handle = handles.get(varName);
+		if ((handle != null) && assigned[handle.intValue()]) {
+			return new Double(values[handle.intValue()]);
+		} else {
+			return board.get(varName);
+		}
 	}
 
 	public Object getValue(final ReportVariable var) {
 		return getValue(var.getName());
 	}
 
-	public void reportValue(final String varName, final Object value) {
-		board.put(varName, value);
+	public synchronized void reportValue(final int handle, final double value) {
+		values[handle] = value;
+		assigned[handle] = true;
+	}
+
+	public synchronized void reportValue(final String varName, final Object value) {
+		if (value instanceof Double) {
+			reportValue(getHandle(varName), ((Double) value).doubleValue());
+		} else {
+			final Integer handle = handles.get(varName);
+			if (handle != null) {
+				assigned[handle.intValue()] = false;
+			}
+			board.put(varName, value);
+		}
 	}
 
 	public void reportValue(final ReportVariable var, final Object value) {
@@ -114,7 +219,7 @@ public class ReportVariableBoard implements EventListener {
 	}
 
 	public void reportValue(final String varName, final double value) {
-		reportValue(varName, new Double(value));
+		reportValue(getHandle(varName), value);
 	}
 
 	public void reportValues(final Map<ReportVariable, Object> vars) {
@@ -136,6 +241,15 @@ public class ReportVariableBoard implements EventListener {
 		}
 	}
 
+	/**
+	 * @return a copy of the values in all the slots, e.g. to keep those at the
+	 *         end of a day while reports go on updating the board.
+	 */
+	public synchronized Snapshot takeSnapshot() {
+		return new Snapshot(Arrays.copyOf(values, numOfHandles), Arrays.copyOf(
+				assigned, numOfHandles));
+	}
+
 	/**
 	 * allows posting report variables without directly refering to this board
 	 */
@@ -145,4 +259,33 @@ public class ReportVariableBoard implements EventListener {
 			reportValue(key, value.doubleValue());
 		}
 	}
+
+	/**
+	 * the values in the slots of the board at some moment.
+	 */
+	public static class Snapshot {
+
+		private final double values[];
+
+		private final boolean assigned[];
+
+		protected Snapshot(final double values[], final boolean assigned[]) {
+			this.values = values;
+			this.assigned = assigned;
+		}
+
+		/**
+		 * @return true if the slot had a value when the snapshot was taken.
+		 */
+		public boolean isAssigned(final int handle) {
+			return (handle < assigned.length) && assigned[handle];
+		}
+
+		/**
+		 * @return the value in the slot, or {@link Double#NaN} if it had none.
+		 */
+		public double getValue(final int handle) {
+			return isAssigned(handle) ? values[handle] : Double.NaN;
+		}
+	}
 }
@@ -61,6 +61,11 @@ public class ReportVariableWriterReport extends AbstractReportVariableReport {
 
 	protected int gameNum;
 
+	/**
+	 * the handles of {@link #varNames} on {@link ReportVariableBoard}.
+	 */
+	protected int handles[];
+
 	public ReportVariableWriterReport() {
 	}
 
@@ -101,6 +106,13 @@ public class ReportVariableWriterReport extends AbstractReportVariableReport {
 
 		if (event instanceof SimulationStartedEvent) {
 			gameNum = -1;
+
+			final ReportVariableBoard board = ReportVariableBoard.getInstance();
+			handles = new int[varNames.length];
+			for (int i = 0; i < handles.length; i++) {
+				handles[i] = board.getHandle(varNames[i]);
+			}
+
 			generateHeader();
 		} else if (event instanceof GameStartingEvent) {
 			gameNum++;
@@ -119,18 +131,23 @@ public class ReportVariableWriterReport extends AbstractReportVariableReport {
 		log.newData(event.getDay());
 
 		final ReportVariableBoard board = ReportVariableBoard.getInstance();
+		final ReportVariableBoard.Snapshot snapshot = board.takeSnapshot();
 		Object value;
-		for (final String varName : varNames) {
-			value = board.getValue(varName);
-			if (value instanceof Double) {
-				final Double doubleValue = (Double) value;
-				if (doubleValue.isNaN() || doubleValue.isInfinite()) {
+		for (int i = 0; i < varNames.length; i++) {
+			if (snapshot.isAssigned(handles[i])) {
+				final double doubleValue = snapshot.getValue(handles[i]);
+				if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
 					// use NaN for all these cases
 					log.newData(Double.NaN);
 				} else {
-					log.newData(GameReport.Formatter.format(doubleValue.doubleValue()));
+					log.newData(GameReport.Formatter.format(doubleValue));
 				}
-			} else if (value != null) {
+				continue;
+			}
+
+			// not a number
+			value = board.getValue(varNames[i]);
+			if (value != null) {
 				log.newData(value);
 			} else {
 				log.newData(Double.NaN);
@@ -0,0 +1,296 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.stat;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.cuny.cat.core.Shout;
+import edu.cuny.cat.core.Transaction;
+import edu.cuny.cat.event.AuctionEvent;
+import edu.cuny.cat.event.DayClosedEvent;
+import edu.cuny.cat.event.GameStartingEvent;
+import edu.cuny.cat.event.RoundClosedEvent;
+import edu.cuny.cat.event.ShoutPostedEvent;
+import edu.cuny.cat.event.TransactionPostedEvent;
+import edu.cuny.util.Galaxy;
+
+/**
+ * <p>
+ * Keeps a {@link MarketHistoryIndex} for each specialist so that the GD traders
+ * in a game build the shout history of a market once instead of each keeping a
+ * {@link HistoricalReport} of its own.
+ * </p>
+ *
+ * <p>
+ * Each GD trader passes its events to a {@link Subscriber} of its own. Every
+ * GD trader in a market receives a copy of each event from the market, but
+ * only one of them feeds the index of the market: the first to register with
+ * the market each day subscribes the index for that day, and the others drop
+ * the events of the market after a single check, before any dispatching.
+ * </p>
+ *
+ * <p>
+ * Games are told apart by the number of game starting events each trader has
+ * seen rather than by when the events arrive: the first trader to enter a new
+ * game resets the indices, the game starting events of the others are
+ * ignored, and so are the events a trader still passes on from a game that
+ * others have left.
+ * </p>
+ *
+ * <p>
+ * Instances are kept in {@link Galaxy}, one for each combination of memory size
+ * and round reset configured for the traders.
+ * </p>
+ *
+ * @see edu.cuny.cat.trader.strategy.GDStrategy
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SharedMarketHistory {
+
+	protected final int memorySize;
+
+	protected final boolean roundReset;
+
+	protected final Map<String, MarketHistoryIndex> indices;
+
+	/**
+	 * the latest day, combining the game and the day in it, for which the index
+	 * of each specialist has been subscribed.
+	 */
+	protected final Map<String, AtomicLong> subscriptions;
+
+	/**
+	 * the number of the game being recorded, counting from 1.
+	 */
+	protected volatile int game;
+
+	/**
+	 * the time of the last round closed.
+	 */
+	protected int lastRoundClosed[];
+
+	protected SharedMarketHistory(final int memorySize, final boolean roundReset) {
+		this.memorySize = memorySize;
+		this.roundReset = roundReset;
+		indices = new ConcurrentHashMap<String, MarketHistoryIndex>();
+		subscriptions = new ConcurrentHashMap<String, AtomicLong>();
+	}
+
+	/**
+	 * @return the history shared by the traders configured with the given memory
+	 *         size and round reset.
+	 */
+	public static synchronized SharedMarketHistory getInstance(
+			final int memorySize, final boolean roundReset) {
+		final Galaxy galaxy = Galaxy.getInstance();
+		final String key = SharedMarketHistory.class.getName() + "." + memorySize
+				+ "." + roundReset;
+		SharedMarketHistory history = (SharedMarketHistory) galaxy.get(galaxy
+				.getDefaultSystem(), key);
+		if (history == null) {
+			history = new SharedMarketHistory(memorySize, roundReset);
+			galaxy.put(galaxy.getDefaultSystem(), key, history);
+		}
+		return history;
+	}
+
+	public int getMemorySize() {
+		return memorySize;
+	}
+
+	public boolean isRoundReset() {
+		return roundReset;
+	}
+
+	/**
+	 * @return a subscriber for a trader to pass its events to.
+	 */
+	public Subscriber subscribe() {
+		return new Subscriber();
+	}
+
+	/**
+	 * @return the index of the specified market, created when first asked for.
+	 */
+	public MarketHistoryIndex getIndex(final String specialistId) {
+		MarketHistoryIndex index = indices.get(specialistId);
+		if (index == null) {
+			synchronized (indices) {
+				index = indices.get(specialistId);
+				if (index == null) {
+					index = new MarketHistoryIndex(specialistId, memorySize, roundReset);
+					subscriptions.put(specialistId, new AtomicLong(-1));
+					indices.put(specialistId, index);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * subscribes the index of the market for the given day, unless it has been
+	 * for that day or a later one.
+	 *
+	 * @return true if the caller is to feed the index on that day.
+	 */
+	protected boolean subscribe(final String specialistId, final long day) {
+		getIndex(specialistId);
+		final AtomicLong subscription = subscriptions.get(specialistId);
+		while (true) {
+			final long current = subscription.get();
+			if (current >= day) {
+				return false;
+			} else if (subscription.compareAndSet(current, day)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * resets the indices when the first trader enters the given game.
+	 */
+	protected synchronized void startGame(final int game) {
+		if (game <= this.game) {
+			return;
+		}
+
+		this.game = game;
+		lastRoundClosed = null;
+		final Iterator<MarketHistoryIndex> i = indices.values().iterator();
+		while (i.hasNext()) {
+			i.next().reset();
+		}
+	}
+
+	protected void roundClosed(final int time[]) {
+		synchronized (this) {
+			if ((time != null) && Arrays.equals(lastRoundClosed, time)) {
+				return;
+			}
+			lastRoundClosed = time;
+		}
+
+		final Iterator<MarketHistoryIndex> i = indices.values().iterator();
+		while (i.hasNext()) {
+			i.next().roundClosed();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " memorySize:" + memorySize
+				+ (roundReset ? " roundReset:true" : "") + " markets:"
+				+ indices.keySet();
+	}
+
+	/**
+	 * The events of a single trader, passed on to the index of the market the
+	 * trader registers with if it is the one to feed the index that day.
+	 */
+	public class Subscriber {
+
+		/**
+		 * the number of games the trader has started.
+		 */
+		protected int game;
+
+		/**
+		 * the number of days closed in the current game.
+		 */
+		protected int day;
+
+		protected String specialistId;
+
+		/**
+		 * whether the trader feeds the index of its market on the current day.
+		 */
+		protected boolean feeding;
+
+		public SharedMarketHistory getHistory() {
+			return SharedMarketHistory.this;
+		}
+
+		public String getSpecialistId() {
+			return specialistId;
+		}
+
+		/**
+		 * @return the index of the market the trader has registered with, or null
+		 *         if it has not registered with any.
+		 */
+		public MarketHistoryIndex getIndex() {
+			return specialistId == null ? null : SharedMarketHistory.this
+					.getIndex(specialistId);
+		}
+
+		/**
+		 * records that the trader has registered with the specified market for
+		 * the current day.
+		 */
+		public void register(final String specialistId) {
+			this.specialistId = specialistId;
+			feeding = SharedMarketHistory.this.subscribe(specialistId,
+					((long) game << 32) | day);
+		}
+
+		public void eventOccurred(final AuctionEvent event) {
+			if (event instanceof GameStartingEvent) {
+				game++;
+				day = 0;
+				feeding = false;
+				startGame(game);
+			} else if (event instanceof DayClosedEvent) {
+				// before the registration for the next day
+				day++;
+				feeding = false;
+			} else if (!feeding || (game != SharedMarketHistory.this.game)) {
+				// fed by another trader, or from a game already over
+				return;
+			} else if (event instanceof RoundClosedEvent) {
+				roundClosed(event.getTime());
+			} else if (event instanceof ShoutPostedEvent) {
+				final Shout shout = ((ShoutPostedEvent) event).getShout();
+				if ((shout.getSpecialist() != null)
+						&& specialistId.equals(shout.getSpecialist().getId())) {
+					getIndex().addShout(shout.getId(), shout.getPrice(), shout.isAsk(),
+							event.getTime());
+				}
+			} else if (event instanceof TransactionPostedEvent) {
+				final Transaction transaction = ((TransactionPostedEvent) event)
+						.getTransaction();
+				if ((transaction.getSpecialist() != null)
+						&& specialistId.equals(transaction.getSpecialist().getId())) {
+					getIndex().addTransaction(transaction.getAsk().getId(),
+							transaction.getAsk().getPrice(), transaction.getBid().getId(),
+							transaction.getBid().getPrice());
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + " game:" + game + " day:" + day
+					+ " specialist:" + specialistId + (feeding ? " feeding" : "");
+		}
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.sweep;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.cuny.util.BadParameterException;
+import edu.cuny.util.Parameter;
+import edu.cuny.util.ParameterDatabase;
+import edu.cuny.util.Parameterizable;
+
+/**
+ * <p>
+ * A grid of points in the space of parameters, each point assigning one value
+ * to each dimension of the grid. All the keys of a dimension are set to the
+ * same value, so that e.g. the profile of buyers and sellers goes together.
+ * </p>
+ *
+ * <p>
+ * Each point is named after the labels of its values, joined by
+ * <code>-</code>. The label of a value is by default its last path element,
+ * e.g. <code>full.adm</code> for <code>experiments/input/full.adm</code>.
+ * </p>
+ *
+ * <p>
+ * <b>Parameters</b>
+ * </p>
+ * <table>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.n</tt><br>
+ * <font size=-1>int &gt;= 0</font></td>
+ * <td valign=top>(the number of dimensions)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.</tt><i>n</i><tt>.keys</tt><br>
+ * <font size=-1>comma-separated names of parameters</font></td>
+ * <td valign=top>(the parameters set by the <i>n</i>th dimension)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.</tt><i>n</i><tt>.values</tt><br>
+ * <font size=-1>comma-separated strings</font></td>
+ * <td valign=top>(the values of the <i>n</i>th dimension)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.</tt><i>n</i><tt>.labels</tt><br>
+ * <font size=-1>comma-separated strings (optional)</font></td>
+ * <td valign=top>(the labels of the values in point names)</td>
+ * </tr>
+ *
+ * </table>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SweepGrid implements Parameterizable {
+
+	public static final String P_NUM = "n";
+
+	public static final String P_KEYS = "keys";
+
+	public static final String P_VALUES = "values";
+
+	public static final String P_LABELS = "labels";
+
+	protected List<Dimension> dimensions;
+
+	protected List<Point> points;
+
+	public SweepGrid() {
+		dimensions = new ArrayList<Dimension>();
+	}
+
+	public void setup(final ParameterDatabase parameters, final Parameter base) {
+		final int n = parameters.getIntWithDefault(base.push(SweepGrid.P_NUM),
+				null, 0);
+		for (int i = 0; i < n; i++) {
+			final Parameter dimBase = base.push(String.valueOf(i));
+			final String keys[] = SweepGrid.split(parameters.getString(dimBase
+					.push(SweepGrid.P_KEYS), null));
+			final String values[] = SweepGrid.split(parameters.getString(dimBase
+					.push(SweepGrid.P_VALUES), null));
+			String labels[] = SweepGrid.split(parameters.getString(dimBase
+					.push(SweepGrid.P_LABELS), null));
+
+			if ((keys.length == 0) || (values.length == 0)) {
+				throw new BadParameterException("Both " + dimBase.push(SweepGrid.P_KEYS)
+						+ " and " + dimBase.push(SweepGrid.P_VALUES)
+						+ " must be given for dimension " + i + " !");
+			}
+
+			if (labels.length == 0) {
+				labels = new String[values.length];
+				for (int j = 0; j < values.length; j++) {
+					labels[j] = new File(values[j]).getName();
+				}
+			} else if (labels.length != values.length) {
+				throw new BadParameterException(dimBase.push(SweepGrid.P_LABELS)
+						+ " must label each of the " + values.length + " values !");
+			}
+
+			addDimension(keys, values, labels);
+		}
+	}
+
+	public void addDimension(final String keys[], final String values[],
+			final String labels[]) {
+		final Set<String> distinct = new HashSet<String>();
+		for (final String label : labels) {
+			if (!distinct.add(label)) {
+				throw new BadParameterException("Label " + label
+						+ " is used for more than one value of " + keys[0] + " !");
+			}
+		}
+
+		dimensions.add(new Dimension(keys, values, labels));
+		points = null;
+	}
+
+	public int getNumOfDimensions() {
+		return dimensions.size();
+	}
+
+	/**
+	 * @return the points of the grid, with the last dimension changing the
+	 *         fastest.
+	 */
+	public List<Point> getPoints() {
+		if (points == null) {
+			points = new ArrayList<Point>();
+			expand(0, new LinkedHashMap<String, String>(), "");
+			points = Collections.unmodifiableList(points);
+		}
+		return points;
+	}
+
+	private void expand(final int dim, final Map<String, String> assignments,
+			final String name) {
+		if (dim == dimensions.size()) {
+			points.add(new Point(name.length() == 0 ? "default" : name,
+					new LinkedHashMap<String, String>(assignments)));
+			return;
+		}
+
+		final Dimension dimension = dimensions.get(dim);
+		for (int i = 0; i < dimension.values.length; i++) {
+			for (final String key : dimension.keys) {
+				assignments.put(key, dimension.values[i]);
+			}
+			expand(dim + 1, assignments, name.length() == 0 ? dimension.labels[i]
+					: name + "-" + dimension.labels[i]);
+		}
+		for (final String key : dimension.keys) {
+			assignments.remove(key);
+		}
+	}
+
+	/**
+	 * @return the trimmed non-empty elements of a comma-separated list, or an
+	 *         empty array if the list is null.
+	 */
+	public static String[] split(final String list) {
+		final List<String> elements = new ArrayList<String>();
+		if (list != null) {
+			for (final String element : list.split(",")) {
+				if (element.trim().length() > 0) {
+					elements.add(element.trim());
+				}
+			}
+		}
+		return elements.toArray(new String[elements.size()]);
+	}
+
+	@Override
+	public String toString() {
+		String s = getClass().getSimpleName();
+		for (final Dimension dimension : dimensions) {
+			s += "\n  " + dimension;
+		}
+		return s;
+	}
+
+	protected static class Dimension {
+
+		String keys[];
+
+		String values[];
+
+		String labels[];
+
+		public Dimension(final String keys[], final String values[],
+				final String labels[]) {
+			this.keys = keys;
+			this.values = values;
+			this.labels = labels;
+		}
+
+		@Override
+		public String toString() {
+			return keys[0] + (keys.length > 1 ? " (+" + (keys.length - 1) + ")" : "")
+					+ ": " + values.length + " values";
+		}
+	}
+
+	/**
+	 * a point in the grid.
+	 */
+	public static class Point {
+
+		protected final String name;
+
+		protected final Map<String, String> assignments;
+
+		public Point(final String name, final Map<String, String> assignments) {
+			this.name = name;
+			this.assignments = Collections.unmodifiableMap(assignments);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the values of the parameters at this point, keyed by parameter
+		 *         names.
+		 */
+		public Map<String, String> getAssignments() {
+			return assignments;
+		}
+
+		/**
+		 * sets the parameters at this point in the database.
+		 */
+		public void apply(final ParameterDatabase parameters) {
+			for (final Map.Entry<String, String> entry : assignments.entrySet()) {
+				parameters.set(new Parameter(entry.getKey()), entry.getValue());
+			}
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.sweep;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * A journal of the runs of a sweep, kept in a CSV file with one line per
+ * metric of each run:
+ * </p>
+ *
+ * <pre>
+ * point,seed,status,metric,value
+ * full.adm-credulous,0,metric,CDA.efficiency,0.93
+ * full.adm-credulous,0,ok,,
+ * ring.adm-credulous,0,failed,,java.lang.IllegalStateException
+ * </pre>
+ *
+ * <p>
+ * A run is complete only once its <code>ok</code> line is written after its
+ * metrics, so runs that failed, or were cut short along with the sweep, are
+ * run again when the sweep resumes from the journal, while completed runs are
+ * not.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SweepJournal {
+
+	static Logger logger = Logger.getLogger(SweepJournal.class);
+
+	public static final String HEADER = "point,seed,status,metric,value";
+
+	public static final String METRIC = "metric";
+
+	public static final String OK = "ok";
+
+	public static final String FAILED = "failed";
+
+	protected File file;
+
+	protected PrintWriter writer;
+
+	/**
+	 * the metrics of completed runs, keyed by {@link #key(String, long)}.
+	 */
+	protected Map<String, Map<String, Double>> completed;
+
+	/**
+	 * opens the journal, loading the runs already completed if the file exists.
+	 */
+	public SweepJournal(final File file) throws IOException {
+		this.file = file;
+		completed = new LinkedHashMap<String, Map<String, Double>>();
+
+		final boolean exists = file.exists();
+		if (exists) {
+			load();
+		} else if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+
+		writer = new PrintWriter(new FileWriter(file, true));
+		if (!exists) {
+			writer.println(SweepJournal.HEADER);
+			writer.flush();
+		}
+	}
+
+	protected void load() throws IOException {
+		final Map<String, Map<String, Double>> pending = new HashMap<String, Map<String, Double>>();
+
+		final BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				final String fields[] = line.split(",", -1);
+				if ((fields.length != 5) || line.equals(SweepJournal.HEADER)) {
+					continue;
+				}
+
+				final String key = fields[0] + "," + fields[1];
+				if (SweepJournal.METRIC.equals(fields[2])) {
+					Map<String, Double> metrics = pending.get(key);
+					if (metrics == null) {
+						metrics = new LinkedHashMap<String, Double>();
+						pending.put(key, metrics);
+					}
+					try {
+						metrics.put(fields[3], Double.valueOf(fields[4]));
+					} catch (final NumberFormatException e) {
+						SweepJournal.logger.warn("Ignored bad journal line: " + line);
+					}
+				} else if (SweepJournal.OK.equals(fields[2])) {
+					Map<String, Double> metrics = pending.remove(key);
+					if (metrics == null) {
+						metrics = new LinkedHashMap<String, Double>();
+					}
+					completed.put(key, Collections.unmodifiableMap(metrics));
+				} else {
+					// a failed run leaves no partial metrics behind
+					pending.remove(key);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		SweepJournal.logger.info(completed.size() + " completed runs found in "
+				+ file);
+	}
+
+	protected static String key(final String point, final long seed) {
+		return point + "," + seed;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public synchronized boolean isCompleted(final String point, final long seed) {
+		return completed.containsKey(SweepJournal.key(point, seed));
+	}
+
+	/**
+	 * @return the metrics of a completed run, or null if the run has yet to
+	 *         complete.
+	 */
+	public synchronized Map<String, Double> getMetrics(final String point,
+			final long seed) {
+		return completed.get(SweepJournal.key(point, seed));
+	}
+
+	public synchronized int getNumOfCompleted() {
+		return completed.size();
+	}
+
+	public synchronized void completed(final String point, final long seed,
+			final Map<String, Double> metrics) {
+		for (final Map.Entry<String, Double> entry : metrics.entrySet()) {
+			writer.println(SweepJournal.key(point, seed) + "," + SweepJournal.METRIC
+					+ "," + entry.getKey() + "," + entry.getValue());
+		}
+		writer.println(SweepJournal.key(point, seed) + "," + SweepJournal.OK + ",,");
+		writer.flush();
+
+		completed.put(SweepJournal.key(point, seed), Collections
+				.unmodifiableMap(new LinkedHashMap<String, Double>(metrics)));
+	}
+
+	public synchronized void failed(final String point, final long seed,
+			final Throwable t) {
+		// keep the line in five fields
+		final String cause = String.valueOf(t).replace(',', ';').replace('\n', ' ');
+		writer.println(SweepJournal.key(point, seed) + "," + SweepJournal.FAILED
+				+ ",," + cause);
+		writer.flush();
+	}
+
+	public synchronized void close() {
+		writer.close();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " " + file;
+	}
+}
@@ -0,0 +1,486 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.sweep;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.Game;
+import edu.cuny.cat.GameContext;
+import edu.cuny.cat.stat.StatisticalReport;
+import edu.cuny.util.CumulativeDistribution;
+import edu.cuny.util.Parameter;
+import edu.cuny.util.ParameterDatabase;
+import edu.cuny.util.Parameterizable;
+import edu.cuny.util.Utils;
+
+/**
+ * <p>
+ * Runs a sweep of games over the points of a {@link SweepGrid}, several times
+ * at each point with different seeds, each game in a {@link GameContext} of its
+ * own and up to a given number of games at a time.
+ * </p>
+ *
+ * <p>
+ * Run <i>r</i> at every point uses the seed <code>sweep.seed</code> +
+ * <i>r</i>, so that points are compared under the same random numbers. The
+ * metrics of a run are the means over the game of the variables of its
+ * {@link StatisticalReport}. As runs complete, they are recorded in the
+ * {@link SweepJournal} of the sweep, <code>runs.csv</code>, and the
+ * {@link SweepSummary}, <code>summary.csv</code>, is rewritten with the means
+ * and confidence intervals of the metrics at each point. When a sweep is
+ * started again in the same directory, the runs already completed are read
+ * back from the journal rather than run again.
+ * </p>
+ *
+ * <p>
+ * Each run is given a directory of its own, <i>dir</i><tt>/</tt><i>point</i>
+ * <tt>/</tt><i>seed</i>, which the parameters in <code>sweep.outputfolders</code>
+ * are set to, and which the file names in <code>sweep.outputfiles</code> are
+ * moved into, so that concurrent runs do not write to the same files.
+ * </p>
+ *
+ * <p>
+ * The games are set up by the parameter file given on the command line, which
+ * should use a call-based infrastructure, no console or GUI and a clock that
+ * quits when the game is over, e.g. <code>params/sweep.params</code>:
+ * </p>
+ *
+ * <pre>
+ * java edu.cuny.cat.sweep.SweepRunner params/sweep.params
+ * </pre>
+ *
+ * <p>
+ * <b>Parameters</b>
+ * </p>
+ * <table>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.n</tt><br>
+ * <font size=-1>int &gt;= 0</font></td>
+ * <td valign=top>(the number of dimensions of the grid; see
+ * {@link SweepGrid})</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.runs</tt><br>
+ * <font size=-1>int &gt;= 1 (1 by default)</font></td>
+ * <td valign=top>(the number of runs at each point)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.seed</tt><br>
+ * <font size=-1>long (0 by default)</font></td>
+ * <td valign=top>(the seed of the first run at each point)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.threads</tt><br>
+ * <font size=-1>int &gt;= 1 (the number of processors by default)</font></td>
+ * <td valign=top>(the number of games run at a time)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.dir</tt><br>
+ * <font size=-1>path (<code>experiments/sweep</code> by default)</font></td>
+ * <td valign=top>(the directory of the journal, the summary and the outputs
+ * of the runs)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.outputfolders</tt><br>
+ * <font size=-1>comma-separated names of parameters (optional)</font></td>
+ * <td valign=top>(the parameters set to the directory of each run)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.outputfiles</tt><br>
+ * <font size=-1>comma-separated names of parameters (optional)</font></td>
+ * <td valign=top>(the parameters of files to write in the directory of each
+ * run)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.metrics</tt><br>
+ * <font size=-1>comma-separated names of report variables (all the variables
+ * of the statistical report by default)</font></td>
+ * <td valign=top>(the metrics to summarize)</td>
+ * </tr>
+ *
+ * <tr>
+ * <td valign=top><i>base</i><tt>.confidence</tt><br>
+ * <font size=-1>0 &lt; double &lt; 1 (0.95 by default)</font></td>
+ * <td valign=top>(the level of confidence of the intervals in the
+ * summary)</td>
+ * </tr>
+ *
+ * </table>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SweepRunner implements Parameterizable {
+
+	static Logger logger = Logger.getLogger(SweepRunner.class);
+
+	public static final String P_SWEEP = "sweep";
+
+	public static final String P_RUNS = "runs";
+
+	public static final String P_SEED = "seed";
+
+	public static final String P_THREADS = "threads";
+
+	public static final String P_DIR = "dir";
+
+	public static final String P_OUTPUTFOLDERS = "outputfolders";
+
+	public static final String P_OUTPUTFILES = "outputfiles";
+
+	public static final String P_METRICS = "metrics";
+
+	public static final String P_CONFIDENCE = "confidence";
+
+	public static final String DEFAULT_DIR = "experiments/sweep";
+
+	public static final String JOURNAL = "runs.csv";
+
+	public static final String SUMMARY = "summary.csv";
+
+	protected ParameterDatabase parameters;
+
+	protected SweepGrid grid;
+
+	protected int runs;
+
+	protected long seed;
+
+	protected int threads;
+
+	protected File dir;
+
+	protected String outputFolders[];
+
+	/**
+	 * the base names of the output files, keyed by their parameters.
+	 */
+	protected Map<String, String> outputFiles;
+
+	protected String metrics[];
+
+	protected double confidence;
+
+	protected SweepJournal journal;
+
+	protected SweepSummary summary;
+
+	public static void main(final String[] args) {
+		System.out.println(Game.getBanner());
+
+		try {
+			final URL url = ParameterDatabase.getURL(Game.getParameterFile(args));
+			if (url == null) {
+				Utils.fatalError("Failed to load parameter database: "
+						+ Game.getParameterFile(args));
+			}
+
+			org.apache.log4j.PropertyConfigurator.configure(url);
+
+			final ParameterDatabase parameters = new ParameterDatabase(url, args);
+			final SweepRunner runner = new SweepRunner();
+			runner.setup(parameters, new Parameter(SweepRunner.P_SWEEP));
+			runner.run();
+		} catch (final Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	public SweepRunner() {
+		grid = new SweepGrid();
+	}
+
+	public void setup(final ParameterDatabase parameters, final Parameter base) {
+		this.parameters = parameters;
+
+		grid.setup(parameters, base);
+
+		runs = parameters.getIntWithDefault(base.push(SweepRunner.P_RUNS), null, 1);
+		if (runs < 1) {
+			runs = 1;
+		}
+
+		seed = parameters.getLongWithDefault(base.push(SweepRunner.P_SEED), null,
+				0);
+
+		threads = parameters.getIntWithDefault(base.push(SweepRunner.P_THREADS),
+				null, Runtime.getRuntime().availableProcessors());
+		if (threads < 1) {
+			threads = 1;
+		}
+
+		dir = new File(parameters.getStringWithDefault(base
+				.push(SweepRunner.P_DIR), null, SweepRunner.DEFAULT_DIR));
+
+		outputFolders = SweepGrid.split(parameters.getString(base
+				.push(SweepRunner.P_OUTPUTFOLDERS), null));
+
+		// resolved here, as the database cannot be looked up by runs at once
+		outputFiles = new LinkedHashMap<String, String>();
+		for (final String key : SweepGrid.split(parameters.getString(base
+				.push(SweepRunner.P_OUTPUTFILES), null))) {
+			final String file = parameters.getString(new Parameter(key), null);
+			if (file == null) {
+				SweepRunner.logger.warn("No output file given by " + key + " !");
+			} else {
+				outputFiles.put(key, new File(file).getName());
+			}
+		}
+
+		metrics = SweepGrid.split(parameters.getString(base
+				.push(SweepRunner.P_METRICS), null));
+
+		confidence = parameters.getDoubleWithDefault(base
+				.push(SweepRunner.P_CONFIDENCE), null, 0.95);
+	}
+
+	public SweepGrid getGrid() {
+		return grid;
+	}
+
+	public SweepJournal getJournal() {
+		return journal;
+	}
+
+	public SweepSummary getSummary() {
+		return summary;
+	}
+
+	public File getDir() {
+		return dir;
+	}
+
+	public File getRunDir(final SweepGrid.Point point, final long seed) {
+		return new File(new File(dir, point.getName()), String.valueOf(seed));
+	}
+
+	/**
+	 * runs the games yet to complete and returns when all of them are over.
+	 *
+	 * @return the number of runs that failed.
+	 */
+	public int run() throws IOException, InterruptedException {
+		dir.mkdirs();
+		journal = new SweepJournal(new File(dir, SweepRunner.JOURNAL));
+		summary = new SweepSummary(confidence);
+
+		final File summaryFile = new File(dir, SweepRunner.SUMMARY);
+		final List<SweepGrid.Point> points = grid.getPoints();
+		for (final SweepGrid.Point point : points) {
+			summary.addPoint(point.getName());
+		}
+
+		SweepRunner.logger.info(grid);
+		SweepRunner.logger.info(points.size() + " points x " + runs + " runs, "
+				+ threads + " at a time, in " + dir);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final CompletionService<Run> service = new ExecutorCompletionService<Run>(
+				executor);
+
+		int failed = 0;
+		try {
+			// all the points with one seed before any with the next
+			int submitted = 0;
+			for (int r = 0; r < runs; r++) {
+				for (final SweepGrid.Point point : points) {
+					final Map<String, Double> completed = journal.getMetrics(point
+							.getName(), seed + r);
+					if (completed == null) {
+						service.submit(new Run(point, seed + r));
+						submitted++;
+					} else {
+						summary.addRun(point.getName(), completed);
+					}
+				}
+			}
+
+			final int skipped = points.size() * runs - submitted;
+			if (skipped > 0) {
+				SweepRunner.logger.info(skipped + " runs already completed.");
+				summary.write(summaryFile);
+			}
+
+			for (int i = 0; i < submitted; i++) {
+				final Run run;
+				try {
+					run = service.take().get();
+				} catch (final ExecutionException e) {
+					// Run catches whatever the game throws
+					throw new IllegalStateException(e.getCause());
+				}
+
+				final String name = run.getPoint().getName();
+				if (run.getError() == null) {
+					journal.completed(name, run.getSeed(), run.getMetrics());
+					summary.addRun(name, run.getMetrics());
+					summary.write(summaryFile);
+					SweepRunner.logger.info("[" + (i + 1) + "/" + submitted + "] "
+							+ summary.describe(name));
+				} else {
+					journal.failed(name, run.getSeed(), run.getError());
+					failed++;
+					SweepRunner.logger.error("[" + (i + 1) + "/" + submitted + "] "
+							+ run + " failed !", run.getError());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			journal.close();
+		}
+
+		if (failed > 0) {
+			SweepRunner.logger.warn(failed
+					+ " runs failed and will be run again when the sweep resumes.");
+		}
+		SweepRunner.logger.info("sweep is over, summarized in " + summaryFile);
+
+		return failed;
+	}
+
+	/**
+	 * creates the parameters of a run, which put its assignments and output
+	 * files over the parameters of the sweep.
+	 */
+	protected ParameterDatabase createParameters(final SweepGrid.Point point,
+			final File runDir) {
+		final ParameterDatabase runParameters = new ParameterDatabase();
+		point.apply(runParameters);
+
+		for (final String key : outputFolders) {
+			runParameters.set(new Parameter(key), runDir.getPath());
+		}
+		for (final Map.Entry<String, String> entry : outputFiles.entrySet()) {
+			runParameters.set(new Parameter(entry.getKey()), new File(runDir, entry
+					.getValue()).getPath());
+		}
+
+		runParameters.addParent(parameters);
+		return runParameters;
+	}
+
+	/**
+	 * @return the game means of the metrics of the run.
+	 */
+	protected Map<String, Double> collectMetrics(final GameContext context) {
+		final Map<String, Double> values = new LinkedHashMap<String, Double>();
+
+		final StatisticalReport report = context.getServer().getController()
+				.getReport(StatisticalReport.class);
+		if (report == null) {
+			SweepRunner.logger.warn("No " + StatisticalReport.class.getSimpleName()
+					+ " to collect metrics from in " + context + " !");
+			return values;
+		}
+
+		final String varNames[] = metrics.length > 0 ? metrics : report
+				.getVarNames();
+		for (final String varName : varNames) {
+			final CumulativeDistribution dist = report.getDistribution(varName);
+			if ((dist == null) || (dist.getN() == 0)) {
+				SweepRunner.logger.warn("No data on " + varName + " in " + context
+						+ " !");
+			} else {
+				values.put(varName, new Double(dist.getMean()));
+			}
+		}
+
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " " + dir;
+	}
+
+	/**
+	 * a game at a point of the grid.
+	 */
+	protected class Run implements Callable<Run> {
+
+		protected final SweepGrid.Point point;
+
+		protected final long seed;
+
+		protected Map<String, Double> metrics;
+
+		protected Throwable error;
+
+		public Run(final SweepGrid.Point point, final long seed) {
+			this.point = point;
+			this.seed = seed;
+		}
+
+		public Run call() {
+			try {
+				final File runDir = getRunDir(point, seed);
+				runDir.mkdirs();
+
+				final GameContext context = new GameContext(createParameters(point,
+						runDir), seed);
+				context.call();
+				metrics = collectMetrics(context);
+			} catch (final Throwable t) {
+				error = t;
+			}
+			return this;
+		}
+
+		public SweepGrid.Point getPoint() {
+			return point;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		public Map<String, Double> getMetrics() {
+			return metrics;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return point + " seed:" + seed;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.sweep;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cern.jet.stat.Probability;
+import edu.cuny.cat.stat.GameReport;
+import edu.cuny.util.CumulativeDistribution;
+
+/**
+ * <p>
+ * The summary of a sweep, with the distribution of each metric at each point
+ * over the runs completed so far, and the Student-t confidence interval of its
+ * mean.
+ * </p>
+ *
+ * <p>
+ * The summary is written as a CSV file with one line per metric at each point:
+ * </p>
+ *
+ * <pre>
+ * point,metric,n,mean,stdev,ci.low,ci.high
+ * </pre>
+ *
+ * <p>
+ * where <code>stdev</code> is the standard deviation of the sample, and the
+ * interval is left empty (<code>NaN</code>) until there are two runs.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SweepSummary {
+
+	public static final String HEADER = "point,metric,n,mean,stdev,ci.low,ci.high";
+
+	protected double confidence;
+
+	protected Map<String, Map<String, CumulativeDistribution>> distributions;
+
+	/**
+	 * @param confidence
+	 *          the level of confidence of the intervals, e.g. 0.95.
+	 */
+	public SweepSummary(final double confidence) {
+		if ((confidence <= 0) || (confidence >= 1)) {
+			throw new IllegalArgumentException(
+					"Confidence level must be in (0, 1) !");
+		}
+		this.confidence = confidence;
+		distributions = new LinkedHashMap<String, Map<String, CumulativeDistribution>>();
+	}
+
+	public double getConfidence() {
+		return confidence;
+	}
+
+	/**
+	 * adds the point so that it appears in the summary in this order, even
+	 * before any of its runs completes.
+	 */
+	public synchronized void addPoint(final String point) {
+		if (!distributions.containsKey(point)) {
+			distributions.put(point,
+					new LinkedHashMap<String, CumulativeDistribution>());
+		}
+	}
+
+	public synchronized void addRun(final String point,
+			final Map<String, Double> metrics) {
+		addPoint(point);
+		final Map<String, CumulativeDistribution> dists = distributions.get(point);
+		for (final Map.Entry<String, Double> entry : metrics.entrySet()) {
+			CumulativeDistribution dist = dists.get(entry.getKey());
+			if (dist == null) {
+				dist = new CumulativeDistribution(entry.getKey());
+				dists.put(entry.getKey(), dist);
+			}
+			dist.newData(entry.getValue().doubleValue());
+		}
+	}
+
+	public synchronized CumulativeDistribution getDistribution(
+			final String point, final String metric) {
+		final Map<String, CumulativeDistribution> dists = distributions.get(point);
+		return dists == null ? null : dists.get(metric);
+	}
+
+	/**
+	 * @return the standard deviation of the sample, with <code>n - 1</code>
+	 *         rather than <code>n</code> as in
+	 *         {@link CumulativeDistribution#getStdDev()}, or {@link Double#NaN}
+	 *         if there are less than two observations.
+	 */
+	public static double getSampleStdDev(final CumulativeDistribution dist) {
+		if (dist.getN() < 2) {
+			return Double.NaN;
+		}
+
+		return dist.getStdDev()
+				* Math.sqrt((double) dist.getN() / (dist.getN() - 1));
+	}
+
+	/**
+	 * @return the half width of the confidence interval of the mean of the
+	 *         distribution, or {@link Double#NaN} if there are less than two
+	 *         observations.
+	 */
+	public double getHalfWidth(final CumulativeDistribution dist) {
+		if (dist.getN() < 2) {
+			return Double.NaN;
+		}
+
+		final double t = Probability.studentTInverse(1 - confidence,
+				dist.getN() - 1);
+		return t * SweepSummary.getSampleStdDev(dist) / Math.sqrt(dist.getN());
+	}
+
+	/**
+	 * writes the summary to a temporary file first and then renames it, so that
+	 * the file is never seen half written.
+	 */
+	public synchronized void write(final File file) throws IOException {
+		final File temp = new File(file.getPath() + ".tmp");
+		final PrintWriter writer = new PrintWriter(new FileWriter(temp));
+		try {
+			writer.println(SweepSummary.HEADER);
+			for (final Map.Entry<String, Map<String, CumulativeDistribution>> entry : distributions
+					.entrySet()) {
+				for (final CumulativeDistribution dist : entry.getValue().values()) {
+					final double halfWidth = getHalfWidth(dist);
+					writer.println(entry.getKey() + "," + dist.getName() + ","
+							+ dist.getN() + "," + dist.getMean() + ","
+							+ SweepSummary.getSampleStdDev(dist) + ","
+							+ (dist.getMean() - halfWidth) + ","
+							+ (dist.getMean() + halfWidth));
+				}
+			}
+		} finally {
+			writer.close();
+		}
+
+		if (!temp.renameTo(file)) {
+			// renaming onto an existing file fails on some platforms
+			file.delete();
+			if (!temp.renameTo(file)) {
+				throw new IOException("Failed to rename " + temp + " to " + file);
+			}
+		}
+	}
+
+	/**
+	 * @return a line on the metrics at the point.
+	 */
+	public synchronized String describe(final String point) {
+		String s = point;
+		final Map<String, CumulativeDistribution> dists = distributions.get(point);
+		if (dists != null) {
+			for (final CumulativeDistribution dist : dists.values()) {
+				s += "  " + dist.getName() + ": "
+						+ GameReport.Formatter.format(dist.getMean()) + " +/- "
+						+ GameReport.Formatter.format(getHalfWidth(dist)) + " (n="
+						+ dist.getN() + ")";
+			}
+		}
+		return s;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " confidence:" + confidence;
+	}
+}
@@ -0,0 +1,272 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.comm.SocketBasedConnection;
+
+/**
+ * An asynchronous dispatcher whose thread blocks on a
+ * {@link java.util.concurrent.BlockingQueue} until a task is added, instead of
+ * polling the queue and sleeping as {@link AsynchronousDispatcher} and
+ * {@link PriorityAsynchronousDispatcher} do.
+ * 
+ * <p>
+ * With a comparator, tasks are taken in the order it defines, as
+ * {@link PriorityAsynchronousDispatcher} does; task IDs are assigned in the
+ * order tasks are added so that the comparator can keep the ordering stable.
+ * Without a comparator tasks are taken first in, first out.
+ * </p>
+ * 
+ * <p>
+ * If the batch size is larger than one, up to that many queued tasks are
+ * taken at a time and run one after another. Tasks added while a batch is
+ * running are only ordered against the tasks still left in the queue, so a
+ * batch size of one, the default, keeps the strict ordering.
+ * </p>
+ * 
+ * <p>
+ * The tasks run in a write batch of {@link SocketBasedConnection}, so that the
+ * messages they send are only queued, and those to the same party go out in
+ * one gathering write when the queue runs empty, or after
+ * {@link #MAX_UNFLUSHED_TASKS} tasks if it does not.
+ * </p>
+ * 
+ * <p>
+ * The dispatcher counts the tasks that pass through its queue and how long
+ * they wait there, which can be used to spot a dispatcher that falls behind.
+ * </p>
+ * 
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class BlockingDispatcher extends Thread implements Dispatcher {
+
+	protected static Logger logger = Logger.getLogger(BlockingDispatcher.class);
+
+	/**
+	 * the maximum number of tasks run before the messages they send are written.
+	 */
+	public static final int MAX_UNFLUSHED_TASKS = 64;
+
+	protected final BlockingQueue<DispatchingTask> tasks;
+
+	protected final int batchSize;
+
+	/**
+	 * the ID of the next task added, guarded by {@link #addLock}.
+	 */
+	protected int counter;
+
+	/**
+	 * held while a task is given its ID and queued, so that tasks are queued in
+	 * the order of their IDs, as they are by the synchronized
+	 * {@link AsynchronousDispatcher#addTask(DispatchingTask)}. It is not the
+	 * monitor of this thread, which {@link Thread#join()} waits on.
+	 */
+	protected final Object addLock = new Object();
+
+	protected final AtomicLong numOfAddedTasks;
+
+	protected final AtomicLong numOfDispatchedTasks;
+
+	protected final AtomicLong totalWaitTime;
+
+	protected final AtomicLong maxWaitTime;
+
+	protected volatile boolean terminated;
+
+	public BlockingDispatcher() {
+		this(null, 1);
+	}
+
+	public BlockingDispatcher(final Comparator<DispatchingTask> comparator) {
+		this(comparator, 1);
+	}
+
+	/**
+	 * @param comparator
+	 *          the order in which to run queued tasks, or null to run them in
+	 *          the order they are added.
+	 * @param batchSize
+	 *          the maximum number of tasks taken from the queue at a time.
+	 */
+	public BlockingDispatcher(final Comparator<DispatchingTask> comparator,
+			final int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+		}
+
+		if (comparator == null) {
+			tasks = new LinkedBlockingQueue<DispatchingTask>();
+		} else {
+			tasks = new PriorityBlockingQueue<DispatchingTask>(20, comparator);
+		}
+		this.batchSize = batchSize;
+
+		counter = 0;
+		numOfAddedTasks = new AtomicLong(0);
+		numOfDispatchedTasks = new AtomicLong(0);
+		totalWaitTime = new AtomicLong(0);
+		maxWaitTime = new AtomicLong(0);
+
+		start();
+	}
+
+	@Override
+	public void run() {
+		setPriority(Thread.MAX_PRIORITY);
+
+		final ArrayList<DispatchingTask> batch = new ArrayList<DispatchingTask>(
+				batchSize);
+		int numOfUnflushed = 0;
+		while (!terminated) {
+			if (tasks.isEmpty()
+					|| (numOfUnflushed >= BlockingDispatcher.MAX_UNFLUSHED_TASKS)) {
+				SocketBasedConnection.endBatch();
+				numOfUnflushed = 0;
+			}
+
+			try {
+				batch.add(tasks.take());
+			} catch (final InterruptedException e) {
+				continue;
+			}
+
+			SocketBasedConnection.beginBatch();
+
+			if (batchSize > 1) {
+				tasks.drainTo(batch, batchSize - 1);
+			}
+
+			final long now = System.nanoTime();
+			for (int i = 0; i < batch.size(); i++) {
+				final DispatchingTask task = batch.get(i);
+				recordWaitTime(now - task.enqueueTime);
+				try {
+					task.run();
+				} catch (final RuntimeException e) {
+					BlockingDispatcher.logger.error(
+							"Exception occurred while dispatching !", e);
+				}
+			}
+			numOfUnflushed += batch.size();
+			batch.clear();
+		}
+
+		SocketBasedConnection.endBatch();
+		tasks.clear();
+
+		BlockingDispatcher.logger.info(this + " stopped to dispatch events.\n");
+	}
+
+	protected void recordWaitTime(final long waitTime) {
+		numOfDispatchedTasks.incrementAndGet();
+		totalWaitTime.addAndGet(waitTime);
+
+		long max;
+		do {
+			max = maxWaitTime.get();
+		} while ((waitTime > max) && !maxWaitTime.compareAndSet(max, waitTime));
+	}
+
+	public void addTask(final DispatchingTask task) {
+		synchronized (addLock) {
+			task.tid = counter++;
+			task.enqueueTime = System.nanoTime();
+			numOfAddedTasks.incrementAndGet();
+			tasks.add(task);
+		}
+	}
+
+	public void process() {
+		// do nothing
+	}
+
+	public void processTask(final DispatchingTask task) {
+		addTask(task);
+		process();
+	}
+
+	public void terminate() {
+		terminated = true;
+		interrupt();
+	}
+
+	public DispatchingTask[] getTasks() {
+		final DispatchingTask template[] = new DispatchingTask[0];
+		return tasks.toArray(template);
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return the number of tasks waiting in the queue.
+	 */
+	public int getQueueDepth() {
+		return tasks.size();
+	}
+
+	public long getNumOfAddedTasks() {
+		return numOfAddedTasks.get();
+	}
+
+	public long getNumOfDispatchedTasks() {
+		return numOfDispatchedTasks.get();
+	}
+
+	/**
+	 * @return the time, in nanoseconds, that the dispatched tasks have spent in
+	 *         the queue altogether.
+	 */
+	public long getTotalWaitTime() {
+		return totalWaitTime.get();
+	}
+
+	/**
+	 * @return the longest time, in nanoseconds, a task has waited in the queue.
+	 */
+	public long getMaxWaitTime() {
+		return maxWaitTime.get();
+	}
+
+	/**
+	 * @return the average time, in nanoseconds, a dispatched task has waited in
+	 *         the queue.
+	 */
+	public double getMeanWaitTime() {
+		final long n = numOfDispatchedTasks.get();
+		return n == 0 ? 0 : (double) totalWaitTime.get() / n;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " depth:" + getQueueDepth()
+				+ " dispatched:" + getNumOfDispatchedTasks() + " mean wait:"
+				+ (long) getMeanWaitTime() + "ns max wait:" + getMaxWaitTime() + "ns";
+	}
+}
@@ -40,6 +40,12 @@ public abstract class DispatchingTask extends Observable implements Runnable {
 	 */
 	public int tid;
 
+	/**
+	 * the value of {@link System#nanoTime()} when the task was queued, used by
+	 * {@link BlockingDispatcher} to measure how long tasks wait.
+	 */
+	long enqueueTime;
+
 	/**
 	 * notifies the observers of the failure of dispatching to the specified
 	 * receiver.
@@ -30,13 +30,16 @@
 package edu.cuny.cat.trader.strategy;
 
 import java.io.Serializable;
-import java.util.Iterator;
 
 import org.apache.log4j.Logger;
 
 import edu.cuny.cat.core.Shout;
 import edu.cuny.cat.event.AuctionEvent;
+import edu.cuny.cat.event.RegistrationEvent;
+import edu.cuny.cat.stat.GDBeliefCurve;
 import edu.cuny.cat.stat.HistoricalReport;
+import edu.cuny.cat.stat.MarketHistoryIndex;
+import edu.cuny.cat.stat.SharedMarketHistory;
 import edu.cuny.util.Parameter;
 import edu.cuny.util.ParameterDatabase;
 import edu.cuny.util.Prototypeable;
@@ -98,6 +101,23 @@ import edu.cuny.util.Utils;
  * {@link edu.cuny.cat.stat.HistoricalReport} used by this strategy)</td>
  * </tr>
  * 
+ * <tr>
+ * <td valign=top><i>base </i> <tt>.sharedhistory</tt><br>
+ * <font size=-1>boolean (false by default) </font></td>
+ * <td valign=top>(whether to query the {@link edu.cuny.cat.stat.MarketHistoryIndex}
+ * of the market the trader registers with, shared by all the GD traders with
+ * the same history configuration, instead of keeping a history of its
+ * own)</td>
+ * </tr>
+ * 
+ * <tr>
+ * <td valign=top><i>base </i> <tt>.checked</tt><br>
+ * <font size=-1>boolean (false by default) </font></td>
+ * <td valign=top>(whether to validate the belief function against linear
+ * scans of the history each time a shout is made, which is slow and meant for
+ * debugging only)</td>
+ * </tr>
+ * 
  * </table>
  * 
  * <p>
@@ -110,6 +130,7 @@ import edu.cuny.util.Utils;
  * </table>
  * 
  * @see edu.cuny.cat.stat.HistoricalReport
+ * @see edu.cuny.cat.stat.SharedMarketHistory
  * 
  * @author Jinzhong Niu
  * @version $Revision: 1.30 $
@@ -131,6 +152,10 @@ public class GDStrategy extends FixedQuantityStrategyImpl implements
 
 	public static final String P_HISTORY = "history";
 
+	public static final String P_SHAREDHISTORY = "sharedhistory";
+
+	public static final String P_CHECKED = "checked";
+
 	public static double DEFAULT_MAX_PRICE = 200;
 
 	/**
@@ -151,8 +176,32 @@ public class GDStrategy extends FixedQuantityStrategyImpl implements
 
 	protected HistoricalReport historicalReport;
 
+	/**
+	 * the history shared with other GD traders, or null if this trader keeps
+	 * {@link #historicalReport} on its own.
+	 */
+	protected SharedMarketHistory sharedHistory;
+
+	/**
+	 * where the trader passes its events on to {@link #sharedHistory}, and
+	 * which knows the market the trader registers with.
+	 */
+	protected SharedMarketHistory.Subscriber subscriber;
+
+	/**
+	 * the belief function evaluated on the history each time a shout is made.
+	 */
+	protected GDBeliefCurve beliefCurve;
+
+	/**
+	 * whether to validate {@link #beliefCurve} and the indexed counts against
+	 * linear scans of the history.
+	 */
+	protected boolean checked = false;
+
 	public GDStrategy() {
 		historicalReport = new HistoricalReport();
+		beliefCurve = new GDBeliefCurve();
 	}
 
 	@Override
@@ -164,14 +213,53 @@ public class GDStrategy extends FixedQuantityStrategyImpl implements
 				base.push(GDStrategy.P_MAXPRICE), defBase.push(GDStrategy.P_MAXPRICE),
 				maxPrice);
 
+		checked = parameters.getBoolean(base.push(GDStrategy.P_CHECKED), defBase
+				.push(GDStrategy.P_CHECKED), checked);
+
 		historicalReport.setup(parameters, base.push(GDStrategy.P_HISTORY));
 		historicalReport.initialize();
+
+		if (parameters.getBoolean(base.push(GDStrategy.P_SHAREDHISTORY), defBase
+				.push(GDStrategy.P_SHAREDHISTORY), false)) {
+			sharedHistory = SharedMarketHistory.getInstance(historicalReport
+					.getMemorySize(), historicalReport.isRoundReset());
+			subscriber = sharedHistory.subscribe();
+		}
 	}
 
 	public HistoricalReport getHistoricalReport() {
 		return historicalReport;
 	}
 
+	public boolean isChecked() {
+		return checked;
+	}
+
+	public void setChecked(final boolean checked) {
+		this.checked = checked;
+	}
+
+	public GDBeliefCurve getBeliefCurve() {
+		return beliefCurve;
+	}
+
+	public SharedMarketHistory getSharedHistory() {
+		return sharedHistory;
+	}
+
+	/**
+	 * @return the shared history of the market the trader is in, or null if the
+	 *         shared history is not enabled or the trader has not registered
+	 *         with any market yet.
+	 */
+	protected MarketHistoryIndex getMarketHistoryIndex() {
+		if (subscriber == null) {
+			return null;
+		}
+
+		return subscriber.getIndex();
+	}
+
 	/**
 	 * TODO: need update to correctly clone all the configuration.
 	 */
@@ -184,7 +272,15 @@ public class GDStrategy extends FixedQuantityStrategyImpl implements
 	@Override
 	public void eventOccurred(final AuctionEvent event) {
 		/* now send event to historical report first */
-		if (historicalReport != null) {
+		if (subscriber != null) {
+			if ((event instanceof RegistrationEvent)
+					&& ((RegistrationEvent) event).getTraderId().equals(
+							agent.getTraderId())) {
+				subscriber.register(((RegistrationEvent) event).getSpecialistId());
+			} else {
+				subscriber.eventOccurred(event);
+			}
+		} else if (historicalReport != null) {
 			historicalReport.eventOccurred(event);
 		}
 
@@ -201,7 +297,20 @@ public class GDStrategy extends FixedQuantityStrategyImpl implements
 
 		super.modifyShout(shout);
 
-		final Iterator<Shout> sortedShouts = historicalReport.sortedShoutIterator();
+		final MarketHistoryIndex index = getMarketHistoryIndex();
+		if (index != null) {
+			beliefCurve.compute(index, agent.isBuyer());
+			if (checked && !beliefCurve.validate(index)) {
+				GDStrategy.logger.error("****************** Wrong belief curve!");
+			}
+		} else if (sharedHistory == null) {
+			beliefCurve.compute(historicalReport, agent.isBuyer());
+			if (checked && !beliefCurve.validate(historicalReport)) {
+				GDStrategy.logger.error("****************** Wrong belief curve!");
+			}
+		} else {
+			beliefCurve.clear();
+		}
 
 		double lastPoint = 0;
 		double lastP = 0;
@@ -215,15 +324,12 @@ public class GDStrategy extends FixedQuantityStrategyImpl implements
 			currentP = 1;
 		}
 		
-		while (sortedShouts.hasNext()) {
-			final Shout nextShout = sortedShouts.next();
-			if (nextShout.getPrice() > lastPoint) {			
-				currentPoint = nextShout.getPrice();
-				currentP = calculateProbability(currentPoint);
-				getMax(lastPoint, lastP, currentPoint, currentP);
-				lastPoint = currentPoint;
-				lastP = currentP;
-			}
+		for (int i = 0; i < beliefCurve.size(); i++) {
+			currentPoint = beliefCurve.getPrice(i);
+			currentP = beliefCurve.getProbability(i);
+			getMax(lastPoint, lastP, currentPoint, currentP);
+			lastPoint = currentPoint;
+			lastP = currentP;
 		}
 
 		currentPoint = maxPrice;
@@ -273,6 +379,23 @@ public class GDStrategy extends FixedQuantityStrategyImpl implements
 
 		double prob = 0;
 
+		final MarketHistoryIndex index = getMarketHistoryIndex();
+		if (index != null) {
+			if (agent.isBuyer()) {
+				final int TBL = index.getNumOfAcceptedBidsBelow(price);
+				final int AL = index.getNumOfAsksBelow(price);
+				final int RBG = index.getNumOfRejectedBidsAbove(price);
+				prob = (double) (TBL + AL) / (TBL + AL + RBG);
+			} else {
+				final int TAG = index.getNumOfAcceptedAsksAbove(price);
+				final int BG = index.getNumOfBidsAbove(price);
+				final int RAL = index.getNumOfRejectedAsksBelow(price);
+				prob = (double) (TAG + BG) / (TAG + BG + RAL);
+			}
+
+			return prob;
+		}
+
 		// (taken bids below price) + (all asks below price)
 		// -------------------------------------------------------------------------
 		// (taken bids below price) + (all asks below price) + (rejected bids above
@@ -293,17 +416,19 @@ public class GDStrategy extends FixedQuantityStrategyImpl implements
 			final int RBG = historicalReport.getIncreasingQueryAccelerator()
 					.getNumOfRejectedBidsAbove(price);
 
-			if (TBL != historicalReport.getNumberOfBids(-1 * price, true)) {
-				GDStrategy.logger.error("****************** Wrong TBL!");
-			}
+			if (checked) {
+				if (TBL != historicalReport.getNumberOfBids(-1 * price, true)) {
+					GDStrategy.logger.error("****************** Wrong TBL!");
+				}
 
-			if (AL != historicalReport.getNumberOfAsks(-1 * price, false)) {
-				GDStrategy.logger.error("****************** Wrong AL!");
-			}
+				if (AL != historicalReport.getNumberOfAsks(-1 * price, false)) {
+					GDStrategy.logger.error("****************** Wrong AL!");
+				}
 
-			if (RBG != historicalReport.getNumberOfBids(price, false)
-					- historicalReport.getNumberOfBids(price, true)) {
-				GDStrategy.logger.error("****************** Wrong RBG!");
+				if (RBG != historicalReport.getNumberOfBids(price, false)
+						- historicalReport.getNumberOfBids(price, true)) {
+					GDStrategy.logger.error("****************** Wrong RBG!");
+				}
 			}
 
 			prob = (double) (TBL + AL) / (TBL + AL + RBG);
@@ -329,17 +454,19 @@ public class GDStrategy extends FixedQuantityStrategyImpl implements
 			final int RAL = historicalReport.getIncreasingQueryAccelerator()
 					.getNumOfRejectedAsksBelow(price);
 
-			if (TAG != historicalReport.getNumberOfAsks(price, true)) {
-				GDStrategy.logger.error("****************** Wrong TAG!");
-			}
+			if (checked) {
+				if (TAG != historicalReport.getNumberOfAsks(price, true)) {
+					GDStrategy.logger.error("****************** Wrong TAG!");
+				}
 
-			if (BG != historicalReport.getNumberOfBids(price, false)) {
-				GDStrategy.logger.error("****************** Wrong BG!");
-			}
+				if (BG != historicalReport.getNumberOfBids(price, false)) {
+					GDStrategy.logger.error("****************** Wrong BG!");
+				}
 
-			if (RAL != historicalReport.getNumberOfAsks(-1 * price, false)
-					- historicalReport.getNumberOfAsks(-1 * price, true)) {
-				GDStrategy.logger.error("****************** Wrong RAL!");
+				if (RAL != historicalReport.getNumberOfAsks(-1 * price, false)
+						- historicalReport.getNumberOfAsks(-1 * price, true)) {
+					GDStrategy.logger.error("****************** Wrong RAL!");
+				}
 			}
 
 			prob = (double) (TAG + BG) / (TAG + BG + RAL);
@@ -37,7 +37,6 @@ public class SocialNetworkShoutingStrategy extends Observable implements
 		MethodInterceptor, Parameterizable { 
 	
 	private final SocialNetworkTradingAgent snta;
-	private static SocialNetworkShoutingStrategy sNSS;
 	private boolean experience; //
 	private boolean isValid;
 	private Shout.MutableShout s;
@@ -55,14 +54,16 @@ public class SocialNetworkShoutingStrategy extends Observable implements
 
 	public static SocialNetworkShoutingStrategy getInstance() {
 
-		return sNSS;
+		return Galaxy.getInstance().getSingleton(
+				SocialNetworkShoutingStrategy.class);
 
 	}
 
 	private SocialNetworkShoutingStrategy(SocialNetworkTradingAgent snta) {
 
 		this.snta = snta;
-		sNSS = this;
+		Galaxy.getInstance().putSingleton(SocialNetworkShoutingStrategy.class,
+				this);
 		this.isValid = false; //
 		dist = new Uniform(0, 1, Galaxy.getInstance().getTyped(Game.P_CAT,
 				GlobalPRNG.class).getEngine());
@@ -0,0 +1,315 @@
+/*
+ * JAF - Java Application Framework
+ * Copyright (C) 1999-2006 Jinzhong Niu
+ */
+
+package edu.cuny.event;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import edu.cuny.util.Parameter;
+import edu.cuny.util.ParameterDatabase;
+import edu.cuny.util.Parameterizable;
+
+/**
+ * <p>
+ * An {@link EventEngine} that dispatches events without a global lock. The
+ * listeners of each event type are kept as an immutable
+ * {@link EventMulticaster} chain in a concurrent map and replaced with
+ * compare-and-set on check-in and check-out, so dispatching only reads the
+ * current snapshot of its type. Events of different types, for example the
+ * transactions of different auctioneers, can thus be dispatched from several
+ * threads at once.
+ * </p>
+ * 
+ * <p>
+ * Optionally, each event type gets a lane: a bounded queue drained by its own
+ * thread, which delivers the events of that type in the order they were
+ * dispatched. Dispatching to a full lane blocks until there is room, and an
+ * event dispatched from the lane's own thread is delivered at once. Lanes
+ * change the semantics of {@link #dispatchEvent(Object, Event)}, which then
+ * returns before listeners are notified, so they are off by default and can
+ * also be created for selected types only via {@link #addLane(Object)}.
+ * </p>
+ * 
+ * <p>
+ * <b>Parameters</b>
+ * </p>
+ * <table>
+ * 
+ * <tr>
+ * <td valign=top><i>base</i><tt>.async</tt><br>
+ * <font size=-1>boolean (<code>false</code> by default)</font></td>
+ * <td valign=top>(whether every event type is delivered through its own
+ * lane)</td>
+ * </tr>
+ * 
+ * <tr>
+ * <td valign=top><i>base</i><tt>.capacity</tt><br>
+ * <font size=-1>int &gt;= 1 (<code>1024</code> by default)</font></td>
+ * <td valign=top>(the number of events each lane can hold)</td>
+ * </tr>
+ * 
+ * </table>
+ * 
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class ConcurrentEventEngine extends EventEngine implements
+		Parameterizable {
+
+	public static final String P_ASYNC = "async";
+
+	public static final String P_CAPACITY = "capacity";
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	protected final ConcurrentMap<Object, EventListener> listeners;
+
+	protected final ConcurrentMap<Object, Lane> lanes;
+
+	protected volatile boolean active;
+
+	protected boolean async;
+
+	protected int capacity;
+
+	public ConcurrentEventEngine() {
+		listeners = new ConcurrentHashMap<Object, EventListener>();
+		dispatchTable = listeners;
+		lanes = new ConcurrentHashMap<Object, Lane>();
+		async = false;
+		capacity = ConcurrentEventEngine.DEFAULT_CAPACITY;
+	}
+
+	public void setup(final ParameterDatabase parameters, final Parameter base) {
+		async = parameters.getBoolean(base.push(ConcurrentEventEngine.P_ASYNC),
+				null, async);
+		capacity = parameters.getIntWithDefault(base
+				.push(ConcurrentEventEngine.P_CAPACITY), null, capacity);
+		if (capacity < 1) {
+			EventEngine.logger.error("Invalid lane capacity: " + capacity
+					+ " ! " + ConcurrentEventEngine.DEFAULT_CAPACITY
+					+ " is used instead.");
+			capacity = ConcurrentEventEngine.DEFAULT_CAPACITY;
+		}
+	}
+
+	@Override
+	public void stop() {
+		super.stop();
+
+		for (final Lane lane : lanes.values()) {
+			lane.close();
+		}
+		lanes.clear();
+	}
+
+	@Override
+	public void checkIn(final Object type, final EventListener l) {
+		if (!isEnabled()) {
+			return;
+		}
+
+		EventListener lc;
+		do {
+			lc = listeners.get(type);
+		} while (!swap(type, lc, EventMulticaster.addEventListener(lc, l)));
+	}
+
+	@Override
+	public void checkOut(final Object type, final EventListener l) {
+		if (!isEnabled()) {
+			return;
+		}
+
+		EventListener lc;
+		EventListener newLc;
+		do {
+			lc = listeners.get(type);
+			newLc = EventMulticaster.removeEventListener(lc, l);
+			if (newLc == lc) {
+				// not checked in
+				return;
+			}
+		} while (!swap(type, lc, newLc));
+	}
+
+	/**
+	 * replaces the listeners of the given type if they have not been changed by
+	 * another thread meanwhile.
+	 */
+	private boolean swap(final Object type, final EventListener lc,
+			final EventListener newLc) {
+		if (lc == null) {
+			return (newLc == null) || (listeners.putIfAbsent(type, newLc) == null);
+		} else if (newLc == null) {
+			return listeners.remove(type, lc);
+		} else {
+			return listeners.replace(type, lc, newLc);
+		}
+	}
+
+	@Override
+	public void dispatchEvent(final Object type, final Event te) {
+		if (!isEnabled()) {
+			return;
+		}
+
+		Lane lane = lanes.get(type);
+		if ((lane == null) && async) {
+			lane = addLane(type);
+		}
+
+		if ((lane == null) || (Thread.currentThread() == lane)) {
+			synchronizedDispatch(type, te);
+		} else {
+			lane.enqueue(te);
+		}
+	}
+
+	@Override
+	public void synchronizedDispatch(final Object type, final Event te) {
+		final EventListener lc = listeners.get(type);
+		if (lc != null) {
+			lc.eventOccurred(te);
+		}
+	}
+
+	/**
+	 * delivers the events of the given type asynchronously from now on.
+	 * 
+	 * @return the lane of the type
+	 */
+	public Lane addLane(final Object type) {
+		Lane lane = lanes.get(type);
+		if (lane == null) {
+			final Lane newLane = new Lane(type, capacity);
+			lane = lanes.putIfAbsent(type, newLane);
+			if (lane == null) {
+				lane = newLane;
+				lane.start();
+			}
+		}
+		return lane;
+	}
+
+	/**
+	 * delivers the events of the given type synchronously again, after the
+	 * events already queued in its lane.
+	 */
+	public void removeLane(final Object type) {
+		final Lane lane = lanes.remove(type);
+		if (lane != null) {
+			lane.close();
+		}
+	}
+
+	public boolean isAsync() {
+		return async;
+	}
+
+	public void setAsync(final boolean async) {
+		this.async = async;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	protected void setEnabled(final boolean enabled) {
+		active = enabled;
+	}
+
+	@Override
+	protected boolean isEnabled() {
+		return active;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + (async ? " async:" + capacity : "");
+	}
+
+	/**
+	 * A thread delivering the events of one type in order.
+	 */
+	public class Lane extends Thread {
+
+		protected final Object type;
+
+		protected final BlockingQueue<Event> queue;
+
+		protected volatile boolean closed;
+
+		public Lane(final Object type, final int capacity) {
+			super(ConcurrentEventEngine.this.getClass().getSimpleName() + " lane: "
+					+ type);
+			this.type = type;
+			queue = new ArrayBlockingQueue<Event>(capacity);
+			setDaemon(true);
+		}
+
+		protected void enqueue(final Event te) {
+			if (closed) {
+				synchronizedDispatch(type, te);
+				return;
+			}
+
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						queue.put(te);
+						return;
+					} catch (final InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		/**
+		 * stops the lane once the events already queued have been delivered.
+		 */
+		protected void close() {
+			closed = true;
+			interrupt();
+		}
+
+		/**
+		 * @return the number of events waiting to be delivered.
+		 */
+		public int getQueueDepth() {
+			return queue.size();
+		}
+
+		@Override
+		public void run() {
+			while (!closed || !queue.isEmpty()) {
+				final Event te;
+				try {
+					te = queue.take();
+				} catch (final InterruptedException e) {
+					continue;
+				}
+
+				try {
+					synchronizedDispatch(type, te);
+				} catch (final RuntimeException e) {
+					EventEngine.logger.error("Exception occurred while dispatching "
+							+ te + " !", e);
+				}
+			}
+		}
+	}
+}
@@ -29,8 +29,13 @@
 
 package edu.cuny.prng;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.log4j.Logger;
 
+import cern.jet.random.Uniform;
 import cern.jet.random.engine.RandomEngine;
 import cern.jet.random.engine.RandomSeedGenerator;
 import edu.cuny.util.Parameter;
@@ -53,6 +58,28 @@ import edu.cuny.util.ParameterDatabase;
  * </p>
  * 
  * <p>
+ * When multiple generators are used, the seed of each is derived from the seed
+ * of the default generator by {@link PRNGStreams}, rather than drawn from a
+ * seed generator started by the system time, so that a game is reproducible
+ * with a given seed however its threads interleave. A generator obtained by
+ * {@link #getEngine(String)} is seeded by its key alone; one obtained by
+ * {@link #getEngine()} by its order among those obtained in the same scope,
+ * e.g., by a trader while it is created between {@link #enterScope(String)}
+ * and {@link #exitScope()}, or among all the others outside any scope. A scope
+ * may be resumed by {@link #enterScope(Scope)}, e.g., by a client each time it
+ * processes a message, so that the generators its components create lazily
+ * follow those created during its setup. The lineage of each seed is logged
+ * at INFO. No lock is taken to obtain a generator.
+ * </p>
+ * 
+ * <p>
+ * Generators created outside any scope are seeded by the order in which they
+ * are created, which depends on how threads interleave unless they are all
+ * created by the thread that sets the seed; a warning is logged the first time
+ * another thread creates one.
+ * </p>
+ * 
+ * <p>
  * <b>Parameters </b>
  * 
  * <table>
@@ -111,29 +138,56 @@ public class GlobalPRNG {
 	 * whether use multiple engines. In multi-threading scenarios, using a single
 	 * engine may lead to conflict.
 	 */
-	protected boolean useMultiEngine = true;
+	protected volatile boolean useMultiEngine = true;
 
 	/**
 	 * the default random number engine.
 	 */
-	protected RandomEngine prng;
+	protected volatile RandomEngine prng;
 
 	/**
 	 * the seed for the default engine.
 	 */
-	protected long seed;
+	protected volatile long seed;
 
 	/**
 	 * the seed generator used to obtain the default seed for the default engine
-	 * or seeds for additional engine when multiple engines are used.
+	 * when no seed is specified.
 	 * 
 	 * @see #seed
 	 * @see #prng
-	 * @see #useMultiEngine
 	 */
 	protected RandomSeedGenerator seedGenerator = new RandomSeedGenerator(
 			(int) System.currentTimeMillis(), 1);
 
+	/**
+	 * the number of engines created so far outside any scope.
+	 */
+	protected final AtomicLong numOfEngines = new AtomicLong();
+
+	/**
+	 * the scope of the current thread, if any.
+	 */
+	protected final ThreadLocal<Scope> scope = new ThreadLocal<Scope>();
+
+	/**
+	 * the thread that set the seed.
+	 */
+	protected volatile Thread seedingThread;
+
+	/**
+	 * whether a generator has been created outside any scope by a thread other
+	 * than {@link #seedingThread}.
+	 */
+	protected final AtomicBoolean unscopedWarned = new AtomicBoolean();
+
+	/**
+	 * the uniform distributions shared under their keys.
+	 * 
+	 * @see #getUniform(String)
+	 */
+	protected final ConcurrentHashMap<String, Uniform> uniforms = new ConcurrentHashMap<String, Uniform>();
+
 	public GlobalPRNG() {
 		seed = seedGenerator.nextSeed();
 	}
@@ -156,24 +210,60 @@ public class GlobalPRNG {
 		seed = parameters.getLongWithDefault(base.push(GlobalPRNG.P_SEED), defBase
 				.push(GlobalPRNG.P_SEED), seed);
 
-		prng = factory.create(seed);
+		initializeWithSeed(seed);
 
 		GlobalPRNG.logger.info("prng = " + factory.getDescription());
 		GlobalPRNG.logger.info("seed = " + seed + "\n");
 	}
 
-	private synchronized RandomEngine createEngineWithSeed(final long seed) {
+	private RandomEngine createEngineWithSeed(final long seed) {
 		return factory.create(seed);
 	}
 
 	/**
-	 * creates a random number generator.
+	 * creates a random number generator, seeded by its order in the scope of the
+	 * current thread, or among all the generators created outside any scope.
 	 * 
 	 * @return the created new generator
 	 */
-	protected synchronized RandomEngine createEngine() {
-		final long seed = seedGenerator.nextSeed();
-		return createEngineWithSeed(seed);
+	protected RandomEngine createEngine() {
+		return createEngineWithSeed(nextStream().seed);
+	}
+
+	/**
+	 * @return the name and seed of the next stream in the scope of the current
+	 *         thread, or among all the streams taken outside any scope.
+	 */
+	private Scope nextStream() {
+		final Scope current = scope.get();
+		if (current != null) {
+			final long index = current.numOfEngines++;
+			return GlobalPRNG.derive(current.key + "#" + index, current.seed,
+					PRNGStreams.deriveSeed(current.seed, index));
+		} else {
+			final long index = numOfEngines.getAndIncrement();
+			if ((Thread.currentThread() != seedingThread)
+					&& unscopedWarned.compareAndSet(false, true)) {
+				GlobalPRNG.logger.warn("stream #" + index + " created outside any scope by "
+						+ Thread.currentThread().getName()
+						+ "; its seed depends on how threads interleave.");
+			}
+			return GlobalPRNG.derive("#" + index, seed, PRNGStreams.deriveSeed(seed,
+					index));
+		}
+	}
+
+	/**
+	 * logs the lineage of a derived seed, at the same level for all the
+	 * streams and scopes.
+	 * 
+	 * @return the stream or scope of the given name and seed
+	 */
+	static Scope derive(final String key, final long parentSeed,
+			final long seed) {
+		GlobalPRNG.logger.info("stream " + key + ": seed " + seed + " <- "
+				+ parentSeed);
+		return new Scope(key, seed);
 	}
 
 	/**
@@ -182,7 +272,7 @@ public class GlobalPRNG {
 	 * @return a new generator, if {@link #useMultiEngine} is <code>true</code>,
 	 *         or the default generator that is shared by everyone otherwise.
 	 */
-	public synchronized RandomEngine getEngine() {
+	public RandomEngine getEngine() {
 		if (useMultiEngine) {
 			return createEngine();
 		} else {
@@ -190,6 +280,123 @@ public class GlobalPRNG {
 		}
 	}
 
+	/**
+	 * obtains a random number generator for the given key, e.g. of a component
+	 * created lazily by whichever thread comes first.
+	 * 
+	 * @return a new generator seeded by the key alone, if {@link #useMultiEngine}
+	 *         is <code>true</code>, or the default generator that is shared by
+	 *         everyone otherwise.
+	 */
+	public RandomEngine getEngine(final String key) {
+		if (useMultiEngine) {
+			return createEngineWithSeed(GlobalPRNG.derive(key, seed,
+					PRNGStreams.deriveSeed(seed, key)).seed);
+		} else {
+			return getDefaultEngine();
+		}
+	}
+
+	/**
+	 * obtains the uniform distribution over [0, 1] shared under the given key,
+	 * e.g. by all the callers of a utility function. It draws from the generator
+	 * of {@link #getEngine(String)} for the key, created when the key is first
+	 * asked for. No lock is taken.
+	 * 
+	 * @return the distribution shared under the key
+	 */
+	public Uniform getUniform(final String key) {
+		Uniform uniform = uniforms.get(key);
+		if (uniform == null) {
+			final Uniform created = new Uniform(0, 1, getEngine(key));
+			uniform = uniforms.putIfAbsent(key, created);
+			if (uniform == null) {
+				uniform = created;
+			}
+		}
+		return uniform;
+	}
+
+	/**
+	 * starts the scope of the given key for the current thread, in which the
+	 * generators obtained by {@link #getEngine()} are seeded by the key and their
+	 * order in the scope, so that, e.g., those of a trader do not depend on how
+	 * many generators other traders have obtained before it.
+	 * 
+	 * @return the scope of the current thread before, to be passed to
+	 *         {@link #exitScope(Scope)} when scopes are nested
+	 */
+	public Scope enterScope(final String key) {
+		final Scope previous = scope.get();
+		if (useMultiEngine) {
+			scope.set(GlobalPRNG.derive(key, seed, PRNGStreams.deriveSeed(seed, key)));
+		}
+		return previous;
+	}
+
+	/**
+	 * takes the next stream of the scope of the current thread, as
+	 * {@link #getEngine()} would, as a scope of its own, e.g. for a component
+	 * to seed its parts in {@link Scope#child(String) child scopes} by their
+	 * keys, however many parts there are.
+	 * 
+	 * @return the scope to pass to {@link #enterScope(Scope)}, or
+	 *         <code>null</code> if {@link #useMultiEngine} is <code>false</code>
+	 *         and scopes do not matter.
+	 */
+	public Scope nextScope() {
+		if (useMultiEngine) {
+			return nextStream();
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * ends the scope of the current thread, if any.
+	 */
+	public void exitScope() {
+		scope.remove();
+	}
+
+	/**
+	 * @return the scope of the current thread, or <code>null</code> if it is not
+	 *         in any scope.
+	 */
+	public Scope getScope() {
+		return scope.get();
+	}
+
+	/**
+	 * resumes the given scope for the current thread, in which the generators
+	 * obtained by {@link #getEngine()} follow those obtained in it before. A scope
+	 * is to be resumed by one thread at a time.
+	 * 
+	 * @param scope
+	 *          the scope to resume, or <code>null</code> for none
+	 * @return the scope of the current thread before, to be passed to
+	 *         {@link #exitScope(Scope)}
+	 */
+	public Scope enterScope(final Scope scope) {
+		final Scope previous = this.scope.get();
+		if (scope == null) {
+			this.scope.remove();
+		} else {
+			this.scope.set(scope);
+		}
+		return previous;
+	}
+
+	/**
+	 * ends the scope of the current thread, returning to the previous one.
+	 * 
+	 * @param previous
+	 *          the scope returned by {@link #enterScope(Scope)}
+	 */
+	public void exitScope(final Scope previous) {
+		enterScope(previous);
+	}
+
 	/**
 	 * gets the default random number generator, which can be shared by different
 	 * components in a single-threading application; otherwise {
@@ -198,12 +405,19 @@ public class GlobalPRNG {
 	 * 
 	 * @return the default random number generator
 	 */
-	public synchronized RandomEngine getDefaultEngine() {
-		if (prng == null) {
-			GlobalPRNG.logger.warn("No default PRNG configured");
-			initializeWithSeed(seed);
+	public RandomEngine getDefaultEngine() {
+		RandomEngine engine = prng;
+		if (engine == null) {
+			synchronized (this) {
+				engine = prng;
+				if (engine == null) {
+					GlobalPRNG.logger.warn("No default PRNG configured");
+					initializeWithSeed(seed);
+					engine = prng;
+				}
+			}
 		}
-		return prng;
+		return engine;
 	}
 
 	public PRNGFactory getFactory() {
@@ -220,6 +434,9 @@ public class GlobalPRNG {
 
 	public synchronized void initializeWithSeed(final long seed) {
 		this.seed = seed;
+		numOfEngines.set(0);
+		uniforms.clear();
+		seedingThread = Thread.currentThread();
 		prng = createEngineWithSeed(seed);
 	}
 
@@ -230,7 +447,33 @@ public class GlobalPRNG {
 	 * @param useMultiEngine
 	 *          true if a new engine should be created; false otherwise.
 	 */
-	public synchronized void setUseMultiEngine(final boolean useMultiEngine) {
+	public void setUseMultiEngine(final boolean useMultiEngine) {
 		this.useMultiEngine = useMultiEngine;
 	}
+
+	/**
+	 * the seed of a scope and the number of engines created in it so far.
+	 */
+	public static class Scope {
+
+		final String key;
+
+		final long seed;
+
+		long numOfEngines;
+
+		Scope(final String key, final long seed) {
+			this.key = key;
+			this.seed = seed;
+		}
+
+		/**
+		 * @return a new scope nested in this one, seeded by this scope and the
+		 *         given key alone.
+		 */
+		public Scope child(final String key) {
+			return GlobalPRNG.derive(this.key + "." + key, seed, PRNGStreams
+					.deriveSeed(seed, key));
+		}
+	}
 }
\ No newline at end of file
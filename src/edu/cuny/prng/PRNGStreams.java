@@ -0,0 +1,77 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.prng;
+
+/**
+ * <p>
+ * Derives the seeds of independent random number streams from the seed of
+ * their parent, in the manner of the SplitMix generator (Steele, Lea and
+ * Flood): the seed of the <code>i</code>th child is the SplitMix64 output
+ * mixed from the parent seed and <code>i</code>, and a child may equally be
+ * named by a key instead of a number. A derived seed thus depends on nothing
+ * but its lineage, i.e., the seed of the root and the keys or numbers on the
+ * way down, not on when or by which thread it is derived, and the streams of
+ * siblings are decorrelated even when their seeds are close.
+ * </p>
+ *
+ * @see GlobalPRNG
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class PRNGStreams {
+
+	/**
+	 * the odd constant of the Weyl sequence of SplitMix64, the golden ratio in
+	 * 64 bits.
+	 */
+	public static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private PRNGStreams() {
+	}
+
+	/**
+	 * @return the SplitMix64 finalizer of the value, a bijection on 64-bit
+	 *         values with strong avalanche.
+	 */
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return the seed of the <code>index</code>th child stream of the stream
+	 *         with the given seed.
+	 */
+	public static long deriveSeed(final long parentSeed, final long index) {
+		return PRNGStreams.mix(PRNGStreams.mix(parentSeed) + (index + 1)
+				* PRNGStreams.GOLDEN_GAMMA);
+	}
+
+	/**
+	 * @return the seed of the child stream with the given key of the stream with
+	 *         the given seed.
+	 */
+	public static long deriveSeed(final long parentSeed, final String key) {
+		long h = PRNGStreams.mix(parentSeed ^ PRNGStreams.GOLDEN_GAMMA);
+		for (int i = 0; i < key.length(); i++) {
+			h = PRNGStreams.mix(h + key.charAt(i) * PRNGStreams.GOLDEN_GAMMA);
+		}
+		return PRNGStreams.mix(h + key.length());
+	}
+}
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
@@ -14,6 +15,20 @@ import org.apache.log4j.Logger;
  * An implementation of {@link ObjectRegistry} that uses {@link java.util.Map}.
  * </p>
  * 
+ * <p>
+ * There is a galaxy for the whole JVM, returned by {@link #getInstance()} by
+ * default. To run several independent systems, e.g. games, in parallel, each
+ * can be given a galaxy of its own created by {@link #newInstance()} and bound
+ * by {@link #setCurrent(Galaxy)} to the thread that runs it. Threads started
+ * from a bound thread inherit its galaxy.
+ * </p>
+ * 
+ * <p>
+ * Besides the objects of each system, a galaxy keeps the objects that are meant
+ * to exist once per galaxy, indexed by their classes; see
+ * {@link #getSingleton(Class)}.
+ * </p>
+ * 
  * @author Jinzhong Niu
  * @version $Revision: 1.6 $
  */
@@ -22,23 +37,92 @@ public class Galaxy implements ObjectRegistry {
 
 	static Logger logger = Logger.getLogger(Galaxy.class);
 
-	protected static Galaxy instance;
+	/**
+	 * holds the galaxy of the JVM, created when first asked for without any
+	 * locking, as a class is initialized only once.
+	 */
+	private static class JvmGalaxy {
+
+		static final Galaxy instance = new Galaxy();
+	}
+
+	/**
+	 * the galaxy bound to the current thread, if any.
+	 */
+	private static final InheritableThreadLocal<Galaxy> current = new InheritableThreadLocal<Galaxy>();
 
 	protected String defaultSystem;
 
 	protected SortedMap<String, Map<Object, Object>> supernova;
 
+	protected Map<Class<?>, Object> singletons;
+
+	/**
+	 * @return the galaxy bound to the current thread, or the galaxy of the JVM
+	 *         if none is bound.
+	 */
 	public static Galaxy getInstance() {
-		if (Galaxy.instance == null) {
-			Galaxy.instance = new Galaxy();
+		final Galaxy galaxy = Galaxy.current.get();
+		if (galaxy != null) {
+			return galaxy;
+		}
+
+		return JvmGalaxy.instance;
+	}
+
+	/**
+	 * @return a new galaxy, separate from that of the JVM.
+	 */
+	public static Galaxy newInstance() {
+		return new Galaxy();
+	}
+
+	/**
+	 * binds a galaxy to the current thread, and to the threads it starts from
+	 * now on.
+	 * 
+	 * @param galaxy
+	 *          the galaxy to bind, or null to go back to the galaxy of the JVM.
+	 */
+	public static void setCurrent(final Galaxy galaxy) {
+		if (galaxy == null) {
+			Galaxy.current.remove();
+		} else {
+			Galaxy.current.set(galaxy);
 		}
+	}
 
-		return Galaxy.instance;
+	/**
+	 * @return true if the current thread is bound to a galaxy other than that of
+	 *         the JVM.
+	 */
+	public static boolean isBound() {
+		return Galaxy.current.get() != null;
 	}
 
 	private Galaxy() {
 		supernova = Collections
 				.synchronizedSortedMap(new TreeMap<String, Map<Object, Object>>());
+		singletons = new ConcurrentHashMap<Class<?>, Object>();
+	}
+
+	/**
+	 * @return the only object of the given class in this galaxy, or null if
+	 *         there is none.
+	 */
+	public <V> V getSingleton(final Class<V> type) {
+		return type.cast(singletons.get(type));
+	}
+
+	/**
+	 * makes the object the only one of the given class in this galaxy.
+	 */
+	public <V> void putSingleton(final Class<V> type, final V object) {
+		singletons.put(type, object);
+	}
+
+	public <V> V removeSingleton(final Class<V> type) {
+		return type.cast(singletons.remove(type));
 	}
 
 	public void put(final String system, final Object key, final Object value) {
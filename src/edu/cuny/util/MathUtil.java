@@ -53,15 +53,19 @@ public class MathUtil {
 	public static final double DEFAULT_BIG_ERROR = 0.0001;
 
 	/**
-	 * TODO: this static uniform distribution should be avoided later since
-	 * multiple systems in terms of {@link ObjectRegistry} may use it and lead to
-	 * different results of inner systems.
+	 * the key of the uniform distribution shared by the {@link GlobalPRNG} of the
+	 * default system of each {@link Galaxy}, so that games in different galaxies
+	 * do not share it.
 	 * 
 	 * @see #maxIndex(double[])
 	 * @see #maxIndex(double[], NumberComparator)
 	 */
-	protected static final Uniform uniform = new Uniform(0, 1, Galaxy
-			.getInstance().getDefaultTyped(GlobalPRNG.class).getEngine());
+	private static final String UNIFORM = MathUtil.class.getName() + ".uniform";
+
+	protected static Uniform getUniform() {
+		return Galaxy.getInstance().getDefaultTyped(GlobalPRNG.class).getUniform(
+				MathUtil.UNIFORM);
+	}
 
 	/**
 	 * rounds up a double up to the specified number of digits after period.
@@ -181,7 +185,7 @@ public class MathUtil {
 	}
 
 	public static int maxIndex(final double[] values) {
-		return MathUtil.maxIndex(values, MathUtil.uniform);
+		return MathUtil.maxIndex(values, MathUtil.getUniform());
 	}
 
 	protected static int maxIndex_slow(final double[] values,
@@ -239,9 +243,93 @@ public class MathUtil {
 		return maxIndex;
 	}
 
+	/**
+	 * finds the position in <code>indices</code> of the maximal entry among
+	 * <code>values[indices[0]], ..., values[indices[length - 1]]</code>. The
+	 * result, including the random choice among multiple maximal entries, is
+	 * the same as calling {@link #maxIndex(double[], Uniform, NumberComparator)}
+	 * on a copy of those entries, but no copy is made.
+	 * 
+	 * @param values
+	 *          the array
+	 * @param indices
+	 *          the indices of the entries to be considered
+	 * @param length
+	 *          the number of indices in use
+	 * @param distribution
+	 *          a {@link edu.cuny.random.Uniform} distribution
+	 * @param comparator
+	 *          a utility that does the actual comparison and may or may not allow
+	 *          certain degree of rounding error.
+	 * @return the position of the maximal entry in <code>indices</code>
+	 */
+	public static int maxIndex(final double[] values, final int[] indices,
+			final int length, final Uniform distribution,
+			final NumberComparator comparator) {
+		double max = Double.NEGATIVE_INFINITY;
+		int maxIndex = -1;
+		for (int i = 0; i < length; i++) {
+			final double value = values[indices[i]];
+			if (comparator.equal(value, max)) {
+				return MathUtil.maxIndex_slow(values, indices, length, distribution,
+						comparator);
+			} else if (comparator.bigger(value, max)) {
+				max = value;
+				maxIndex = i;
+			}
+		}
+
+		return maxIndex;
+	}
+
+	/**
+	 * the allocation-free counterpart of
+	 * {@link #maxIndex_slow(double[], Uniform, NumberComparator)}, which
+	 * replays the scan instead of collecting the maximal entries.
+	 */
+	protected static int maxIndex_slow(final double[] values,
+			final int[] indices, final int length, final Uniform distribution,
+			final NumberComparator comparator) {
+
+		double max = Double.NEGATIVE_INFINITY;
+		int firstMaxIndex = -1;
+		int numOfMaxIndices = 0;
+		for (int i = 0; i < length; i++) {
+			final double value = values[indices[i]];
+			if (comparator.equal(value, max)) {
+				if (numOfMaxIndices == 0) {
+					firstMaxIndex = i;
+				}
+				numOfMaxIndices++;
+			} else if (comparator.bigger(value, max)) {
+				firstMaxIndex = i;
+				numOfMaxIndices = 1;
+				max = value;
+			}
+		}
+
+		if (numOfMaxIndices <= 0) {
+			MathUtil.logger.fatal("Failed to find max elements among "
+					+ length + " entries !");
+			return -1;
+		}
+
+		int chosen = distribution.nextIntFromTo(0, numOfMaxIndices - 1);
+		for (int i = firstMaxIndex; i < length; i++) {
+			if ((i == firstMaxIndex) || comparator.equal(values[indices[i]], max)) {
+				if (chosen == 0) {
+					return i;
+				}
+				chosen--;
+			}
+		}
+
+		return -1;
+	}
+
 	public static int maxIndex(final double[] values,
 			final NumberComparator comparator) {
-		return MathUtil.maxIndex(values, MathUtil.uniform, comparator);
+		return MathUtil.maxIndex(values, MathUtil.getUniform(), comparator);
 	}
 
 	/**
@@ -38,6 +38,7 @@ import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Properties;
@@ -2383,6 +2384,36 @@ public final class ParameterDatabase extends Properties implements Serializable
 		return parents;
 	}
 
+	/**
+	 * Creates a copy of this database and the tree of its parents, with parents
+	 * shared within the tree still shared in the copy. Since a lookup marks the
+	 * databases it goes through, a tree of databases cannot be read by several
+	 * threads at once, but each thread may read a copy of its own.
+	 */
+	public ParameterDatabase copy() {
+		return copy(new IdentityHashMap<ParameterDatabase, ParameterDatabase>());
+	}
+
+	/** Private helper function */
+	final synchronized ParameterDatabase copy(
+			final Map<ParameterDatabase, ParameterDatabase> copies) {
+		ParameterDatabase copy = copies.get(this);
+		if (copy == null) {
+			copy = new ParameterDatabase();
+			copies.put(this, copy);
+
+			copy.putAll(this);
+			copy.directory = directory;
+			copy.filename = filename;
+			copy.imgBase = imgBase;
+			copy.printState = printState;
+			for (int x = 0; x < parents.size(); x++) {
+				copy.parents.addElement(parents.elementAt(x).copy(copies));
+			}
+		}
+		return copy;
+	}
+
 	/**
 	 * Parses and adds s to the database. Returns true if there was actually
 	 * something to parse.
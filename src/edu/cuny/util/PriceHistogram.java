@@ -0,0 +1,329 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A multiset of prices in several categories, e.g. asks and bids, that counts
+ * the prices no higher or no lower than a given price in every category at
+ * once.
+ * </p>
+ *
+ * <p>
+ * Prices are put into buckets of a fixed width, i.e., <code>[0, width)</code>,
+ * <code>[width, 2 * width)</code>, and so on, with negative prices in the first
+ * bucket. The number of prices of each category in the buckets is kept in a
+ * binary indexed (Fenwick) tree, with the counters of all the categories of a
+ * node side by side, so that the prices in the buckets below the one of the
+ * given price are counted in a single walk of <code>O(log P)</code> nodes for
+ * <code>P</code> buckets. The prices in that bucket itself are kept as they
+ * are and compared one by one, so the counts are exact however the prices
+ * fall on the grid.
+ * </p>
+ *
+ * <p>
+ * The buckets cover <code>[0, 256 * width)</code> at first and double when a
+ * higher price arrives, up to {@link #MAX_NUM_OF_BUCKETS}; any price beyond
+ * falls in the last bucket.
+ * </p>
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class PriceHistogram implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final int INITIAL_NUM_OF_BUCKETS = 256;
+
+	public static final int MAX_NUM_OF_BUCKETS = 1 << 16;
+
+	protected final int numOfCategories;
+
+	protected final double width;
+
+	protected int numOfBuckets;
+
+	/**
+	 * the Fenwick tree, with the counter of category <code>c</code> at node
+	 * <code>i</code> (1-based) in <code>tree[i * numOfCategories + c]</code>.
+	 */
+	protected int tree[];
+
+	/**
+	 * the prices in each bucket, in no particular order.
+	 */
+	protected double prices[][];
+
+	/**
+	 * the category of each price in {@link #prices}.
+	 */
+	protected int categories[][];
+
+	/**
+	 * the number of prices in each bucket.
+	 */
+	protected int sizes[];
+
+	/**
+	 * the number of prices of each category.
+	 */
+	protected int counts[];
+
+	/**
+	 * @param numOfCategories
+	 *          the number of categories of prices
+	 * @param width
+	 *          the width of the buckets
+	 */
+	public PriceHistogram(final int numOfCategories, final double width) {
+		if (numOfCategories <= 0) {
+			throw new IllegalArgumentException(
+					"There must be at least one category of prices !");
+		}
+		if (!(width > 0)) {
+			throw new IllegalArgumentException("Bucket width must be positive !");
+		}
+
+		this.numOfCategories = numOfCategories;
+		this.width = width;
+
+		counts = new int[numOfCategories];
+		allocate(PriceHistogram.INITIAL_NUM_OF_BUCKETS);
+	}
+
+	private void allocate(final int numOfBuckets) {
+		this.numOfBuckets = numOfBuckets;
+		tree = new int[(numOfBuckets + 1) * numOfCategories];
+		prices = new double[numOfBuckets][];
+		categories = new int[numOfBuckets][];
+		sizes = new int[numOfBuckets];
+	}
+
+	public int getNumOfCategories() {
+		return numOfCategories;
+	}
+
+	public double getWidth() {
+		return width;
+	}
+
+	public int getNumOfBuckets() {
+		return numOfBuckets;
+	}
+
+	/**
+	 * @return the number of prices of the given category.
+	 */
+	public int size(final int category) {
+		return counts[category];
+	}
+
+	/**
+	 * @return the bucket the price falls in if there were as many buckets as
+	 *         needed.
+	 */
+	protected int getBucket(final double price) {
+		final double bucket = Math.floor(price / width);
+		if (bucket <= 0) {
+			// negative prices, and NaN, in the first bucket
+			return 0;
+		} else if (bucket >= PriceHistogram.MAX_NUM_OF_BUCKETS - 1) {
+			return PriceHistogram.MAX_NUM_OF_BUCKETS - 1;
+		} else {
+			return (int) bucket;
+		}
+	}
+
+	public void add(final int category, final double price) {
+		final int bucket = getBucket(price);
+		if (bucket >= numOfBuckets) {
+			grow(bucket + 1);
+		}
+
+		if (prices[bucket] == null) {
+			prices[bucket] = new double[4];
+			categories[bucket] = new int[4];
+		} else if (sizes[bucket] == prices[bucket].length) {
+			prices[bucket] = Arrays.copyOf(prices[bucket], 2 * sizes[bucket]);
+			categories[bucket] = Arrays.copyOf(categories[bucket], 2 * sizes[bucket]);
+		}
+		prices[bucket][sizes[bucket]] = price;
+		categories[bucket][sizes[bucket]] = category;
+		sizes[bucket]++;
+
+		counts[category]++;
+		update(bucket, category, 1);
+	}
+
+	/**
+	 * removes one occurrence of the price of the given category.
+	 *
+	 * @return false if there is no such price.
+	 */
+	public boolean remove(final int category, final double price) {
+		final int bucket = Math.min(getBucket(price), numOfBuckets - 1);
+		final double bucketPrices[] = prices[bucket];
+		final int bucketCategories[] = categories[bucket];
+		for (int i = 0; i < sizes[bucket]; i++) {
+			if ((bucketCategories[i] == category)
+					&& (Double.compare(bucketPrices[i], price) == 0)) {
+				sizes[bucket]--;
+				bucketPrices[i] = bucketPrices[sizes[bucket]];
+				bucketCategories[i] = bucketCategories[sizes[bucket]];
+
+				counts[category]--;
+				update(bucket, category, -1);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * removes all the prices.
+	 */
+	public void clear() {
+		Arrays.fill(tree, 0);
+		Arrays.fill(sizes, 0);
+		Arrays.fill(counts, 0);
+	}
+
+	/**
+	 * removes all the prices of the given category.
+	 */
+	public void clear(final int category) {
+		if (counts[category] == 0) {
+			return;
+		}
+
+		for (int bucket = 0; bucket < numOfBuckets; bucket++) {
+			int size = 0;
+			for (int i = 0; i < sizes[bucket]; i++) {
+				if (categories[bucket][i] != category) {
+					prices[bucket][size] = prices[bucket][i];
+					categories[bucket][size] = categories[bucket][i];
+					size++;
+				}
+			}
+			sizes[bucket] = size;
+		}
+		counts[category] = 0;
+
+		rebuild();
+	}
+
+	/**
+	 * counts the prices no higher and the prices no lower than the given price
+	 * in each category.
+	 *
+	 * @param atMost
+	 *          where the number of prices no higher than <code>price</code> of
+	 *          each category is put.
+	 * @param atLeast
+	 *          where the number of prices no lower than <code>price</code> of
+	 *          each category is put.
+	 */
+	public void count(final double price, final int atMost[], final int atLeast[]) {
+		final int bucket = Math.min(getBucket(price), numOfBuckets - 1);
+
+		// the buckets below, all of whose prices are lower than the price
+		Arrays.fill(atMost, 0, numOfCategories, 0);
+		for (int node = bucket; node > 0; node -= node & -node) {
+			final int offset = node * numOfCategories;
+			for (int c = 0; c < numOfCategories; c++) {
+				atMost[c] += tree[offset + c];
+			}
+		}
+
+		// use atLeast for the number of prices lower than the price for now
+		System.arraycopy(atMost, 0, atLeast, 0, numOfCategories);
+
+		final double bucketPrices[] = prices[bucket];
+		final int bucketCategories[] = categories[bucket];
+		for (int i = 0; i < sizes[bucket]; i++) {
+			if (bucketPrices[i] <= price) {
+				atMost[bucketCategories[i]]++;
+				if (bucketPrices[i] < price) {
+					atLeast[bucketCategories[i]]++;
+				}
+			}
+		}
+
+		for (int c = 0; c < numOfCategories; c++) {
+			atLeast[c] = counts[c] - atLeast[c];
+		}
+	}
+
+	private void update(final int bucket, final int category, final int delta) {
+		for (int node = bucket + 1; node <= numOfBuckets; node += node & -node) {
+			tree[node * numOfCategories + category] += delta;
+		}
+	}
+
+	private void grow(final int minNumOfBuckets) {
+		int n = numOfBuckets;
+		while (n < minNumOfBuckets) {
+			n *= 2;
+		}
+		n = Math.min(n, PriceHistogram.MAX_NUM_OF_BUCKETS);
+
+		final double oldPrices[][] = prices;
+		final int oldCategories[][] = categories;
+		final int oldSizes[] = sizes;
+
+		allocate(n);
+		System.arraycopy(oldPrices, 0, prices, 0, oldPrices.length);
+		System.arraycopy(oldCategories, 0, categories, 0, oldCategories.length);
+		System.arraycopy(oldSizes, 0, sizes, 0, oldSizes.length);
+
+		rebuild();
+	}
+
+	/**
+	 * rebuilds the tree from the buckets in linear time.
+	 */
+	private void rebuild() {
+		Arrays.fill(tree, 0);
+		for (int bucket = 0; bucket < numOfBuckets; bucket++) {
+			final int offset = (bucket + 1) * numOfCategories;
+			for (int i = 0; i < sizes[bucket]; i++) {
+				tree[offset + categories[bucket][i]]++;
+			}
+		}
+
+		for (int node = 1; node <= numOfBuckets; node++) {
+			final int parent = node + (node & -node);
+			if (parent <= numOfBuckets) {
+				for (int c = 0; c < numOfCategories; c++) {
+					tree[parent * numOfCategories + c] += tree[node * numOfCategories
+							+ c];
+				}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " width:" + width + " buckets:"
+				+ numOfBuckets + " counts:" + Arrays.toString(counts);
+	}
+}
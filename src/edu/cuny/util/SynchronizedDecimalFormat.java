@@ -0,0 +1,54 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.util;
+
+import java.text.DecimalFormat;
+import java.text.FieldPosition;
+import java.text.ParsePosition;
+
+/**
+ * A {@link DecimalFormat} that can be shared by threads, for formatters kept
+ * in static fields and used by games running in parallel.
+ * 
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SynchronizedDecimalFormat extends DecimalFormat {
+
+	private static final long serialVersionUID = 1L;
+
+	public SynchronizedDecimalFormat(final String pattern) {
+		super(pattern);
+	}
+
+	@Override
+	public synchronized StringBuffer format(final double number,
+			final StringBuffer result, final FieldPosition fieldPosition) {
+		return super.format(number, result, fieldPosition);
+	}
+
+	@Override
+	public synchronized StringBuffer format(final long number,
+			final StringBuffer result, final FieldPosition fieldPosition) {
+		return super.format(number, result, fieldPosition);
+	}
+
+	@Override
+	public synchronized Number parse(final String text, final ParsePosition pos) {
+		return super.parse(text, pos);
+	}
+}
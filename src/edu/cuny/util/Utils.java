@@ -41,7 +41,7 @@ public class Utils {
 
 	protected static Logger logger = Logger.getLogger(Utils.class);
 
-	public final static DecimalFormat formatter = new DecimalFormat(
+	public final static DecimalFormat formatter = new SynchronizedDecimalFormat(
 			"+#########0.000;-#########.000");
 
 	public final static int DEFAULT_ALIGNMENT_LENGTH = 12;
@@ -0,0 +1,250 @@
+package uk.ac.liv.cat.socialnetwork.output;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * Reads a file written by {@link BinaryExperimentSink} and replays its blocks
+ * into another {@link ExperimentSink}. Replaying into a
+ * {@link TextExperimentSink} reproduces, line by line, the text the registry
+ * would have written itself, so experiments/CSVAnalyser computes the same
+ * averages from a converted file.
+ *
+ * <p>
+ * Run as a program, it converts a <code>.snx</code> file, or every one in a
+ * directory, into a <code>.csv</code> file next to it:
+ * </p>
+ *
+ * <pre>
+ * java uk.ac.liv.cat.socialnetwork.output.BinaryExperimentReader &lt;file or directory&gt;
+ * </pre>
+ *
+ * @author Martin Chapman
+ */
+public class BinaryExperimentReader {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final String fileName;
+
+	private FileChannel channel;
+
+	private ByteBuffer buffer;
+
+	private final ArrayList<String> stringTable;
+
+	private final DayRecord record;
+
+	public BinaryExperimentReader(final String fileName) {
+		this.fileName = fileName;
+		stringTable = new ArrayList<String>();
+		record = new DayRecord();
+	}
+
+	/**
+	 * reads the whole file, passing every block on to the given sink. The sink
+	 * is neither opened nor closed here.
+	 */
+	public void replay(final ExperimentSink sink) throws IOException {
+		channel = new FileInputStream(fileName).getChannel();
+		buffer = ByteBuffer.allocateDirect(BinaryExperimentReader.BUFFER_SIZE);
+		buffer.flip();
+		stringTable.clear();
+
+		try {
+			if (!fill(8) || (buffer.getInt() != BinaryExperimentSink.MAGIC)) {
+				throw new IOException(fileName
+						+ " is not an experiment output file !");
+			}
+
+			final int version = buffer.getInt();
+			if (version != BinaryExperimentSink.VERSION) {
+				throw new IOException("Unsupported experiment output version "
+						+ version + " in " + fileName + " !");
+			}
+
+			while (fill(BinaryExperimentSink.BLOCK_HEADER_SIZE)) {
+				final byte tag = buffer.get();
+				final int length = buffer.getInt();
+				if (!fill(length)) {
+					throw new IOException("Truncated block in " + fileName + " !");
+				}
+
+				final int end = buffer.position() + length;
+				switch (tag) {
+				case BinaryExperimentSink.TAG_STRING:
+					readString();
+					break;
+				case BinaryExperimentSink.TAG_SIMULATION:
+					sink.simulationStarted(buffer.getInt(), buffer.getInt());
+					break;
+				case BinaryExperimentSink.TAG_GAME:
+					sink.gameStarting(buffer.getInt());
+					break;
+				case BinaryExperimentSink.TAG_DAY:
+					readDay();
+					sink.dayClosed(record);
+					break;
+				default:
+					// blocks of a later version are skipped
+				}
+				buffer.position(end);
+			}
+		} finally {
+			channel.close();
+			channel = null;
+			buffer = null;
+		}
+	}
+
+	/**
+	 * makes sure the given number of bytes is available in the buffer.
+	 * 
+	 * @return false if the end of the file has been reached with no bytes left.
+	 */
+	private boolean fill(final int required) throws IOException {
+		if (buffer.remaining() >= required) {
+			return true;
+		}
+
+		if (buffer.capacity() < required) {
+			final ByteBuffer larger = ByteBuffer.allocateDirect(required);
+			larger.put(buffer);
+			buffer = larger;
+		} else {
+			buffer.compact();
+		}
+
+		while (buffer.position() < required) {
+			if (channel.read(buffer) < 0) {
+				buffer.flip();
+				if (buffer.hasRemaining()) {
+					throw new IOException("Unexpected end of " + fileName + " !");
+				}
+				return false;
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+
+	private void readString() throws IOException {
+		final int index = buffer.getInt();
+		if (index != stringTable.size()) {
+			throw new IOException("Corrupted string table in " + fileName + " !");
+		}
+		final byte bytes[] = new byte[buffer.getShort()];
+		buffer.get(bytes);
+		stringTable.add(new String(bytes, BinaryExperimentSink.UTF8));
+	}
+
+	private void readDay() {
+		record.clear(buffer.getInt());
+		record.setTraderProfitsRecorded(buffer.get() != 0);
+
+		final int numOfTraderProfits = buffer.getInt();
+		final int traderIds[] = new int[numOfTraderProfits];
+		for (int i = 0; i < numOfTraderProfits; i++) {
+			traderIds[i] = buffer.getInt();
+		}
+		for (int i = 0; i < numOfTraderProfits; i++) {
+			record.addTraderProfit(stringTable.get(traderIds[i]), buffer
+					.getDouble());
+		}
+
+		final int numOfMarkets = buffer.getInt();
+		final int marketIds[] = new int[numOfMarkets];
+		final double marketProfits[] = new double[numOfMarkets];
+		final int marketMatches[] = new int[numOfMarkets];
+		final int numOfMarketPopulations[] = new int[numOfMarkets];
+		for (int i = 0; i < numOfMarkets; i++) {
+			marketIds[i] = buffer.getInt();
+		}
+		for (int i = 0; i < numOfMarkets; i++) {
+			marketProfits[i] = buffer.getDouble();
+		}
+		for (int i = 0; i < numOfMarkets; i++) {
+			marketMatches[i] = buffer.getInt();
+		}
+		for (int i = 0; i < numOfMarkets; i++) {
+			numOfMarketPopulations[i] = buffer.getInt();
+		}
+
+		final int numOfPopulations = buffer.getInt();
+		final int typesAt = buffer.position();
+		final int buyersAt = typesAt + 4 * numOfPopulations;
+		final int sellersAt = buyersAt + 4 * numOfPopulations;
+		int j = 0;
+		for (int i = 0; i < numOfMarkets; i++) {
+			record.addMarket(stringTable.get(marketIds[i]), marketProfits[i],
+					marketMatches[i]);
+			for (int k = 0; k < numOfMarketPopulations[i]; k++, j++) {
+				record.addPopulation(stringTable.get(buffer.getInt(typesAt + 4 * j)),
+						buffer.getInt(buyersAt + 4 * j), buffer.getInt(sellersAt + 4 * j));
+			}
+		}
+		buffer.position(sellersAt + 4 * numOfPopulations);
+
+		record.setNumOfBuyersChangedMarket(buffer.getInt());
+		record.setNumOfSellersChangedMarket(buffer.getInt());
+
+		final int numOfTraderMatches = buffer.getInt();
+		final int matchIdsAt = buffer.position();
+		final int matchesAt = matchIdsAt + 4 * numOfTraderMatches;
+		for (int i = 0; i < numOfTraderMatches; i++) {
+			record.addTraderMatches(stringTable.get(buffer.getInt(matchIdsAt + 4
+					* i)), buffer.getInt(matchesAt + 4 * i));
+		}
+		buffer.position(matchesAt + 4 * numOfTraderMatches);
+
+		final int numOfAdvice = buffer.getInt();
+		final int adviceIdsAt = buffer.position();
+		final int adviceAt = adviceIdsAt + 4 * numOfAdvice;
+		for (int i = 0; i < numOfAdvice; i++) {
+			record.addAdvice(stringTable.get(buffer.getInt(adviceIdsAt + 4 * i)),
+					buffer.getInt(adviceAt + 4 * i));
+		}
+		buffer.position(adviceAt + 4 * numOfAdvice);
+	}
+
+	/**
+	 * converts the given binary file into the text format.
+	 */
+	public static void convert(final File input, final File output)
+			throws IOException {
+		final TextExperimentSink sink = new TextExperimentSink(new BufferedWriter(
+				new FileWriter(output)));
+		try {
+			new BinaryExperimentReader(input.getPath()).replay(sink);
+		} finally {
+			sink.close();
+		}
+	}
+
+	public static void main(final String args[]) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: java "
+					+ BinaryExperimentReader.class.getName()
+					+ " <file or directory>");
+			System.exit(1);
+		}
+
+		final File loc = new File(args[0]);
+		final File files[] = loc.isDirectory() ? loc.listFiles() : new File[] { loc };
+		for (final File file : files) {
+			final String name = file.getName();
+			if (name.endsWith(BinaryExperimentSink.EXTENSION)) {
+				final File output = new File(file.getParentFile(), name.substring(0,
+						name.length() - BinaryExperimentSink.EXTENSION.length())
+						+ TextExperimentSink.EXTENSION);
+				BinaryExperimentReader.convert(file, output);
+			}
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package uk.ac.liv.cat.socialnetwork.output;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes experiment statistics as length-prefixed binary blocks through a
+ * {@link FileChannel}. Each trading day is one block whose fields are stored
+ * column by column, and trader and market ids are written once into a string
+ * table and referred to by index afterwards. Blocks are collected in a direct
+ * buffer that is only written out when full or on {@link #close()}.
+ *
+ * <p>
+ * The layout, all big-endian, is a header of {@link #MAGIC} and
+ * {@link #VERSION}, followed by blocks of a tag byte, the payload length as an
+ * int, and the payload:
+ * </p>
+ * <ul>
+ * <li>{@link #TAG_STRING}: index, UTF-8 length as a short, bytes;</li>
+ * <li>{@link #TAG_SIMULATION}: number of traders, number of markets;</li>
+ * <li>{@link #TAG_GAME}: iteration;</li>
+ * <li>{@link #TAG_DAY}: day, trader profits flag (byte), then the columns of
+ * trader profits, markets, populations per market, traders that changed
+ * market, trader matches and advice, each preceded by its length.</li>
+ * </ul>
+ *
+ * <p>
+ * {@link BinaryExperimentReader} reads the file back and converts it into the
+ * text format of {@link TextExperimentSink}.
+ * </p>
+ *
+ * @author Martin Chapman
+ */
+public class BinaryExperimentSink implements ExperimentSink {
+
+	public static final String EXTENSION = ".snx";
+
+	public static final int MAGIC = 0x534E5831;
+
+	public static final int VERSION = 1;
+
+	public static final byte TAG_STRING = 1;
+
+	public static final byte TAG_SIMULATION = 2;
+
+	public static final byte TAG_GAME = 3;
+
+	public static final byte TAG_DAY = 4;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/** size of the tag and the payload length */
+	static final int BLOCK_HEADER_SIZE = 5;
+
+	private FileChannel channel;
+
+	private ByteBuffer buffer;
+
+	private final Map<String, Integer> stringTable;
+
+	public BinaryExperimentSink() {
+		stringTable = new HashMap<String, Integer>();
+	}
+
+	public String getExtension() {
+		return BinaryExperimentSink.EXTENSION;
+	}
+
+	public void open(final String fileName) throws IOException {
+		channel = new FileOutputStream(fileName).getChannel();
+		buffer = ByteBuffer.allocateDirect(BinaryExperimentSink.BUFFER_SIZE);
+		stringTable.clear();
+
+		buffer.putInt(BinaryExperimentSink.MAGIC);
+		buffer.putInt(BinaryExperimentSink.VERSION);
+	}
+
+	public void simulationStarted(final int numOfTraders, final int numOfMarkets)
+			throws IOException {
+		beginBlock(BinaryExperimentSink.TAG_SIMULATION, 8);
+		buffer.putInt(numOfTraders);
+		buffer.putInt(numOfMarkets);
+	}
+
+	public void gameStarting(final int iteration) throws IOException {
+		beginBlock(BinaryExperimentSink.TAG_GAME, 4);
+		buffer.putInt(iteration);
+	}
+
+	public void dayClosed(final DayRecord record) throws IOException {
+		final int numOfTraderProfits = record.getNumOfTraderProfits();
+		final int numOfMarkets = record.getNumOfMarkets();
+		final int numOfPopulations = record.getNumOfPopulations();
+		final int numOfTraderMatches = record.getNumOfTraderMatches();
+		final int numOfAdvice = record.getNumOfAdvice();
+
+		// make sure every id is in the string table before the day block starts
+		for (int i = 0; i < numOfTraderProfits; i++) {
+			intern(record.getTraderProfitId(i));
+		}
+		for (int i = 0; i < numOfMarkets; i++) {
+			intern(record.getMarketId(i));
+		}
+		for (int i = 0; i < numOfPopulations; i++) {
+			intern(record.getPopulationType(i));
+		}
+		for (int i = 0; i < numOfTraderMatches; i++) {
+			intern(record.getTraderMatchId(i));
+		}
+		for (int i = 0; i < numOfAdvice; i++) {
+			intern(record.getAdviceId(i));
+		}
+
+		final int length = 4 + 1 + (4 + 12 * numOfTraderProfits)
+				+ (4 + 20 * numOfMarkets) + (4 + 12 * numOfPopulations) + 8
+				+ (4 + 8 * numOfTraderMatches) + (4 + 8 * numOfAdvice);
+		beginBlock(BinaryExperimentSink.TAG_DAY, length);
+
+		buffer.putInt(record.getDay());
+		buffer.put(record.isTraderProfitsRecorded() ? (byte) 1 : (byte) 0);
+
+		buffer.putInt(numOfTraderProfits);
+		for (int i = 0; i < numOfTraderProfits; i++) {
+			buffer.putInt(stringTable.get(record.getTraderProfitId(i)));
+		}
+		for (int i = 0; i < numOfTraderProfits; i++) {
+			buffer.putDouble(record.getTraderProfit(i));
+		}
+
+		buffer.putInt(numOfMarkets);
+		for (int i = 0; i < numOfMarkets; i++) {
+			buffer.putInt(stringTable.get(record.getMarketId(i)));
+		}
+		for (int i = 0; i < numOfMarkets; i++) {
+			buffer.putDouble(record.getMarketProfit(i));
+		}
+		for (int i = 0; i < numOfMarkets; i++) {
+			buffer.putInt(record.getMarketMatches(i));
+		}
+		for (int i = 0; i < numOfMarkets; i++) {
+			buffer.putInt(record.getPopulationOffset(i + 1)
+					- record.getPopulationOffset(i));
+		}
+
+		buffer.putInt(numOfPopulations);
+		for (int i = 0; i < numOfPopulations; i++) {
+			buffer.putInt(stringTable.get(record.getPopulationType(i)));
+		}
+		for (int i = 0; i < numOfPopulations; i++) {
+			buffer.putInt(record.getPopulationBuyers(i));
+		}
+		for (int i = 0; i < numOfPopulations; i++) {
+			buffer.putInt(record.getPopulationSellers(i));
+		}
+
+		buffer.putInt(record.getNumOfBuyersChangedMarket());
+		buffer.putInt(record.getNumOfSellersChangedMarket());
+
+		buffer.putInt(numOfTraderMatches);
+		for (int i = 0; i < numOfTraderMatches; i++) {
+			buffer.putInt(stringTable.get(record.getTraderMatchId(i)));
+		}
+		for (int i = 0; i < numOfTraderMatches; i++) {
+			buffer.putInt(record.getTraderMatches(i));
+		}
+
+		buffer.putInt(numOfAdvice);
+		for (int i = 0; i < numOfAdvice; i++) {
+			buffer.putInt(stringTable.get(record.getAdviceId(i)));
+		}
+		for (int i = 0; i < numOfAdvice; i++) {
+			buffer.putInt(record.getAdvice(i));
+		}
+	}
+
+	public void close() throws IOException {
+		if (channel != null) {
+			try {
+				drain();
+			} finally {
+				channel.close();
+				channel = null;
+				buffer = null;
+			}
+		}
+	}
+
+	private void intern(final String s) throws IOException {
+		if (!stringTable.containsKey(s)) {
+			final int index = stringTable.size();
+			final byte bytes[] = s.getBytes(BinaryExperimentSink.UTF8);
+			if (bytes.length > Short.MAX_VALUE) {
+				throw new IOException("Id too long for experiment output: " + s);
+			}
+			beginBlock(BinaryExperimentSink.TAG_STRING, 6 + bytes.length);
+			buffer.putInt(index);
+			buffer.putShort((short) bytes.length);
+			buffer.put(bytes);
+			stringTable.put(s, index);
+		}
+	}
+
+	/**
+	 * writes the block header, first making room for the whole block.
+	 */
+	private void beginBlock(final byte tag, final int length) throws IOException {
+		final int required = BinaryExperimentSink.BLOCK_HEADER_SIZE + length;
+		if (buffer.remaining() < required) {
+			drain();
+			if (buffer.capacity() < required) {
+				buffer = ByteBuffer.allocateDirect(required);
+			}
+		}
+		buffer.put(tag);
+		buffer.putInt(length);
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
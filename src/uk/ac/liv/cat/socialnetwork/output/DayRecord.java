@@ -0,0 +1,271 @@
+package uk.ac.liv.cat.socialnetwork.output;
+
+import java.util.Arrays;
+
+/**
+ * The statistics {@link edu.cuny.cat.registry.SocialNetworkRegistry} records
+ * at the end of a trading day, kept column by column in insertion order so
+ * that an {@link ExperimentSink} can write them as one batch. A single
+ * instance is reused from day to day; {@link #clear(int)} resets the counts
+ * but keeps the arrays.
+ *
+ * @author Martin Chapman
+ */
+public class DayRecord {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int day;
+
+	private boolean traderProfitsRecorded;
+
+	private int numOfTraderProfits;
+
+	private String traderProfitIds[];
+
+	private double traderProfits[];
+
+	private int numOfMarkets;
+
+	private String marketIds[];
+
+	private double marketProfits[];
+
+	private int marketMatches[];
+
+	/**
+	 * index of the first population of each market in the population columns;
+	 * <code>populationOffsets[numOfMarkets]</code> is the total count.
+	 */
+	private int populationOffsets[];
+
+	private int numOfPopulations;
+
+	private String populationTypes[];
+
+	private int populationBuyers[];
+
+	private int populationSellers[];
+
+	private int numOfBuyersChangedMarket;
+
+	private int numOfSellersChangedMarket;
+
+	private int numOfTraderMatches;
+
+	private String traderMatchIds[];
+
+	private int traderMatches[];
+
+	private int numOfAdvice;
+
+	private String adviceIds[];
+
+	private int advice[];
+
+	public DayRecord() {
+		traderProfitIds = new String[DayRecord.INITIAL_CAPACITY];
+		traderProfits = new double[DayRecord.INITIAL_CAPACITY];
+		marketIds = new String[DayRecord.INITIAL_CAPACITY];
+		marketProfits = new double[DayRecord.INITIAL_CAPACITY];
+		marketMatches = new int[DayRecord.INITIAL_CAPACITY];
+		populationOffsets = new int[DayRecord.INITIAL_CAPACITY + 1];
+		populationTypes = new String[DayRecord.INITIAL_CAPACITY];
+		populationBuyers = new int[DayRecord.INITIAL_CAPACITY];
+		populationSellers = new int[DayRecord.INITIAL_CAPACITY];
+		traderMatchIds = new String[DayRecord.INITIAL_CAPACITY];
+		traderMatches = new int[DayRecord.INITIAL_CAPACITY];
+		adviceIds = new String[DayRecord.INITIAL_CAPACITY];
+		advice = new int[DayRecord.INITIAL_CAPACITY];
+	}
+
+	public void clear(final int day) {
+		this.day = day;
+		traderProfitsRecorded = false;
+		numOfTraderProfits = 0;
+		numOfMarkets = 0;
+		numOfPopulations = 0;
+		populationOffsets[0] = 0;
+		numOfBuyersChangedMarket = 0;
+		numOfSellersChangedMarket = 0;
+		numOfTraderMatches = 0;
+		numOfAdvice = 0;
+	}
+
+	public int getDay() {
+		return day;
+	}
+
+	/**
+	 * marks the individual trader profits as present even if no trader has
+	 * reported yet; the registry omits them on the first day.
+	 */
+	public void setTraderProfitsRecorded(final boolean traderProfitsRecorded) {
+		this.traderProfitsRecorded = traderProfitsRecorded;
+	}
+
+	public boolean isTraderProfitsRecorded() {
+		return traderProfitsRecorded;
+	}
+
+	public void addTraderProfit(final String traderId, final double profit) {
+		if (numOfTraderProfits == traderProfits.length) {
+			traderProfitIds = Arrays.copyOf(traderProfitIds, 2 * numOfTraderProfits);
+			traderProfits = Arrays.copyOf(traderProfits, 2 * numOfTraderProfits);
+		}
+		traderProfitIds[numOfTraderProfits] = traderId;
+		traderProfits[numOfTraderProfits] = profit;
+		numOfTraderProfits++;
+		traderProfitsRecorded = true;
+	}
+
+	public int getNumOfTraderProfits() {
+		return numOfTraderProfits;
+	}
+
+	public String getTraderProfitId(final int i) {
+		return traderProfitIds[i];
+	}
+
+	public double getTraderProfit(final int i) {
+		return traderProfits[i];
+	}
+
+	/**
+	 * starts a new market; the populations added afterwards belong to it.
+	 */
+	public void addMarket(final String specialistId, final double profit,
+			final int numOfMatches) {
+		if (numOfMarkets == marketIds.length) {
+			marketIds = Arrays.copyOf(marketIds, 2 * numOfMarkets);
+			marketProfits = Arrays.copyOf(marketProfits, 2 * numOfMarkets);
+			marketMatches = Arrays.copyOf(marketMatches, 2 * numOfMarkets);
+			populationOffsets = Arrays.copyOf(populationOffsets, 2 * numOfMarkets + 1);
+		}
+		marketIds[numOfMarkets] = specialistId;
+		marketProfits[numOfMarkets] = profit;
+		marketMatches[numOfMarkets] = numOfMatches;
+		numOfMarkets++;
+		populationOffsets[numOfMarkets] = numOfPopulations;
+	}
+
+	public void addPopulation(final String type, final int numOfBuyers,
+			final int numOfSellers) {
+		if (numOfMarkets == 0) {
+			throw new IllegalStateException(
+					"A population must follow the market it belongs to !");
+		}
+		if (numOfPopulations == populationTypes.length) {
+			populationTypes = Arrays.copyOf(populationTypes, 2 * numOfPopulations);
+			populationBuyers = Arrays.copyOf(populationBuyers, 2 * numOfPopulations);
+			populationSellers = Arrays
+					.copyOf(populationSellers, 2 * numOfPopulations);
+		}
+		populationTypes[numOfPopulations] = type;
+		populationBuyers[numOfPopulations] = numOfBuyers;
+		populationSellers[numOfPopulations] = numOfSellers;
+		numOfPopulations++;
+		populationOffsets[numOfMarkets] = numOfPopulations;
+	}
+
+	public int getNumOfMarkets() {
+		return numOfMarkets;
+	}
+
+	public String getMarketId(final int i) {
+		return marketIds[i];
+	}
+
+	public double getMarketProfit(final int i) {
+		return marketProfits[i];
+	}
+
+	public int getMarketMatches(final int i) {
+		return marketMatches[i];
+	}
+
+	/**
+	 * @return the index of the first population of the <code>i</code>th
+	 *         market; the populations of market <code>i</code> span up to
+	 *         <code>getPopulationOffset(i + 1)</code>.
+	 */
+	public int getPopulationOffset(final int i) {
+		return populationOffsets[i];
+	}
+
+	public int getNumOfPopulations() {
+		return numOfPopulations;
+	}
+
+	public String getPopulationType(final int i) {
+		return populationTypes[i];
+	}
+
+	public int getPopulationBuyers(final int i) {
+		return populationBuyers[i];
+	}
+
+	public int getPopulationSellers(final int i) {
+		return populationSellers[i];
+	}
+
+	public void setNumOfBuyersChangedMarket(final int numOfBuyersChangedMarket) {
+		this.numOfBuyersChangedMarket = numOfBuyersChangedMarket;
+	}
+
+	public int getNumOfBuyersChangedMarket() {
+		return numOfBuyersChangedMarket;
+	}
+
+	public void setNumOfSellersChangedMarket(final int numOfSellersChangedMarket) {
+		this.numOfSellersChangedMarket = numOfSellersChangedMarket;
+	}
+
+	public int getNumOfSellersChangedMarket() {
+		return numOfSellersChangedMarket;
+	}
+
+	public void addTraderMatches(final String traderId, final int numOfMatches) {
+		if (numOfTraderMatches == traderMatches.length) {
+			traderMatchIds = Arrays.copyOf(traderMatchIds, 2 * numOfTraderMatches);
+			traderMatches = Arrays.copyOf(traderMatches, 2 * numOfTraderMatches);
+		}
+		traderMatchIds[numOfTraderMatches] = traderId;
+		traderMatches[numOfTraderMatches] = numOfMatches;
+		numOfTraderMatches++;
+	}
+
+	public int getNumOfTraderMatches() {
+		return numOfTraderMatches;
+	}
+
+	public String getTraderMatchId(final int i) {
+		return traderMatchIds[i];
+	}
+
+	public int getTraderMatches(final int i) {
+		return traderMatches[i];
+	}
+
+	public void addAdvice(final String traderId, final int amount) {
+		if (numOfAdvice == advice.length) {
+			adviceIds = Arrays.copyOf(adviceIds, 2 * numOfAdvice);
+			advice = Arrays.copyOf(advice, 2 * numOfAdvice);
+		}
+		adviceIds[numOfAdvice] = traderId;
+		advice[numOfAdvice] = amount;
+		numOfAdvice++;
+	}
+
+	public int getNumOfAdvice() {
+		return numOfAdvice;
+	}
+
+	public String getAdviceId(final int i) {
+		return adviceIds[i];
+	}
+
+	public int getAdvice(final int i) {
+		return advice[i];
+	}
+}
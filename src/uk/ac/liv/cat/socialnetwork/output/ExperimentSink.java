@@ -0,0 +1,42 @@
+package uk.ac.liv.cat.socialnetwork.output;
+
+import java.io.IOException;
+
+/**
+ * Receives the experiment statistics gathered by
+ * {@link edu.cuny.cat.registry.SocialNetworkRegistry}. Which sink is used is
+ * set by the <code>sink</code> parameter of the registry;
+ * {@link TextExperimentSink} by default.
+ *
+ * @author Martin Chapman
+ */
+public interface ExperimentSink {
+
+	/**
+	 * @return the extension, including the dot, of the files written by this
+	 *         sink.
+	 */
+	public String getExtension();
+
+	/**
+	 * creates the output file and prepares it for writing.
+	 */
+	public void open(String fileName) throws IOException;
+
+	public void simulationStarted(int numOfTraders, int numOfMarkets)
+			throws IOException;
+
+	public void gameStarting(int iteration) throws IOException;
+
+	/**
+	 * writes the statistics of a trading day as one batch. The record may be
+	 * reused by the caller once this method returns.
+	 */
+	public void dayClosed(DayRecord record) throws IOException;
+
+	/**
+	 * writes out anything still buffered and releases the file.
+	 */
+	public void close() throws IOException;
+
+}
@@ -0,0 +1,142 @@
+package uk.ac.liv.cat.socialnetwork.output;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Writes the line-based text format that experiments/CSVAnalyser reads: each
+ * heading is followed by its values, one per line. The output is flushed only
+ * at the end of each day, so that a running experiment can be followed without
+ * flushing every heading written in between.
+ *
+ * @author Martin Chapman
+ */
+public class TextExperimentSink implements ExperimentSink {
+
+	public static final String EXTENSION = ".csv";
+
+	private static final String SEPARATOR = "########################################";
+
+	private PrintWriter writer;
+
+	public TextExperimentSink() {
+	}
+
+	/**
+	 * writes to an existing writer instead of a file, as done by
+	 * {@link BinaryExperimentReader} when converting a binary file.
+	 */
+	public TextExperimentSink(final Writer writer) {
+		this.writer = new PrintWriter(writer);
+	}
+
+	public String getExtension() {
+		return TextExperimentSink.EXTENSION;
+	}
+
+	public void open(final String fileName) throws IOException {
+		writer = new PrintWriter(new BufferedWriter(new FileWriter(fileName)));
+	}
+
+	public void simulationStarted(final int numOfTraders, final int numOfMarkets)
+			throws IOException {
+		writer.println("## Total Number of traders");
+		writer.println(numOfTraders);
+		writer.println(" ");
+		writer.println("## Total Number of markets");
+		writer.println(numOfMarkets);
+	}
+
+	public void gameStarting(final int iteration) throws IOException {
+		writer.println("#Game");
+		writer.println(iteration);
+	}
+
+	public void dayClosed(final DayRecord record) throws IOException {
+		writer.println(" ");
+
+		if (record.isTraderProfitsRecorded()) {
+			writer.println("## Individual Trader Profits");
+			for (int i = 0; i < record.getNumOfTraderProfits(); i++) {
+				writer.println(record.getTraderProfitId(i));
+				writer.println(record.getTraderProfit(i));
+			}
+			writer.println(" ");
+		}
+
+		writer.println(TextExperimentSink.SEPARATOR);
+		writer.println("#Day");
+		writer.println(record.getDay());
+
+		for (int i = 0; i < record.getNumOfMarkets(); i++) {
+			writer.println(" ");
+			writer.println(TextExperimentSink.SEPARATOR);
+			writer.println("#Market");
+			writer.println(record.getMarketId(i));
+			writer.println(" ");
+
+			writer.println("## Market profit");
+			writer.println(record.getMarketProfit(i));
+			writer.println(" ");
+
+			writer.println("## Number of matches");
+			writer.println(record.getMarketMatches(i));
+			writer.println(" ");
+
+			writer.println("#Populations");
+			for (int j = record.getPopulationOffset(i); j < record
+					.getPopulationOffset(i + 1); j++) {
+				writer.printf("%s buyer, %d", record.getPopulationType(j), record
+						.getPopulationBuyers(j));
+				writer.println();
+				writer.printf("%s seller, %d", record.getPopulationType(j), record
+						.getPopulationSellers(j));
+				writer.println();
+			}
+			writer.println(" ");
+		}
+
+		writer.println(TextExperimentSink.SEPARATOR);
+		writer.println("#Traders");
+		writer.println(" ");
+
+		writer.println("## Number of buyers that changed market");
+		writer.println(record.getNumOfBuyersChangedMarket());
+		writer.println(" ");
+
+		writer.println("## Number of sellers that changed market");
+		writer.println(record.getNumOfSellersChangedMarket());
+		writer.println(" ");
+
+		writer.println("## Individual Trader Matches");
+		for (int i = 0; i < record.getNumOfTraderMatches(); i++) {
+			writer.println(record.getTraderMatchId(i));
+			writer.println(record.getTraderMatches(i));
+		}
+
+		writer.println("## Amount of Advice given:");
+		for (int i = 0; i < record.getNumOfAdvice(); i++) {
+			writer.println(record.getAdviceId(i));
+			writer.println(record.getAdvice(i));
+		}
+
+		flush();
+	}
+
+	public void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	private void flush() throws IOException {
+		writer.flush();
+		if (writer.checkError()) {
+			throw new IOException("Failed to write experiment output !");
+		}
+	}
+}
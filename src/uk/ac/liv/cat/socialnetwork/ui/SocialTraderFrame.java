@@ -12,8 +12,10 @@ import edu.uci.ics.jung.visualization.BasicVisualizationServer;
 import edu.uci.ics.jung.visualization.decorators.ToStringLabeller;
 import edu.uci.ics.jung.visualization.renderers.Renderer.VertexLabel.Position;
 
+import java.util.ArrayList;
 import java.util.Hashtable;
-import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import java.awt.*;
 import java.awt.event.*;
@@ -28,7 +30,8 @@ import org.jdesktop.layout.LayoutStyle;
 import org.apache.commons.collections15.FactoryUtils;
 import org.apache.commons.collections15.Transformer;
 
-import uk.ac.liv.cat.socialnetwork.util.LogReader;
+import uk.ac.liv.cat.socialnetwork.util.SocialEvent;
+import uk.ac.liv.cat.socialnetwork.util.SocialEventFeed;
 
 /**
  * 
@@ -42,7 +45,18 @@ public class SocialTraderFrame extends JFrame {
 
 	private SocialNetworkRegistry snr;
 
-	private LogReader logReader;
+	/**
+	 * reads the social events published by the registry.
+	 */
+	private SocialEventFeed.Reader feedReader;
+
+	/**
+	 * true while a read of the feed is scheduled on the event dispatch thread,
+	 * so that a burst of events leads to a single update.
+	 */
+	private final AtomicBoolean updateScheduled = new AtomicBoolean();
+
+	private final List<SocialEvent> newEvents = new ArrayList<SocialEvent>();
 
 	private JPanel linkVisuals; 
 
@@ -113,7 +127,6 @@ public class SocialTraderFrame extends JFrame {
 		/* Instantiate the necessary instances. */
 
 		this.snr = SocialNetworkRegistry.getInstance();	 
-		logReader = new LogReader();
 
 
 		/* Container for layered Visual Link content. */
@@ -373,11 +386,48 @@ public class SocialTraderFrame extends JFrame {
                 .add(24, 24, 24)));
 		//
 
-		
-		logReader.addSearchTerm("All");
+		if (snr != null) {
+
+			subscribe(snr.getEventFeed());
+
+		}
 		
 	}
 
+	/**
+	 * follows the events of a feed, updating the log on the event dispatch
+	 * thread.
+	 */
+	public void subscribe(SocialEventFeed feed) {
+
+		feedReader = feed.createReader();
+
+		feed.addListener(new SocialEventFeed.Listener() {
+
+			public void eventsPublished(SocialEventFeed feed) {
+
+				if (updateScheduled.compareAndSet(false, true)) {
+
+					SwingUtilities.invokeLater(new Runnable() {
+
+						public void run() {
+
+							updateScheduled.set(false);
+
+							updateLog();
+
+						}
+
+					});
+
+				}
+
+			}
+
+		});
+
+	}
+
 	public void addTraders(String[] traders) {
 
 		if (traderList.getItemCount() == 1) {
@@ -385,8 +435,6 @@ public class SocialTraderFrame extends JFrame {
 			traderList.setModel(new DefaultComboBoxModel( traders ));
 
 			target = (String)traderList.getSelectedItem();
-		
-			logReader.addSearchTerm(target);					
 
 			traderList.addActionListener(new ActionListener() {
 
@@ -402,12 +450,8 @@ public class SocialTraderFrame extends JFrame {
 
 					JComboBox cb = (JComboBox)e.getSource();
 
-					logReader.removeSearchTerm(target);
-
 		    		    target = (String)cb.getSelectedItem();
 
-				    logReader.addSearchTerm(target);					
-
 				}
 
 			});
@@ -440,35 +484,51 @@ public class SocialTraderFrame extends JFrame {
 
 	}
 
+	/**
+	 * appends the events published since the last update about the trader
+	 * being tracked. To be called on the event dispatch thread.
+	 */
 	public void updateLog() {
 
-		try {
+		if (feedReader == null) return;
 
-			String newLog;
+		newEvents.clear();
 
-			if ((newLog = logReader.read()) != "") {
+		feedReader.read(newEvents);
 
-				append(newLog);
+		boolean appended = false;
 
-				if (validToScroll) {
+		for (SocialEvent event : newEvents) {
 
-					traderLog.setCaretPosition(traderLog.getDocument().getLength());
+			if (event.getTraderId().equals(target)) {
+
+				append(event);
+
+				appended = true;
 
-				} 
-			
 			}
 
-		} catch(IOException e) {};
+		}
+
+		newEvents.clear();
+
+		if (appended && validToScroll) {
+
+			traderLog.setCaretPosition(traderLog.getDocument().getLength());
+
+		} 
 		
 	}
 	
-	public void append(String string) { 
+	public void append(SocialEvent event) { 
         
 		StyledDocument doc = traderLog.getStyledDocument();
 		
 		SimpleAttributeSet style = new SimpleAttributeSet();
 		
-		if (string.startsWith("!")) {	
+		// the advice the trader gets stands out
+		if (event.getKind() == SocialEvent.Kind.REFERRER
+				|| event.getKind() == SocialEvent.Kind.ADVICE) {	
 			
 			StyleConstants.setBold(style, true);
 		
@@ -476,7 +536,7 @@ public class SocialTraderFrame extends JFrame {
 		
 		try {
 			
-			doc.insertString( doc.getLength(), target + ": " + string.substring(1, string.length()) + "\n\n", style );
+			doc.insertString( doc.getLength(), target + ": " + event.getText() + "\n\n", style );
 
 		} catch (Exception e) {}
 
@@ -0,0 +1,72 @@
+package uk.ac.liv.cat.socialnetwork.util;
+
+/**
+ * Something that happens to a trader in the social network, published into a
+ * {@link SocialEventFeed}.
+ *
+ * @author Martin Chapman
+ * @version 1
+ */
+public class SocialEvent {
+
+	public enum Kind {
+		/** the trader enters a specialist. */
+		ENTRY,
+		/** the trader's shout is placed or rejected. */
+		SHOUT,
+		/** the trader's shout is matched or left unmatched. */
+		MATCH,
+		/** the trader is linked to another trader in the network. */
+		LINK,
+		/** another trader is selected to give the trader advice. */
+		REFERRER,
+		/** the trader is given advice. */
+		ADVICE,
+		/** the trader's profit is attributed to whoever advised them. */
+		PROFIT,
+		/** the trader's links in the network are rewired. */
+		REWIRE
+	};
+
+	private final long sequence;
+
+	private final Kind kind;
+
+	private final String traderId;
+
+	private final String text;
+
+	SocialEvent(long sequence, Kind kind, String traderId, String text) {
+		this.sequence = sequence;
+		this.kind = kind;
+		this.traderId = traderId;
+		this.text = text;
+	}
+
+	/**
+	 * @return the position of the event in the feed, starting from 0.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return the id of the trader the event is about.
+	 */
+	public String getTraderId() {
+		return traderId;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	@Override
+	public String toString() {
+		return traderId + " " + text;
+	}
+}
@@ -0,0 +1,165 @@
+package uk.ac.liv.cat.socialnetwork.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded feed of {@link SocialEvent}s, kept in a ring buffer so that
+ * publishing neither locks nor allocates anything but the event itself.
+ *
+ * Any thread may publish. Each subscriber reads through a {@link Reader} of its
+ * own, at its own pace; once it lags more than the capacity of the feed behind,
+ * the oldest events it has not read are lost to it, which it is told about.
+ * Listeners are called on the publishing thread after each event, so they
+ * should do no more than schedule a read.
+ *
+ * @author Martin Chapman
+ * @version 1
+ */
+public class SocialEventFeed {
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * told on the publishing thread that events are available.
+	 */
+	public interface Listener {
+		public void eventsPublished(SocialEventFeed feed);
+	}
+
+	private final AtomicReferenceArray<SocialEvent> slots;
+
+	private final int mask;
+
+	/**
+	 * the sequence of the next event to publish.
+	 */
+	private final AtomicLong next = new AtomicLong();
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	public SocialEventFeed() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            the number of events kept, rounded up to a power of two.
+	 */
+	public SocialEventFeed(int capacity) {
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		slots = new AtomicReferenceArray<SocialEvent>(size);
+		mask = size - 1;
+	}
+
+	public int getCapacity() {
+		return slots.length();
+	}
+
+	/**
+	 * @return true if anyone listens to the feed, so that callers can avoid
+	 *         building events nobody reads.
+	 */
+	public boolean hasListeners() {
+		return !listeners.isEmpty();
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	public void publish(SocialEvent.Kind kind, String traderId, String text) {
+		final long sequence = next.getAndIncrement();
+		slots.set((int) (sequence & mask), new SocialEvent(sequence, kind,
+				traderId, text));
+
+		for (Listener listener : listeners) {
+			listener.eventsPublished(this);
+		}
+	}
+
+	/**
+	 * @return the number of events published so far.
+	 */
+	public long getNumOfPublished() {
+		return next.get();
+	}
+
+	/**
+	 * @return a reader that starts with the next event published.
+	 */
+	public Reader createReader() {
+		return new Reader(next.get());
+	}
+
+	/**
+	 * reads the events of the feed in the order they were published. A reader
+	 * is meant to be used by a single thread.
+	 */
+	public class Reader {
+
+		/**
+		 * the sequence of the next event to read.
+		 */
+		private long position;
+
+		private long numOfLost;
+
+		private Reader(long position) {
+			this.position = position;
+		}
+
+		/**
+		 * adds the events published since the last read to the list. An event
+		 * whose publishing is still under way stops the read, and is read the
+		 * next time.
+		 *
+		 * @return the number of events added.
+		 */
+		public int read(List<SocialEvent> events) {
+			final long end = next.get();
+			final int capacity = slots.length();
+
+			if (end - position > capacity) {
+				numOfLost += end - capacity - position;
+				position = end - capacity;
+			}
+
+			int count = 0;
+			while (position < end) {
+				final SocialEvent event = slots.get((int) (position & mask));
+
+				if (event == null || event.getSequence() < position) {
+					// not stored yet
+					break;
+				} else if (event.getSequence() > position) {
+					// overwritten by a later event before being read
+					numOfLost++;
+				} else {
+					events.add(event);
+					count++;
+				}
+
+				position++;
+			}
+
+			return count;
+		}
+
+		/**
+		 * @return the number of events lost because the reader lagged behind.
+		 */
+		public long getNumOfLost() {
+			return numOfLost;
+		}
+	}
+}
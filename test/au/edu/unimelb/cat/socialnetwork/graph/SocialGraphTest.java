@@ -0,0 +1,235 @@
+package au.edu.unimelb.cat.socialnetwork.graph;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * checks both {@link SocialGraph}s against the plain adjacency matrix that the
+ * registry used to keep, where a cell holding 1 denotes a link.
+ *
+ * @author Martin Chapman
+ * @version $Rev: 1 $
+ */
+public class SocialGraphTest extends MyTestCase {
+
+	public SocialGraphTest(final String name) {
+		super(name);
+	}
+
+	protected static SocialGraph[] createGraphs(final int numOfVertices) {
+		final SocialGraph graphs[] = new SocialGraph[] {
+				new AdjacencyListSocialGraph(), new DenseSocialGraph() };
+		for (final SocialGraph graph : graphs) {
+			graph.initialize(numOfVertices);
+		}
+		return graphs;
+	}
+
+	/**
+	 * checks the links of the graph against the matrix, and that neighbours
+	 * come in the order a scan of a row of the matrix finds them.
+	 */
+	protected static void assertSameAs(final SocialGraph graph,
+			final int matrix[][]) {
+		Assert.assertEquals(graph + " size", matrix.length, graph
+				.getNumOfVertices());
+
+		for (int i = 0; i < matrix.length; i++) {
+			int degree = 0;
+			for (int j = 0; j < matrix[i].length; j++) {
+				Assert.assertEquals(graph + " link " + i + " -> " + j,
+						matrix[i][j] == 1, graph.isLinked(i, j));
+				degree += matrix[i][j];
+			}
+
+			final int neighbours[] = graph.getNeighbours(i);
+			Assert.assertEquals(graph + " degree of " + i, degree, graph
+					.getDegree(i));
+			Assert.assertEquals(graph + " neighbours of " + i, degree,
+					neighbours.length);
+
+			int n = 0;
+			for (int j = 0; j < matrix[i].length; j++) {
+				if (matrix[i][j] == 1) {
+					Assert.assertEquals(graph + " neighbour " + n + " of " + i, j,
+							neighbours[n++]);
+				}
+			}
+		}
+	}
+
+	public void testAddAndRemove() {
+		System.out.println("\n>>>>>>>>>\t " + "testAddAndRemove() \n");
+
+		for (final SocialGraph graph : SocialGraphTest.createGraphs(4)) {
+			final int matrix[][] = new int[4][4];
+			SocialGraphTest.assertSameAs(graph, matrix);
+
+			graph.setLinked(0, 3, true);
+			graph.setLinked(0, 1, true);
+			graph.setLinked(0, 1, true);
+			graph.setLinked(2, 2, true);
+			matrix[0][3] = matrix[0][1] = matrix[2][2] = 1;
+			SocialGraphTest.assertSameAs(graph, matrix);
+
+			graph.setLinked(0, 3, false);
+			graph.setLinked(1, 0, false);
+			matrix[0][3] = 0;
+			SocialGraphTest.assertSameAs(graph, matrix);
+
+			graph.setNeighbours(1, new int[] { 3, 0, 3 });
+			matrix[1][0] = matrix[1][3] = 1;
+			SocialGraphTest.assertSameAs(graph, matrix);
+
+			graph.setNeighbours(1, new int[] { 2 });
+			matrix[1][0] = matrix[1][3] = 0;
+			matrix[1][2] = 1;
+			SocialGraphTest.assertSameAs(graph, matrix);
+
+			graph.setNeighbours(1, new int[0]);
+			matrix[1][2] = 0;
+			SocialGraphTest.assertSameAs(graph, matrix);
+		}
+	}
+
+	public void testRewire() {
+		System.out.println("\n>>>>>>>>>\t " + "testRewire() \n");
+
+		for (final SocialGraph graph : SocialGraphTest.createGraphs(5)) {
+			final int matrix[][] = new int[5][5];
+			graph.setNeighbours(0, new int[] { 1, 3 });
+			matrix[0][1] = matrix[0][3] = 1;
+
+			// not a neighbour
+			Assert.assertTrue(!graph.rewire(0, 2, 4));
+			SocialGraphTest.assertSameAs(graph, matrix);
+
+			Assert.assertTrue(graph.rewire(0, 3, 0));
+			matrix[0][3] = 0;
+			matrix[0][0] = 1;
+			SocialGraphTest.assertSameAs(graph, matrix);
+
+			// onto an existing link
+			Assert.assertTrue(graph.rewire(0, 0, 1));
+			matrix[0][0] = 0;
+			SocialGraphTest.assertSameAs(graph, matrix);
+
+			// onto itself
+			Assert.assertTrue(graph.rewire(0, 1, 1));
+			SocialGraphTest.assertSameAs(graph, matrix);
+		}
+	}
+
+	public void testNeighbourSnapshot() {
+		System.out.println("\n>>>>>>>>>\t " + "testNeighbourSnapshot() \n");
+
+		for (final SocialGraph graph : SocialGraphTest.createGraphs(3)) {
+			graph.setNeighbours(0, new int[] { 2, 1 });
+			final int neighbours[] = graph.getNeighbours(0);
+
+			graph.rewire(0, 1, 0);
+			graph.setLinked(0, 2, false);
+
+			MyTestCase.checkEquals(graph + " snapshot", neighbours, new int[] { 1,
+					2 });
+			Assert.assertEquals(graph + " snapshot size", 2, neighbours.length);
+		}
+	}
+
+	public void testRandomOperations() {
+		System.out.println("\n>>>>>>>>>\t " + "testRandomOperations() \n");
+
+		final int numOfVertices = 12;
+		final SocialGraph graphs[] = SocialGraphTest.createGraphs(numOfVertices);
+		final int matrix[][] = new int[numOfVertices][numOfVertices];
+
+		final Random random = new Random(5);
+		for (int step = 0; step < 3000; step++) {
+			final int from = random.nextInt(numOfVertices);
+			final int to = random.nextInt(numOfVertices);
+			final int action = random.nextInt(10);
+			if (action < 4) {
+				final boolean linked = random.nextBoolean();
+				for (final SocialGraph graph : graphs) {
+					graph.setLinked(from, to, linked);
+				}
+				matrix[from][to] = linked ? 1 : 0;
+			} else if (action < 8) {
+				final int oldTo = random.nextInt(numOfVertices);
+				final boolean rewired = matrix[from][oldTo] == 1;
+				for (final SocialGraph graph : graphs) {
+					Assert.assertEquals(graph + " rewired", rewired, graph.rewire(from,
+							oldTo, to));
+				}
+				if (rewired) {
+					matrix[from][oldTo] = 0;
+					matrix[from][to] = 1;
+				}
+			} else {
+				final int neighbours[] = new int[random.nextInt(4)];
+				for (int i = 0; i < neighbours.length; i++) {
+					neighbours[i] = random.nextInt(numOfVertices);
+				}
+				for (final SocialGraph graph : graphs) {
+					graph.setNeighbours(from, neighbours);
+				}
+				for (int j = 0; j < numOfVertices; j++) {
+					matrix[from][j] = 0;
+				}
+				for (final int j : neighbours) {
+					matrix[from][j] = 1;
+				}
+			}
+
+			for (final SocialGraph graph : graphs) {
+				SocialGraphTest.assertSameAs(graph, matrix);
+			}
+		}
+	}
+
+	/**
+	 * rewires a link back and forth while another thread reads the row, which
+	 * must always hold exactly one of the two links.
+	 */
+	public void testConcurrentRewire() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testConcurrentRewire() \n");
+
+		for (final SocialGraph graph : SocialGraphTest.createGraphs(3)) {
+			graph.setNeighbours(0, new int[] { 1 });
+
+			final int torn[] = new int[1];
+			final Thread reader = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 200000; i++) {
+						final int neighbours[] = graph.getNeighbours(0);
+						if ((neighbours.length != 1) || (neighbours[0] == 0)) {
+							torn[0]++;
+						}
+					}
+				}
+			};
+			reader.start();
+
+			for (int i = 0; reader.isAlive(); i++) {
+				Assert.assertTrue(graph.rewire(0, 1 + (i % 2), 2 - (i % 2)));
+			}
+			reader.join();
+
+			Assert.assertEquals(graph + " torn rows", 0, torn[0]);
+		}
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(SocialGraphTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(SocialGraphTest.class);
+	}
+}
@@ -0,0 +1,124 @@
+package au.edu.unimelb.cat.socialnetwork.method;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.MyTestCase;
+import edu.cuny.cat.comm.CatpCodec;
+import edu.cuny.cat.comm.CatpMessage;
+import edu.cuny.cat.comm.CatpMessageErrorException;
+import edu.cuny.cat.comm.CatpResponse;
+
+/**
+ * @author Martin Chapman
+ * @version $Rev: 1 $
+ */
+public class AdviceTest extends MyTestCase {
+
+	static Logger logger = Logger.getLogger(AdviceTest.class);
+
+	public AdviceTest(final String name) {
+		super(name);
+	}
+
+	/**
+	 * sends the advice in a response as text and reads it back.
+	 */
+	protected static Advice transfer(final Advice advice)
+			throws CatpMessageErrorException {
+		final CatpResponse response = CatpResponse.createResponse(
+				CatpMessage.OK, advice.toHeaders());
+
+		final String lines[] = response.toString().split("\r?\n");
+		final CatpMessage msg = CatpCodec.createMessage(lines[0]);
+		for (int i = 1; i < lines.length; i++) {
+			if (lines[i].trim().length() > 0) {
+				CatpCodec.decodeHeader(msg, lines[i]);
+			}
+		}
+
+		Assert.assertEquals(Advice.TYPE, msg.getHeader(CatpMessage.TYPE));
+		Assert.assertTrue(Advice.isCarriedBy(msg));
+		return Advice.parse(msg);
+	}
+
+	public void testMarketSelection() throws CatpMessageErrorException {
+		System.out.println("\n>>>>>>>>>\t " + "testMarketSelection() \n");
+
+		Advice advice = AdviceTest.transfer(Advice.forMarketSelection(
+				"specialist1", true));
+		Assert.assertTrue(advice.isMarketSelection());
+		Assert.assertTrue(advice.isValid());
+		Assert.assertEquals("specialist1", advice.getSpecialistId());
+		Assert.assertTrue(advice.getExperience());
+
+		// no specialist recommended
+		advice = AdviceTest.transfer(Advice.forMarketSelection("", false));
+		Assert.assertTrue(!advice.isValid());
+		Assert.assertEquals("", advice.getSpecialistId());
+
+		// no history of the trader chosen to advise
+		advice = Advice.forMarketSelection(null, true);
+		Assert.assertTrue(!advice.isValid());
+		advice = AdviceTest.transfer(advice);
+		Assert.assertTrue(!advice.isValid());
+		Assert.assertEquals("", advice.getSpecialistId());
+
+		Assert.assertTrue(!Advice.none(Advice.MSS).isValid());
+		Assert.assertTrue(Advice.none(Advice.MSS).isMarketSelection());
+	}
+
+	public void testShouting() throws CatpMessageErrorException {
+		System.out.println("\n>>>>>>>>>\t " + "testShouting() \n");
+
+		Advice advice = AdviceTest.transfer(Advice.forShouting(100.234234567, 2,
+				false));
+		Assert.assertTrue(advice.isShouting());
+		Assert.assertTrue(advice.isValid());
+		// to six decimal places, as in the text format
+		Assert.assertEquals(100.234235, advice.getPrice(), 0);
+		Assert.assertEquals(2, advice.getQuantity());
+		Assert.assertTrue(!advice.getExperience());
+
+		// no shout recommended
+		advice = AdviceTest.transfer(Advice.forShouting(-1, -1, false));
+		Assert.assertTrue(!advice.isValid());
+
+		Assert.assertTrue(!Advice.none(Advice.SS).isValid());
+		Assert.assertTrue(Advice.none(Advice.SS).isShouting());
+	}
+
+	public void testMalformed() {
+		System.out.println("\n>>>>>>>>>\t " + "testMalformed() \n");
+
+		final CatpResponse response = CatpResponse.createResponse(CatpMessage.OK);
+		Assert.assertTrue(!Advice.isCarriedBy(response));
+
+		response.setHeader(Advice.STRATEGY, Advice.SS);
+		response.setHeader(Advice.PRICE, "100");
+		response.setHeader(Advice.QUANTITY, "two");
+		try {
+			Advice.parse(response);
+			Assert.fail("malformed quantity accepted");
+		} catch (final CatpMessageErrorException e) {
+		}
+
+		response.setHeader(Advice.STRATEGY, Advice.MSS);
+		try {
+			Advice.parse(response);
+			Assert.fail("market selection advice without specialist accepted");
+		} catch (final CatpMessageErrorException e) {
+		}
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(AdviceTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(AdviceTest.class);
+	}
+}
@@ -15,16 +15,21 @@
 
 package edu.cuny.ai.learning;
 
+import junit.framework.Assert;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import org.apache.log4j.Logger;
 
+import cern.jet.random.engine.RandomEngine;
+import edu.cuny.PRNGTestSeeds;
 import edu.cuny.ai.learning.prob.DymEqualRewardsNArmedBanditProb;
 import edu.cuny.ai.learning.prob.DymVaryingRewardsNArmedBanditProb;
 import edu.cuny.ai.learning.prob.NArmedBanditProb;
 import edu.cuny.ai.learning.prob.StaticEqualRewardsNArmedBanditProb;
 import edu.cuny.ai.learning.prob.StaticVaryingRewardsNArmedBanditProb;
+import edu.cuny.prng.GlobalPRNG;
+import edu.cuny.util.Galaxy;
 
 /**
  * @author Jinzhong Niu
@@ -136,6 +141,213 @@ public class NArmedBanditLearnerTest extends ExposedStimuliResponseLearnerTest {
 				expectedFrequencies, times);
 	}
 
+	public void testSoftmaxProbabilities() {
+		System.out.println("\n>>>>>>>>>\t " + "testSoftmaxProbabilities() \n");
+
+		final double returns[] = { 3, -1, 0, 2.5, -4 };
+
+		final SoftmaxActionChoosingPolicy choosingPolicy = new SoftmaxActionChoosingPolicy();
+		choosingPolicy.initialize();
+
+		// the unshifted powers of e, normalized by the largest absolute return
+		double sum = 0;
+		for (final double return1 : returns) {
+			sum += Math.exp(return1 / 4 / choosingPolicy.getTemperature());
+		}
+		final double p[] = choosingPolicy.getProbabilities(returns);
+		for (int i = 0; i < returns.length; i++) {
+			Assert.assertEquals(Math.exp(returns[i] / 4
+					/ choosingPolicy.getTemperature())
+					/ sum, p[i], 1e-12);
+		}
+
+		// in ascending order, so the shift grows with each action in the same pass
+		final double ascending[] = { -4, -1, 0, 2.5, 3 };
+		final double r[] = choosingPolicy.getProbabilities(ascending);
+		for (int i = 0; i < ascending.length; i++) {
+			Assert.assertEquals(Math.exp(ascending[i] / 4
+					/ choosingPolicy.getTemperature())
+					/ sum, r[i], 1e-12);
+		}
+
+		// the unshifted powers of e overflow at such a low temperature
+		choosingPolicy.setInitialTemperature(1e-4);
+		choosingPolicy.initialize();
+		final double q[] = choosingPolicy.getProbabilities(returns);
+		Assert.assertEquals(1, q[0], 0);
+		for (int i = 1; i < returns.length; i++) {
+			Assert.assertEquals(0, q[i], 1e-12);
+		}
+		Assert.assertEquals(0, choosingPolicy.act(returns));
+	}
+
+	/**
+	 * checks that choosing among a set of actions, among an array of actions and
+	 * among a copy of their returns lead to the same actions.
+	 */
+	protected void checkRestrictedActions(final ActionChoosingPolicy choosingPolicy) {
+		final ActionChoosingPolicy arrayPolicy = (ActionChoosingPolicy) choosingPolicy
+				.protoClone();
+		final ActionChoosingPolicy copyPolicy = (ActionChoosingPolicy) choosingPolicy
+				.protoClone();
+
+		final java.util.Random random = new java.util.Random(5);
+		final double returns[] = new double[20];
+		final int actions[] = new int[returns.length];
+		for (int step = 0; step < 1000; step++) {
+			for (int i = 0; i < returns.length; i++) {
+				// ties now and then
+				returns[i] = random.nextInt(5);
+			}
+
+			final java.util.Set<Integer> actionSet = new java.util.LinkedHashSet<Integer>();
+			final int numOfActions = 1 + random.nextInt(returns.length);
+			while (actionSet.size() < numOfActions) {
+				actionSet.add(random.nextInt(returns.length));
+			}
+			int n = 0;
+			for (final Integer action : actionSet) {
+				actions[n++] = action.intValue();
+			}
+			final double q[] = new double[n];
+			for (int i = 0; i < n; i++) {
+				q[i] = returns[actions[i]];
+			}
+
+			final int action = choosingPolicy.act(returns, actionSet);
+			Assert.assertEquals(action, arrayPolicy.act(returns, actions, n));
+			Assert.assertEquals(action, actions[copyPolicy.act(q)]);
+		}
+
+		Assert.assertEquals(-1, choosingPolicy.act(returns, actions, 0));
+		Assert.assertEquals(-1, choosingPolicy.act(returns,
+				new java.util.HashSet<Integer>()));
+	}
+
+	public void testRestrictedActions() {
+		System.out.println("\n>>>>>>>>>\t " + "testRestrictedActions() \n");
+
+		final EpsilonGreedyActionChoosingPolicy epsilonGreedy = new EpsilonGreedyActionChoosingPolicy(
+				0.3);
+		epsilonGreedy.setAlpha(0.99);
+		epsilonGreedy.initialize();
+		checkRestrictedActions(epsilonGreedy);
+
+		final SoftmaxActionChoosingPolicy softmax = new SoftmaxActionChoosingPolicy();
+		softmax.setAlpha(0.99);
+		softmax.initialize();
+		checkRestrictedActions(softmax);
+	}
+
+	/**
+	 * checks that {@link ArrayBasedReturnUpdatingPolicy} updates the returns
+	 * exactly as {@link AdaptiveReturnUpdatingPolicy} does.
+	 */
+	public void testArrayBasedReturns() {
+		System.out.println("\n>>>>>>>>>\t " + "testArrayBasedReturns() \n");
+
+		final MimicryLearner templates[] = { new WidrowHoffLearner(0.3),
+				new AveragingLearner(), new WidrowHoffLearnerWithMomentum() };
+		for (final MimicryLearner template : templates) {
+			final NArmedBanditLearner learner = new NArmedBanditLearner(50);
+
+			final AdaptiveReturnUpdatingPolicy adaptive = new AdaptiveReturnUpdatingPolicy();
+			adaptive.setParentLearner(learner);
+			adaptive.setLearnerTemplate(template);
+			adaptive.initialize();
+
+			final ArrayBasedReturnUpdatingPolicy arrayBased = new ArrayBasedReturnUpdatingPolicy();
+			arrayBased.setParentLearner(learner);
+			arrayBased.setLearnerTemplate(template);
+			arrayBased.initialize();
+
+			final java.util.Random random = new java.util.Random(3);
+			final int actions[] = new int[8];
+			final double rewards[] = new double[actions.length];
+			for (int step = 0; step < 2000; step++) {
+				if (step == 1000) {
+					adaptive.reset();
+					arrayBased.reset();
+				}
+
+				if (random.nextBoolean()) {
+					final int action = random.nextInt(learner.getNumberOfActions());
+					final double reward = random.nextGaussian() * 10;
+					adaptive.reward(action, reward);
+					arrayBased.reward(action, reward);
+				} else {
+					final int n = random.nextInt(actions.length);
+					for (int i = 0; i < n; i++) {
+						actions[i] = random.nextInt(learner.getNumberOfActions());
+						rewards[i] = random.nextGaussian() * 10;
+					}
+					adaptive.reward(actions, rewards, n);
+					arrayBased.reward(actions, rewards, n);
+				}
+			}
+
+			final ArrayBasedReturnUpdatingPolicy copy = (ArrayBasedReturnUpdatingPolicy) arrayBased
+					.protoClone();
+			copy.reward(0, 100);
+
+			for (int i = 0; i < learner.getNumberOfActions(); i++) {
+				Assert.assertEquals(template.getClass().getSimpleName() + " action "
+						+ i, adaptive.getReturns()[i], arrayBased.getReturns()[i], 0);
+			}
+			Assert.assertTrue(copy.getReturns() != arrayBased.getReturns());
+		}
+	}
+
+	/**
+	 * checks that the random number generators obtained after
+	 * {@link ArrayBasedReturnUpdatingPolicy} is created, cloned and reset are
+	 * seeded as after {@link AdaptiveReturnUpdatingPolicy}, whose learners each
+	 * take a generator of their own, when multiple generators are used.
+	 */
+	public void testArrayBasedEngines() {
+		System.out.println("\n>>>>>>>>>\t " + "testArrayBasedEngines() \n");
+
+		final AdaptiveReturnUpdatingPolicy policies[] = {
+				new AdaptiveReturnUpdatingPolicy(),
+				new ArrayBasedReturnUpdatingPolicy() };
+		final double draws[][] = new double[policies.length][];
+
+		final Galaxy galaxy = Galaxy.newInstance();
+		galaxy.setDefaultSystem(NArmedBanditLearnerTest.class.getSimpleName());
+		Galaxy.setCurrent(galaxy);
+		try {
+			for (int i = 0; i < policies.length; i++) {
+				final GlobalPRNG prng = new GlobalPRNG();
+				prng.setUseMultiEngine(true);
+				prng.initializeWithSeed(PRNGTestSeeds.UNIT_TEST_SEED);
+				galaxy.put(galaxy.getDefaultSystem(), GlobalPRNG.class, prng);
+
+				prng.enterScope("agent.0");
+				try {
+					final NArmedBanditLearner learner = new NArmedBanditLearner(20);
+					policies[i].setParentLearner(learner);
+					policies[i].setLearnerTemplate(new WidrowHoffLearner(0.3));
+					policies[i].initialize();
+					((ReturnUpdatingPolicy) policies[i].protoClone()).reset();
+
+					draws[i] = new double[10];
+					final RandomEngine engine = prng.getEngine();
+					for (int j = 0; j < draws[i].length; j++) {
+						draws[i][j] = engine.raw();
+					}
+				} finally {
+					prng.exitScope();
+				}
+			}
+		} finally {
+			Galaxy.setCurrent(null);
+		}
+
+		for (int j = 0; j < draws[0].length; j++) {
+			Assert.assertEquals("draw " + j, draws[0][j], draws[1][j], 0);
+		}
+	}
+
 	public static void main(final String[] args) {
 		junit.textui.TestRunner.run(NArmedBanditLearnerTest.suite());
 	}
@@ -18,7 +18,12 @@ package edu.cuny.cat;
 import java.net.URL;
 
 import junit.framework.Test;
+import junit.framework.TestResult;
 import junit.framework.TestSuite;
+import uk.ac.liv.cat.socialnetwork.output.BinaryExperimentSinkTest;
+import uk.ac.liv.cat.socialnetwork.util.SocialEventFeedTest;
+import au.edu.unimelb.cat.socialnetwork.graph.SocialGraphTest;
+import au.edu.unimelb.cat.socialnetwork.method.AdviceTest;
 import edu.cuny.ai.learning.EpsilonGreedyLearnerTest;
 import edu.cuny.ai.learning.NArmedBanditLearnerTest;
 import edu.cuny.ai.learning.QLearnerTest;
@@ -26,20 +31,35 @@ import edu.cuny.ai.learning.ReverseDiscountSlidingLearnerTest;
 import edu.cuny.ai.learning.RothErevLearnerTest;
 import edu.cuny.ai.learning.SoftmaxLearnerTest;
 import edu.cuny.ai.learning.WidrowHoffLearnerTest;
+import edu.cuny.cat.comm.CatpCodecTest;
 import edu.cuny.cat.comm.CatpInfrastructureTest;
 import edu.cuny.cat.comm.CatpMessageTest;
+import edu.cuny.cat.comm.CatpSessionRouterTest;
+import edu.cuny.cat.comm.ThreadLauncherTest;
 import edu.cuny.cat.market.FourHeapTest;
+import edu.cuny.cat.market.IncrementalEquilibriumCalculatorTest;
+import edu.cuny.cat.market.IndexedFourHeapTest;
 import edu.cuny.cat.market.LazyMaxVolumeShoutEngineTest;
+import edu.cuny.cat.stat.GDBeliefCurveTest;
 import edu.cuny.cat.stat.HistoricalReportTest;
+import edu.cuny.cat.stat.ReportVariableBoardTest;
+import edu.cuny.cat.stat.SharedMarketHistoryTest;
+import edu.cuny.cat.sweep.SweepTest;
 import edu.cuny.cat.sys.BenchmarkTest;
+import edu.cuny.cat.sys.ClockControllerTest;
+import edu.cuny.cat.sys.GameContextTest;
+import edu.cuny.cat.task.BlockingDispatcherTest;
 import edu.cuny.cat.trader.marketselection.MarketSelectionTest;
 import edu.cuny.cat.valuation.DailyRandomValuerTest;
 import edu.cuny.cat.valuation.FixedValuerTest;
 import edu.cuny.cat.valuation.IntervalValuerTest;
 import edu.cuny.cat.valuation.RandomValuerTest;
+import edu.cuny.event.ConcurrentEventEngineTest;
 import edu.cuny.prng.GlobalPRNG;
+import edu.cuny.prng.GlobalPRNGTest;
 import edu.cuny.util.Galaxy;
 import edu.cuny.util.ParameterDatabase;
+import edu.cuny.util.PriceHistogramTest;
 import edu.cuny.util.PriorityQueueTest;
 import edu.cuny.util.SortedTreeListTest;
 import edu.cuny.util.UtilsTest;
@@ -65,10 +85,15 @@ public class AllTests {
 		Galaxy.getInstance().getTyped(Game.P_CAT, GlobalPRNG.class)
 				.setUseMultiEngine(false);
 
-		junit.textui.TestRunner.run(AllTests.suite());
+		final TestResult result = new junit.textui.TestRunner().doRun(
+				AllTests.suite(), false);
 		// junit.swingui.TestRunner.run(AllTests.class);
 
 		Game.cleanupObjectRegistry();
+
+		// games on asynchronous infrastructures leave their connection threads
+		// behind, as they are meant to end with the JVM
+		System.exit(result.wasSuccessful() ? 0 : 1);
 	}
 
 	public static Test suite() {
@@ -86,6 +111,8 @@ public class AllTests {
 
 		// market
 		suite.addTest(FourHeapTest.suite());
+		suite.addTest(IndexedFourHeapTest.suite());
+		suite.addTest(IncrementalEquilibriumCalculatorTest.suite());
 		suite.addTest(LazyMaxVolumeShoutEngineTest.suite());
 
 		// trader
@@ -93,10 +120,25 @@ public class AllTests {
 
 		// stat
 		suite.addTest(HistoricalReportTest.suite());
+		suite.addTest(SharedMarketHistoryTest.suite());
+		suite.addTest(GDBeliefCurveTest.suite());
+		suite.addTest(ReportVariableBoardTest.suite());
 
 		// comm
 		suite.addTest(CatpMessageTest.suite());
 		suite.addTest(CatpInfrastructureTest.suite());
+		suite.addTest(CatpSessionRouterTest.suite());
+		suite.addTest(CatpCodecTest.suite());
+		suite.addTest(ThreadLauncherTest.suite());
+
+		// social network
+		suite.addTest(SocialGraphTest.suite());
+		suite.addTest(AdviceTest.suite());
+		suite.addTest(SocialEventFeedTest.suite());
+		suite.addTest(BinaryExperimentSinkTest.suite());
+
+		// task
+		suite.addTest(BlockingDispatcherTest.suite());
 
 		// valuation
 		suite.addTest(FixedValuerTest.suite());
@@ -104,13 +146,23 @@ public class AllTests {
 		suite.addTest(DailyRandomValuerTest.suite());
 		suite.addTest(IntervalValuerTest.suite());
 
+		// event
+		suite.addTest(ConcurrentEventEngineTest.suite());
+
+		// prng
+		suite.addTest(GlobalPRNGTest.suite());
+
 		// util
 		suite.addTest(SortedTreeListTest.suite());
+		suite.addTest(PriceHistogramTest.suite());
 		suite.addTest(PriorityQueueTest.suite());
 		suite.addTest(UtilsTest.suite());
 
 		// system
 		suite.addTest(BenchmarkTest.suite());
+		suite.addTest(GameContextTest.suite());
+		suite.addTest(ClockControllerTest.suite());
+		suite.addTest(SweepTest.suite());
 
 		return suite;
 	}
@@ -0,0 +1,212 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class CatpCodecTest extends MyTestCase {
+
+	static Logger logger = Logger.getLogger(CatpCodecTest.class);
+
+	public CatpCodecTest(final String name) {
+		super(name);
+	}
+
+	protected static CatpMessage createMessage() {
+		final CatpRequest request = CatpRequest.createRequest(CatpMessage.POST,
+				new String[] { CatpMessage.TYPE, CatpMessage.FEE, CatpMessage.ID,
+						"market1,market2", CatpMessage.VALUE, "0.1,0.2,0.3,0.4,0.5" });
+		request.setTag(12);
+		request.setHeader("EMPTY", "");
+		return request;
+	}
+
+	protected static byte[] getBytes(final ByteBuffer buffer) {
+		final byte bytes[] = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	public void testEncode() {
+		System.out.println("\n>>>>>>>>>\t " + "testEncode() \n");
+
+		final ByteBufferPool pool = new ByteBufferPool(1024, 4);
+
+		CatpMessage msg = CatpCodecTest.createMessage();
+		ByteBuffer buffer = CatpCodec.encode(msg, pool);
+		Assert.assertTrue(buffer.isDirect());
+		Assert.assertEquals(CatpCodec.getEncodedLength(msg), buffer.remaining());
+		Assert.assertTrue(Arrays.equals(msg.toString().getBytes(), CatpCodecTest
+				.getBytes(buffer)));
+		pool.release(buffer);
+		Assert.assertEquals(1, pool.size());
+
+		msg = CatpResponse.createResponse(CatpMessage.OK);
+		buffer = CatpCodec.encode(msg, pool);
+		Assert.assertEquals(0, pool.size());
+		Assert.assertTrue(Arrays.equals(msg.toString().getBytes(), CatpCodecTest
+				.getBytes(buffer)));
+
+		// non-ASCII text falls back to the bytes of toString()
+		msg.setHeader(CatpMessage.TEXT, "caf\u00e9");
+		Assert.assertEquals(-1, CatpCodec.getEncodedLength(msg));
+		buffer = CatpCodec.encode(msg, pool);
+		Assert.assertTrue(!buffer.isDirect());
+		Assert.assertTrue(Arrays.equals(msg.toString().getBytes(), CatpCodecTest
+				.getBytes(buffer)));
+
+		// so does a message larger than a pooled buffer
+		final char chars[] = new char[2000];
+		Arrays.fill(chars, 'x');
+		msg.setHeader(CatpMessage.TEXT, new String(chars));
+		buffer = CatpCodec.encode(msg, pool);
+		Assert.assertTrue(!buffer.isDirect());
+		Assert.assertTrue(Arrays.equals(msg.toString().getBytes(), CatpCodecTest
+				.getBytes(buffer)));
+		pool.release(buffer);
+		Assert.assertEquals(0, pool.size());
+	}
+
+	public void testDecode() throws CatpMessageErrorException {
+		System.out.println("\n>>>>>>>>>\t " + "testDecode() \n");
+
+		final CatpMessage msg = CatpCodec.createMessage(CatpMessage.OPTIONS);
+		Assert.assertTrue(msg instanceof CatpRequest);
+		Assert.assertTrue(CatpCodec.createMessage("ok") instanceof CatpResponse);
+
+		CatpCodec.decodeHeader(msg, "TYPE :  DAYCLOSED");
+		CatpCodec.decodeHeader(msg, "TEXT:");
+		CatpCodec.decodeHeader(msg, "ID: a,");
+		CatpCodec.decodeHeader(msg, "ID: b");
+		Assert.assertEquals(CatpMessage.DAYCLOSED, msg.getHeader(CatpMessage.TYPE));
+		Assert.assertEquals("", msg.getHeader(CatpMessage.TEXT));
+		Assert.assertEquals("a,b", msg.getHeader(CatpMessage.ID));
+
+		final String invalids[] = { "TEXT", "TIME: 12:30", "FOO BAR" };
+		for (final String invalid : invalids) {
+			try {
+				CatpCodec.decodeHeader(msg, invalid);
+				Assert.fail();
+			} catch (final CatpMessageErrorException e) {
+				// expected
+			}
+		}
+
+		try {
+			CatpCodec.createMessage("HELLO");
+			Assert.fail();
+		} catch (final CatpMessageErrorException e) {
+			// expected
+		}
+	}
+
+	public void testSocketRoundTrip() throws IOException, CatException,
+			InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testSocketRoundTrip() \n");
+
+		final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+		serverChannel.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+		final SocketChannel clientChannel = SocketChannel.open(serverChannel
+				.socket().getLocalSocketAddress());
+		final SocketChannel acceptedChannel = serverChannel.accept();
+
+		final SocketBasedCatpConnection sender = new SocketBasedCatpConnection(
+				clientChannel);
+		final SocketBasedCatpConnection receiver = new SocketBasedCatpConnection(
+				acceptedChannel);
+		sender.open();
+		receiver.open();
+
+		final int numOfThreads = 4;
+		final int numOfMessages = 50;
+		final Thread threads[] = new Thread[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) {
+			final int id = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < numOfMessages; j++) {
+							final CatpMessage msg = CatpCodecTest.createMessage();
+							msg.setHeader(CatpMessage.TEXT, id + "," + j);
+							sender.sendMessage(msg);
+						}
+					} catch (final CatException e) {
+						e.printStackTrace();
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		final int next[] = new int[numOfThreads];
+		for (int k = 0; k < numOfThreads * numOfMessages; k++) {
+			final CatpMessage msg = receiver.getMessage();
+			Assert.assertTrue(msg instanceof CatpRequest);
+			Assert.assertEquals(CatpMessage.FEE, msg.getHeader(CatpMessage.TYPE));
+			Assert.assertEquals("12", msg.getTag());
+			Assert.assertEquals("", msg.getHeader("EMPTY"));
+
+			// messages from each thread arrive in order
+			final int ids[] = Message.parseIntegers(msg.getHeader(CatpMessage.TEXT));
+			Assert.assertEquals(next[ids[0]]++, ids[1]);
+		}
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		// a line ending split between reads and a bare LF
+		clientChannel.write(ByteBuffer.wrap("OK\r".getBytes()));
+		Thread.sleep(50);
+		clientChannel.write(ByteBuffer.wrap("\nTEXT: bye\n\r\n".getBytes()));
+		final CatpMessage msg = receiver.getMessage();
+		Assert.assertTrue(msg instanceof CatpResponse);
+		Assert.assertEquals("bye", msg.getHeader(CatpMessage.TEXT));
+
+		sender.close();
+		Assert.assertNull(receiver.getMessage());
+
+		receiver.close();
+		serverChannel.close();
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(CatpCodecTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(CatpCodecTest.class);
+	}
+}
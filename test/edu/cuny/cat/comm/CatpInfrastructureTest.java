@@ -15,6 +15,14 @@
 
 package edu.cuny.cat.comm;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
 import junit.framework.Assert;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -52,6 +60,385 @@ public class CatpInfrastructureTest extends MyTestCase {
 		checkMessagePassing(infrast);
 	}
 
+	public void testSelectorBased() {
+		System.out.println("\n>>>>>>>>>\t " + "testSelectorBased() \n");
+
+		final SelectorBasedInfrastructureImpl infrast = new SelectorBasedInfrastructureImpl();
+		infrast.setPort(0);
+		infrast.initialize();
+		checkMessagePassing(infrast);
+		infrast.cleanUp();
+	}
+
+	/**
+	 * checks that a single selector loop serves many connections.
+	 */
+	public void testSelectorBasedManyClients() throws CatException,
+			InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testSelectorBasedManyClients() \n");
+
+		final SelectorBasedInfrastructureImpl infrast = new SelectorBasedInfrastructureImpl();
+		infrast.setPort(0);
+		infrast.initialize();
+		Galaxy.getInstance().put(Galaxy.getInstance().getDefaultSystem(),
+				CatpInfrastructure.class, infrast);
+
+		final int numOfClients = 200;
+		final int counts[] = new int[1];
+		final ConnectionListener<CatpMessage> listener = new ConnectionListener<CatpMessage>() {
+			public void messageArrived(final CatpMessage msg) {
+				if (msg != null) {
+					synchronized (counts) {
+						counts[0]++;
+						counts.notifyAll();
+					}
+				}
+			}
+		};
+
+		final ServerConnector<CatpMessage> serverConnector = infrast
+				.createServerConnector();
+		final ClientConnector<CatpMessage> clientConnector = infrast
+				.createClientConnector();
+		final int numOfThreads = Thread.activeCount();
+
+		final ReactiveConnection<CatpMessage> clientConns[] = new SelectorBasedCatpConnection[numOfClients];
+		final ReactiveConnection<CatpMessage> serverConns[] = new SelectorBasedCatpConnection[numOfClients];
+		for (int i = 0; i < numOfClients; i++) {
+			clientConns[i] = ListenableConnection
+					.makeReactiveConnection(clientConnector.connect());
+			serverConns[i] = ListenableConnection
+					.makeReactiveConnection(serverConnector.accept());
+			serverConns[i].setListener(listener);
+			serverConns[i].open();
+		}
+
+		// one loop thread for all the connections
+		Assert.assertTrue(Thread.activeCount() <= numOfThreads + 1);
+
+		for (int i = 0; i < numOfClients; i++) {
+			final CatpRequest request = CatpRequest.createRequest(CatpMessage.BID,
+					new String[] { CatpMessage.ID, String.valueOf(i) });
+			clientConns[i].sendMessage(request);
+		}
+
+		synchronized (counts) {
+			final long deadline = System.currentTimeMillis() + 10000;
+			while ((counts[0] < numOfClients)
+					&& (System.currentTimeMillis() < deadline)) {
+				counts.wait(100);
+			}
+			Assert.assertEquals(numOfClients, counts[0]);
+		}
+
+		for (int i = 0; i < numOfClients; i++) {
+			clientConns[i].close();
+			serverConns[i].close();
+		}
+		serverConnector.close();
+		infrast.cleanUp();
+	}
+
+	/**
+	 * checks that sending to a peer that does not read returns rather than
+	 * blocks, and that the messages left to the loop are written in order once
+	 * the peer reads.
+	 */
+	public void testSelectorBasedSlowPeer() throws CatException,
+			InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testSelectorBasedSlowPeer() \n");
+
+		final SelectorBasedInfrastructureImpl infrast = new SelectorBasedInfrastructureImpl();
+		infrast.setPort(0);
+		infrast.initialize();
+		Galaxy.getInstance().put(Galaxy.getInstance().getDefaultSystem(),
+				CatpInfrastructure.class, infrast);
+
+		final ServerConnector<CatpMessage> serverConnector = infrast
+				.createServerConnector();
+		final ClientConnector<CatpMessage> clientConnector = infrast
+				.createClientConnector();
+
+		final SelectorBasedCatpConnection clientConn = (SelectorBasedCatpConnection) ListenableConnection
+				.makeReactiveConnection(clientConnector.connect());
+		final SelectorBasedCatpConnection serverConn = (SelectorBasedCatpConnection) ListenableConnection
+				.makeReactiveConnection(serverConnector.accept());
+		serverConn.setListener(new ConnectionListener<CatpMessage>() {
+			public void messageArrived(final CatpMessage msg) {
+			}
+		});
+		serverConn.open();
+		// all left to the loop this time
+		serverConn.setMaxPendingSize(64 * 1024 * 1024);
+
+		// far more than the socket buffers take while the client does not read
+		final int numOfMessages = 20000;
+		final char chars[] = new char[1000];
+		Arrays.fill(chars, 'x');
+		final String text = new String(chars);
+
+		final Thread sender = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < numOfMessages; i++) {
+						serverConn.sendMessage(CatpRequest.createRequest(CatpMessage.BID,
+								new String[] { CatpMessage.ID, String.valueOf(i),
+										CatpMessage.TEXT, text }));
+					}
+				} catch (final CatException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		sender.start();
+		sender.join(10000);
+		Assert.assertTrue(!sender.isAlive());
+
+		synchronized (serverConn.writeLock) {
+			Assert.assertTrue(!serverConn.pending.isEmpty());
+		}
+
+		final int counts[] = new int[1];
+		final boolean inOrder[] = { true };
+		clientConn.setListener(new ConnectionListener<CatpMessage>() {
+			public void messageArrived(final CatpMessage msg) {
+				if (msg != null) {
+					synchronized (counts) {
+						if (!String.valueOf(counts[0]).equals(
+								msg.getHeader(CatpMessage.ID))) {
+							inOrder[0] = false;
+						}
+						counts[0]++;
+						counts.notifyAll();
+					}
+				}
+			}
+		});
+		clientConn.open();
+
+		synchronized (counts) {
+			final long deadline = System.currentTimeMillis() + 20000;
+			while ((counts[0] < numOfMessages)
+					&& (System.currentTimeMillis() < deadline)) {
+				counts.wait(100);
+			}
+			Assert.assertEquals(numOfMessages, counts[0]);
+			Assert.assertTrue(inOrder[0]);
+		}
+
+		clientConn.close();
+		serverConn.close();
+		serverConnector.close();
+		infrast.cleanUp();
+	}
+
+	/**
+	 * checks that sending to a peer that never reads ends the connection once
+	 * more bytes are pending than allowed, instead of buffering them all.
+	 */
+	public void testSelectorBasedStalledPeer() throws CatException,
+			InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testSelectorBasedStalledPeer() \n");
+
+		final SelectorBasedInfrastructureImpl infrast = new SelectorBasedInfrastructureImpl();
+		infrast.setPort(0);
+		infrast.initialize();
+		Galaxy.getInstance().put(Galaxy.getInstance().getDefaultSystem(),
+				CatpInfrastructure.class, infrast);
+
+		final ServerConnector<CatpMessage> serverConnector = infrast
+				.createServerConnector();
+		final ClientConnector<CatpMessage> clientConnector = infrast
+				.createClientConnector();
+
+		final ReactiveConnection<CatpMessage> clientConn = ListenableConnection
+				.makeReactiveConnection(clientConnector.connect());
+		final SelectorBasedCatpConnection serverConn = (SelectorBasedCatpConnection) ListenableConnection
+				.makeReactiveConnection(serverConnector.accept());
+
+		final boolean ended[] = new boolean[1];
+		serverConn.setListener(new ConnectionListener<CatpMessage>() {
+			public void messageArrived(final CatpMessage msg) {
+				if (msg == null) {
+					synchronized (ended) {
+						ended[0] = true;
+						ended.notifyAll();
+					}
+				}
+			}
+		});
+		serverConn.open();
+
+		final char chars[] = new char[1000];
+		Arrays.fill(chars, 'x');
+		final String text = new String(chars);
+
+		// far more than the socket buffers and the pending bytes allowed take
+		int numOfSent = 0;
+		int maxPendingBytes = 0;
+		try {
+			for (; numOfSent < 20000; numOfSent++) {
+				serverConn.sendMessage(CatpRequest.createRequest(CatpMessage.BID,
+						new String[] { CatpMessage.ID, String.valueOf(numOfSent),
+								CatpMessage.TEXT, text }));
+				synchronized (serverConn.writeLock) {
+					maxPendingBytes = Math.max(maxPendingBytes,
+							serverConn.numOfPendingBytes);
+				}
+			}
+		} catch (final ConnectionException e) {
+			// expected
+		}
+		Assert.assertTrue(numOfSent < 20000);
+		Assert.assertTrue(maxPendingBytes > 0);
+		Assert.assertTrue(maxPendingBytes <= serverConn.getMaxPendingSize());
+
+		synchronized (ended) {
+			final long deadline = System.currentTimeMillis() + 10000;
+			while (!ended[0] && (System.currentTimeMillis() < deadline)) {
+				ended.wait(100);
+			}
+			Assert.assertTrue(ended[0]);
+		}
+		synchronized (serverConn.writeLock) {
+			Assert.assertTrue(serverConn.pending.isEmpty());
+		}
+		Assert.assertTrue(serverConn.isClosed());
+
+		clientConn.close();
+		serverConnector.close();
+		infrast.cleanUp();
+	}
+
+	/**
+	 * checks that a message longer than allowed ends the connection instead of
+	 * being buffered.
+	 */
+	public void testSelectorBasedOversizedMessage() throws CatException,
+			InterruptedException {
+		System.out.println("\n>>>>>>>>>\t "
+				+ "testSelectorBasedOversizedMessage() \n");
+
+		final SelectorBasedInfrastructureImpl infrast = new SelectorBasedInfrastructureImpl();
+		infrast.setPort(0);
+		infrast.initialize();
+		Galaxy.getInstance().put(Galaxy.getInstance().getDefaultSystem(),
+				CatpInfrastructure.class, infrast);
+
+		final ServerConnector<CatpMessage> serverConnector = infrast
+				.createServerConnector();
+		final ClientConnector<CatpMessage> clientConnector = infrast
+				.createClientConnector();
+
+		final ReactiveConnection<CatpMessage> clientConn = ListenableConnection
+				.makeReactiveConnection(clientConnector.connect());
+		final ReactiveConnection<CatpMessage> serverConn = ListenableConnection
+				.makeReactiveConnection(serverConnector.accept());
+
+		final int counts[] = new int[1];
+		final boolean ended[] = new boolean[1];
+		serverConn.setListener(new ConnectionListener<CatpMessage>() {
+			public void messageArrived(final CatpMessage msg) {
+				synchronized (counts) {
+					if (msg == null) {
+						ended[0] = true;
+					} else {
+						counts[0]++;
+					}
+					counts.notifyAll();
+				}
+			}
+		});
+		serverConn.open();
+		clientConn.setListener(new ConnectionListener<CatpMessage>() {
+			public void messageArrived(final CatpMessage msg) {
+			}
+		});
+		clientConn.open();
+
+		final char chars[] = new char[SelectorBasedCatpConnection.MAX_MESSAGE_SIZE];
+		Arrays.fill(chars, 'x');
+
+		clientConn.sendMessage(CatpRequest.createRequest(CatpMessage.BID,
+				new String[] { CatpMessage.ID, "0" }));
+		clientConn.sendMessage(CatpRequest.createRequest(CatpMessage.BID,
+				new String[] { CatpMessage.ID, "1", CatpMessage.TEXT,
+						new String(chars) }));
+
+		synchronized (counts) {
+			final long deadline = System.currentTimeMillis() + 10000;
+			while (!ended[0] && (System.currentTimeMillis() < deadline)) {
+				counts.wait(100);
+			}
+			Assert.assertTrue(ended[0]);
+			Assert.assertEquals(1, counts[0]);
+		}
+
+		clientConn.close();
+		serverConn.close();
+		serverConnector.close();
+		infrast.cleanUp();
+	}
+
+	/**
+	 * checks that the messages a single thread sends in a write batch go out in
+	 * one gathering write when the batch ends.
+	 */
+	public void testSocketBasedWriteBatch() throws CatException, IOException {
+		System.out.println("\n>>>>>>>>>\t " + "testSocketBasedWriteBatch() \n");
+
+		final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+		serverChannel.socket().bind(
+				new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+		final SocketChannel clientChannel = SocketChannel.open(serverChannel
+				.socket().getLocalSocketAddress());
+
+		final int writes[] = new int[2];
+		final SocketBasedCatpConnection serverConn = new SocketBasedCatpConnection(
+				serverChannel.accept()) {
+			@Override
+			protected void write(final ByteBuffer buffers[]) throws IOException {
+				writes[0]++;
+				writes[1] += buffers.length;
+				super.write(buffers);
+			}
+		};
+		final SocketBasedCatpConnection clientConn = new SocketBasedCatpConnection(
+				clientChannel);
+		serverConn.open();
+		clientConn.open();
+
+		final int n = 50;
+		SocketBasedConnection.beginBatch();
+		for (int i = 0; i < n; i++) {
+			serverConn.sendMessage(CatpRequest.createRequest(CatpMessage.BID,
+					new String[] { CatpMessage.ID, String.valueOf(i) }));
+		}
+		Assert.assertEquals(0, writes[0]);
+		SocketBasedConnection.endBatch();
+		Assert.assertEquals(1, writes[0]);
+		Assert.assertEquals(n, writes[1]);
+
+		for (int i = 0; i < n; i++) {
+			final CatpMessage msg = clientConn.getMessage();
+			Assert.assertNotNull(msg);
+			Assert.assertEquals(String.valueOf(i), msg
+					.getHeader(CatpMessage.ID));
+		}
+
+		// out of a batch, each message is written on its own
+		serverConn.sendMessage(CatpRequest.createRequest(CatpMessage.BID,
+				new String[] { CatpMessage.ID, String.valueOf(n) }));
+		Assert.assertEquals(2, writes[0]);
+		Assert.assertEquals(String.valueOf(n), clientConn.getMessage().getHeader(
+				CatpMessage.ID));
+
+		clientConn.close();
+		serverConn.close();
+		serverChannel.close();
+	}
+
 	public void testQueueBased() {
 		System.out.println("\n>>>>>>>>>\t " + "testQueueBased() \n");
 
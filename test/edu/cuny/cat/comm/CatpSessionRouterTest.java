@@ -0,0 +1,166 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class CatpSessionRouterTest extends MyTestCase {
+
+	static Logger logger = Logger.getLogger(CatpSessionRouterTest.class);
+
+	public CatpSessionRouterTest(final String name) {
+		super(name);
+	}
+
+	static class DummySession extends CatpReactiveSession {
+
+		public DummySession(final String reqType) {
+			super(null, reqType);
+		}
+
+		public DummySession(final String reqType, final String typeHeader) {
+			super(null, reqType, typeHeader);
+		}
+	}
+
+	/**
+	 * a session expecting any request but BID.
+	 */
+	static class NoBidSession extends DummySession {
+
+		public NoBidSession() {
+			super(null);
+		}
+
+		@Override
+		public boolean accepts(final CatpRequest request) {
+			return !CatpMessage.BID.equalsIgnoreCase(request.getType());
+		}
+	}
+
+	protected static CatpRequest createRequest(final String reqType,
+			final String typeHeader) {
+		if (typeHeader == null) {
+			return CatpRequest.createRequest(reqType);
+		} else {
+			return CatpRequest.createRequest(reqType, new String[] {
+					CatpMessage.TYPE, typeHeader });
+		}
+	}
+
+	public void testTypedSessions() {
+		System.out.println("\n>>>>>>>>>\t " + "testTypedSessions() \n");
+
+		final CatpReactiveSession dayClosed = new DummySession(CatpMessage.OPTIONS,
+				CatpMessage.DAYCLOSED);
+		final CatpReactiveSession gameOver = new DummySession(CatpMessage.OPTIONS,
+				CatpMessage.GAMEOVER);
+		final CatpReactiveSession fee = new DummySession(CatpMessage.POST,
+				CatpMessage.FEE);
+		final CatpReactiveSession post = new DummySession(CatpMessage.POST);
+		final CatpSessionRouter router = new CatpSessionRouter(
+				new CatpReactiveSession[] { dayClosed, gameOver, post, fee });
+
+		Assert.assertSame(dayClosed, router.route(CatpSessionRouterTest
+				.createRequest(CatpMessage.OPTIONS, CatpMessage.DAYCLOSED)));
+		Assert.assertSame(gameOver, router.route(CatpSessionRouterTest
+				.createRequest("options", "gameover")));
+
+		// the untyped POST session comes before the one expecting POST FEE
+		Assert.assertSame(post, router.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.POST, CatpMessage.FEE)));
+		Assert.assertSame(post, router.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.POST, null)));
+
+		Assert.assertNull(router.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.OPTIONS, CatpMessage.ROUNDOPENED)));
+		Assert.assertNull(router.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.OPTIONS, null)));
+		Assert.assertNull(router.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.BID, null)));
+	}
+
+	public void testFirstSessionWins() {
+		System.out.println("\n>>>>>>>>>\t " + "testFirstSessionWins() \n");
+
+		final CatpReactiveSession fee = new DummySession(CatpMessage.POST,
+				CatpMessage.FEE);
+		final CatpReactiveSession fee2 = new DummySession(CatpMessage.POST,
+				CatpMessage.FEE);
+		final CatpReactiveSession post = new DummySession(CatpMessage.POST);
+		final CatpSessionRouter router = new CatpSessionRouter(
+				new CatpReactiveSession[] { fee, post, fee2 });
+
+		Assert.assertSame(fee, router.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.POST, CatpMessage.FEE)));
+		Assert.assertSame(post, router.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.POST, CatpMessage.TRADER)));
+	}
+
+	public void testCatchAllSessions() {
+		System.out.println("\n>>>>>>>>>\t " + "testCatchAllSessions() \n");
+
+		final CatpReactiveSession noBid = new NoBidSession();
+		final CatpReactiveSession bid = new DummySession(CatpMessage.BID);
+		final CatpReactiveSession ask = new DummySession(CatpMessage.ASK);
+		final CatpReactiveSession oracle = new DummySession(null);
+		final CatpSessionRouter router = new CatpSessionRouter(
+				new CatpReactiveSession[] { noBid, bid, ask, oracle });
+
+		Assert.assertSame(bid, router.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.BID, null)));
+		Assert.assertSame(noBid, router.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.ASK, null)));
+		Assert.assertSame(noBid, router.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.TRANSACTION, null)));
+
+		final CatpSessionRouter router2 = new CatpSessionRouter(
+				new CatpReactiveSession[] { bid, oracle });
+		Assert.assertSame(bid, router2.route(CatpSessionRouterTest.createRequest(
+				CatpMessage.BID, null)));
+		Assert.assertSame(oracle, router2.route(CatpSessionRouterTest
+				.createRequest(CatpMessage.ASK, null)));
+	}
+
+	public void testEmptyRequest() {
+		System.out.println("\n>>>>>>>>>\t " + "testEmptyRequest() \n");
+
+		final CatpReactiveSession bid = new DummySession(CatpMessage.BID);
+		Assert.assertSame(bid, new CatpSessionRouter(
+				new CatpReactiveSession[] { bid }).route(null));
+		Assert.assertNull(new CatpSessionRouter(new CatpReactiveSession[] {})
+				.route(null));
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(CatpSessionRouterTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(CatpSessionRouterTest.class);
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.comm;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class ThreadLauncherTest extends MyTestCase {
+
+	static Logger logger = Logger.getLogger(ThreadLauncherTest.class);
+
+	public ThreadLauncherTest(final String name) {
+		super(name);
+	}
+
+	protected static boolean runs(final ThreadLauncher launcher)
+			throws InterruptedException {
+		final boolean ran[] = new boolean[1];
+		final Thread thread = launcher.start(new Runnable() {
+			public void run() {
+				ran[0] = true;
+			}
+		});
+		thread.join();
+		return ran[0];
+	}
+
+	public void testPlatform() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testPlatform() \n");
+
+		final ThreadLauncher launcher = new ThreadLauncher();
+		Assert.assertTrue(!launcher.isVirtual());
+		Assert.assertTrue(ThreadLauncherTest.runs(launcher));
+
+		final ThreadGroup group = new ThreadGroup("test");
+		final Thread thread = launcher.newThread(group, new Runnable() {
+			public void run() {
+			}
+		}, "reader", 10000);
+		Assert.assertSame(group, thread.getThreadGroup());
+		Assert.assertEquals("reader", thread.getName());
+	}
+
+	public void testVirtual() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testVirtual() \n");
+
+		final ThreadLauncher launcher = new ThreadLauncher();
+		launcher.setVirtual(true);
+
+		// falls back to platform threads on a JVM without virtual threads
+		Assert.assertEquals(ThreadLauncher.isVirtualSupported(), launcher
+				.isVirtual());
+		Assert.assertTrue(ThreadLauncherTest.runs(launcher));
+	}
+
+	/**
+	 * checks that messages pass through a queue-based connection read from by a
+	 * thread of the launcher.
+	 */
+	public void testQueueBasedConnection() throws CatException,
+			InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testQueueBasedConnection() \n");
+
+		final ThreadLauncher launcher = new ThreadLauncher();
+		launcher.setVirtual(true);
+
+		final QueueBasedCatpConnection server = new QueueBasedCatpConnection(null,
+				"server");
+		final QueueBasedCatpConnection client = new QueueBasedCatpConnection(null,
+				"client");
+		server.setPeer(client);
+		client.setPeer(server);
+		client.open();
+
+		final int numOfMessages = 100;
+		final int received[] = new int[1];
+
+		// messages relayed before the server side is open wait for it
+		final Thread writer = launcher.start(new Runnable() {
+			public void run() {
+				try {
+					for (int i = 0; i < numOfMessages; i++) {
+						client.sendMessage(CatpRequest.createRequest(CatpMessage.ASK,
+								new String[] { CatpMessage.ID, String.valueOf(i) }));
+					}
+				} catch (final CatException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+
+		Thread.sleep(50);
+		server.open();
+
+		final Thread reader = launcher.start(new Runnable() {
+			public void run() {
+				try {
+					for (int i = 0; i < numOfMessages; i++) {
+						final CatpMessage msg = server.getMessage();
+						if (String.valueOf(i).equals(msg.getHeader(CatpMessage.ID))) {
+							received[0]++;
+						}
+					}
+				} catch (final CatException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+
+		writer.join(10000);
+		reader.join(10000);
+		Assert.assertEquals(numOfMessages, received[0]);
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(ThreadLauncherTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(ThreadLauncherTest.class);
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.market;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import edu.cuny.cat.MyTestCase;
+import edu.cuny.cat.core.Shout;
+import edu.cuny.cat.core.Trader;
+import edu.cuny.cat.core.Transaction;
+import edu.cuny.cat.market.matching.FourHeapShoutEngine;
+import edu.cuny.util.CumulativeDistribution;
+
+/**
+ * checks {@link IncrementalEquilibriumCalculator} and
+ * {@link IncrementalEfficiencyCalculator} against {@link EquilibriumCalculator}
+ * and {@link EfficiencyCalculator} as random truthful shouts come and go.
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class IncrementalEquilibriumCalculatorTest extends MyTestCase {
+
+	static final double ERROR = 1e-6;
+
+	IncrementalEquilibriumCalculator equilCal;
+
+	List<Shout> shouts;
+
+	Random randGenerator;
+
+	int numOfTraders;
+
+	public IncrementalEquilibriumCalculatorTest(final String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp() {
+		super.setUp();
+		equilCal = new IncrementalEquilibriumCalculator();
+		shouts = new ArrayList<Shout>();
+		randGenerator = new Random(1);
+		numOfTraders = 0;
+	}
+
+	protected Shout randomShout(final int quantity) {
+		// few distinct prices to have plenty of ties
+		final double price = 50 + randGenerator.nextInt(100);
+		final boolean isBid = randGenerator.nextBoolean();
+		final Trader trader = new Trader("trader" + numOfTraders++, "", price,
+				!isBid);
+		trader.setEntitlement(quantity);
+		final Shout shout = new Shout(quantity, price, isBid);
+		shout.setTrader(trader);
+		return shout;
+	}
+
+	/**
+	 * runs the shouts from scratch through a {@link FourHeapShoutEngine}.
+	 */
+	protected EquilibriumCalculator calculateExpected() throws Exception {
+		final FourHeapShoutEngine shoutEngine = new FourHeapShoutEngine();
+		for (final Shout shout : shouts) {
+			// the engine splits shouts
+			final Shout copy = new Shout(shout);
+			copy.setTrader(shout.getTrader());
+			shoutEngine.newShout(copy);
+		}
+		return new EquilibriumCalculator(shoutEngine);
+	}
+
+	protected void checkDistribution(final CumulativeDistribution expected,
+			final CumulativeDistribution actual) {
+		Assert.assertEquals(expected.getN(), actual.getN());
+		Assert.assertEquals(expected.getMin(), actual.getMin(), 0);
+		Assert.assertEquals(expected.getMax(), actual.getMax(), 0);
+		if (expected.getN() > 0) {
+			Assert.assertEquals(expected.getMean(), actual.getMean(),
+					IncrementalEquilibriumCalculatorTest.ERROR);
+			Assert.assertEquals(expected.getStdDev(), actual.getStdDev(),
+					IncrementalEquilibriumCalculatorTest.ERROR);
+		}
+	}
+
+	protected void checkEquilibrium() throws Exception {
+		final EquilibriumCalculator expected = calculateExpected();
+
+		Assert.assertEquals(expected.isEquilibriaFound(), equilCal
+				.isEquilibriaFound());
+		if (expected.isEquilibriaFound()) {
+			Assert.assertEquals(expected.getEquilibriumQuantity(), equilCal
+					.getEquilibriumQuantity());
+		} else {
+			Assert.assertEquals(0, equilCal.getEquilibriumQuantity());
+		}
+		Assert.assertEquals(expected.getMinEquilibriumPrice(), equilCal
+				.getMinEquilibriumPrice(), 0);
+		Assert.assertEquals(expected.getMaxEquilibriumPrice(), equilCal
+				.getMaxEquilibriumPrice(), 0);
+
+		checkDistribution(expected.getAskPriceDistribution(), equilCal
+				.getAskPriceDistribution());
+		checkDistribution(expected.getBidPriceDistribution(), equilCal
+				.getBidPriceDistribution());
+
+		double profit = 0;
+		if (expected.isEquilibriaFound()) {
+			final Iterator<Shout> iter = expected.getMatchedShouts().iterator();
+			while (iter.hasNext()) {
+				final Shout bid = iter.next();
+				final Shout ask = iter.next();
+				profit += (bid.getPrice() - ask.getPrice()) * ask.getQuantity();
+			}
+		}
+		Assert.assertEquals(profit, equilCal.getTheoreticalProfit(),
+				IncrementalEquilibriumCalculatorTest.ERROR);
+	}
+
+	public void testEquilibrium() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testEquilibrium() \n");
+
+		for (int i = 0; i < 2000; i++) {
+			if (shouts.isEmpty() || (randGenerator.nextDouble() < 0.6)) {
+				final Shout shout = randomShout(1 + randGenerator.nextInt(4));
+				shouts.add(shout);
+				equilCal.newShout(shout);
+			} else {
+				final Shout shout = shouts.remove(randGenerator.nextInt(shouts.size()));
+				equilCal.removeShout(shout);
+			}
+			checkEquilibrium();
+		}
+
+		// back to an empty market
+		while (!shouts.isEmpty()) {
+			equilCal.removeShout(shouts.remove(shouts.size() - 1));
+		}
+		checkEquilibrium();
+		Assert.assertEquals(0, equilCal.getTheoreticalProfit(), 0);
+	}
+
+	public void testEfficiency() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testEfficiency() \n");
+
+		final List<Trader> traders = new ArrayList<Trader>();
+		// the same quantity in all shouts for the engine not to split them, which
+		// loses their traders
+		for (int i = 0; i < 100; i++) {
+			final Shout shout = randomShout(3);
+			shouts.add(shout);
+			equilCal.newShout(shout);
+			traders.add(shout.getTrader());
+		}
+
+		final EquilibriumCalculator expected = calculateExpected();
+		final List<Shout> matchedShouts = expected.getMatchedShouts();
+
+		// trade the matched shouts at random prices within each pair
+		final IncrementalEfficiencyCalculator effCal = new IncrementalEfficiencyCalculator();
+		final List<Transaction> transactions = new ArrayList<Transaction>();
+		final Iterator<Shout> iter = matchedShouts.iterator();
+		while (iter.hasNext()) {
+			final Shout bid = iter.next();
+			final Shout ask = iter.next();
+			final double price = ask.getPrice() + randGenerator.nextDouble()
+					* (bid.getPrice() - ask.getPrice());
+			final Transaction transaction = new Transaction(ask, bid, price);
+			transactions.add(transaction);
+			effCal.newTransaction(transaction);
+		}
+		Assert.assertTrue(!transactions.isEmpty());
+
+		effCal.calculate(equilCal, traders);
+		final EfficiencyCalculator expectedEffCal = new EfficiencyCalculator(
+				expected, transactions, traders);
+
+		Assert.assertEquals(expectedEffCal.getTheoreticalProfit(), effCal
+				.getTheoreticalProfit(), IncrementalEquilibriumCalculatorTest.ERROR);
+		Assert.assertEquals(expectedEffCal.getActualProfit(), effCal
+				.getActualProfit(), IncrementalEquilibriumCalculatorTest.ERROR);
+		Assert.assertEquals(expectedEffCal.getEA(), effCal.getEA(),
+				IncrementalEquilibriumCalculatorTest.ERROR);
+		Assert.assertEquals(expectedEffCal.getConvergenceCoeff(), effCal
+				.getConvergenceCoeff(), IncrementalEquilibriumCalculatorTest.ERROR);
+		Assert.assertEquals(expectedEffCal.getProfitDispersion(), effCal
+				.getProfitDispersion(), IncrementalEquilibriumCalculatorTest.ERROR);
+
+		// a new day without transactions
+		effCal.reset();
+		effCal.calculate(equilCal, traders);
+		Assert.assertEquals(0, effCal.getActualProfit(), 0);
+		Assert.assertTrue(Double.isNaN(effCal.getConvergenceCoeff()));
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(IncrementalEquilibriumCalculatorTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(IncrementalEquilibriumCalculatorTest.class);
+	}
+}
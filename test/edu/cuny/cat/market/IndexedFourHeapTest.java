@@ -0,0 +1,266 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.market;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import edu.cuny.cat.MyTestCase;
+import edu.cuny.cat.core.Shout;
+import edu.cuny.cat.market.matching.FourHeapShoutEngine;
+import edu.cuny.cat.market.matching.IndexedFourHeapShoutEngine;
+import edu.cuny.cat.market.matching.ShoutEngine;
+
+/**
+ * checks {@link IndexedFourHeapShoutEngine} against {@link FourHeapShoutEngine}
+ * on the same random shouts.
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class IndexedFourHeapTest extends MyTestCase {
+
+	ShoutEngine expected;
+
+	IndexedFourHeapShoutEngine shoutEngine;
+
+	Random randGenerator;
+
+	public IndexedFourHeapTest(final String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp() {
+		super.setUp();
+		expected = new FourHeapShoutEngine();
+		shoutEngine = new IndexedFourHeapShoutEngine();
+		randGenerator = new Random(1);
+	}
+
+	protected Shout randomShout(final int maxQuantity) {
+		final int quantity = 1 + randGenerator.nextInt(maxQuantity);
+		final double price = randGenerator.nextInt(100);
+		final boolean isBid = randGenerator.nextBoolean();
+		return new Shout(quantity, price, isBid);
+	}
+
+	protected void checkBalanced(final Shout s1, final Shout s2,
+			final String condition) {
+		if ((s1 != null) && (s2 != null)) {
+			Assert.assertTrue(condition, s1.getPrice() >= s2.getPrice());
+		}
+	}
+
+	protected void checkBalanced() {
+		checkBalanced(shoutEngine.getLowestMatchedBid(), shoutEngine
+				.getHighestUnmatchedBid(), "bIn >= bOut");
+		checkBalanced(shoutEngine.getLowestUnmatchedAsk(), shoutEngine
+				.getHighestMatchedAsk(), "sOut >= sIn");
+		checkBalanced(shoutEngine.getLowestUnmatchedAsk(), shoutEngine
+				.getHighestUnmatchedBid(), "sOut >= bOut");
+		checkBalanced(shoutEngine.getLowestMatchedBid(), shoutEngine
+				.getHighestMatchedAsk(), "bIn >= sIn");
+	}
+
+	protected static double price(final Shout shout) {
+		return shout == null ? -1 : shout.getPrice();
+	}
+
+	protected static int quantity(final Iterator<Shout> i) {
+		int quantity = 0;
+		while (i.hasNext()) {
+			quantity += i.next().getQuantity();
+		}
+		return quantity;
+	}
+
+	protected static int matchedQuantity(final List<Shout> matched) {
+		int quantity = 0;
+		final Iterator<Shout> i = matched.iterator();
+		while (i.hasNext()) {
+			final Shout bid = i.next();
+			final Shout ask = i.next();
+			Assert.assertTrue(bid.isBid());
+			Assert.assertTrue(ask.isAsk());
+			Assert.assertTrue(bid.getPrice() >= ask.getPrice());
+			Assert.assertEquals(bid.getQuantity(), ask.getQuantity());
+			quantity += ask.getQuantity();
+		}
+		return quantity;
+	}
+
+	public void testAgainstFourHeap() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testAgainstFourHeap() \n");
+
+		// single units so that both engines hold the same prices whichever of the
+		// shouts at the same price they match
+		final Shout placed[] = new Shout[50];
+		final Shout copies[] = new Shout[placed.length];
+		int matches = 0;
+
+		for (int round = 0; round < 200; round++) {
+			for (int n = 0; n < 100; n++) {
+				final int k = randGenerator.nextInt(placed.length);
+				if ((placed[k] != null) && randGenerator.nextBoolean()) {
+					expected.removeShout(copies[k]);
+					shoutEngine.removeShout(placed[k]);
+					placed[k] = null;
+				} else {
+					placed[k] = randomShout(1);
+					copies[k] = new Shout(placed[k].getQuantity(), placed[k].getPrice(),
+							placed[k].isBid());
+					expected.newShout(copies[k]);
+					shoutEngine.newShout(placed[k]);
+				}
+
+				checkBalanced();
+				Assert.assertEquals("highest unmatched bid", price(expected
+						.getHighestUnmatchedBid()), price(shoutEngine
+						.getHighestUnmatchedBid()), 0);
+				Assert.assertEquals("lowest unmatched ask", price(expected
+						.getLowestUnmatchedAsk()), price(shoutEngine
+						.getLowestUnmatchedAsk()), 0);
+				Assert.assertEquals("lowest matched bid", price(expected
+						.getLowestMatchedBid()), price(shoutEngine.getLowestMatchedBid()),
+						0);
+				Assert.assertEquals("highest matched ask", price(expected
+						.getHighestMatchedAsk()), price(shoutEngine.getHighestMatchedAsk()),
+						0);
+			}
+
+			Assert.assertEquals("ask quantity", IndexedFourHeapTest.quantity(expected
+					.askIterator()), IndexedFourHeapTest.quantity(shoutEngine
+					.askIterator()));
+			Assert.assertEquals("bid quantity", IndexedFourHeapTest.quantity(expected
+					.bidIterator()), IndexedFourHeapTest.quantity(shoutEngine
+					.bidIterator()));
+
+			if ((round & 0x01) > 0) {
+				final int quantity = IndexedFourHeapTest.matchedQuantity(shoutEngine
+						.getMatchedShouts());
+				Assert.assertEquals("matched quantity", IndexedFourHeapTest
+						.matchedQuantity(expected.getMatchedShouts()), quantity);
+				matches += quantity;
+
+				// which of the shouts at a price were matched may differ
+				Arrays.fill(placed, null);
+			}
+		}
+
+		System.out.println("Matches = " + matches);
+	}
+
+	public void testSortedIterators() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testSortedIterators() \n");
+
+		for (int n = 0; n < 500; n++) {
+			shoutEngine.newShout(randomShout(50));
+		}
+
+		double last = Double.NEGATIVE_INFINITY;
+		Iterator<Shout> i = shoutEngine.askIterator();
+		while (i.hasNext()) {
+			final Shout ask = i.next();
+			Assert.assertTrue(ask.getPrice() >= last);
+			last = ask.getPrice();
+		}
+
+		last = Double.POSITIVE_INFINITY;
+		i = shoutEngine.bidIterator();
+		while (i.hasNext()) {
+			final Shout bid = i.next();
+			Assert.assertTrue(bid.getPrice() <= last);
+			last = bid.getPrice();
+		}
+	}
+
+	/**
+	 * fills and empties the engine well beyond its initial capacity, removing
+	 * shouts in random order, and checks that each shout is found while it is
+	 * in the engine and only then.
+	 */
+	public void testManyShouts() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testManyShouts() \n");
+
+		final Shout placed[] = new Shout[1000];
+		final Shout copies[] = new Shout[placed.length];
+		for (int round = 0; round < 3; round++) {
+			for (int k = 0; k < placed.length; k++) {
+				placed[k] = randomShout(1);
+				copies[k] = new Shout(placed[k].getQuantity(), placed[k].getPrice(),
+						placed[k].isBid());
+				expected.newShout(copies[k]);
+				shoutEngine.newShout(placed[k]);
+			}
+
+			for (int n = 0; n < 2 * placed.length; n++) {
+				final int k = randGenerator.nextInt(placed.length);
+				if (placed[k] == null) {
+					continue;
+				}
+
+				try {
+					shoutEngine.newShout(placed[k]);
+					Assert.fail("duplicate shout accepted");
+				} catch (final DuplicateShoutException e) {
+					// expected
+				}
+
+				expected.removeShout(copies[k]);
+				shoutEngine.removeShout(placed[k]);
+				// a second time does nothing
+				shoutEngine.removeShout(placed[k]);
+				placed[k] = null;
+
+				if ((n % 100) == 0) {
+					Assert.assertEquals("ask quantity", IndexedFourHeapTest
+							.quantity(expected.askIterator()), IndexedFourHeapTest
+							.quantity(shoutEngine.askIterator()));
+					Assert.assertEquals("bid quantity", IndexedFourHeapTest
+							.quantity(expected.bidIterator()), IndexedFourHeapTest
+							.quantity(shoutEngine.bidIterator()));
+				}
+			}
+
+			for (int k = 0; k < placed.length; k++) {
+				if (placed[k] != null) {
+					expected.removeShout(copies[k]);
+					shoutEngine.removeShout(placed[k]);
+					placed[k] = null;
+				}
+			}
+			Assert.assertEquals(0, IndexedFourHeapTest.quantity(shoutEngine
+					.askIterator())
+					+ IndexedFourHeapTest.quantity(shoutEngine.bidIterator()));
+		}
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(IndexedFourHeapTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(IndexedFourHeapTest.class);
+	}
+}
@@ -15,6 +15,7 @@
 
 package edu.cuny.cat.market;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -22,9 +23,13 @@ import java.util.Random;
 import junit.framework.Assert;
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import cern.jet.random.engine.MersenneTwister64;
 import edu.cuny.cat.MyTestCase;
 import edu.cuny.cat.core.Shout;
 import edu.cuny.cat.market.matching.LazyMaxVolumeShoutEngine;
+import edu.cuny.cat.market.matching.ThetaShoutEngine;
+import edu.cuny.random.Uniform;
+import edu.cuny.util.SortedTreeList;
 
 /**
  * @author Jinzhong Niu
@@ -112,6 +117,191 @@ public class LazyMaxVolumeShoutEngineTest extends MyTestCase {
 
 	}
 
+	/**
+	 * checks that the matched and unmatched shouts kept up to date as shouts
+	 * come and go are the same as those distributed anew after each shout.
+	 */
+	public void testIncrementalMatching() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testIncrementalMatching() \n");
+
+		final double thetas[] = { 1, 0.3, 0, -0.5, -1 };
+		for (final double theta : thetas) {
+			final TestThetaShoutEngine incremental = new TestThetaShoutEngine(theta);
+			final TestThetaShoutEngine rebuilding = new RebuildingShoutEngine(theta);
+
+			final Random random = new Random(17);
+			final List<Shout[]> placed = new ArrayList<Shout[]>();
+			for (int step = 0; step < 3000; step++) {
+				final int op = random.nextInt(10);
+				if ((op < 7) || placed.isEmpty()) {
+					// few prices to have shouts at the same price
+					final String id = "s" + step;
+					final int quantity = 1 + random.nextInt(4);
+					final double price = random.nextInt(12);
+					final boolean isBid = random.nextBoolean();
+					final Shout shouts[] = { new Shout(id, quantity, price, isBid),
+							new Shout(id, quantity, price, isBid) };
+					incremental.newShout(shouts[0]);
+					rebuilding.newShout(shouts[1]);
+					placed.add(shouts);
+				} else if (op < 9) {
+					// may have been matched already
+					final Shout shouts[] = placed.remove(random.nextInt(placed.size()));
+					incremental.removeShout(shouts[0]);
+					rebuilding.removeShout(shouts[1]);
+				} else {
+					Assert.assertEquals(
+							TestThetaShoutEngine.describe(rebuilding.getMatchedShouts()),
+							TestThetaShoutEngine.describe(incremental.getMatchedShouts()));
+				}
+
+				Assert.assertEquals("theta " + theta + " step " + step, rebuilding
+						.describeState(), incremental.describeState());
+			}
+		}
+	}
+
+	static class TestThetaShoutEngine extends ThetaShoutEngine {
+
+		public TestThetaShoutEngine(final double theta) {
+			this.theta = theta;
+			uniform = new Uniform(0, 1, new MersenneTwister64(29));
+		}
+
+		static String describe(final Iterable<Shout> shouts) {
+			final StringBuffer buffer = new StringBuffer();
+			for (final Shout shout : shouts) {
+				buffer.append(TestThetaShoutEngine.describe(shout));
+			}
+			return buffer.toString();
+		}
+
+		static String describe(final Iterator<Shout> shouts) {
+			final StringBuffer buffer = new StringBuffer();
+			while (shouts.hasNext()) {
+				buffer.append(TestThetaShoutEngine.describe(shouts.next()));
+			}
+			return buffer.toString();
+		}
+
+		static String describe(final Shout shout) {
+			return shout == null ? "- " : shout.getId() + ":" + shout.getQuantity()
+					+ "@" + shout.getPrice() + " ";
+		}
+
+		String describeState() {
+			return "asks " + TestThetaShoutEngine.describe(asks) + "\nbids "
+					+ TestThetaShoutEngine.describe(bids) + "\nsIn "
+					+ TestThetaShoutEngine.describe(sIn) + "\nsOut "
+					+ TestThetaShoutEngine.describe(sOut) + "\nbIn "
+					+ TestThetaShoutEngine.describe(bIn) + "\nbOut "
+					+ TestThetaShoutEngine.describe(bOut) + "\nquotes "
+					+ TestThetaShoutEngine.describe(getLowestMatchedBid())
+					+ TestThetaShoutEngine.describe(getHighestUnmatchedBid())
+					+ TestThetaShoutEngine.describe(getLowestUnmatchedAsk())
+					+ TestThetaShoutEngine.describe(getHighestMatchedAsk())
+					+ "\niterators " + TestThetaShoutEngine.describe(askIterator())
+					+ TestThetaShoutEngine.describe(bidIterator());
+		}
+	}
+
+	/**
+	 * distributes all the shouts anew after each shout, as
+	 * {@link LazyMaxVolumeShoutEngine} used to.
+	 */
+	static class RebuildingShoutEngine extends TestThetaShoutEngine {
+
+		public RebuildingShoutEngine(final double theta) {
+			super(theta);
+		}
+
+		@Override
+		public synchronized void removeShout(final Shout shout) {
+			if (shout.isAsk()) {
+				asks.remove(shout);
+			} else {
+				bids.remove(shout);
+			}
+			updateMatchedShouts();
+		}
+
+		@Override
+		public void newShout(final Shout shout) throws DuplicateShoutException {
+			if (shout.isBid()) {
+				bids.add(shout);
+			} else {
+				asks.add(shout);
+			}
+			updateMatchedShouts();
+		}
+
+		@Override
+		protected void updateMatchedShouts() {
+			sIn.clear();
+			sOut.clear();
+			bIn.clear();
+			bOut.clear();
+
+			final int matchingQuantity = getMatchingQuantity();
+			distributeShouts(matchingQuantity, bids, bIn, bOut, true);
+			distributeShouts(matchingQuantity, asks, sIn, sOut, false);
+		}
+
+		protected void distributeShouts(int quantity,
+				final SortedTreeList<Shout> list, final SortedTreeList<Shout> in,
+				final SortedTreeList<Shout> out, final boolean fromTail) {
+			int i;
+			if (fromTail) {
+				i = list.size();
+			} else {
+				i = -1;
+			}
+
+			Shout shout = null;
+			while (quantity > 0) {
+				if (fromTail) {
+					i--;
+				} else {
+					i++;
+				}
+
+				shout = list.get(i);
+				if (shout.getQuantity() <= quantity) {
+					in.add(shout);
+					quantity -= shout.getQuantity();
+				} else {
+					final Shout remainder = shout.split(shout.getQuantity() - quantity);
+					if (fromTail) {
+						list.add(i, remainder);
+						i++;
+					} else {
+						list.add(i + 1, remainder);
+					}
+					in.add(shout);
+					quantity = 0;
+				}
+			}
+
+			while (true) {
+				if (fromTail) {
+					if (i == 0) {
+						break;
+					} else {
+						i--;
+					}
+				} else {
+					if (i >= list.size() - 1) {
+						break;
+					} else {
+						i++;
+					}
+				}
+
+				out.add(list.get(i));
+			}
+		}
+	}
+
 	public static void main(final String[] args) {
 		junit.textui.TestRunner.run(LazyMaxVolumeShoutEngineTest.suite());
 	}
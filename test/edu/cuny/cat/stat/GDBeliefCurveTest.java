@@ -0,0 +1,218 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.stat;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import edu.cuny.cat.MyTestCase;
+import edu.cuny.cat.core.Shout;
+import edu.cuny.cat.core.Specialist;
+import edu.cuny.cat.core.Transaction;
+import edu.cuny.cat.event.AuctionEvent;
+import edu.cuny.cat.event.RoundClosedEvent;
+import edu.cuny.cat.event.ShoutPostedEvent;
+import edu.cuny.cat.event.TransactionPostedEvent;
+
+/**
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class GDBeliefCurveTest extends MyTestCase {
+
+	Specialist specialist;
+
+	HistoricalReport report;
+
+	SharedMarketHistory history;
+
+	SharedMarketHistory.Subscriber subscriber;
+
+	GDBeliefCurve curve;
+
+	int tick;
+
+	public GDBeliefCurveTest(final String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp() {
+		super.setUp();
+		specialist = new Specialist("market");
+		report = new HistoricalReport();
+		report.roundReset = true;
+		report.initialize();
+		history = new SharedMarketHistory(report.getMemorySize(), report
+				.isRoundReset());
+		subscriber = history.subscribe();
+		subscriber.register(specialist.getId());
+		curve = new GDBeliefCurve();
+	}
+
+	@Override
+	public void tearDown() {
+		report = null;
+		history = null;
+		subscriber = null;
+		curve = null;
+	}
+
+	protected void post(final AuctionEvent event) {
+		event.setTime(new int[] { 0, tick / 10, tick });
+		tick++;
+
+		report.eventOccurred(event);
+		subscriber.eventOccurred(event);
+	}
+
+	protected Shout placeShout(final String id, final double price,
+			final boolean isBid) {
+		final Shout shout = new Shout(1, price, isBid);
+		shout.setId(id);
+		shout.setSpecialist(specialist);
+		shout.setState(Shout.PLACED);
+		post(new ShoutPostedEvent(shout));
+		return shout;
+	}
+
+	protected void makeTransaction(final Shout ask, final Shout bid) {
+		final Shout matchedAsk = new Shout(ask);
+		final Shout matchedBid = new Shout(bid);
+		matchedAsk.setState(Shout.MATCHED);
+		matchedBid.setState(Shout.MATCHED);
+		final Transaction transaction = new Transaction("t" + tick, matchedAsk,
+				matchedBid, ask.getPrice());
+		transaction.setSpecialist(specialist);
+		post(new TransactionPostedEvent(transaction));
+	}
+
+	protected void assertProbability(final double price, final double prob) {
+		for (int i = 0; i < curve.size(); i++) {
+			if (curve.getPrice(i) == price) {
+				Assert.assertEquals("belief at " + price, prob, curve.getProbability(i),
+						1e-10);
+				return;
+			}
+		}
+		Assert.fail("no belief at " + price);
+	}
+
+	/**
+	 * checks that the curves computed on the report and on the index both pass
+	 * validation and agree with each other.
+	 */
+	protected void assertValidCurves(final boolean isBuyer) {
+		final GDBeliefCurve indexCurve = new GDBeliefCurve();
+		indexCurve.compute(history.getIndex(specialist.getId()), isBuyer);
+		Assert.assertTrue(indexCurve.validate(history.getIndex(specialist.getId())));
+
+		curve.compute(report, isBuyer);
+		Assert.assertTrue(curve.validate(report));
+
+		Assert.assertEquals("size", curve.size(), indexCurve.size());
+		for (int i = 0; i < curve.size(); i++) {
+			Assert.assertEquals("price", curve.getPrice(i), indexCurve.getPrice(i),
+					0);
+			Assert.assertEquals("belief at " + curve.getPrice(i), curve
+					.getProbability(i), indexCurve.getProbability(i), 0);
+		}
+	}
+
+	public void testCurve() {
+		System.out.println("\n>>>>>>>>>\t " + "testCurve() \n");
+
+		final double askPrices[] = { 30, 40, 50, 60, 70 };
+		final double bidPrices[] = { 5, 15, 25, 35 };
+		final Shout asks[] = new Shout[askPrices.length];
+		final Shout bids[] = new Shout[bidPrices.length];
+		for (int i = 0; i < askPrices.length; i++) {
+			asks[i] = placeShout("ask" + i, askPrices[i], false);
+		}
+		for (int i = 0; i < bidPrices.length; i++) {
+			bids[i] = placeShout("bid" + i, bidPrices[i], true);
+		}
+		makeTransaction(asks[0], bids[3]);
+
+		curve.compute(report, true);
+		Assert.assertEquals("distinct prices", 9, curve.size());
+		assertProbability(5, 0);
+		assertProbability(25, 0);
+		assertProbability(30, 1);
+		Assert.assertTrue(curve.validate(report));
+
+		curve.compute(report, false);
+		assertProbability(5, 1);
+		assertProbability(35, 1);
+		assertProbability(40, 0);
+		Assert.assertTrue(curve.validate(report));
+
+		assertValidCurves(true);
+		assertValidCurves(false);
+	}
+
+	public void testValidation() {
+		System.out.println("\n>>>>>>>>>\t " + "testValidation() \n");
+
+		placeShout("ask", 30, false);
+		placeShout("bid", 20, true);
+
+		curve.compute(report, true);
+		Assert.assertTrue(curve.validate(report));
+
+		// a curve no longer in line with the report fails the validation
+		placeShout("ask2", 10, false);
+		Assert.assertTrue(!curve.validate(report));
+	}
+
+	public void testRandomHistory() {
+		System.out.println("\n>>>>>>>>>\t " + "testRandomHistory() \n");
+
+		final Random random = new Random(2);
+		final Shout latest[] = new Shout[20];
+		for (int step = 0; step < 1000; step++) {
+			final int action = random.nextInt(10);
+			if (action < 6) {
+				final int i = random.nextInt(latest.length);
+				latest[i] = placeShout("shout" + i, 5 * (1 + random.nextInt(20)),
+						i % 2 == 0);
+			} else if (action < 9) {
+				final Shout ask = latest[2 * random.nextInt(latest.length / 2) + 1];
+				final Shout bid = latest[2 * random.nextInt(latest.length / 2)];
+				if ((ask != null) && (bid != null)) {
+					makeTransaction(ask, bid);
+				}
+			} else {
+				post(new RoundClosedEvent());
+			}
+
+			assertValidCurves(true);
+			assertValidCurves(false);
+		}
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(GDBeliefCurveTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(GDBeliefCurveTest.class);
+	}
+}
@@ -202,6 +202,81 @@ public class HistoricalReportTest extends MyTestCase {
 
 	}
 
+	/**
+	 * checks {@link HistoricalReport#count(double, HistoryCounts)} against the
+	 * linear scans and the accelerator as shouts come, get matched, leave the
+	 * memory and have their matched states reset each round, from a point well
+	 * into the history.
+	 */
+	public void testCounts() {
+		System.out.println("\n>>>>>>>>>\t " + "testCounts() \n");
+
+		report.roundReset = true;
+
+		final java.util.Random random = new java.util.Random(6);
+		final Shout latest[] = new Shout[20];
+		final HistoryCounts counts = new HistoryCounts();
+		int tick = 0;
+		for (int step = 0; step < 1000; step++) {
+			final int action = random.nextInt(10);
+			if (action < 6) {
+				// quarters of a price unit, some on the bucket edges
+				final int i = random.nextInt(latest.length);
+				latest[i] = new Shout(1, random.nextInt(400) / 4.0, i % 2 == 0);
+				latest[i].setId("shout" + i);
+				latest[i].setState(Shout.PLACED);
+				report.eventOccurred(new ShoutPostedEvent(latest[i]));
+			} else if (action < 9) {
+				final Shout ask = latest[2 * random.nextInt(latest.length / 2) + 1];
+				final Shout bid = latest[2 * random.nextInt(latest.length / 2)];
+				if ((ask != null) && (bid != null)) {
+					final Shout matchedAsk = new Shout(ask);
+					final Shout matchedBid = new Shout(bid);
+					matchedAsk.setState(Shout.MATCHED);
+					matchedBid.setState(Shout.MATCHED);
+					report.eventOccurred(new TransactionPostedEvent(new Transaction("t"
+							+ tick++, matchedAsk, matchedBid, ask.getPrice())));
+				}
+			} else {
+				report.eventOccurred(new edu.cuny.cat.event.RoundClosedEvent());
+			}
+
+			// no histogram until the first count, which builds it mid-history
+			if (step < 300) {
+				Assert.assertNull(report.getPriceHistogram());
+				continue;
+			}
+
+			final double price = 0.125 + random.nextInt(400) / 4.0
+					* (random.nextBoolean() ? 1 : 0);
+			// no query at 0, since the linear scans tell the side by the sign
+			for (final double p : new double[] { price, Math.ceil(price), 0.25,
+					150 }) {
+				report.count(p, counts);
+				Assert.assertEquals("AL", report.getNumberOfAsks(-p, false), counts
+						.getNumOfAsksBelow());
+				Assert.assertEquals("BG", report.getNumberOfBids(p, false), counts
+						.getNumOfBidsAbove());
+				Assert.assertEquals("TAG", report.getNumberOfAsks(p, true), counts
+						.getNumOfAcceptedAsksAbove());
+				Assert.assertEquals("TBL", report.getNumberOfBids(-p, true), counts
+						.getNumOfAcceptedBidsBelow());
+				Assert.assertEquals("RAL", report.getNumberOfAsks(-p, false)
+						- report.getNumberOfAsks(-p, true), counts
+						.getNumOfRejectedAsksBelow());
+				Assert.assertEquals("RBG", report.getNumberOfBids(p, false)
+						- report.getNumberOfBids(p, true), counts
+						.getNumOfRejectedBidsAbove());
+			}
+
+			report.count(price, counts);
+			Assert.assertEquals("AL", report.getIncreasingQueryAccelerator()
+					.getNumOfAsksBelow(price), counts.getNumOfAsksBelow());
+			Assert.assertEquals("RBG", report.getIncreasingQueryAccelerator()
+					.getNumOfRejectedBidsAbove(price), counts.getNumOfRejectedBidsAbove());
+		}
+	}
+
 	public static void main(final String[] args) {
 		junit.textui.TestRunner.run(HistoricalReportTest.suite());
 	}
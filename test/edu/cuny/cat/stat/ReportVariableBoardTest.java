@@ -0,0 +1,128 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.stat;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class ReportVariableBoardTest extends MyTestCase {
+
+	ReportVariableBoard board;
+
+	public ReportVariableBoardTest(final String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp() {
+		board = ReportVariableBoard.getInstance();
+		board.reset();
+	}
+
+	@Override
+	public void tearDown() {
+		board.reset();
+	}
+
+	public void testHandles() {
+		System.out.println("\n>>>>>>>>>\t " + "testHandles() \n");
+
+		final int handle = board.getHandle("test.specialist0.efficiency");
+		Assert.assertEquals(handle, board.getHandle("test.specialist0.efficiency"));
+		Assert.assertEquals("test.specialist0.efficiency", board
+				.getVarName(handle));
+		Assert.assertTrue(!board.isAssigned(handle));
+		Assert.assertTrue(Double.isNaN(board.getDoubleValue(handle)));
+		Assert.assertNull(board.getValue("test.specialist0.efficiency"));
+
+		// through the handle, read by name
+		board.reportValue(handle, 0.75);
+		Assert.assertEquals(new Double(0.75), board
+				.getValue("test.specialist0.efficiency"));
+		Assert.assertTrue(board.getVarNames().contains(
+				"test.specialist0.efficiency"));
+
+		// by name, read through the handle
+		board.reportValue("test.specialist0.efficiency", 0.5);
+		Assert.assertEquals(0.5, board.getDoubleValue(handle), 0);
+
+		// handles survive a reset, but values do not
+		board.reset();
+		Assert.assertTrue(!board.isAssigned(handle));
+		Assert.assertEquals(handle, board.getHandle("test.specialist0.efficiency"));
+		Assert.assertTrue(!board.getVarNames().contains(
+				"test.specialist0.efficiency"));
+	}
+
+	public void testNonNumericValues() {
+		System.out.println("\n>>>>>>>>>\t " + "testNonNumericValues() \n");
+
+		board.reportValue("test.flag", Boolean.TRUE);
+		Assert.assertEquals(Boolean.TRUE, board.getValue("test.flag"));
+
+		board.reportValue("test.flag", 1.0);
+		Assert.assertEquals(new Double(1.0), board.getValue("test.flag"));
+
+		// the latest value wins, whatever its type
+		board.reportValue("test.flag", "on");
+		Assert.assertEquals("on", board.getValue("test.flag"));
+		Assert.assertTrue(!board.isAssigned(board.getHandle("test.flag")));
+
+		board.reportValue("test.count", new Double(3));
+		Assert.assertEquals(3.0, board.getDoubleValue(board
+				.getHandle("test.count")), 0);
+	}
+
+	public void testSnapshot() {
+		System.out.println("\n>>>>>>>>>\t " + "testSnapshot() \n");
+
+		final int handles[] = new int[200];
+		for (int i = 0; i < handles.length; i++) {
+			handles[i] = board.getHandle("test.var" + i);
+			board.reportValue(handles[i], i);
+		}
+
+		final ReportVariableBoard.Snapshot snapshot = board.takeSnapshot();
+		for (int i = 0; i < handles.length; i++) {
+			board.reportValue(handles[i], -i);
+		}
+		final int later = board.getHandle("test.later");
+
+		for (int i = 0; i < handles.length; i++) {
+			Assert.assertTrue(snapshot.isAssigned(handles[i]));
+			Assert.assertEquals(i, snapshot.getValue(handles[i]), 0);
+			Assert.assertEquals(-i, board.getDoubleValue(handles[i]), 0);
+		}
+		Assert.assertTrue(!snapshot.isAssigned(later));
+		Assert.assertTrue(Double.isNaN(snapshot.getValue(later)));
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(ReportVariableBoardTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(ReportVariableBoardTest.class);
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.stat;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import edu.cuny.cat.MyTestCase;
+import edu.cuny.cat.core.Shout;
+import edu.cuny.cat.core.Specialist;
+import edu.cuny.cat.core.Transaction;
+import edu.cuny.cat.event.AuctionEvent;
+import edu.cuny.cat.event.DayClosedEvent;
+import edu.cuny.cat.event.GameStartingEvent;
+import edu.cuny.cat.event.RoundClosedEvent;
+import edu.cuny.cat.event.ShoutPostedEvent;
+import edu.cuny.cat.event.TransactionPostedEvent;
+
+/**
+ * checks that {@link MarketHistoryIndex} answers the same as
+ * {@link HistoricalReport} when fed with the same events, given that each
+ * event arrives at {@link SharedMarketHistory} through several subscribers as
+ * it would from several traders.
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SharedMarketHistoryTest extends MyTestCase {
+
+	static final int NUM_OF_COPIES = 3;
+
+	static final int NUM_OF_SHOUT_IDS = 20;
+
+	Specialist specialist;
+
+	HistoricalReport report;
+
+	SharedMarketHistory history;
+
+	SharedMarketHistory.Subscriber subscribers[];
+
+	Shout latest[];
+
+	int tick;
+
+	int tid;
+
+	public SharedMarketHistoryTest(final String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp() {
+		super.setUp();
+		specialist = new Specialist("market");
+		report = new HistoricalReport();
+		report.roundReset = true;
+		report.initialize();
+		history = new SharedMarketHistory(report.getMemorySize(), report
+				.isRoundReset());
+		latest = new Shout[SharedMarketHistoryTest.NUM_OF_SHOUT_IDS];
+
+		subscribers = new SharedMarketHistory.Subscriber[SharedMarketHistoryTest.NUM_OF_COPIES];
+		for (int i = 0; i < subscribers.length; i++) {
+			subscribers[i] = history.subscribe();
+			subscribers[i].register(specialist.getId());
+		}
+	}
+
+	@Override
+	public void tearDown() {
+		report = null;
+		history = null;
+		subscribers = null;
+	}
+
+	protected void post(final AuctionEvent event) {
+		event.setTime(new int[] { 0, tick / 10, tick });
+		tick++;
+
+		report.eventOccurred(event);
+		for (int i = 0; i < subscribers.length; i++) {
+			subscribers[i].eventOccurred(event);
+		}
+	}
+
+	/**
+	 * starts a new game and registers each subscriber with the market again,
+	 * the first one being the first to register.
+	 */
+	protected void startGame() {
+		post(new GameStartingEvent());
+		for (int i = 0; i < subscribers.length; i++) {
+			subscribers[i].register(specialist.getId());
+		}
+	}
+
+	protected void placeShout(final int i, final double price) {
+		final Shout shout = new Shout(1, price, i % 2 == 0);
+		shout.setId("shout" + i);
+		shout.setSpecialist(specialist);
+		shout.setState(Shout.PLACED);
+		latest[i] = shout;
+		post(new ShoutPostedEvent(shout));
+	}
+
+	protected void makeTransaction(final int askIndex, final int bidIndex) {
+		final Shout ask = new Shout(latest[askIndex]);
+		final Shout bid = new Shout(latest[bidIndex]);
+		ask.setState(Shout.MATCHED);
+		bid.setState(Shout.MATCHED);
+		final Transaction transaction = new Transaction("t" + tid++, ask, bid, ask
+				.getPrice());
+		transaction.setSpecialist(specialist);
+		post(new TransactionPostedEvent(transaction));
+	}
+
+	protected void assertSameCounts() {
+		final MarketHistoryIndex index = history.getIndex(specialist.getId());
+		Assert.assertEquals("shouts", report.getAsks().size()
+				+ report.getBids().size(), index.getNumOfShouts());
+
+		// the report takes a negative price to count lower shouts, so start above 0
+		for (int p = 5; p <= 110; p += 5) {
+			final double price = p;
+			Assert.assertEquals("asks below " + price, report.getNumberOfAsks(-price,
+					false), index.getNumOfAsksBelow(price));
+			Assert.assertEquals("bids above " + price, report.getNumberOfBids(price,
+					false), index.getNumOfBidsAbove(price));
+			Assert.assertEquals("accepted asks above " + price, report
+					.getNumberOfAsks(price, true), index.getNumOfAcceptedAsksAbove(price));
+			Assert.assertEquals("accepted bids below " + price, report
+					.getNumberOfBids(-price, true), index
+					.getNumOfAcceptedBidsBelow(price));
+			Assert.assertEquals("rejected asks below " + price, report
+					.getNumberOfAsks(-price, false)
+					- report.getNumberOfAsks(-price, true), index
+					.getNumOfRejectedAsksBelow(price));
+			Assert.assertEquals("rejected bids above " + price, report
+					.getNumberOfBids(price, false)
+					- report.getNumberOfBids(price, true), index
+					.getNumOfRejectedBidsAbove(price));
+		}
+	}
+
+	public void testRandomHistory() {
+		System.out.println("\n>>>>>>>>>\t " + "testRandomHistory() \n");
+
+		final Random random = new Random(1);
+		for (int step = 0; step < 2000; step++) {
+			final int action = random.nextInt(10);
+			if (action < 6) {
+				placeShout(random.nextInt(SharedMarketHistoryTest.NUM_OF_SHOUT_IDS),
+						5 * (1 + random.nextInt(20)));
+			} else if (action < 9) {
+				final int ask = 2 * random
+						.nextInt(SharedMarketHistoryTest.NUM_OF_SHOUT_IDS / 2) + 1;
+				final int bid = 2 * random
+						.nextInt(SharedMarketHistoryTest.NUM_OF_SHOUT_IDS / 2);
+				if ((latest[ask] != null) && (latest[bid] != null)) {
+					makeTransaction(ask, bid);
+				}
+			} else {
+				post(new RoundClosedEvent());
+			}
+
+			assertSameCounts();
+		}
+	}
+
+	public void testReset() {
+		System.out.println("\n>>>>>>>>>\t " + "testReset() \n");
+
+		placeShout(0, 40);
+		placeShout(1, 30);
+		makeTransaction(1, 0);
+		Assert.assertEquals(2, history.getIndex(specialist.getId())
+				.getNumOfShouts());
+
+		startGame();
+		assertSameCounts();
+		Assert.assertEquals(0, history.getIndex(specialist.getId())
+				.getNumOfShouts());
+
+		placeShout(2, 50);
+		Assert.assertEquals(1, history.getIndex(specialist.getId())
+				.getNumOfShouts());
+		assertSameCounts();
+	}
+
+	public void testFeeding() {
+		System.out.println("\n>>>>>>>>>\t " + "testFeeding() \n");
+
+		// only the first subscriber to register feeds the index
+		Assert.assertTrue(subscribers[0].feeding);
+		for (int i = 1; i < subscribers.length; i++) {
+			Assert.assertTrue(!subscribers[i].feeding);
+		}
+
+		// the next day, whoever registers first takes over
+		post(new DayClosedEvent());
+		subscribers[2].register(specialist.getId());
+		subscribers[0].register(specialist.getId());
+		Assert.assertTrue(subscribers[2].feeding);
+		Assert.assertTrue(!subscribers[0].feeding);
+
+		placeShout(0, 40);
+		placeShout(1, 30);
+		makeTransaction(1, 0);
+		assertSameCounts();
+
+		// a shout in another market is not recorded in this one
+		final int numOfShouts = history.getIndex(specialist.getId())
+				.getNumOfShouts();
+		final Shout other = new Shout(1, 60, true);
+		other.setId("other");
+		other.setSpecialist(new Specialist("other"));
+		other.setState(Shout.PLACED);
+		post(new ShoutPostedEvent(other));
+		Assert.assertEquals(numOfShouts, history.getIndex(specialist.getId())
+				.getNumOfShouts());
+	}
+
+	/**
+	 * the events of a game are neither wiped by a game starting that reaches
+	 * one trader after others have entered the game, nor mixed with the events
+	 * a trader still passes on from the previous game.
+	 */
+	public void testLateGameStarting() {
+		System.out.println("\n>>>>>>>>>\t " + "testLateGameStarting() \n");
+
+		placeShout(0, 40);
+		Assert.assertEquals(1, history.getIndex(specialist.getId())
+				.getNumOfShouts());
+
+		// the second subscriber enters the next game first and posts a shout
+		final GameStartingEvent gameStarting = new GameStartingEvent();
+		subscribers[1].eventOccurred(gameStarting);
+		subscribers[1].register(specialist.getId());
+		Assert.assertTrue(subscribers[1].feeding);
+		Assert.assertEquals(0, history.getIndex(specialist.getId())
+				.getNumOfShouts());
+
+		final Shout shout = new Shout(1, 50, true);
+		shout.setId("shout1");
+		shout.setSpecialist(specialist);
+		shout.setState(Shout.PLACED);
+		final ShoutPostedEvent posted = new ShoutPostedEvent(shout);
+		posted.setTime(new int[] { 0, 0, 0 });
+		subscribers[1].eventOccurred(posted);
+		Assert.assertEquals(1, history.getIndex(specialist.getId())
+				.getNumOfShouts());
+
+		// the first one, still feeding in the previous game, is ignored
+		final Shout old = new Shout(1, 70, false);
+		old.setId("shout2");
+		old.setSpecialist(specialist);
+		old.setState(Shout.PLACED);
+		final ShoutPostedEvent oldPosted = new ShoutPostedEvent(old);
+		oldPosted.setTime(new int[] { 9, 9, 9 });
+		subscribers[0].eventOccurred(oldPosted);
+		Assert.assertEquals(1, history.getIndex(specialist.getId())
+				.getNumOfShouts());
+
+		// and its game starting, arriving late, does not wipe the new game
+		subscribers[0].eventOccurred(gameStarting);
+		subscribers[0].register(specialist.getId());
+		Assert.assertTrue(!subscribers[0].feeding);
+		Assert.assertEquals(1, history.getIndex(specialist.getId())
+				.getNumOfShouts());
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(SharedMarketHistoryTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(SharedMarketHistoryTest.class);
+	}
+}
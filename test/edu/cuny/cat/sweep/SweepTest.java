@@ -0,0 +1,244 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.sweep;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+
+import edu.cuny.cat.MyTestCase;
+import edu.cuny.cat.stat.GameReport;
+import edu.cuny.util.CumulativeDistribution;
+import edu.cuny.util.Parameter;
+import edu.cuny.util.ParameterDatabase;
+
+/**
+ * tests {@link SweepGrid}, {@link SweepJournal}, {@link SweepSummary} and a
+ * small sweep run by {@link SweepRunner}.
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class SweepTest extends MyTestCase {
+
+	static final String configFiles[] = { "general.params",
+			"infrastructure-call.params", "clock-noquitting.params",
+			"noconsole.params", "reports-nocsv.params", "specialists-cda.params",
+			"traders-zic.params" };
+
+	File dir;
+
+	public SweepTest(final String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp() {
+		super.setUp();
+		try {
+			dir = File.createTempFile("sweep", "");
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+		dir.delete();
+		dir.mkdirs();
+	}
+
+	@Override
+	public void tearDown() {
+		SweepTest.delete(dir);
+	}
+
+	static void delete(final File file) {
+		final File files[] = file.listFiles();
+		if (files != null) {
+			for (final File child : files) {
+				SweepTest.delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	public void testGrid() {
+		System.out.println("\n>>>>>>>>>\t " + "testGrid() \n");
+
+		final ParameterDatabase parameters = new ParameterDatabase();
+		parameters.set(new Parameter("sweep.n"), "2");
+		parameters.set(new Parameter("sweep.0.keys"), "network");
+		parameters.set(new Parameter("sweep.0.values"),
+				"input/full.adm, input/ring.adm");
+		parameters.set(new Parameter("sweep.1.keys"), "buyer, seller");
+		parameters.set(new Parameter("sweep.1.values"), "c, n, s");
+		parameters.set(new Parameter("sweep.1.labels"),
+				"credulous, normal, sceptical");
+
+		final SweepGrid grid = new SweepGrid();
+		grid.setup(parameters, new Parameter("sweep"));
+
+		final List<SweepGrid.Point> points = grid.getPoints();
+		Assert.assertEquals(6, points.size());
+
+		// the last dimension changes the fastest
+		Assert.assertEquals("full.adm-credulous", points.get(0).getName());
+		Assert.assertEquals("full.adm-normal", points.get(1).getName());
+		Assert.assertEquals("ring.adm-sceptical", points.get(5).getName());
+
+		final Map<String, String> assignments = points.get(4).getAssignments();
+		Assert.assertEquals(3, assignments.size());
+		Assert.assertEquals("input/ring.adm", assignments.get("network"));
+		Assert.assertEquals("n", assignments.get("buyer"));
+		Assert.assertEquals("n", assignments.get("seller"));
+
+		final ParameterDatabase run = new ParameterDatabase();
+		points.get(4).apply(run);
+		Assert.assertEquals("n", run.getString(new Parameter("seller"), null));
+	}
+
+	public void testJournal() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testJournal() \n");
+
+		final File file = new File(dir, SweepRunner.JOURNAL);
+		SweepJournal journal = new SweepJournal(file);
+
+		final Map<String, Double> metrics = new LinkedHashMap<String, Double>();
+		metrics.put("CDA.efficiency", new Double(0.5));
+		metrics.put("CDA.score", new Double(0.25));
+		journal.completed("a", 1, metrics);
+		journal.failed("a", 2, new IllegalStateException("day 3, round 4"));
+		journal.close();
+
+		// a run cut short with its metrics half written
+		final PrintWriter writer = new PrintWriter(new FileWriter(file, true));
+		writer.println("b,1,metric,CDA.efficiency,0.75");
+		writer.print("b,1,met");
+		writer.close();
+
+		journal = new SweepJournal(file);
+		Assert.assertEquals(1, journal.getNumOfCompleted());
+		Assert.assertTrue(journal.isCompleted("a", 1));
+		Assert.assertTrue(!journal.isCompleted("a", 2));
+		Assert.assertTrue(!journal.isCompleted("b", 1));
+		Assert.assertEquals(metrics, journal.getMetrics("a", 1));
+
+		// a failed run completes when run again
+		journal.completed("a", 2, metrics);
+		journal.close();
+
+		journal = new SweepJournal(file);
+		Assert.assertEquals(2, journal.getNumOfCompleted());
+		Assert.assertTrue(journal.isCompleted("a", 2));
+		journal.close();
+	}
+
+	public void testSummary() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testSummary() \n");
+
+		final SweepSummary summary = new SweepSummary(0.95);
+		summary.addPoint("empty");
+		for (int i = 1; i <= 5; i++) {
+			final Map<String, Double> metrics = new LinkedHashMap<String, Double>();
+			metrics.put("x", new Double(i));
+			summary.addRun("a", metrics);
+		}
+
+		final CumulativeDistribution dist = summary.getDistribution("a", "x");
+		Assert.assertEquals(5, dist.getN());
+		Assert.assertEquals(3, dist.getMean(), 1e-9);
+
+		// t(0.975, 4) * sqrt(2.5) / sqrt(5)
+		Assert.assertEquals(2.776445 * Math.sqrt(2.5) / Math.sqrt(5), summary
+				.getHalfWidth(dist), 1e-5);
+
+		final CumulativeDistribution single = new CumulativeDistribution("y");
+		single.newData(1);
+		Assert.assertTrue(Double.isNaN(summary.getHalfWidth(single)));
+
+		final File file = new File(dir, SweepRunner.SUMMARY);
+		summary.write(file);
+		summary.write(file);
+		Assert.assertTrue(file.exists());
+		Assert.assertTrue(!new File(dir, SweepRunner.SUMMARY + ".tmp").exists());
+	}
+
+	public void testSweep() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testSweep() \n");
+
+		final Level level = LogManager.getRootLogger().getLevel();
+		LogManager.getRootLogger().setLevel(Level.WARN);
+
+		try {
+			final ParameterDatabase parameters = new ParameterDatabase();
+			for (final String configFile : SweepTest.configFiles) {
+				parameters.addParent(new ParameterDatabase(new File("params/modules",
+						configFile)));
+			}
+			parameters.set(new Parameter("cat.server.gamelen"), "2");
+			parameters.set(new Parameter("sweep.n"), "1");
+			parameters.set(new Parameter("sweep.0.keys"), "cat.server.daylen");
+			parameters.set(new Parameter("sweep.0.values"), "5, 10");
+			parameters.set(new Parameter("sweep.0.labels"), "short, long");
+			parameters.set(new Parameter("sweep.runs"), "2");
+			parameters.set(new Parameter("sweep.seed"), "7");
+			parameters.set(new Parameter("sweep.threads"), "2");
+			parameters.set(new Parameter("sweep.dir"), dir.getPath());
+			parameters.set(new Parameter("sweep.metrics"), "CDA."
+					+ GameReport.EFFICIENCY);
+
+			SweepRunner runner = new SweepRunner();
+			runner.setup(parameters, new Parameter(SweepRunner.P_SWEEP));
+			Assert.assertEquals(0, runner.run());
+
+			Assert.assertEquals(4, runner.getJournal().getNumOfCompleted());
+			final CumulativeDistribution dist = runner.getSummary().getDistribution(
+					"short", "CDA." + GameReport.EFFICIENCY);
+			Assert.assertNotNull(dist);
+			Assert.assertEquals(2, dist.getN());
+			Assert.assertTrue(new File(dir, SweepRunner.SUMMARY).exists());
+
+			// resuming runs nothing again but summarizes all the same
+			runner = new SweepRunner();
+			runner.setup(parameters, new Parameter(SweepRunner.P_SWEEP));
+			Assert.assertEquals(0, runner.run());
+
+			final CumulativeDistribution resumed = runner.getSummary()
+					.getDistribution("short", "CDA." + GameReport.EFFICIENCY);
+			Assert.assertEquals(dist.getN(), resumed.getN());
+			Assert.assertEquals(dist.getMean(), resumed.getMean(), 1e-9);
+		} finally {
+			LogManager.getRootLogger().setLevel(level);
+		}
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(SweepTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(SweepTest.class);
+	}
+}
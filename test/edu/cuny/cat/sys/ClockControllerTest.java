@@ -0,0 +1,140 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.sys;
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+
+import edu.cuny.cat.Game;
+import edu.cuny.cat.GameContext;
+import edu.cuny.cat.MyTestCase;
+import edu.cuny.cat.server.AutoClockController;
+import edu.cuny.cat.server.VirtualClockController;
+import edu.cuny.util.Parameter;
+import edu.cuny.util.ParameterDatabase;
+
+/**
+ * checks that a game run on virtual time, over an asynchronous infrastructure,
+ * ends up with the same transactions as the game run on real time with the
+ * same seed, i.e. that no shout is left out of a round because the round closes
+ * without waiting for it to elapse.
+ * <p>
+ * The game on real time is run by {@link AutoClockController} rather than
+ * {@link edu.cuny.cat.server.SynchronousClockController}, which starts the
+ * clock before clients on an asynchronous infrastructure check in, and the
+ * call-based infrastructure cannot be used instead since it draws all the
+ * random numbers from a single engine.
+ * </p>
+ * 
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class ClockControllerTest extends MyTestCase {
+
+	static final String configFiles[] = { "general.params",
+			"infrastructure-queue.params", "clock-noquitting.params",
+			"noconsole.params", "reports-nocsv.params", "specialists-ch.params",
+			"traders-zic.params" };
+
+	static final long SEED = 7;
+
+	String path = null;
+
+	public ClockControllerTest(final String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp() {
+		super.setUp();
+		path = "params/modules";
+	}
+
+	protected ParameterDatabase loadParameters(final Class<?> clockController)
+			throws Exception {
+		final ParameterDatabase root = new ParameterDatabase();
+		for (final String configFile : ClockControllerTest.configFiles) {
+			root.addParent(new ParameterDatabase(new File(path, configFile)));
+		}
+
+		final Parameter server = new Parameter(Game.P_CAT).push(Game.P_SERVER);
+		root.set(server.push("clockcontroller"), clockController.getName());
+		root.set(server.push("gamelen"), "8");
+		root.set(server.push("daylen"), "10");
+		root.set(server.push("roundlen"), "100");
+		root.set(server.push("roundclosinglen"), "0");
+		root.set(server.push("gameinit"), "100");
+		root.set(server.push("dayinit"), "100");
+		root.set(server.push("gamebreak"), "0");
+		root.set(server.push("daybreak"), "0");
+		root.set(server.push("roundbreak"), "0");
+
+		// gives the clients on an asynchronous infrastructure time to check in
+		final Parameter clock = server.push("clockcontroller");
+		root.set(clock.push(AutoClockController.P_STARTDELAY), "2000");
+		root.set(clock.push(AutoClockController.P_EXITDELAY), "0");
+
+		final Parameter report = server.push("report");
+		root.set(report.push("n"), "7");
+		root.set(report.push("6"), TransactionLogReport.class.getName());
+
+		return root;
+	}
+
+	protected List<String> runGame(final Class<?> clockController)
+			throws Exception {
+		final GameContext context = new GameContext(
+				loadParameters(clockController), ClockControllerTest.SEED);
+		context.call();
+		Assert.assertTrue(context.isOver());
+
+		return context.getServer().getController().getReport(
+				TransactionLogReport.class).getTransactions();
+	}
+
+	public void testSameTransactions() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testSameTransactions() \n");
+
+		final Level level = LogManager.getRootLogger().getLevel();
+		LogManager.getRootLogger().setLevel(Level.WARN);
+
+		try {
+			final List<String> expected = runGame(AutoClockController.class);
+			Assert.assertTrue(expected.size() > 0);
+
+			final List<String> actual = runGame(VirtualClockController.class);
+			Assert.assertEquals(expected, actual);
+		} finally {
+			LogManager.getRootLogger().setLevel(level);
+		}
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(ClockControllerTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(ClockControllerTest.class);
+	}
+}
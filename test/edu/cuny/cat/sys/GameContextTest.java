@@ -0,0 +1,172 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.sys;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+
+import edu.cuny.cat.GameContext;
+import edu.cuny.cat.MyTestCase;
+import edu.cuny.cat.stat.GameReport;
+import edu.cuny.cat.stat.StatisticalReport;
+import edu.cuny.util.CumulativeDistribution;
+import edu.cuny.util.Galaxy;
+import edu.cuny.util.ParameterDatabase;
+
+/**
+ * runs games in parallel, each in a {@link GameContext}, and checks that games
+ * with the same seed end up the same.
+ *
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class GameContextTest extends MyTestCase {
+
+	static final String configFiles[] = { "general.params",
+			"infrastructure-call.params", "clock-noquitting.params",
+			"noconsole.params", "reports-nocsv.params", "specialists-cda.params",
+			"traders-zic.params" };
+
+	String path = null;
+
+	public GameContextTest(final String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp() {
+		super.setUp();
+		path = "params/modules";
+	}
+
+	protected ParameterDatabase loadParameters() throws Exception {
+		final ParameterDatabase root = new ParameterDatabase();
+		for (final String configFile : GameContextTest.configFiles) {
+			root.addParent(new ParameterDatabase(new File(path, configFile)));
+		}
+		return root;
+	}
+
+	protected CumulativeDistribution getEfficiency(final GameContext context) {
+		final StatisticalReport statReport = context.getServer().getController()
+				.getReport(StatisticalReport.class);
+		return statReport.getDistribution("CDA." + GameReport.EFFICIENCY);
+	}
+
+	public void testGalaxies() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testGalaxies() \n");
+
+		final Galaxy jvmGalaxy = Galaxy.getInstance();
+		Assert.assertTrue(!Galaxy.isBound());
+
+		final Galaxy galaxy = Galaxy.newInstance();
+		Assert.assertTrue(jvmGalaxy != galaxy);
+
+		final Galaxy inherited[] = new Galaxy[1];
+		Galaxy.setCurrent(galaxy);
+		try {
+			Assert.assertSame(galaxy, Galaxy.getInstance());
+			galaxy.putSingleton(String.class, "bound");
+
+			final Thread thread = new Thread() {
+				@Override
+				public void run() {
+					inherited[0] = Galaxy.getInstance();
+				}
+			};
+			thread.start();
+			thread.join();
+		} finally {
+			Galaxy.setCurrent(null);
+		}
+
+		// threads started in a galaxy stay in it
+		Assert.assertSame(galaxy, inherited[0]);
+		Assert.assertSame(jvmGalaxy, Galaxy.getInstance());
+
+		// singletons of one galaxy are unknown to others
+		Assert.assertEquals("bound", galaxy.getSingleton(String.class));
+		Assert.assertNull(jvmGalaxy.getSingleton(String.class));
+	}
+
+	public void testParallelGames() throws Exception {
+		System.out.println("\n>>>>>>>>>\t " + "testParallelGames() \n");
+
+		final Level level = LogManager.getRootLogger().getLevel();
+		LogManager.getRootLogger().setLevel(Level.WARN);
+
+		// one set of parameters shared by all the games
+		final ParameterDatabase parameters = loadParameters();
+		final long seeds[] = { 1, 2, 1, 2 };
+
+		final ExecutorService executor = Executors.newFixedThreadPool(seeds.length);
+		final List<Future<GameContext>> futures = new ArrayList<Future<GameContext>>();
+		try {
+			for (final long seed : seeds) {
+				futures.add(executor.submit(new GameContext(parameters, seed)));
+			}
+
+			final List<GameContext> contexts = new ArrayList<GameContext>();
+			for (final Future<GameContext> future : futures) {
+				final GameContext context = future.get(10, TimeUnit.MINUTES);
+				Assert.assertTrue(context.isOver());
+				contexts.add(context);
+			}
+
+			for (int i = 0; i < contexts.size(); i++) {
+				final CumulativeDistribution dist = getEfficiency(contexts.get(i));
+				Assert.assertNotNull(dist);
+				Assert.assertTrue(dist.getN() > 0);
+
+				for (int j = 0; j < i; j++) {
+					if (seeds[i] == seeds[j]) {
+						final CumulativeDistribution other = getEfficiency(contexts.get(j));
+						Assert.assertEquals(other.getN(), dist.getN());
+						Assert.assertEquals(other.getMean(), dist.getMean(), 0);
+						Assert.assertEquals(other.getStdDev(), dist.getStdDev(), 0);
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			LogManager.getRootLogger().setLevel(level);
+		}
+
+		// the galaxy of the JVM is left alone
+		Assert.assertTrue(!Galaxy.isBound());
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(GameContextTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(GameContextTest.class);
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.sys;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import edu.cuny.cat.core.Transaction;
+import edu.cuny.cat.event.AuctionEvent;
+import edu.cuny.cat.event.TransactionExecutedEvent;
+import edu.cuny.cat.stat.GameReport;
+import edu.cuny.cat.stat.ReportVariable;
+
+/**
+ * records every transaction executed in a game, for tests to compare the
+ * transactions of games.
+ * 
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class TransactionLogReport implements GameReport {
+
+	protected final List<String> transactions = new ArrayList<String>();
+
+	public synchronized void eventOccurred(final AuctionEvent event) {
+		if (event instanceof TransactionExecutedEvent) {
+			final Transaction transaction = ((TransactionExecutedEvent) event)
+					.getTransaction();
+			transactions.add(event.getDay() + "/" + event.getRound() + " "
+					+ transaction.getSpecialist().getId() + " "
+					+ transaction.getAsk().getTrader().getId() + "@"
+					+ transaction.getAsk().getPrice() + " "
+					+ transaction.getBid().getTrader().getId() + "@"
+					+ transaction.getBid().getPrice() + " " + transaction.getPrice());
+		}
+	}
+
+	/**
+	 * @return the transactions recorded, sorted so as not to depend on the order
+	 *         in which those of a round are executed.
+	 */
+	public synchronized List<String> getTransactions() {
+		final List<String> sorted = new ArrayList<String>(transactions);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	public void produceUserOutput() {
+	}
+
+	public Map<ReportVariable, ?> getVariables() {
+		return Collections.emptyMap();
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.cat.task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * Tests the ordering and counters of {@link BlockingDispatcher}.
+ * 
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class BlockingDispatcherTest extends MyTestCase {
+
+	static Logger logger = Logger.getLogger(BlockingDispatcherTest.class);
+
+	List<String> done;
+
+	public BlockingDispatcherTest(final String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp() {
+		super.setUp();
+		done = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	public void testOrder() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testOrder() \n");
+
+		checkOrder(1);
+	}
+
+	public void testBatchedOrder() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testBatchedOrder() \n");
+
+		checkOrder(4);
+	}
+
+	protected void checkOrder(final int batchSize) throws InterruptedException {
+		final BlockingDispatcher dispatcher = new BlockingDispatcher(
+				new TaskComparator(), batchSize);
+
+		// keep the dispatcher busy until all the other tasks are queued
+		final CountDownLatch gate = new CountDownLatch(1);
+		dispatcher.addTask(new RegularTask("gate") {
+			@Override
+			public void run() {
+				try {
+					gate.await();
+				} catch (final InterruptedException e) {
+					// e.printStackTrace();
+				}
+			}
+		});
+		while (dispatcher.getQueueDepth() > 0) {
+			Thread.sleep(1);
+		}
+
+		dispatcher.addTask(new RegularTask("r0"));
+		dispatcher.addTask(new PriorityTask("p0"));
+		dispatcher.addTask(new RegularTask("r1"));
+		dispatcher.addTask(new PriorityTask("p1"));
+		final CountDownLatch finished = new CountDownLatch(1);
+		dispatcher.addTask(new RegularTask("last") {
+			@Override
+			public void run() {
+				super.run();
+				finished.countDown();
+			}
+		});
+		Assert.assertEquals(5, dispatcher.getQueueDepth());
+
+		gate.countDown();
+		Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+		dispatcher.terminate();
+
+		BlockingDispatcherTest.logger.info(dispatcher);
+		Assert.assertEquals("[p0, p1, r0, r1, last]", done.toString());
+		Assert.assertEquals(6, dispatcher.getNumOfAddedTasks());
+		Assert.assertEquals(6, dispatcher.getNumOfDispatchedTasks());
+		Assert.assertEquals(0, dispatcher.getQueueDepth());
+		Assert.assertTrue(dispatcher.getMaxWaitTime() > 0);
+		Assert.assertTrue(dispatcher.getTotalWaitTime() >= dispatcher
+				.getMaxWaitTime());
+	}
+
+	/**
+	 * adds tasks from several threads at once to a first in, first out
+	 * dispatcher, which must run them in the order of their IDs.
+	 */
+	public void testConcurrentProducers() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testConcurrentProducers() \n");
+
+		final BlockingDispatcher dispatcher = new BlockingDispatcher();
+		final List<Integer> tids = Collections
+				.synchronizedList(new ArrayList<Integer>());
+
+		final int numOfProducers = 4;
+		final int numOfTasks = 5000;
+		final CountDownLatch finished = new CountDownLatch(numOfProducers
+				* numOfTasks);
+		final Thread producers[] = new Thread[numOfProducers];
+		for (int i = 0; i < producers.length; i++) {
+			producers[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < numOfTasks; j++) {
+						dispatcher.addTask(new DispatchingTask() {
+							public void run() {
+								tids.add(tid);
+								finished.countDown();
+							}
+						});
+					}
+				}
+			};
+			producers[i].start();
+		}
+		for (final Thread producer : producers) {
+			producer.join();
+		}
+
+		Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+		dispatcher.terminate();
+
+		Assert.assertEquals(numOfProducers * numOfTasks, tids.size());
+		for (int i = 0; i < tids.size(); i++) {
+			Assert.assertEquals("task run at " + i, i, tids.get(i).intValue());
+		}
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(BlockingDispatcherTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(BlockingDispatcherTest.class);
+	}
+
+	class RegularTask extends DispatchingTask {
+
+		String value;
+
+		public RegularTask(final String value) {
+			this.value = value;
+		}
+
+		public void run() {
+			done.add(value);
+		}
+	}
+
+	class PriorityTask extends RegularTask {
+		public PriorityTask(final String value) {
+			super(value);
+		}
+	}
+
+	class TaskComparator implements Comparator<DispatchingTask> {
+
+		public int compare(final DispatchingTask t0, final DispatchingTask t1) {
+			final boolean p0 = t0 instanceof PriorityTask;
+			final boolean p1 = t1 instanceof PriorityTask;
+			if (p0 == p1) {
+				return t0.tid - t1.tid;
+			} else {
+				return p0 ? -1 : 1;
+			}
+		}
+	}
+}
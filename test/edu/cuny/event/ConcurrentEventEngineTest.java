@@ -0,0 +1,154 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * Tests check-in, check-out and lanes of {@link ConcurrentEventEngine}.
+ * 
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class ConcurrentEventEngineTest extends MyTestCase {
+
+	static Logger logger = Logger.getLogger(ConcurrentEventEngineTest.class);
+
+	ConcurrentEventEngine engine;
+
+	public ConcurrentEventEngineTest(final String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp() {
+		super.setUp();
+		engine = new ConcurrentEventEngine();
+		engine.start();
+	}
+
+	@Override
+	public void tearDown() {
+		engine.stop();
+	}
+
+	public void testConcurrentCheckIn() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testConcurrentCheckIn() \n");
+
+		final int numOfThreads = 4;
+		final int numOfListeners = 200;
+		final AtomicInteger count = new AtomicInteger(0);
+		final Thread threads[] = new Thread[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					final List<EventListener> ls = new ArrayList<EventListener>();
+					for (int j = 0; j < numOfListeners; j++) {
+						final EventListener l = new CountingListener(count);
+						ls.add(l);
+						engine.checkIn(ConcurrentEventEngineTest.class, l);
+						engine.dispatchEvent(this, new Event(this));
+					}
+					// check out every other listener
+					for (int j = 0; j < numOfListeners; j += 2) {
+						engine.checkOut(ConcurrentEventEngineTest.class, ls.get(j));
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < numOfThreads; i++) {
+			threads[i].join();
+		}
+
+		engine.dispatchEvent(ConcurrentEventEngineTest.class, new Event(this));
+		Assert.assertEquals(numOfThreads * numOfListeners / 2, count.get());
+	}
+
+	public void testLane() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testLane() \n");
+
+		final List<Object> received = Collections
+				.synchronizedList(new ArrayList<Object>());
+		final AtomicInteger onLane = new AtomicInteger(0);
+		final CountDownLatch done = new CountDownLatch(1);
+		final int numOfEvents = 100;
+		engine.checkIn(this, new EventListener() {
+			public void eventOccurred(final Event te) {
+				received.add(te.getUserObject());
+				if (Thread.currentThread() instanceof ConcurrentEventEngine.Lane) {
+					onLane.incrementAndGet();
+				}
+				if (received.size() == numOfEvents) {
+					done.countDown();
+				}
+			}
+		});
+
+		engine.addLane(this);
+		for (int i = 0; i < numOfEvents; i++) {
+			engine.dispatchEvent(this, new Event(this, new Integer(i)));
+		}
+
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < numOfEvents; i++) {
+			Assert.assertEquals(new Integer(i), received.get(i));
+		}
+
+		Assert.assertEquals(numOfEvents, onLane.get());
+
+		engine.removeLane(this);
+		engine.dispatchEvent(this, new Event(this, new Integer(numOfEvents)));
+		Assert.assertEquals(numOfEvents + 1, received.size());
+		Assert.assertEquals(numOfEvents, onLane.get());
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(ConcurrentEventEngineTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(ConcurrentEventEngineTest.class);
+	}
+
+	static class CountingListener implements EventListener {
+
+		AtomicInteger count;
+
+		public CountingListener(final AtomicInteger count) {
+			this.count = count;
+		}
+
+		public void eventOccurred(final Event te) {
+			count.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.prng;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import cern.jet.random.engine.RandomEngine;
+import edu.cuny.PRNGTestSeeds;
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class GlobalPRNGTest extends MyTestCase {
+
+	static final int NUM_OF_DRAWS = 100;
+
+	public GlobalPRNGTest(final String name) {
+		super(name);
+	}
+
+	/**
+	 * @return a generator using multiple engines, started by the unit test seed.
+	 */
+	protected static GlobalPRNG createPRNG() {
+		final GlobalPRNG prng = new GlobalPRNG();
+		prng.setUseMultiEngine(true);
+		prng.initializeWithSeed(PRNGTestSeeds.UNIT_TEST_SEED);
+		return prng;
+	}
+
+	protected static double[] draw(final RandomEngine engine) {
+		final double draws[] = new double[GlobalPRNGTest.NUM_OF_DRAWS];
+		for (int i = 0; i < draws.length; i++) {
+			draws[i] = engine.raw();
+		}
+		return draws;
+	}
+
+	protected static void assertSameDraws(final double expected[],
+			final double actual[]) {
+		Assert.assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertEquals("draw " + i, expected[i], actual[i], 0);
+		}
+	}
+
+	public void testReproducibility() {
+		System.out.println("\n>>>>>>>>>\t " + "testReproducibility() \n");
+
+		GlobalPRNG prng = GlobalPRNGTest.createPRNG();
+		final double first[] = GlobalPRNGTest.draw(prng.getEngine());
+		final double second[] = GlobalPRNGTest.draw(prng.getEngine());
+
+		// the engines differ from each other
+		Assert.assertTrue(first[0] != second[0]);
+
+		// but not from one run to the next with the same seed
+		prng = GlobalPRNGTest.createPRNG();
+		GlobalPRNGTest.assertSameDraws(first, GlobalPRNGTest.draw(prng
+				.getEngine()));
+		GlobalPRNGTest.assertSameDraws(second, GlobalPRNGTest.draw(prng
+				.getEngine()));
+
+		// nor after the seed is set again
+		prng.initializeWithSeed(PRNGTestSeeds.UNIT_TEST_SEED);
+		GlobalPRNGTest.assertSameDraws(first, GlobalPRNGTest.draw(prng
+				.getEngine()));
+	}
+
+	public void testKeyedEngines() {
+		System.out.println("\n>>>>>>>>>\t " + "testKeyedEngines() \n");
+
+		GlobalPRNG prng = GlobalPRNGTest.createPRNG();
+		final double a[] = GlobalPRNGTest.draw(prng.getEngine("a"));
+		final double b[] = GlobalPRNGTest.draw(prng.getEngine("b"));
+		Assert.assertTrue(a[0] != b[0]);
+
+		// in the other order, with other engines in between
+		prng = GlobalPRNGTest.createPRNG();
+		prng.getEngine();
+		GlobalPRNGTest.assertSameDraws(b, GlobalPRNGTest.draw(prng
+				.getEngine("b")));
+		prng.getEngine("c");
+		GlobalPRNGTest.assertSameDraws(a, GlobalPRNGTest.draw(prng
+				.getEngine("a")));
+	}
+
+	public void testScopes() {
+		System.out.println("\n>>>>>>>>>\t " + "testScopes() \n");
+
+		GlobalPRNG prng = GlobalPRNGTest.createPRNG();
+		prng.enterScope("agent.1");
+		final double first[] = GlobalPRNGTest.draw(prng.getEngine());
+		final double second[] = GlobalPRNGTest.draw(prng.getEngine());
+		prng.exitScope();
+		final double outside[] = GlobalPRNGTest.draw(prng.getEngine());
+
+		// another agent, taking a different number of engines, comes first
+		prng = GlobalPRNGTest.createPRNG();
+		prng.enterScope("agent.0");
+		prng.getEngine();
+		prng.getEngine();
+		prng.getEngine();
+		prng.exitScope();
+
+		prng.enterScope("agent.1");
+		GlobalPRNGTest.assertSameDraws(first, GlobalPRNGTest.draw(prng
+				.getEngine()));
+		GlobalPRNGTest.assertSameDraws(second, GlobalPRNGTest.draw(prng
+				.getEngine()));
+		prng.exitScope();
+
+		// engines outside any scope are not affected by those in scopes either
+		GlobalPRNGTest.assertSameDraws(outside, GlobalPRNGTest.draw(prng
+				.getEngine()));
+	}
+
+	/**
+	 * checks that the generators created lazily in a resumed scope, e.g. by a
+	 * trader when a game starts, follow those created during its setup,
+	 * whichever threads resume the scopes and in whichever order.
+	 */
+	public void testResumedScopes() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testResumedScopes() \n");
+
+		final int numOfAgents = 4;
+
+		GlobalPRNG prng = GlobalPRNGTest.createPRNG();
+		final double expected[][] = new double[numOfAgents][];
+		for (int i = 0; i < numOfAgents; i++) {
+			prng.enterScope("agent." + i);
+			prng.getEngine();
+			expected[i] = GlobalPRNGTest.draw(prng.getEngine());
+			prng.exitScope();
+		}
+
+		prng = GlobalPRNGTest.createPRNG();
+		final GlobalPRNG.Scope scopes[] = new GlobalPRNG.Scope[numOfAgents];
+		for (int i = 0; i < numOfAgents; i++) {
+			prng.enterScope("agent." + i);
+			prng.getEngine();
+			scopes[i] = prng.getScope();
+			prng.exitScope();
+		}
+		Assert.assertNull(prng.getScope());
+
+		final GlobalPRNG shared = prng;
+		final double actual[][] = new double[numOfAgents][];
+		final Thread threads[] = new Thread[numOfAgents];
+		for (int i = numOfAgents - 1; i >= 0; i--) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					// unscoped generators in between do not matter
+					shared.getEngine();
+					final GlobalPRNG.Scope previous = shared.enterScope(scopes[index]);
+					try {
+						actual[index] = GlobalPRNGTest.draw(shared.getEngine());
+					} finally {
+						shared.exitScope(previous);
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		for (int i = 0; i < numOfAgents; i++) {
+			threads[i].join();
+			GlobalPRNGTest.assertSameDraws(expected[i], actual[i]);
+		}
+
+		// resuming a scope from within another returns to the latter
+		prng.enterScope("agent.0");
+		final GlobalPRNG.Scope outer = prng.getScope();
+		final GlobalPRNG.Scope previous = prng.enterScope(scopes[1]);
+		Assert.assertSame(outer, previous);
+		Assert.assertSame(scopes[1], prng.getScope());
+		prng.exitScope(previous);
+		Assert.assertSame(outer, prng.getScope());
+		prng.exitScope();
+	}
+
+	public void testSingleEngine() {
+		System.out.println("\n>>>>>>>>>\t " + "testSingleEngine() \n");
+
+		final GlobalPRNG prng = GlobalPRNGTest.createPRNG();
+		prng.setUseMultiEngine(false);
+
+		final RandomEngine engine = prng.getDefaultEngine();
+		prng.enterScope("agent.0");
+		Assert.assertSame(engine, prng.getEngine());
+		prng.exitScope();
+		Assert.assertSame(engine, prng.getEngine("a"));
+	}
+
+	public void testThreads() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testThreads() \n");
+
+		final int numOfThreads = 8;
+
+		GlobalPRNG prng = GlobalPRNGTest.createPRNG();
+		final double expected[][] = new double[numOfThreads][];
+		for (int i = 0; i < numOfThreads; i++) {
+			prng.enterScope("agent." + i);
+			expected[i] = GlobalPRNGTest.draw(prng.getEngine());
+			prng.exitScope();
+		}
+
+		prng = GlobalPRNGTest.createPRNG();
+		final GlobalPRNG shared = prng;
+		final double actual[][] = new double[numOfThreads][];
+		final Thread threads[] = new Thread[numOfThreads];
+		for (int i = numOfThreads - 1; i >= 0; i--) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					shared.enterScope("agent." + index);
+					try {
+						actual[index] = GlobalPRNGTest.draw(shared.getEngine());
+					} finally {
+						shared.exitScope();
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		for (int i = 0; i < numOfThreads; i++) {
+			threads[i].join();
+			GlobalPRNGTest.assertSameDraws(expected[i], actual[i]);
+		}
+	}
+
+	public void testDeriveSeed() {
+		System.out.println("\n>>>>>>>>>\t " + "testDeriveSeed() \n");
+
+		final long seed = PRNGTestSeeds.UNIT_TEST_SEED;
+		Assert.assertEquals(PRNGStreams.deriveSeed(seed, 0), PRNGStreams
+				.deriveSeed(seed, 0));
+		Assert.assertTrue(PRNGStreams.deriveSeed(seed, 0) != PRNGStreams
+				.deriveSeed(seed, 1));
+		Assert.assertTrue(PRNGStreams.deriveSeed(seed, 0) != PRNGStreams
+				.deriveSeed(seed + 1, 0));
+		Assert.assertEquals(PRNGStreams.deriveSeed(seed, "agent.0"), PRNGStreams
+				.deriveSeed(seed, "agent.0"));
+		Assert.assertTrue(PRNGStreams.deriveSeed(seed, "agent.0") != PRNGStreams
+				.deriveSeed(seed, "agent.1"));
+		Assert.assertTrue(PRNGStreams.deriveSeed(seed, "ab") != PRNGStreams
+				.deriveSeed(seed, "ba"));
+
+		// the seeds of siblings differ in about half of their bits
+		final long diff = PRNGStreams.deriveSeed(seed, 0)
+				^ PRNGStreams.deriveSeed(seed, 1);
+		Assert.assertTrue(Long.bitCount(diff) > 16);
+		Assert.assertTrue(Long.bitCount(diff) < 48);
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(GlobalPRNGTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(GlobalPRNGTest.class);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * JCAT - TAC Market Design Competition Platform
+ * Copyright (C) 2006-2010 Jinzhong Niu, Kai Cai
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package edu.cuny.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * @author Martin Chapman
+ * @version $Revision: 1.1 $
+ */
+
+public class PriceHistogramTest extends MyTestCase {
+
+	public PriceHistogramTest(final String name) {
+		super(name);
+	}
+
+	/**
+	 * checks the counts of the histogram against those of the prices kept in a
+	 * list per category.
+	 */
+	protected void assertCounts(final PriceHistogram histogram,
+			final List<List<Double>> prices, final double price) {
+		final int atMost[] = new int[prices.size()];
+		final int atLeast[] = new int[prices.size()];
+		histogram.count(price, atMost, atLeast);
+
+		for (int c = 0; c < prices.size(); c++) {
+			int expectedAtMost = 0;
+			int expectedAtLeast = 0;
+			for (final Double p : prices.get(c)) {
+				if (p.doubleValue() <= price) {
+					expectedAtMost++;
+				}
+				if (p.doubleValue() >= price) {
+					expectedAtLeast++;
+				}
+			}
+
+			Assert.assertEquals("size of " + c, prices.get(c).size(), histogram
+					.size(c));
+			Assert.assertEquals("at most " + price + " of " + c, expectedAtMost,
+					atMost[c]);
+			Assert.assertEquals("at least " + price + " of " + c, expectedAtLeast,
+					atLeast[c]);
+		}
+	}
+
+	public void testCounts() {
+		System.out.println("\n>>>>>>>>>\t " + "testCounts() \n");
+
+		final PriceHistogram histogram = new PriceHistogram(3, 0.5);
+		final List<List<Double>> prices = new ArrayList<List<Double>>();
+		for (int c = 0; c < 3; c++) {
+			prices.add(new ArrayList<Double>());
+		}
+
+		final Random random = new Random(4);
+		for (int step = 0; step < 3000; step++) {
+			final int c = random.nextInt(3);
+			final int action = random.nextInt(20);
+			if (action < 11) {
+				// quarters of a price unit, beyond the initial buckets now and then
+				double price = (random.nextInt(800) - 20) / 4.0;
+				if (action == 0) {
+					price *= 10;
+				} else if (action == 1) {
+					price = Double.POSITIVE_INFINITY;
+				}
+				histogram.add(c, price);
+				prices.get(c).add(new Double(price));
+			} else if (action < 19) {
+				if (!prices.get(c).isEmpty()) {
+					final Double price = prices.get(c).remove(
+							random.nextInt(prices.get(c).size()));
+					Assert.assertTrue(histogram.remove(c, price.doubleValue()));
+				}
+			} else {
+				histogram.clear(c);
+				prices.get(c).clear();
+			}
+
+			final double price = (random.nextInt(880) - 40) / 4.0;
+			assertCounts(histogram, prices, price);
+			assertCounts(histogram, prices, price + 0.1);
+			assertCounts(histogram, prices, Double.POSITIVE_INFINITY);
+		}
+		Assert.assertTrue(histogram.getNumOfBuckets() > PriceHistogram.INITIAL_NUM_OF_BUCKETS);
+
+		Assert.assertTrue(!histogram.remove(0, 1e-3));
+
+		histogram.clear();
+		for (int c = 0; c < 3; c++) {
+			prices.get(c).clear();
+		}
+		assertCounts(histogram, prices, 10);
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(PriceHistogramTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(PriceHistogramTest.class);
+	}
+}
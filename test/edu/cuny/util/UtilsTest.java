@@ -24,6 +24,9 @@ import junit.framework.TestSuite;
 
 import org.apache.log4j.Logger;
 
+import cern.jet.random.Uniform;
+import cern.jet.random.engine.MersenneTwister;
+import edu.cuny.PRNGTestSeeds;
 import edu.cuny.cat.MyTestCase;
 
 /**
@@ -103,6 +106,40 @@ public class UtilsTest extends MyTestCase {
 		Assert.assertTrue(set.contains("hello"));
 	}
 
+	public void testMaxIndexOverIndices() {
+		System.out.println("\n>>>>>>>>>\t " + "testMaxIndexOverIndices() \n");
+
+		final NumberComparator comparator = new ApproxNumberComparator(
+				ApproxNumberComparator.DEFAULT_LARGE_ERROR);
+		final Uniform dataDist = new Uniform(0, 1, new MersenneTwister(
+				(int) PRNGTestSeeds.UNIT_TEST_SEED));
+		final Uniform copyDist = new Uniform(0, 1, new MersenneTwister(
+				(int) PRNGTestSeeds.UNIT_TEST_SEED));
+		final Uniform indexDist = new Uniform(0, 1, new MersenneTwister(
+				(int) PRNGTestSeeds.UNIT_TEST_SEED));
+
+		final double values[] = new double[20];
+		final int indices[] = new int[values.length];
+		for (int round = 0; round < 1000; round++) {
+			for (int i = 0; i < values.length; i++) {
+				// few distinct values so that ties are common
+				values[i] = dataDist.nextIntFromTo(0, 3);
+			}
+			final int length = dataDist.nextIntFromTo(1, indices.length);
+			for (int i = 0; i < length; i++) {
+				indices[i] = dataDist.nextIntFromTo(0, values.length - 1);
+			}
+
+			final double copy[] = new double[length];
+			for (int i = 0; i < length; i++) {
+				copy[i] = values[indices[i]];
+			}
+
+			Assert.assertEquals(MathUtil.maxIndex(copy, copyDist, comparator),
+					MathUtil.maxIndex(values, indices, length, indexDist, comparator));
+		}
+	}
+
 	public static void main(final String[] args) {
 		junit.textui.TestRunner.run(UtilsTest.suite());
 	}
@@ -0,0 +1,281 @@
+package uk.ac.liv.cat.socialnetwork.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamTokenizer;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import edu.cuny.PRNGTestSeeds;
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * @author Martin Chapman
+ * @version 1
+ */
+public class BinaryExperimentSinkTest extends MyTestCase {
+
+	static final int NUM_OF_GAMES = 2;
+
+	static final int NUM_OF_DAYS = 6;
+
+	static final int NUM_OF_TRADERS = 40;
+
+	static final int NUM_OF_MARKETS = 3;
+
+	static final String TYPES[] = { "GD", "ZIC", "ZIP" };
+
+	public BinaryExperimentSinkTest(final String name) {
+		super(name);
+	}
+
+	/**
+	 * writes the same games, with several days each, to the given sink.
+	 */
+	protected static void writeGames(final ExperimentSink sink)
+			throws IOException {
+		final Random random = new Random(PRNGTestSeeds.UNIT_TEST_SEED);
+		final DayRecord record = new DayRecord();
+
+		sink.simulationStarted(BinaryExperimentSinkTest.NUM_OF_TRADERS,
+				BinaryExperimentSinkTest.NUM_OF_MARKETS);
+		for (int game = 0; game < BinaryExperimentSinkTest.NUM_OF_GAMES; game++) {
+			sink.gameStarting(game);
+			for (int day = 0; day < BinaryExperimentSinkTest.NUM_OF_DAYS; day++) {
+				record.clear(day);
+
+				// no trader profits on the first day, as the registry does
+				if (day > 0) {
+					for (int i = 0; i < BinaryExperimentSinkTest.NUM_OF_TRADERS; i++) {
+						record.addTraderProfit("trader" + i, random.nextDouble() * 100);
+					}
+				}
+
+				for (int i = 0; i < BinaryExperimentSinkTest.NUM_OF_MARKETS; i++) {
+					record.addMarket("specialist" + i, random.nextDouble() * 1000,
+							random.nextInt(50));
+					for (final String type : BinaryExperimentSinkTest.TYPES) {
+						record.addPopulation(type, random.nextInt(10), random.nextInt(10));
+					}
+				}
+
+				record.setNumOfBuyersChangedMarket(random.nextInt(20));
+				record.setNumOfSellersChangedMarket(random.nextInt(20));
+
+				for (int i = 0; i < BinaryExperimentSinkTest.NUM_OF_TRADERS; i++) {
+					record.addTraderMatches("trader" + i, random.nextInt(5));
+				}
+				for (int i = 0; i < BinaryExperimentSinkTest.NUM_OF_TRADERS; i += 2) {
+					record.addAdvice("trader" + i, random.nextInt(3));
+				}
+
+				sink.dayClosed(record);
+			}
+		}
+	}
+
+	/**
+	 * sums the numbers following a word that contains the criteria, day by day,
+	 * by tokenizing the text in the same way as <code>CSVAnalyser</code> in the
+	 * experiments directory does before averaging the sums.
+	 */
+	protected static List<Double> analyse(final String text,
+			final String criteria) throws IOException {
+		final List<Double> sums = new ArrayList<Double>();
+
+		final StreamTokenizer st = new StreamTokenizer(new StringReader(text));
+		st.commentChar('_');
+
+		String lastLine = null;
+		double sum = 0;
+		while (st.nextToken() != StreamTokenizer.TT_EOF) {
+			if (st.ttype == StreamTokenizer.TT_WORD) {
+				if (st.sval.contains("Day")) {
+					sums.add(sum);
+					sum = 0;
+				}
+				if (!st.sval.contains("GD")) {
+					lastLine = st.sval;
+				}
+			} else if (st.ttype == StreamTokenizer.TT_NUMBER) {
+				if ((lastLine != null) && lastLine.contains(criteria)) {
+					sum += st.nval;
+				}
+			}
+		}
+		sums.add(sum);
+
+		return sums;
+	}
+
+	public void testRoundTrip() throws IOException {
+		System.out.println("\n>>>>>>>>>\t " + "testRoundTrip() \n");
+
+		final StringWriter direct = new StringWriter();
+		final TextExperimentSink textSink = new TextExperimentSink(direct);
+		BinaryExperimentSinkTest.writeGames(textSink);
+		textSink.close();
+
+		final File file = File.createTempFile("experiment",
+				BinaryExperimentSink.EXTENSION);
+		try {
+			final BinaryExperimentSink binarySink = new BinaryExperimentSink();
+			Assert.assertEquals(BinaryExperimentSink.EXTENSION, binarySink
+					.getExtension());
+			binarySink.open(file.getPath());
+			BinaryExperimentSinkTest.writeGames(binarySink);
+			binarySink.close();
+
+			// ids are written once, so the file is smaller than the text
+			Assert.assertTrue(file.length() < direct.toString().length());
+
+			final StringWriter converted = new StringWriter();
+			final TextExperimentSink convertingSink = new TextExperimentSink(
+					converted);
+			new BinaryExperimentReader(file.getPath()).replay(convertingSink);
+			convertingSink.close();
+
+			Assert.assertEquals(direct.toString(), converted.toString());
+
+			final String criteria[] = { "profit", "matches", "market", "buyer",
+					"seller", "trader" };
+			for (final String criterion : criteria) {
+				final List<Double> expected = BinaryExperimentSinkTest.analyse(direct
+						.toString(), criterion);
+				Assert.assertEquals(BinaryExperimentSinkTest.NUM_OF_GAMES
+						* BinaryExperimentSinkTest.NUM_OF_DAYS + 1, expected.size());
+				double total = 0;
+				for (final Double sum : expected) {
+					total += sum.doubleValue();
+				}
+				Assert.assertTrue(criterion, total > 0);
+				Assert.assertEquals(criterion, expected, BinaryExperimentSinkTest
+						.analyse(converted.toString(), criterion));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testRecords() throws IOException {
+		System.out.println("\n>>>>>>>>>\t " + "testRecords() \n");
+
+		final File file = File.createTempFile("experiment",
+				BinaryExperimentSink.EXTENSION);
+		try {
+			final BinaryExperimentSink binarySink = new BinaryExperimentSink();
+			binarySink.open(file.getPath());
+			BinaryExperimentSinkTest.writeGames(binarySink);
+			binarySink.close();
+
+			final RecordingSink expected = new RecordingSink();
+			BinaryExperimentSinkTest.writeGames(expected);
+
+			final RecordingSink actual = new RecordingSink();
+			new BinaryExperimentReader(file.getPath()).replay(actual);
+
+			Assert.assertEquals(expected.events, actual.events);
+			Assert.assertEquals(BinaryExperimentSinkTest.NUM_OF_GAMES
+					* (BinaryExperimentSinkTest.NUM_OF_DAYS + 1) + 1, actual.events
+					.size());
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testCorruptFile() throws IOException {
+		System.out.println("\n>>>>>>>>>\t " + "testCorruptFile() \n");
+
+		final File file = File.createTempFile("experiment",
+				TextExperimentSink.EXTENSION);
+		try {
+			final TextExperimentSink textSink = new TextExperimentSink();
+			textSink.open(file.getPath());
+			BinaryExperimentSinkTest.writeGames(textSink);
+			textSink.close();
+
+			try {
+				new BinaryExperimentReader(file.getPath())
+						.replay(new RecordingSink());
+				Assert.fail("A text file must not be read as binary output !");
+			} catch (final IOException e) {
+				// expected
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * keeps a description of every call, with every field of every day.
+	 */
+	static class RecordingSink implements ExperimentSink {
+
+		final List<String> events = new ArrayList<String>();
+
+		public String getExtension() {
+			return "";
+		}
+
+		public void open(final String fileName) {
+		}
+
+		public void simulationStarted(final int numOfTraders,
+				final int numOfMarkets) {
+			events.add("simulation " + numOfTraders + " " + numOfMarkets);
+		}
+
+		public void gameStarting(final int iteration) {
+			events.add("game " + iteration);
+		}
+
+		public void dayClosed(final DayRecord record) {
+			final StringBuilder s = new StringBuilder();
+			s.append("day ").append(record.getDay()).append(" ").append(
+					record.isTraderProfitsRecorded());
+			for (int i = 0; i < record.getNumOfTraderProfits(); i++) {
+				s.append(" ").append(record.getTraderProfitId(i)).append("=").append(
+						record.getTraderProfit(i));
+			}
+			for (int i = 0; i < record.getNumOfMarkets(); i++) {
+				s.append(" ").append(record.getMarketId(i)).append("=").append(
+						record.getMarketProfit(i)).append("/").append(
+						record.getMarketMatches(i));
+				for (int j = record.getPopulationOffset(i); j < record
+						.getPopulationOffset(i + 1); j++) {
+					s.append(" ").append(record.getPopulationType(j)).append("=")
+							.append(record.getPopulationBuyers(j)).append("/").append(
+									record.getPopulationSellers(j));
+				}
+			}
+			s.append(" ").append(record.getNumOfBuyersChangedMarket()).append(" ")
+					.append(record.getNumOfSellersChangedMarket());
+			for (int i = 0; i < record.getNumOfTraderMatches(); i++) {
+				s.append(" ").append(record.getTraderMatchId(i)).append("=").append(
+						record.getTraderMatches(i));
+			}
+			for (int i = 0; i < record.getNumOfAdvice(); i++) {
+				s.append(" ").append(record.getAdviceId(i)).append("=").append(
+						record.getAdvice(i));
+			}
+			events.add(s.toString());
+		}
+
+		public void close() {
+		}
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(BinaryExperimentSinkTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(BinaryExperimentSinkTest.class);
+	}
+}
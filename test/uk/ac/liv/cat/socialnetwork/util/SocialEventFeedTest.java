@@ -0,0 +1,128 @@
+package uk.ac.liv.cat.socialnetwork.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.log4j.Logger;
+
+import edu.cuny.cat.MyTestCase;
+
+/**
+ * @author Martin Chapman
+ * @version 1
+ */
+public class SocialEventFeedTest extends MyTestCase {
+
+	static Logger logger = Logger.getLogger(SocialEventFeedTest.class);
+
+	public SocialEventFeedTest(final String name) {
+		super(name);
+	}
+
+	public void testRead() {
+		System.out.println("\n>>>>>>>>>\t " + "testRead() \n");
+
+		final SocialEventFeed feed = new SocialEventFeed(5);
+		Assert.assertEquals(8, feed.getCapacity());
+
+		final AtomicInteger notified = new AtomicInteger();
+		feed.addListener(new SocialEventFeed.Listener() {
+			public void eventsPublished(SocialEventFeed feed) {
+				notified.incrementAndGet();
+			}
+		});
+		Assert.assertTrue(feed.hasListeners());
+
+		// events before the reader is created are not read
+		feed.publish(SocialEvent.Kind.ENTRY, "buyer0", "enters specialist0");
+		final SocialEventFeed.Reader reader = feed.createReader();
+
+		feed.publish(SocialEvent.Kind.REFERRER, "buyer1", "seller0 is selected");
+		feed.publish(SocialEvent.Kind.ADVICE, "buyer1", "is advised");
+		Assert.assertEquals(3, notified.get());
+
+		final List<SocialEvent> events = new ArrayList<SocialEvent>();
+		Assert.assertEquals(2, reader.read(events));
+		Assert.assertEquals(SocialEvent.Kind.REFERRER, events.get(0).getKind());
+		Assert.assertEquals("buyer1", events.get(0).getTraderId());
+		Assert.assertEquals("is advised", events.get(1).getText());
+		Assert.assertEquals(2, events.get(1).getSequence());
+
+		events.clear();
+		Assert.assertEquals(0, reader.read(events));
+		Assert.assertEquals(0, reader.getNumOfLost());
+	}
+
+	public void testLagging() {
+		System.out.println("\n>>>>>>>>>\t " + "testLagging() \n");
+
+		final SocialEventFeed feed = new SocialEventFeed(8);
+		final SocialEventFeed.Reader reader = feed.createReader();
+
+		for (int i = 0; i < 20; i++) {
+			feed.publish(SocialEvent.Kind.SHOUT, "seller" + i, "places a shout");
+		}
+
+		// only the latest events are kept
+		final List<SocialEvent> events = new ArrayList<SocialEvent>();
+		Assert.assertEquals(8, reader.read(events));
+		Assert.assertEquals(12, reader.getNumOfLost());
+		for (int i = 0; i < events.size(); i++) {
+			Assert.assertEquals("seller" + (12 + i), events.get(i).getTraderId());
+		}
+	}
+
+	public void testConcurrentPublishing() throws InterruptedException {
+		System.out.println("\n>>>>>>>>>\t " + "testConcurrentPublishing() \n");
+
+		final int numOfThreads = 4;
+		final int numOfEvents = 10000;
+
+		final SocialEventFeed feed = new SocialEventFeed(numOfThreads
+				* numOfEvents);
+		final SocialEventFeed.Reader reader = feed.createReader();
+
+		final Thread threads[] = new Thread[numOfThreads];
+		for (int i = 0; i < threads.length; i++) {
+			final String traderId = "trader" + i;
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					for (int j = 0; j < numOfEvents; j++) {
+						feed.publish(SocialEvent.Kind.MATCH, traderId, String.valueOf(j));
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		final List<SocialEvent> events = new ArrayList<SocialEvent>();
+		Assert.assertEquals(numOfThreads * numOfEvents, reader.read(events));
+		Assert.assertEquals(0, reader.getNumOfLost());
+
+		// the events of each publisher are read in the order published
+		final int next[] = new int[numOfThreads];
+		for (int i = 0; i < events.size(); i++) {
+			final SocialEvent event = events.get(i);
+			Assert.assertEquals(i, event.getSequence());
+			final int thread = Integer.parseInt(event.getTraderId().substring(
+					"trader".length()));
+			Assert.assertEquals(String.valueOf(next[thread]++), event.getText());
+		}
+	}
+
+	public static void main(final String[] args) {
+		junit.textui.TestRunner.run(SocialEventFeedTest.suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(SocialEventFeedTest.class);
+	}
+}